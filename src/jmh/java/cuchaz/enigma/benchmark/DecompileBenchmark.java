@@ -0,0 +1,42 @@
+package cuchaz.enigma.benchmark;
+
+import cuchaz.enigma.EnigmaProject;
+import cuchaz.enigma.ProgressListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decompiling a whole jar takes long enough that every invocation is timed on its own.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DecompileBenchmark {
+	@State(Scope.Benchmark)
+	public static class Exported {
+		EnigmaProject.JarExport export;
+
+		@Setup(Level.Trial)
+		public void setup(SyntheticProject project) {
+			export = project.project.exportRemappedJar(ProgressListener.none());
+		}
+	}
+
+	@Benchmark
+	public EnigmaProject.SourceExport decompile(Exported exported) {
+		return exported.export.decompile(ProgressListener.none());
+	}
+}
@@ -0,0 +1,56 @@
+package cuchaz.enigma.benchmark;
+
+import cuchaz.enigma.EnigmaProject;
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.analysis.index.JarIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JarBenchmark {
+	@State(Scope.Benchmark)
+	public static class Exported {
+		EnigmaProject.JarExport export;
+		Path output;
+
+		@Setup(Level.Trial)
+		public void setup(SyntheticProject project) {
+			export = project.project.exportRemappedJar(ProgressListener.none());
+			output = project.directory.resolve("output.jar");
+		}
+	}
+
+	@Benchmark
+	public JarIndex indexJar(SyntheticProject project) {
+		JarIndex index = JarIndex.empty();
+		index.indexJar(project.project.getClassCache(), ProgressListener.none());
+		return index;
+	}
+
+	@Benchmark
+	public EnigmaProject.JarExport exportRemappedJar(SyntheticProject project) {
+		return project.project.exportRemappedJar(ProgressListener.none());
+	}
+
+	@Benchmark
+	public void writeRemappedJar(Exported exported) throws IOException {
+		exported.export.write(exported.output, ProgressListener.none());
+	}
+}
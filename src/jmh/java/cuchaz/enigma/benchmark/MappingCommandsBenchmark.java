@@ -0,0 +1,45 @@
+package cuchaz.enigma.benchmark;
+
+import cuchaz.enigma.command.MappingCommandsUtil;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MappingCommandsBenchmark {
+	@State(Scope.Benchmark)
+	public static class Inverted {
+		EntryTree<EntryMapping> inverted;
+
+		@Setup(Level.Trial)
+		public void setup(SyntheticMappings mappings) {
+			inverted = MappingCommandsUtil.invert(mappings.mappings);
+		}
+	}
+
+	@Benchmark
+	public EntryTree<EntryMapping> invert(SyntheticMappings mappings) {
+		return MappingCommandsUtil.invert(mappings.mappings);
+	}
+
+	@Benchmark
+	public EntryTree<EntryMapping> compose(SyntheticMappings mappings, Inverted inverted) {
+		return MappingCommandsUtil.compose(mappings.mappings, inverted.inverted, true, true);
+	}
+}
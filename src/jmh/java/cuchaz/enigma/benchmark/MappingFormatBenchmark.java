@@ -0,0 +1,84 @@
+package cuchaz.enigma.benchmark;
+
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.throwables.MappingParseException;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.MappingSaveResult;
+import cuchaz.enigma.translation.mapping.serde.MappingFormat;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads and writes the generated mappings in every format that has a reader or a writer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MappingFormatBenchmark {
+	@State(Scope.Benchmark)
+	public static class Readable {
+		@Param({"ENIGMA_FILE", "ENIGMA_DIRECTORY", "TINY_V2", "TINY_FILE", "PROGUARD"})
+		public MappingFormat format;
+
+		Path path;
+
+		@Setup(Level.Trial)
+		public void setup(SyntheticMappings mappings) throws IOException {
+			path = mappings.directory.resolve("read-" + format.name().toLowerCase());
+			if (format == MappingFormat.PROGUARD) {
+				mappings.jar.writeProguard(path);
+			} else {
+				MappingSaveResult result = format.write(mappings.mappings, path, ProgressListener.none(), SyntheticJar.SAVE_PARAMETERS);
+				if (!result.isSuccessful()) {
+					throw new IOException("Failed to write mappings: " + result);
+				}
+			}
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class Writable {
+		@Param({"ENIGMA_FILE", "ENIGMA_DIRECTORY", "TINY_V2", "TINY_FILE", "SRG_FILE"})
+		public MappingFormat format;
+
+		Path path;
+
+		@Setup(Level.Trial)
+		public void setup(SyntheticMappings mappings) {
+			path = mappings.directory.resolve("write-" + format.name().toLowerCase());
+		}
+	}
+
+	@Benchmark
+	public EntryTree<EntryMapping> read(Readable readable) throws IOException, MappingParseException {
+		return readable.format.read(readable.path, ProgressListener.none(), SyntheticJar.SAVE_PARAMETERS);
+	}
+
+	@Benchmark
+	public void readClasses(Readable readable, Blackhole blackhole) throws IOException, MappingParseException {
+		readable.format.getReader().readClasses(readable.path, ProgressListener.none(), SyntheticJar.SAVE_PARAMETERS, blackhole::consume);
+	}
+
+	@Benchmark
+	public MappingSaveResult write(Writable writable, SyntheticMappings mappings) {
+		return writable.format.write(mappings.mappings, writable.path, ProgressListener.none(), SyntheticJar.SAVE_PARAMETERS);
+	}
+}
@@ -0,0 +1,79 @@
+package cuchaz.enigma.benchmark;
+
+import com.strobel.decompiler.languages.java.ast.CompilationUnit;
+import cuchaz.enigma.CompiledSourceTypeLoader;
+import cuchaz.enigma.EnigmaProject;
+import cuchaz.enigma.SourceProvider;
+import cuchaz.enigma.analysis.SourceIndex;
+import cuchaz.enigma.gui.DecompiledClassSource;
+import cuchaz.enigma.translation.Translator;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Remaps the tokens of already decompiled classes, as the editor does whenever a mapping changes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SourceRemapBenchmark {
+	@State(Scope.Benchmark)
+	public static class Decompiled {
+		@Param("100")
+		public int sourceCount;
+
+		EnigmaProject project;
+		List<DecompiledClassSource> sources;
+
+		@Setup(Level.Trial)
+		public void setup(SyntheticProject project) {
+			this.project = project.project;
+
+			CompiledSourceTypeLoader typeLoader = new CompiledSourceTypeLoader(this.project.getRemappedClasses().getFixed());
+			SourceProvider sourceProvider = new SourceProvider(SourceProvider.createSettings(), typeLoader);
+
+			sources = this.project.getJarIndex().getEntryIndex().getClasses().stream()
+					.filter(entry -> !entry.isInnerClass())
+					.sorted()
+					.limit(sourceCount)
+					.map(entry -> decompile(sourceProvider, entry))
+					.collect(Collectors.toList());
+		}
+
+		private DecompiledClassSource decompile(SourceProvider sourceProvider, ClassEntry entry) {
+			CompilationUnit sourceTree = sourceProvider.getSources(entry.getFullName());
+			String source = sourceProvider.writeSourceToString(sourceTree);
+
+			SourceIndex index = SourceIndex.buildIndex(source, sourceTree, true);
+			index.resolveReferences(project.getMapper().getObfResolver());
+			return new DecompiledClassSource(entry, index);
+		}
+	}
+
+	@Benchmark
+	public void remapSource(Decompiled decompiled, Blackhole blackhole) {
+		Translator deobfuscator = decompiled.project.getMapper().getDeobfuscator();
+		for (DecompiledClassSource source : decompiled.sources) {
+			source.remapSource(decompiled.project, deobfuscator);
+			blackhole.consume(source.getIndex());
+		}
+	}
+}
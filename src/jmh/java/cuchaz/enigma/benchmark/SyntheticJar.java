@@ -0,0 +1,412 @@
+package cuchaz.enigma.benchmark;
+
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.MappingFileNameFormat;
+import cuchaz.enigma.translation.mapping.MappingSaveParameters;
+import cuchaz.enigma.translation.mapping.serde.MappingFormat;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.representation.MethodDescriptor;
+import cuchaz.enigma.translation.representation.TypeDescriptor;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.LocalVariableEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import cuchaz.enigma.utils.LFPrintWriter;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+
+/**
+ * Generates an obfuscated-looking jar together with mappings that name everything in it.
+ * <p>
+ * The output only depends on the class count and the seed. Classes have short lowercase names in the default
+ * package, extend each other, override inherited methods, call and read members of other classes, and some of them
+ * have an inner class. Mappings move every class into a package and name its fields, methods and parameters.
+ */
+public final class SyntheticJar {
+	private static final String OBJECT = "java/lang/Object";
+	private static final int PACKAGE_COUNT = 32;
+
+	public static final MappingSaveParameters SAVE_PARAMETERS = new MappingSaveParameters(MappingFileNameFormat.BY_DEOBF);
+
+	private final List<ClassModel> classes;
+	private final Map<String, ClassModel> classesByName = new HashMap<>();
+
+	private SyntheticJar(List<ClassModel> classes) {
+		this.classes = classes;
+		for (ClassModel model : classes) {
+			classesByName.put(model.name, model);
+		}
+	}
+
+	public static SyntheticJar generate(int classCount, long seed) {
+		Random random = new Random(seed);
+
+		List<ClassModel> topLevel = new ArrayList<>(classCount);
+		List<ClassModel> classes = new ArrayList<>();
+		for (int i = 0; i < classCount; i++) {
+			ClassModel superClass = i > 0 && random.nextBoolean() ? topLevel.get(random.nextInt(i)) : null;
+			ClassModel model = new ClassModel(obfName(i), "p" + (i % PACKAGE_COUNT) + "/Class" + i, superClass, null);
+			topLevel.add(model);
+			classes.add(model);
+
+			if (random.nextInt(5) == 0) {
+				ClassModel inner = new ClassModel(model.name + "$a", "Inner", null, model);
+				model.innerClasses.add(inner);
+				classes.add(inner);
+			}
+		}
+
+		for (ClassModel model : classes) {
+			model.addMembers(random, topLevel);
+		}
+
+		for (ClassModel model : classes) {
+			model.addCalls(random, classes);
+		}
+
+		return new SyntheticJar(classes);
+	}
+
+	public int getClassCount() {
+		return classes.size();
+	}
+
+	public void writeJar(Path path) throws IOException {
+		try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(path))) {
+			for (ClassModel model : classes) {
+				out.putNextEntry(new JarEntry(model.name + ".class"));
+				out.write(model.toBytes());
+				out.closeEntry();
+			}
+		}
+	}
+
+	public EntryTree<EntryMapping> getMappings() {
+		EntryTree<EntryMapping> mappings = new HashEntryTree<>();
+		for (ClassModel model : classes) {
+			ClassEntry classEntry = model.getEntry();
+			mappings.insert(classEntry, new EntryMapping(model.deobfName));
+
+			for (FieldModel field : model.fields) {
+				mappings.insert(new FieldEntry(classEntry, field.name, new TypeDescriptor(field.descriptor)), new EntryMapping(field.deobfName));
+			}
+
+			for (MethodModel method : model.methods) {
+				MethodEntry methodEntry = new MethodEntry(classEntry, method.name, new MethodDescriptor(method.descriptor));
+				mappings.insert(methodEntry, new EntryMapping(method.deobfName));
+
+				int index = 1;
+				Type[] arguments = Type.getArgumentTypes(method.descriptor);
+				for (int i = 0; i < arguments.length; i++) {
+					mappings.insert(new LocalVariableEntry(methodEntry, index, "", true, null), new EntryMapping("arg" + i));
+					index += arguments[i].getSize();
+				}
+			}
+		}
+		return mappings;
+	}
+
+	/**
+	 * Writes the mappings in the ProGuard format, which maps from named to obfuscated names and has no writer.
+	 */
+	public void writeProguard(Path path) throws IOException {
+		try (PrintWriter writer = new LFPrintWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8))) {
+			for (ClassModel model : classes) {
+				writer.println(model.getFullDeobfName().replace('/', '.') + " -> " + model.name.replace('/', '.') + ":");
+				for (FieldModel field : model.fields) {
+					writer.println("    " + javaName(Type.getType(field.descriptor)) + " " + field.deobfName + " -> " + field.name);
+				}
+				for (MethodModel method : model.methods) {
+					String arguments = Arrays.stream(Type.getArgumentTypes(method.descriptor))
+							.map(this::javaName)
+							.collect(Collectors.joining(","));
+					writer.println("    " + javaName(Type.getReturnType(method.descriptor)) + " " + method.deobfName + "(" + arguments + ") -> " + method.name);
+				}
+			}
+		}
+	}
+
+	private String javaName(Type type) {
+		ClassModel model = type.getSort() == Type.OBJECT ? classesByName.get(type.getInternalName()) : null;
+		return model != null ? model.getFullDeobfName().replace('/', '.') : type.getClassName();
+	}
+
+	static String obfName(int index) {
+		StringBuilder name = new StringBuilder();
+		do {
+			name.insert(0, (char) ('a' + index % 26));
+			index = index / 26 - 1;
+		} while (index >= 0);
+		return name.toString();
+	}
+
+	/**
+	 * Writes a jar and its mappings to disk, for looking at or for running the commands against:
+	 * {@code <jar> <enigma mappings directory> [class count] [seed]}.
+	 */
+	public static void main(String[] args) throws IOException {
+		int classCount = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+		long seed = args.length > 3 ? Long.parseLong(args[3]) : 0;
+
+		SyntheticJar jar = generate(classCount, seed);
+		jar.writeJar(Paths.get(args[0]));
+		MappingFormat.ENIGMA_DIRECTORY.write(jar.getMappings(), Paths.get(args[1]), ProgressListener.none(), SAVE_PARAMETERS);
+	}
+
+	private static final class ClassModel {
+		final String name;
+		final String deobfName;
+		final ClassModel superClass;
+		final ClassModel outerClass;
+		final List<FieldModel> fields = new ArrayList<>();
+		final List<MethodModel> methods = new ArrayList<>();
+		final List<ClassModel> innerClasses = new ArrayList<>();
+
+		ClassModel(String name, String deobfName, ClassModel superClass, ClassModel outerClass) {
+			this.name = name;
+			this.deobfName = deobfName;
+			this.superClass = superClass;
+			this.outerClass = outerClass;
+		}
+
+		ClassEntry getEntry() {
+			return new ClassEntry(name);
+		}
+
+		String getFullDeobfName() {
+			return outerClass != null ? outerClass.getFullDeobfName() + "$" + deobfName : deobfName;
+		}
+
+		String getSuperName() {
+			return superClass != null ? superClass.name : OBJECT;
+		}
+
+		void addMembers(Random random, List<ClassModel> topLevel) {
+			int fieldCount = 1 + random.nextInt(5);
+			for (int i = 0; i < fieldCount; i++) {
+				fields.add(new FieldModel(obfName(i), randomType(random, topLevel), "field" + i));
+			}
+
+			// obfuscators reuse the names of inherited methods only for overrides
+			int nameIndex = 0;
+			for (ClassModel ancestor = superClass; ancestor != null; ancestor = ancestor.superClass) {
+				nameIndex += ancestor.methods.size();
+			}
+
+			if (superClass != null) {
+				for (MethodModel inherited : superClass.getAllMethods()) {
+					if (random.nextInt(3) == 0) {
+						methods.add(new MethodModel(inherited.name, inherited.descriptor, inherited.deobfName, true));
+					}
+				}
+			}
+
+			int methodCount = 2 + random.nextInt(6);
+			for (int i = 0; i < methodCount; i++) {
+				StringBuilder descriptor = new StringBuilder("(");
+				int argumentCount = random.nextInt(4);
+				for (int j = 0; j < argumentCount; j++) {
+					descriptor.append(randomType(random, topLevel));
+				}
+				descriptor.append(random.nextBoolean() ? ")V" : ")I");
+
+				methods.add(new MethodModel(obfName(nameIndex + i), descriptor.toString(), "method" + (nameIndex + i), false));
+			}
+		}
+
+		List<MethodModel> getAllMethods() {
+			List<MethodModel> all = superClass != null ? superClass.getAllMethods() : new ArrayList<>();
+			for (MethodModel method : methods) {
+				if (!method.override) {
+					all.add(method);
+				}
+			}
+			return all;
+		}
+
+		void addCalls(Random random, List<ClassModel> classes) {
+			for (MethodModel method : methods) {
+				int callCount = random.nextInt(4);
+				for (int i = 0; i < callCount; i++) {
+					ClassModel target = classes.get(random.nextInt(classes.size()));
+					method.calls.add(new Call(target, target.methods.get(random.nextInt(target.methods.size()))));
+				}
+				method.reads.add(fields.get(random.nextInt(fields.size())));
+			}
+		}
+
+		byte[] toBytes() {
+			ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+			writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, name, null, getSuperName(), null);
+
+			if (outerClass != null) {
+				writer.visitInnerClass(name, outerClass.name, "a", Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC);
+			}
+			for (ClassModel inner : innerClasses) {
+				writer.visitInnerClass(inner.name, name, "a", Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC);
+			}
+
+			for (FieldModel field : fields) {
+				writer.visitField(Opcodes.ACC_PUBLIC, field.name, field.descriptor, null, null).visitEnd();
+			}
+
+			MethodVisitor init = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+			init.visitCode();
+			init.visitVarInsn(Opcodes.ALOAD, 0);
+			init.visitMethodInsn(Opcodes.INVOKESPECIAL, getSuperName(), "<init>", "()V", false);
+			init.visitInsn(Opcodes.RETURN);
+			init.visitMaxs(0, 0);
+			init.visitEnd();
+
+			for (MethodModel method : methods) {
+				method.write(writer, this);
+			}
+
+			writer.visitEnd();
+			return writer.toByteArray();
+		}
+	}
+
+	private static final class FieldModel {
+		final String name;
+		final String descriptor;
+		final String deobfName;
+
+		FieldModel(String name, String descriptor, String deobfName) {
+			this.name = name;
+			this.descriptor = descriptor;
+			this.deobfName = deobfName;
+		}
+	}
+
+	private static final class MethodModel {
+		final String name;
+		final String descriptor;
+		final String deobfName;
+		final boolean override;
+		final List<Call> calls = new ArrayList<>();
+		final List<FieldModel> reads = new ArrayList<>();
+
+		MethodModel(String name, String descriptor, String deobfName, boolean override) {
+			this.name = name;
+			this.descriptor = descriptor;
+			this.deobfName = deobfName;
+			this.override = override;
+		}
+
+		void write(ClassWriter writer, ClassModel owner) {
+			MethodVisitor visitor = writer.visitMethod(Opcodes.ACC_PUBLIC, name, descriptor, null, null);
+			visitor.visitCode();
+
+			if (override) {
+				callSuper(visitor, owner.getSuperName());
+			}
+
+			for (FieldModel field : reads) {
+				visitor.visitVarInsn(Opcodes.ALOAD, 0);
+				visitor.visitFieldInsn(Opcodes.GETFIELD, owner.name, field.name, field.descriptor);
+				pop(visitor, Type.getType(field.descriptor));
+			}
+
+			for (Call call : calls) {
+				visitor.visitTypeInsn(Opcodes.NEW, call.owner.name);
+				visitor.visitInsn(Opcodes.DUP);
+				visitor.visitMethodInsn(Opcodes.INVOKESPECIAL, call.owner.name, "<init>", "()V", false);
+				pushArguments(visitor, call.method.descriptor);
+				visitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, call.owner.name, call.method.name, call.method.descriptor, false);
+				pop(visitor, Type.getReturnType(call.method.descriptor));
+			}
+
+			Type returnType = Type.getReturnType(descriptor);
+			if (returnType.getSort() == Type.VOID) {
+				visitor.visitInsn(Opcodes.RETURN);
+			} else {
+				visitor.visitIntInsn(Opcodes.BIPUSH, reads.size() + calls.size());
+				visitor.visitInsn(Opcodes.IRETURN);
+			}
+
+			visitor.visitMaxs(0, 0);
+			visitor.visitEnd();
+		}
+
+		private void callSuper(MethodVisitor visitor, String superName) {
+			visitor.visitVarInsn(Opcodes.ALOAD, 0);
+
+			int index = 1;
+			for (Type argument : Type.getArgumentTypes(descriptor)) {
+				visitor.visitVarInsn(argument.getOpcode(Opcodes.ILOAD), index);
+				index += argument.getSize();
+			}
+
+			visitor.visitMethodInsn(Opcodes.INVOKESPECIAL, superName, name, descriptor, false);
+			pop(visitor, Type.getReturnType(descriptor));
+		}
+
+		private static void pushArguments(MethodVisitor visitor, String descriptor) {
+			for (Type argument : Type.getArgumentTypes(descriptor)) {
+				switch (argument.getSort()) {
+					case Type.INT:
+						visitor.visitInsn(Opcodes.ICONST_0);
+						break;
+					case Type.LONG:
+						visitor.visitInsn(Opcodes.LCONST_0);
+						break;
+					default:
+						visitor.visitInsn(Opcodes.ACONST_NULL);
+						break;
+				}
+			}
+		}
+
+		private static void pop(MethodVisitor visitor, Type type) {
+			if (type.getSize() == 2) {
+				visitor.visitInsn(Opcodes.POP2);
+			} else if (type.getSize() == 1) {
+				visitor.visitInsn(Opcodes.POP);
+			}
+		}
+	}
+
+	private static final class Call {
+		final ClassModel owner;
+		final MethodModel method;
+
+		Call(ClassModel owner, MethodModel method) {
+			this.owner = owner;
+			this.method = method;
+		}
+	}
+
+	private static String randomType(Random random, List<ClassModel> topLevel) {
+		switch (random.nextInt(4)) {
+			case 0:
+				return "I";
+			case 1:
+				return "J";
+			case 2:
+				return "Ljava/lang/String;";
+			default:
+				return "L" + topLevel.get(random.nextInt(topLevel.size())).name + ";";
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package cuchaz.enigma.benchmark;
+
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * A generated jar model and its mappings, plus a scratch directory for the benchmarks to write into.
+ * The size is picked with {@code -p classCount=...}.
+ */
+@State(Scope.Benchmark)
+public class SyntheticMappings {
+	@Param("1000")
+	public int classCount;
+
+	@Param("0")
+	public long seed;
+
+	public SyntheticJar jar;
+	public EntryTree<EntryMapping> mappings;
+	public Path directory;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		jar = SyntheticJar.generate(classCount, seed);
+		mappings = jar.getMappings();
+		directory = Files.createTempDirectory("enigma-benchmark");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		try (Stream<Path> files = Files.walk(directory)) {
+			for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(file);
+			}
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package cuchaz.enigma.benchmark;
+
+import cuchaz.enigma.Enigma;
+import cuchaz.enigma.EnigmaProject;
+import cuchaz.enigma.ProgressListener;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * The generated jar, opened and indexed, with its mappings applied.
+ */
+@State(Scope.Benchmark)
+public class SyntheticProject {
+	public Path directory;
+	public EnigmaProject project;
+
+	@Setup(Level.Trial)
+	public void setup(SyntheticMappings mappings) throws IOException {
+		directory = mappings.directory;
+
+		Path jarPath = directory.resolve("input.jar");
+		mappings.jar.writeJar(jarPath);
+
+		project = Enigma.create().openJar(jarPath, ProgressListener.none());
+		project.setMappings(mappings.mappings);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		project.getClassCache().close();
+	}
+}
@@ -12,6 +12,7 @@
 package cuchaz.enigma;
 
 import cuchaz.enigma.command.*;
+import cuchaz.enigma.metrics.Metrics;
 
 import java.util.LinkedHashMap;
 import java.util.Locale;
@@ -43,6 +44,8 @@ public class CommandMain {
 				cmd.run(cmdArgs);
 			} catch (Exception ex) {
 				throw new CommandHelpException(cmd, ex);
+			} finally {
+				Metrics.report();
 			}
 		} catch (CommandHelpException ex) {
 			System.err.println(ex.getMessage());
@@ -87,6 +90,7 @@ public class CommandMain {
 		register(new InvertMappingsCommand());
 		register(new CheckMappingsCommand());
 		register(new MapSpecializedMethodsCommand());
+		register(new BatchCommand(COMMANDS));
 	}
 
 	private static final class CommandHelpException extends IllegalArgumentException {
@@ -7,4 +7,13 @@ import javax.annotation.Nullable;
 public interface CompiledSource {
 	@Nullable
 	ClassNode getClassNode(String name);
+
+	/**
+	 * Returns the bytes of a class as the decompiler should see them, for sources that prepare and keep them, or null
+	 * to have them written from {@link #getClassNode}.
+	 */
+	@Nullable
+	default byte[] getDecompilerBytes(String name) {
+		return null;
+	}
 }
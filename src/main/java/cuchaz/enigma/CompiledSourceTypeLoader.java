@@ -64,6 +64,16 @@ public class CompiledSourceTypeLoader extends CachingTypeLoader {
 	private byte[] loadType(String className) {
 		ClassEntry entry = new ClassEntry(className);
 
+		if (this.visitors.isEmpty()) {
+			// the source may have prepared its classes for decompilation already
+			for (String name : getClassNamesToTry(entry)) {
+				byte[] data = compiledSource.getDecompilerBytes(name);
+				if (data != null) {
+					return data;
+				}
+			}
+		}
+
 		// find the class in the jar
 		ClassNode node = findClassNode(entry);
 		if (node == null) {
@@ -86,7 +96,7 @@ public class CompiledSourceTypeLoader extends CachingTypeLoader {
 		return writer.toByteArray();
 	}
 
-	private void removeRedundantClassCalls(ClassNode node) {
+	static void removeRedundantClassCalls(ClassNode node) {
 		// remove <obj>.getClass() calls that are seemingly injected
 		//	DUP
 		//	INVOKEVIRTUAL java/lang/Object.getClass ()Ljava/lang/Class;
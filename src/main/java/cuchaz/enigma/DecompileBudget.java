@@ -0,0 +1,43 @@
+package cuchaz.enigma;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long, and how much allocation, decompiling a single class may take before it is cancelled and retried with
+ * less detail. A limit of zero means no limit.
+ */
+public final class DecompileBudget {
+	public static final DecompileBudget UNLIMITED = new DecompileBudget(0, 0);
+
+	private static final long DEFAULT_TIMEOUT_SECONDS = 120;
+
+	private final long timeoutMillis;
+	private final long maxAllocatedBytes;
+
+	public DecompileBudget(long timeoutMillis, long maxAllocatedBytes) {
+		this.timeoutMillis = timeoutMillis;
+		this.maxAllocatedBytes = maxAllocatedBytes;
+	}
+
+	/**
+	 * Reads the budget from {@code enigma.decompile.timeout} (seconds, 120 by default) and
+	 * {@code enigma.decompile.maxAllocation} (megabytes, unlimited by default).
+	 */
+	public static DecompileBudget fromSystemProperties() {
+		long timeoutSeconds = Long.getLong("enigma.decompile.timeout", DEFAULT_TIMEOUT_SECONDS);
+		long maxAllocationMegabytes = Long.getLong("enigma.decompile.maxAllocation", 0);
+		return new DecompileBudget(TimeUnit.SECONDS.toMillis(timeoutSeconds), maxAllocationMegabytes * 1024 * 1024);
+	}
+
+	public boolean isUnlimited() {
+		return timeoutMillis <= 0 && maxAllocatedBytes <= 0;
+	}
+
+	public long getTimeoutMillis() {
+		return timeoutMillis;
+	}
+
+	public long getMaxAllocatedBytes() {
+		return maxAllocatedBytes;
+	}
+}
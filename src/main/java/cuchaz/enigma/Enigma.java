@@ -18,16 +18,21 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
 import cuchaz.enigma.analysis.ClassCache;
 import cuchaz.enigma.analysis.index.JarIndex;
+import cuchaz.enigma.analysis.index.LibraryIndex;
+import cuchaz.enigma.analysis.index.LibraryIndexCache;
 import cuchaz.enigma.api.EnigmaPlugin;
 import cuchaz.enigma.api.EnigmaPluginContext;
 import cuchaz.enigma.api.service.EnigmaService;
 import cuchaz.enigma.api.service.EnigmaServiceFactory;
 import cuchaz.enigma.api.service.EnigmaServiceType;
 import cuchaz.enigma.api.service.JarIndexerService;
+import cuchaz.enigma.metrics.Metrics;
 
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,10 +41,12 @@ import java.util.ServiceLoader;
 public class Enigma {
 	private final EnigmaProfile profile;
 	private final EnigmaServices services;
+	private final LibraryIndexCache libraryCache;
 
-	private Enigma(EnigmaProfile profile, EnigmaServices services) {
+	private Enigma(EnigmaProfile profile, EnigmaServices services, LibraryIndexCache libraryCache) {
 		this.profile = profile;
 		this.services = services;
+		this.libraryCache = libraryCache;
 	}
 
 	public static Enigma create() {
@@ -51,12 +58,34 @@ public class Enigma {
 	}
 
 	public EnigmaProject openJar(Path path, ProgressListener progress) throws IOException {
-		ClassCache classCache = ClassCache.of(path);
-		JarIndex jarIndex = classCache.index(progress);
+		return openJar(path, Collections.emptyList(), progress);
+	}
+
+	/**
+	 * Opens a jar along with the jars it depends on, which are only read for their declarations. Library indexes are
+	 * taken from the library cache when the same jar was indexed before.
+	 */
+	public EnigmaProject openJar(Path path, Collection<Path> libraries, ProgressListener progress) throws IOException {
+		LibraryIndex libraryIndex = Metrics.time("openJar.libraries", () -> getLibraryCache().index(libraries, progress));
+		return openJar(path, libraryIndex, progress);
+	}
 
-		services.get(JarIndexerService.TYPE).forEach(indexer -> indexer.acceptJar(classCache, jarIndex));
+	/**
+	 * Opens a jar against libraries that were already indexed, which may be shared with other projects.
+	 */
+	public EnigmaProject openJar(Path path, LibraryIndex libraryIndex, ProgressListener progress) throws IOException {
+		return Metrics.time("openJar", () -> {
+			ClassCache classCache = Metrics.time("openJar.load", () -> ClassCache.of(path, profile.getClassCacheSettings()));
+			Metrics.count("jar.classes", classCache.getClassCount());
+
+			JarIndex jarIndex = classCache.index(libraryIndex, progress);
+
+			for (JarIndexerService indexer : services.get(JarIndexerService.TYPE)) {
+				Metrics.timeItem("openJar.pluginIndexers", indexer.getClass().getName(), () -> indexer.acceptJar(classCache, jarIndex));
+			}
 
-		return new EnigmaProject(this, classCache, jarIndex);
+			return new EnigmaProject(this, classCache, jarIndex);
+		});
 	}
 
 	public EnigmaProfile getProfile() {
@@ -67,9 +96,14 @@ public class Enigma {
 		return services;
 	}
 
+	public LibraryIndexCache getLibraryCache() {
+		return libraryCache != null ? libraryCache : LibraryIndexCache.getDefault();
+	}
+
 	public static class Builder {
 		private EnigmaProfile profile = EnigmaProfile.EMPTY;
 		private Iterable<EnigmaPlugin> plugins = ServiceLoader.load(EnigmaPlugin.class);
+		private LibraryIndexCache libraryCache;
 
 		private Builder() {
 		}
@@ -86,6 +120,12 @@ public class Enigma {
 			return this;
 		}
 
+		public Builder setLibraryCache(LibraryIndexCache libraryCache) {
+			Preconditions.checkNotNull(libraryCache, "libraryCache cannot be null");
+			this.libraryCache = libraryCache;
+			return this;
+		}
+
 		public Enigma build() {
 			PluginContext pluginContext = new PluginContext(profile);
 			for (EnigmaPlugin plugin : plugins) {
@@ -93,7 +133,7 @@ public class Enigma {
 			}
 
 			EnigmaServices services = pluginContext.buildServices();
-			return new Enigma(profile, services);
+			return new Enigma(profile, services, libraryCache);
 		}
 	}
 
@@ -10,6 +10,7 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
 import com.google.gson.annotations.SerializedName;
 import com.google.gson.reflect.TypeToken;
+import cuchaz.enigma.analysis.ClassCacheSettings;
 import cuchaz.enigma.api.service.EnigmaServiceType;
 import cuchaz.enigma.translation.mapping.MappingFileNameFormat;
 import cuchaz.enigma.translation.mapping.MappingSaveParameters;
@@ -37,6 +38,9 @@ public final class EnigmaProfile {
 	@SerializedName("mapping_save_parameters")
 	private final MappingSaveParameters mappingSaveParameters = null;
 
+	@SerializedName("class_cache")
+	private final ClassCacheSettings classCacheSettings = null;
+
 	private EnigmaProfile(ServiceContainer serviceProfiles) {
 		this.serviceProfiles = serviceProfiles;
 	}
@@ -77,6 +81,11 @@ public final class EnigmaProfile {
 		return mappingSaveParameters == null ? EnigmaProfile.DEFAULT_MAPPING_SAVE_PARAMETERS : mappingSaveParameters;
 	}
 
+	public ClassCacheSettings getClassCacheSettings() {
+		//noinspection ConstantConditions
+		return classCacheSettings == null ? ClassCacheSettings.DEFAULT : classCacheSettings;
+	}
+
 	public static class Service {
 		private final String id;
 		private final Map<String, String> args;
@@ -3,14 +3,12 @@ package cuchaz.enigma;
 import com.google.common.base.Functions;
 import com.strobel.assembler.metadata.ITypeLoader;
 import com.strobel.assembler.metadata.MetadataSystem;
-import com.strobel.decompiler.DecompilerSettings;
-import com.strobel.decompiler.languages.java.ast.CompilationUnit;
 import cuchaz.enigma.analysis.ClassCache;
 import cuchaz.enigma.analysis.EntryReference;
+import cuchaz.enigma.analysis.index.EntryIndex;
 import cuchaz.enigma.analysis.index.JarIndex;
 import cuchaz.enigma.api.service.NameProposalService;
-import cuchaz.enigma.bytecode.translators.SourceFixVisitor;
-import cuchaz.enigma.bytecode.translators.TranslationClassVisitor;
+import cuchaz.enigma.metrics.Metrics;
 import cuchaz.enigma.translation.Translator;
 import cuchaz.enigma.translation.mapping.*;
 import cuchaz.enigma.translation.mapping.tree.DeltaTrackingTree;
@@ -19,23 +17,24 @@ import cuchaz.enigma.translation.representation.entry.ClassEntry;
 import cuchaz.enigma.translation.representation.entry.Entry;
 import cuchaz.enigma.translation.representation.entry.LocalVariableEntry;
 import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import cuchaz.enigma.utils.ZipArchiveReader;
+import cuchaz.enigma.utils.ZipArchiveWriter;
 import org.objectweb.asm.ClassWriter;
-import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.ClassNode;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.io.StringWriter;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Collection;
-import java.util.Map;
-import java.util.Objects;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.jar.JarEntry;
-import java.util.jar.JarOutputStream;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -44,23 +43,34 @@ public class EnigmaProject {
 
 	private final ClassCache classCache;
 	private final JarIndex jarIndex;
+	private final RemappedClassCache remappedClasses;
 
 	private EntryRemapper mapper;
+	private NameProposalCache nameProposals;
 
 	public EnigmaProject(Enigma enigma, ClassCache classCache, JarIndex jarIndex) {
 		this.enigma = enigma;
 		this.classCache = classCache;
 		this.jarIndex = jarIndex;
+		this.remappedClasses = new RemappedClassCache(classCache, jarIndex);
 
 		this.mapper = EntryRemapper.empty(jarIndex);
+		this.nameProposals = createNameProposals(mapper);
 	}
 
 	public void setMappings(EntryTree<EntryMapping> mappings) {
-		if (mappings != null) {
-			mapper = EntryRemapper.mapped(jarIndex, mappings);
-		} else {
-			mapper = EntryRemapper.empty(jarIndex);
-		}
+		Metrics.time("mappings.apply", () -> {
+			if (mappings != null) {
+				mapper = EntryRemapper.mapped(jarIndex, mappings);
+			} else {
+				mapper = EntryRemapper.empty(jarIndex);
+			}
+			nameProposals = createNameProposals(mapper);
+		});
+	}
+
+	private NameProposalCache createNameProposals(EntryRemapper mapper) {
+		return new NameProposalCache(mapper, enigma.getServices().get(NameProposalService.TYPE).toArray(new NameProposalService[0]));
 	}
 
 	public Enigma getEnigma() {
@@ -75,14 +85,24 @@ public class EnigmaProject {
 		return jarIndex;
 	}
 
+	public RemappedClassCache getRemappedClasses() {
+		return remappedClasses;
+	}
+
 	public EntryRemapper getMapper() {
 		return mapper;
 	}
 
+	public NameProposalCache getNameProposals() {
+		return nameProposals;
+	}
+
 	public void dropMappings(ProgressListener progress) {
 		DeltaTrackingTree<EntryMapping> mappings = mapper.getObfToDeobf();
 
-		Collection<Entry<?>> dropped = dropMappings(mappings, progress);
+		Collection<Entry<?>> dropped = Metrics.time("mappings.drop", () -> dropMappings(mappings, progress));
+		Metrics.count("mappings.dropped", dropped.size());
+
 		for (Entry<?> entry : dropped) {
 			mappings.trackChange(entry);
 		}
@@ -142,10 +162,14 @@ public class EnigmaProject {
 	}
 
 	public JarExport exportRemappedJar(ProgressListener progress) {
+		return Metrics.time("remap", () -> remapJar(progress));
+	}
+
+	private JarExport remapJar(ProgressListener progress) {
 		Collection<ClassEntry> classEntries = jarIndex.getEntryIndex().getClasses();
 
-		NameProposalService[] nameProposalServices = getEnigma().getServices().get(NameProposalService.TYPE).toArray(new NameProposalService[0]);
-		Translator deobfuscator = nameProposalServices.length == 0 ? mapper.getDeobfuscator() : new ProposingTranslator(mapper, nameProposalServices);
+		Translator deobfuscator = nameProposals.isEmpty() ? mapper.getDeobfuscator() : new ProposingTranslator(mapper, proposeUnmappedNames());
+		RemappedClassCache.View remapped = remappedClasses.getRemapped(deobfuscator, mapper.getGeneration());
 
 		AtomicInteger count = new AtomicInteger();
 		progress.init(classEntries.size(), "Deobfuscating classes...");
@@ -155,52 +179,135 @@ public class EnigmaProject {
 					ClassEntry translatedEntry = deobfuscator.translate(entry);
 					progress.step(count.getAndIncrement(), translatedEntry.toString());
 
-					ClassNode node = classCache.getClassNode(entry.getFullName());
-					if (node != null) {
-						ClassNode translatedNode = new ClassNode();
-						node.accept(new TranslationClassVisitor(deobfuscator, Opcodes.ASM5, new SourceFixVisitor(Opcodes.ASM5, translatedNode, jarIndex)));
-						return translatedNode;
-					}
-
-					return null;
+					return Metrics.timeItem("remap.class", entry.getFullName(), () -> remapped.getByObfName(entry.getFullName()));
 				})
 				.filter(Objects::nonNull)
 				.collect(Collectors.toMap(n -> n.name, Functions.identity()));
 
-		return new JarExport(jarIndex, compiled);
+		return new JarExport(jarIndex, classCache, new ResourceRemapper(deobfuscator), remapped, compiled);
+	}
+
+	private Function<Entry<?>, Optional<String>> proposeUnmappedNames() {
+		return Metrics.time("remap.proposeNames", () -> {
+			EntryIndex entryIndex = jarIndex.getEntryIndex();
+			List<Entry<?>> unmapped = Stream.of(entryIndex.getClasses(), entryIndex.getMethods(), entryIndex.getFields())
+					.flatMap(Collection::stream)
+					.filter(entry -> !mapper.hasDeobfMapping(entry))
+					.collect(Collectors.toList());
+			return nameProposals.proposeBatch(unmapped);
+		});
 	}
 
 	public static final class JarExport {
 		private final JarIndex jarIndex;
+		private final ClassCache classCache;
+		private final ResourceRemapper resourceRemapper;
+		private final RemappedClassCache.View remapped;
 		private final Map<String, ClassNode> compiled;
 
-		JarExport(JarIndex jarIndex, Map<String, ClassNode> compiled) {
+		JarExport(JarIndex jarIndex, ClassCache classCache, ResourceRemapper resourceRemapper, RemappedClassCache.View remapped, Map<String, ClassNode> compiled) {
 			this.jarIndex = jarIndex;
+			this.classCache = classCache;
+			this.resourceRemapper = resourceRemapper;
+			this.remapped = remapped;
 			this.compiled = compiled;
 		}
 
+		/**
+		 * Writes the remapped classes and the resources of the input jar. Classes are serialized and compressed on
+		 * worker threads, and the entries are written sorted by name with the manifest first, so the same input
+		 * always gives the same jar.
+		 * <p>
+		 * Resources are copied as they are stored in the input jar, without recompressing them, except for those
+		 * naming classes, such as the manifest and service files, which are remapped, and signature files, which are
+		 * dropped.
+		 */
 		public void write(Path path, ProgressListener progress) throws IOException {
-			progress.init(this.compiled.size(), "Writing jar...");
+			Map<String, Supplier<ZipArchiveWriter.Entry>> contents = new TreeMap<>(JarExport::compareEntryNames);
+			for (ClassNode node : this.compiled.values()) {
+				String name = node.name.replace('.', '/') + ".class";
+				contents.put(name, () -> {
+					ClassWriter writer = new ClassWriter(0);
+					node.accept(writer);
+					return ZipArchiveWriter.deflate(name, writer.toByteArray());
+				});
+			}
 
-			try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(path))) {
-				AtomicInteger count = new AtomicInteger();
+			Map<String, ZipArchiveWriter.Entry> stored = readStoredResources();
+			for (String resource : this.classCache.getResourceNames()) {
+				if (!this.resourceRemapper.isKept(resource)) {
+					continue;
+				}
 
-				for (ClassNode node : this.compiled.values()) {
-					progress.step(count.getAndIncrement(), node.name);
+				ZipArchiveWriter.Entry entry = stored.get(resource);
+				if (entry != null) {
+					contents.putIfAbsent(resource, () -> entry);
+				} else {
+					contents.putIfAbsent(this.resourceRemapper.remapName(resource), () -> readResource(resource));
+				}
+			}
 
-					String entryName = node.name.replace('.', '/') + ".class";
+			progress.init(contents.size(), "Writing jar...");
 
-					ClassWriter writer = new ClassWriter(0);
-					node.accept(writer);
+			try {
+				Metrics.time("export.jar", () -> {
+					AtomicInteger count = new AtomicInteger();
+					List<ZipArchiveWriter.Entry> entries = contents.entrySet().parallelStream()
+							.map(content -> {
+								progress.step(count.getAndIncrement(), content.getKey());
+								return content.getValue().get();
+							})
+							.collect(Collectors.toList());
+
+					try (ZipArchiveWriter jar = new ZipArchiveWriter(Files.newOutputStream(path))) {
+						for (ZipArchiveWriter.Entry entry : entries) {
+							jar.write(entry);
+						}
+					}
+				});
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+		}
 
-					out.putNextEntry(new JarEntry(entryName));
-					out.write(writer.toByteArray());
-					out.closeEntry();
-				}
+		private Map<String, ZipArchiveWriter.Entry> readStoredResources() {
+			try {
+				return ZipArchiveReader.readEntries(this.classCache.getJarPath(), name -> !name.endsWith(".class") && !this.resourceRemapper.isRemapped(name));
+			} catch (IOException e) {
+				// not a plain zip file, every resource is read through the jar file system instead
+				System.err.println("Failed to copy resources of " + this.classCache.getJarPath() + " as stored: " + e);
+				return Collections.emptyMap();
+			}
+		}
+
+		private ZipArchiveWriter.Entry readResource(String name) {
+			try {
+				byte[] contents = this.resourceRemapper.remap(name, this.classCache.readResource(name));
+				return ZipArchiveWriter.deflate(this.resourceRemapper.remapName(name), contents);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
 			}
 		}
 
+		private static int compareEntryNames(String a, String b) {
+			// the manifest has to come first for JarInputStream to find it
+			boolean aManifest = a.equals(ResourceRemapper.MANIFEST);
+			boolean bManifest = b.equals(ResourceRemapper.MANIFEST);
+			if (aManifest || bManifest) {
+				return Boolean.compare(!aManifest, !bManifest);
+			}
+			return a.compareTo(b);
+		}
+
 		public SourceExport decompile(ProgressListener progress) {
+			return decompile(progress, DecompileBudget.fromSystemProperties());
+		}
+
+		public SourceExport decompile(ProgressListener progress, DecompileBudget budget) {
+			return Metrics.time("decompile", () -> decompileAll(progress, budget));
+		}
+
+		private SourceExport decompileAll(ProgressListener progress, DecompileBudget budget) {
 			Collection<ClassNode> classes = this.compiled.values().stream()
 					.filter(classNode -> classNode.name.indexOf('$') == -1)
 					.collect(Collectors.toList());
@@ -208,73 +315,169 @@ public class EnigmaProject {
 			progress.init(classes.size(), "Decompiling classes...");
 
 			//create a common instance outside the loop as mappings shouldn't be changing while this is happening
-			CompiledSourceTypeLoader typeLoader = new CompiledSourceTypeLoader(this.compiled::get);
+			CompiledSourceTypeLoader typeLoader = new CompiledSourceTypeLoader(this.remapped);
 
 			//synchronized to make sure the parallelStream doesn't CME with the cache
 			ITypeLoader synchronizedTypeLoader = new SynchronizedTypeLoader(typeLoader);
 
-			MetadataSystem metadataSystem = new NoRetryMetadataSystem(synchronizedTypeLoader);
+			//lets a class that ran over its budget stop at its next type lookup, as Procyon never checks for interruption
+			ITypeLoader interruptibleTypeLoader = (internalName, buffer) -> {
+				if (Thread.currentThread().isInterrupted()) {
+					throw new CancellationException("Decompiling was cancelled");
+				}
+				return synchronizedTypeLoader.tryLoadType(internalName, buffer);
+			};
 
-			//ensures methods are loaded on classload and prevents race conditions
-			metadataSystem.setEagerMethodLoadingEnabled(true);
+			Supplier<SourceProvider> sourceProviders = () -> {
+				MetadataSystem metadataSystem = new NoRetryMetadataSystem(interruptibleTypeLoader);
 
-			DecompilerSettings settings = SourceProvider.createSettings();
-			SourceProvider sourceProvider = new SourceProvider(settings, synchronizedTypeLoader, metadataSystem);
+				//ensures methods are loaded on classload and prevents race conditions
+				metadataSystem.setEagerMethodLoadingEnabled(true);
 
-			AtomicInteger count = new AtomicInteger();
+				return new SourceProvider(SourceProvider.createSettings(), interruptibleTypeLoader, metadataSystem);
+			};
 
-			Collection<ClassSource> decompiled = classes.parallelStream()
-					.map(translatedNode -> {
-						progress.step(count.getAndIncrement(), translatedNode.name);
+			AtomicInteger count = new AtomicInteger();
 
-						String source = decompileClass(translatedNode, sourceProvider);
-						return new ClassSource(translatedNode.name, source);
-					})
-					.collect(Collectors.toList());
+			try (GuardedDecompiler decompiler = new GuardedDecompiler(sourceProviders, budget)) {
+				Collection<ClassSource> decompiled = classes.parallelStream()
+						.map(translatedNode -> {
+							progress.step(count.getAndIncrement(), translatedNode.name);
+							return decompileClass(translatedNode, decompiler);
+						})
+						.collect(Collectors.toList());
 
-			return new SourceExport(decompiled);
+				return new SourceExport(decompiled);
+			}
 		}
 
-		private String decompileClass(ClassNode translatedNode, SourceProvider sourceProvider) {
-			StringWriter writer = new StringWriter();
-			try {
-				CompilationUnit sourceTree = sourceProvider.getSources(translatedNode.name);
-				sourceProvider.writeSource(writer, sourceTree);
-			} catch (Throwable t) {
-				t.printStackTrace();
-				t.printStackTrace(new PrintWriter(writer));
-			}
-			return writer.toString();
+		private ClassSource decompileClass(ClassNode translatedNode, GuardedDecompiler decompiler) {
+			return Metrics.timeItem("decompile.class", translatedNode.name, () -> {
+				GuardedDecompiler.Result result = decompiler.decompile(translatedNode);
+				if (result.retryReason != null) {
+					Metrics.count("decompile.retries", 1);
+				}
+				if (result.failed) {
+					Metrics.count("decompile.failures", 1);
+				}
+				return new ClassSource(translatedNode.name, result);
+			});
 		}
 	}
 
 	public static final class SourceExport {
+		private static final int SLOW_CLASS_COUNT = 10;
+
 		private final Collection<ClassSource> decompiled;
 
 		SourceExport(Collection<ClassSource> decompiled) {
 			this.decompiled = decompiled;
 		}
 
+		/**
+		 * Writes the sources into a directory tree or, if the path names a {@code .zip} or {@code .jar} file, into
+		 * a single archive.
+		 */
 		public void write(Path path, ProgressListener progress) throws IOException {
+			if (isArchive(path)) {
+				writeArchive(path, progress);
+				return;
+			}
+
 			progress.init(decompiled.size(), "Writing sources...");
 
-			int count = 0;
-			for (ClassSource source : decompiled) {
-				progress.step(count++, source.name);
+			Metrics.time("export.sources", () -> {
+				int count = 0;
+				for (ClassSource source : decompiled) {
+					progress.step(count++, source.name);
 
-				Path sourcePath = source.resolvePath(path);
-				source.writeTo(sourcePath);
-			}
+					Path sourcePath = source.resolvePath(path);
+					source.writeTo(sourcePath);
+				}
+			});
+		}
+
+		public static boolean isArchive(Path path) {
+			String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+			return !Files.isDirectory(path) && (name.endsWith(".zip") || name.endsWith(".jar"));
+		}
+
+		private void writeArchive(Path path, ProgressListener progress) throws IOException {
+			List<ClassSource> sources = decompiled.stream()
+					.sorted(Comparator.comparing(source -> source.name))
+					.collect(Collectors.toList());
+
+			progress.init(sources.size(), "Compressing sources...");
+
+			Metrics.time("export.sourceArchive", () -> {
+				AtomicInteger count = new AtomicInteger();
+				List<ZipArchiveWriter.Entry> entries = sources.parallelStream()
+						.map(source -> {
+							progress.step(count.getAndIncrement(), source.name);
+							return ZipArchiveWriter.deflate(source.name + ".java", source.source.getBytes(StandardCharsets.UTF_8));
+						})
+						.collect(Collectors.toList());
+
+				try (ZipArchiveWriter archive = new ZipArchiveWriter(Files.newOutputStream(path))) {
+					for (ZipArchiveWriter.Entry entry : entries) {
+						archive.write(entry);
+					}
+				}
+			});
+		}
+
+		/**
+		 * Returns the classes that had to be retried with less detail, and why, including those that failed.
+		 */
+		public Map<String, String> getRetriedClasses() {
+			return decompiled.stream()
+					.filter(source -> source.retryReason != null)
+					.collect(Collectors.toMap(source -> source.name, source -> source.retryReason, (a, b) -> a, TreeMap::new));
+		}
+
+		/**
+		 * Returns the classes that could not be decompiled, which were exported as stubs without method bodies.
+		 */
+		public Collection<String> getFailedClasses() {
+			return decompiled.stream()
+					.filter(source -> source.failed)
+					.map(source -> source.name)
+					.sorted()
+					.collect(Collectors.toList());
+		}
+
+		public Map<String, Long> getSlowestClasses(int count) {
+			return decompiled.stream()
+					.sorted(Comparator.comparingLong((ClassSource source) -> source.nanos).reversed())
+					.limit(count)
+					.collect(Collectors.toMap(source -> source.name, source -> TimeUnit.NANOSECONDS.toMillis(source.nanos), (a, b) -> a, LinkedHashMap::new));
+		}
+
+		public void printReport(PrintStream out) {
+			Map<String, String> retried = getRetriedClasses();
+			Collection<String> failed = getFailedClasses();
+			out.println(String.format("Decompiled %d classes, %d retried with less detail, %d failed", decompiled.size(), retried.size(), failed.size()));
+
+			retried.forEach((name, reason) -> out.println((failed.contains(name) ? "\tFailed:  " : "\tRetried: ") + name + " (" + reason + ")"));
+
+			out.println("Slowest classes:");
+			getSlowestClasses(SLOW_CLASS_COUNT).forEach((name, millis) -> out.println("\t" + name + ": " + millis + " ms"));
 		}
 	}
 
 	private static class ClassSource {
 		private final String name;
 		private final String source;
+		private final long nanos;
+		private final String retryReason;
+		private final boolean failed;
 
-		ClassSource(String name, String source) {
+		ClassSource(String name, GuardedDecompiler.Result result) {
 			this.name = name;
-			this.source = source;
+			this.source = result.source;
+			this.nanos = result.nanos;
+			this.retryReason = result.retryReason;
+			this.failed = result.failed;
 		}
 
 		void writeTo(Path path) throws IOException {
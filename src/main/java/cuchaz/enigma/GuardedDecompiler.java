@@ -0,0 +1,206 @@
+package cuchaz.enigma;
+
+import com.strobel.decompiler.languages.java.ast.CompilationUnit;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Decompiles classes within a {@link DecompileBudget}.
+ * <p>
+ * A class that fails, or runs over its budget, is retried with less {@link SourceProvider.Detail detail}. If even
+ * its signatures cannot be decompiled, a stub declaring the class is returned. Without a budget classes are
+ * decompiled on the calling thread; with one they are decompiled on worker threads, and a worker over budget is
+ * interrupted and abandoned. Procyon does not check for interruption itself, so the type loader of the source
+ * providers should, and the metadata an abandoned worker may still be using is never used again.
+ */
+final class GuardedDecompiler implements AutoCloseable {
+	private static final long POLL_MILLIS = 100;
+
+	private final Supplier<SourceProvider> sourceProviders;
+	private final DecompileBudget budget;
+
+	private final ExecutorService workers = Executors.newCachedThreadPool(runnable -> {
+		Thread thread = new Thread(runnable, "Decompiler");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private volatile SourceProvider sourceProvider;
+
+	GuardedDecompiler(Supplier<SourceProvider> sourceProviders, DecompileBudget budget) {
+		this.sourceProviders = sourceProviders;
+		this.budget = budget;
+		this.sourceProvider = sourceProviders.get();
+	}
+
+	Result decompile(ClassNode node) {
+		long start = System.nanoTime();
+
+		SourceProvider shared = sourceProvider;
+		Attempt full = attempt(() -> decompile(shared, node.name, SourceProvider.Detail.FULL));
+		if (full.abandoned) {
+			// the abandoned worker may still be updating the shared metadata
+			sourceProvider = sourceProviders.get();
+		}
+		if (full.source != null) {
+			return new Result(full.source, start, null, false);
+		}
+
+		// retries start from fresh metadata, as a failed attempt may have left it inconsistent
+		Attempt reduced = attempt(() -> decompile(sourceProviders.get(), node.name, SourceProvider.Detail.REDUCED));
+		if (reduced.source != null) {
+			return new Result(reduced.source, start, full.failure, false);
+		}
+
+		Attempt signatures = attempt(() -> decompile(sourceProviders.get(), node.name, SourceProvider.Detail.SIGNATURES));
+		String source = signatures.source != null ? signatures.source : stub(node);
+		String notice = "// Enigma could not decompile this class (" + full.failure + "), method bodies are omitted\n";
+		return new Result(notice + source, start, full.failure, true);
+	}
+
+	private static String decompile(SourceProvider sourceProvider, String name, SourceProvider.Detail detail) {
+		CompilationUnit sourceTree = sourceProvider.getSources(name, detail);
+		return sourceProvider.writeSourceToString(sourceTree);
+	}
+
+	private Attempt attempt(Callable<String> task) {
+		if (budget.isUnlimited()) {
+			try {
+				return Attempt.success(task.call());
+			} catch (Throwable t) {
+				// whatever Procyon throws only fails this class, as it would on a worker
+				return Attempt.failure(String.valueOf(t), false);
+			}
+		}
+
+		Running running = new Running();
+		Future<String> future = workers.submit(() -> {
+			running.start();
+			return task.call();
+		});
+
+		long timeout = budget.getTimeoutMillis();
+		long maxAllocated = budget.getMaxAllocatedBytes();
+		long deadline = System.currentTimeMillis() + timeout;
+		while (true) {
+			try {
+				// only polled to check the allocations, otherwise waiting out the timeout at once
+				long wait = maxAllocated > 0 ? POLL_MILLIS : Math.max(deadline - System.currentTimeMillis(), 1);
+				return Attempt.success(future.get(wait, TimeUnit.MILLISECONDS));
+			} catch (TimeoutException e) {
+				if (timeout > 0 && System.currentTimeMillis() >= deadline) {
+					return abandon(future, "timed out after " + TimeUnit.MILLISECONDS.toSeconds(timeout) + " s");
+				}
+
+				if (maxAllocated > 0 && running.allocatedBytes() > maxAllocated) {
+					return abandon(future, "allocated more than " + maxAllocated / (1024 * 1024) + " MB");
+				}
+			} catch (ExecutionException e) {
+				return Attempt.failure(String.valueOf(e.getCause()), false);
+			} catch (InterruptedException e) {
+				future.cancel(true);
+				Thread.currentThread().interrupt();
+				return Attempt.failure("interrupted", true);
+			}
+		}
+	}
+
+	private static Attempt abandon(Future<String> future, String reason) {
+		// the worker is only interrupted, it stops at its next check for interruption
+		future.cancel(true);
+		return Attempt.failure(reason, true);
+	}
+
+	private static long allocatedBytes(Thread thread) {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(thread.getId());
+		}
+		return 0;
+	}
+
+	private static String stub(ClassNode node) {
+		StringBuilder source = new StringBuilder();
+
+		int packageEnd = node.name.lastIndexOf('/');
+		if (packageEnd != -1) {
+			source.append("package ").append(node.name.substring(0, packageEnd).replace('/', '.')).append(";\n\n");
+		}
+
+		if ((node.access & Opcodes.ACC_PUBLIC) != 0) {
+			source.append("public ");
+		}
+
+		if ((node.access & Opcodes.ACC_ANNOTATION) != 0) {
+			source.append("@interface ");
+		} else if ((node.access & Opcodes.ACC_INTERFACE) != 0) {
+			source.append("interface ");
+		} else if ((node.access & Opcodes.ACC_ENUM) != 0) {
+			source.append("enum ");
+		} else {
+			source.append((node.access & Opcodes.ACC_ABSTRACT) != 0 ? "abstract class " : "class ");
+		}
+
+		source.append(node.name.substring(packageEnd + 1)).append(" {\n}\n");
+		return source.toString();
+	}
+
+	@Override
+	public void close() {
+		workers.shutdownNow();
+	}
+
+	static final class Result {
+		final String source;
+		final long nanos;
+		final String retryReason;
+		final boolean failed;
+
+		Result(String source, long start, String retryReason, boolean failed) {
+			this.source = source;
+			this.nanos = System.nanoTime() - start;
+			this.retryReason = retryReason;
+			this.failed = failed;
+		}
+	}
+
+	private static final class Running {
+		volatile Thread thread;
+		volatile long allocatedAtStart;
+
+		void start() {
+			allocatedAtStart = GuardedDecompiler.allocatedBytes(Thread.currentThread());
+			thread = Thread.currentThread();
+		}
+
+		long allocatedBytes() {
+			Thread thread = this.thread;
+			return thread != null ? GuardedDecompiler.allocatedBytes(thread) - allocatedAtStart : 0;
+		}
+	}
+
+	private static final class Attempt {
+		final String source;
+		final String failure;
+		final boolean abandoned;
+
+		private Attempt(String source, String failure, boolean abandoned) {
+			this.source = source;
+			this.failure = failure;
+			this.abandoned = abandoned;
+		}
+
+		static Attempt success(String source) {
+			return new Attempt(source, null, false);
+		}
+
+		static Attempt failure(String failure, boolean abandoned) {
+			return new Attempt(null, failure, abandoned);
+		}
+	}
+}
@@ -13,6 +13,7 @@ package cuchaz.enigma;
 
 import cuchaz.enigma.gui.Gui;
 import cuchaz.enigma.gui.GuiController;
+import cuchaz.enigma.metrics.Metrics;
 import cuchaz.enigma.translation.mapping.serde.MappingFormat;
 import joptsimple.*;
 
@@ -66,6 +67,10 @@ public class Main {
 				}
 			}
 
+			if (Metrics.isEnabled()) {
+				Runtime.getRuntime().addShutdownHook(new Thread(Metrics::report, "Metrics report"));
+			}
+
 			Gui gui = new Gui(parsedProfile);
 			GuiController controller = gui.getController();
 
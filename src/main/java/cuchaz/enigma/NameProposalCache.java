@@ -0,0 +1,190 @@
+package cuchaz.enigma;
+
+import cuchaz.enigma.api.service.NameProposalService;
+import cuchaz.enigma.translation.mapping.EntryRemapper;
+import cuchaz.enigma.translation.mapping.EntryResolver;
+import cuchaz.enigma.translation.mapping.ResolutionStrategy;
+import cuchaz.enigma.translation.representation.entry.Entry;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * The names proposed by the {@link NameProposalService}s for the entries of a project, with the proposal of the first
+ * service that has one winning. Proposals are made for the root entries an entry resolves to, and each service's
+ * proposals are kept for as long as its {@link NameProposalService#getCacheScope() cache scope} allows.
+ */
+public final class NameProposalCache {
+	private final EntryRemapper mapper;
+	private final EntryResolver resolver;
+	private final ServiceProposals[] services;
+
+	NameProposalCache(EntryRemapper mapper, NameProposalService[] services) {
+		this.mapper = mapper;
+		this.resolver = mapper.getObfResolver();
+		this.services = Arrays.stream(services).map(ServiceProposals::new).toArray(ServiceProposals[]::new);
+
+		mapper.getObfToDeobf().addChangeListener((entry, mapping) -> {
+			for (ServiceProposals service : this.services) {
+				service.invalidate(entry);
+			}
+		});
+	}
+
+	public boolean isEmpty() {
+		return services.length == 0;
+	}
+
+	public Optional<String> proposeName(Entry<?> obfEntry) {
+		if (isEmpty()) {
+			return Optional.empty();
+		}
+
+		for (Entry<?> root : resolver.resolveEntry(obfEntry, ResolutionStrategy.RESOLVE_ROOT)) {
+			for (ServiceProposals service : services) {
+				Optional<String> name = service.proposeName(root);
+				if (name.isPresent()) {
+					return name;
+				}
+			}
+		}
+
+		return Optional.empty();
+	}
+
+	/**
+	 * Proposes names for all given entries, asking every service once for all entries it did not propose for yet.
+	 * Entries without a proposal are left out of the result.
+	 */
+	public Map<Entry<?>, String> proposeNames(Collection<? extends Entry<?>> obfEntries) {
+		if (isEmpty()) {
+			return Collections.emptyMap();
+		}
+
+		Map<Entry<?>, Collection<Entry<?>>> roots = new LinkedHashMap<>();
+		Set<Entry<?>> remaining = new LinkedHashSet<>();
+		for (Entry<?> obfEntry : obfEntries) {
+			Collection<Entry<?>> entryRoots = resolver.resolveEntry(obfEntry, ResolutionStrategy.RESOLVE_ROOT);
+			roots.put(obfEntry, entryRoots);
+			remaining.addAll(entryRoots);
+		}
+
+		Map<Entry<?>, String> proposed = new HashMap<>();
+		for (ServiceProposals service : services) {
+			proposed.putAll(service.proposeNames(remaining));
+			remaining.removeAll(proposed.keySet());
+			if (remaining.isEmpty()) {
+				break;
+			}
+		}
+
+		Map<Entry<?>, String> names = new HashMap<>();
+		for (Map.Entry<Entry<?>, Collection<Entry<?>>> entry : roots.entrySet()) {
+			for (Entry<?> root : entry.getValue()) {
+				String name = proposed.get(root);
+				if (name != null) {
+					names.put(entry.getKey(), name);
+					break;
+				}
+			}
+		}
+
+		return names;
+	}
+
+	/**
+	 * Proposes names for all given entries at once, like {@link #proposeNames}, and returns a lookup that answers for
+	 * those entries from the batch, and asks {@link #proposeName} only for entries outside of it.
+	 */
+	public Function<Entry<?>, Optional<String>> proposeBatch(Collection<? extends Entry<?>> obfEntries) {
+		if (isEmpty()) {
+			return entry -> Optional.empty();
+		}
+
+		Set<Entry<?>> batched = new HashSet<>(obfEntries);
+		Map<Entry<?>, String> names = proposeNames(batched);
+		return entry -> batched.contains(entry) ? Optional.ofNullable(names.get(entry)) : proposeName(entry);
+	}
+
+	/**
+	 * The proposals of one service, kept by top-level class for services that only depend on the mappings of that
+	 * class, and all together otherwise.
+	 */
+	private final class ServiceProposals {
+		private final NameProposalService service;
+		private final NameProposalService.CacheScope scope;
+
+		private final Map<Entry<?>, Map<Entry<?>, Optional<String>>> classProposals = new ConcurrentHashMap<>();
+		private volatile Map<Entry<?>, Optional<String>> allProposals = new ConcurrentHashMap<>();
+
+		ServiceProposals(NameProposalService service) {
+			this.service = service;
+			this.scope = service.getCacheScope();
+		}
+
+		Optional<String> proposeName(Entry<?> root) {
+			// taken before asking the service, so that a mapping changed meanwhile drops what it proposed
+			Map<Entry<?>, Optional<String>> cached = getCached(root);
+			Optional<String> name = cached != null ? cached.get(root) : null;
+			if (name == null) {
+				name = service.proposeName(root, mapper);
+				if (cached != null) {
+					cached.put(root, name);
+				}
+			}
+			return name;
+		}
+
+		Map<Entry<?>, String> proposeNames(Collection<Entry<?>> roots) {
+			Map<Entry<?>, String> names = new HashMap<>();
+			Map<Entry<?>, Map<Entry<?>, Optional<String>>> missing = new LinkedHashMap<>();
+			for (Entry<?> root : roots) {
+				Map<Entry<?>, Optional<String>> cached = getCached(root);
+				Optional<String> name = cached != null ? cached.get(root) : null;
+				if (name == null) {
+					missing.put(root, cached);
+				} else {
+					name.ifPresent(n -> names.put(root, n));
+				}
+			}
+
+			if (!missing.isEmpty()) {
+				Map<Entry<?>, String> proposed = service.proposeNames(missing.keySet(), mapper);
+				missing.forEach((root, cached) -> {
+					String name = proposed.get(root);
+					if (cached != null) {
+						cached.put(root, Optional.ofNullable(name));
+					}
+					if (name != null) {
+						names.put(root, name);
+					}
+				});
+			}
+
+			return names;
+		}
+
+		void invalidate(Entry<?> changed) {
+			if (scope == NameProposalService.CacheScope.CLASS_MAPPINGS) {
+				classProposals.remove(changed.getRoot());
+			} else if (scope == NameProposalService.CacheScope.ALL_MAPPINGS) {
+				allProposals = new ConcurrentHashMap<>();
+			}
+		}
+
+		@Nullable
+		private Map<Entry<?>, Optional<String>> getCached(Entry<?> root) {
+			switch (scope) {
+				case CLASS_MAPPINGS:
+					return classProposals.computeIfAbsent(root.getRoot(), classEntry -> new ConcurrentHashMap<>());
+				case ALL_MAPPINGS:
+				case JAR:
+					return allProposals;
+				default:
+					return null;
+			}
+		}
+	}
+}
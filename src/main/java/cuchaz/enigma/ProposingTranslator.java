@@ -1,22 +1,28 @@
 package cuchaz.enigma;
 
-import cuchaz.enigma.api.service.NameProposalService;
 import cuchaz.enigma.translation.Translatable;
 import cuchaz.enigma.translation.Translator;
 import cuchaz.enigma.translation.mapping.EntryRemapper;
-import cuchaz.enigma.translation.mapping.ResolutionStrategy;
 import cuchaz.enigma.translation.representation.entry.Entry;
 
-import java.util.Arrays;
 import java.util.Optional;
+import java.util.function.Function;
 
 public class ProposingTranslator implements Translator {
 	private final EntryRemapper mapper;
-	private final NameProposalService[] nameProposalServices;
+	private final Function<Entry<?>, Optional<String>> nameProposals;
 
-	public ProposingTranslator(EntryRemapper mapper, NameProposalService[] nameProposalServices) {
+	public ProposingTranslator(EntryRemapper mapper, NameProposalCache nameProposals) {
+		this(mapper, nameProposals::proposeName);
+	}
+
+	/**
+	 * @param nameProposals looks up the proposed name of an entry, such as a batch from
+	 *                      {@link NameProposalCache#proposeBatch}
+	 */
+	public ProposingTranslator(EntryRemapper mapper, Function<Entry<?>, Optional<String>> nameProposals) {
 		this.mapper = mapper;
-		this.nameProposalServices = nameProposalServices;
+		this.nameProposals = nameProposals;
 	}
 
 	@Override
@@ -29,25 +35,11 @@ public class ProposingTranslator implements Translator {
 		T deobfuscated = mapper.deobfuscate(translatable);
 
 		if (translatable instanceof Entry && ((Entry) deobfuscated).getName().equals(((Entry<?>) translatable).getName())) {
-			return mapper.getObfResolver()
-					.resolveEntry((Entry<?>) translatable, ResolutionStrategy.RESOLVE_ROOT)
-					.stream()
-					.map(this::proposeName)
-					.filter(Optional::isPresent)
-					.map(Optional::get)
-					.findFirst()
+			return nameProposals.apply((Entry<?>) translatable)
 					.map(newName -> (T) ((Entry) deobfuscated).withName(newName))
 					.orElse(deobfuscated);
 		}
 
 		return deobfuscated;
 	}
-
-	private Optional<String> proposeName(Entry<?> entry) {
-		return Arrays.stream(nameProposalServices)
-				.map(service -> service.proposeName(entry, mapper))
-				.filter(Optional::isPresent)
-				.map(Optional::get)
-				.findFirst();
-	}
 }
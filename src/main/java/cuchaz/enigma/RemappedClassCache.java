@@ -0,0 +1,161 @@
+package cuchaz.enigma;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import cuchaz.enigma.analysis.index.JarIndex;
+import cuchaz.enigma.bytecode.translators.SourceFixVisitor;
+import cuchaz.enigma.bytecode.translators.TranslationClassVisitor;
+import cuchaz.enigma.translation.Translator;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * The classes of a jar as they are handed to the decompiler and written to remapped jars, shared by the jar export,
+ * decompilation and the editor so that each class is fixed up, remapped and written out once per mapping change.
+ * <p>
+ * Cached classes must not be modified.
+ */
+public final class RemappedClassCache {
+	private final CompiledSource classes;
+	private final JarIndex jarIndex;
+
+	private final View fixed;
+	private volatile View remapped;
+
+	public RemappedClassCache(CompiledSource classes, JarIndex jarIndex) {
+		this.classes = classes;
+		this.jarIndex = jarIndex;
+		this.fixed = new View(null, 0);
+	}
+
+	/**
+	 * Returns the classes under their obfuscated names, with only the fixes for decompilation applied.
+	 */
+	public View getFixed() {
+		return fixed;
+	}
+
+	/**
+	 * Returns the classes remapped by the translator, which has to reflect the mappings of the given generation.
+	 * Classes remapped for an earlier generation are dropped.
+	 */
+	public View getRemapped(Translator deobfuscator, long generation) {
+		View view = remapped;
+		if (view == null || view.generation != generation) {
+			synchronized (this) {
+				view = remapped;
+				if (view == null || view.generation != generation) {
+					remapped = view = new View(deobfuscator, generation);
+				}
+			}
+		}
+		return view;
+	}
+
+	private static <K, V> V get(Cache<K, V> cache, K key, Callable<V> loader) {
+		try {
+			return cache.get(key, loader);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	public final class View implements CompiledSource {
+		@Nullable
+		private final Translator deobfuscator;
+		private final long generation;
+
+		private final Cache<String, ClassNode> nodes = CacheBuilder.newBuilder().softValues().build();
+		private final Cache<String, byte[]> decompilerBytes = CacheBuilder.newBuilder().softValues().build();
+
+		private volatile Map<String, String> obfNames;
+
+		private View(@Nullable Translator deobfuscator, long generation) {
+			this.deobfuscator = deobfuscator;
+			this.generation = generation;
+		}
+
+		/**
+		 * Returns a class by its name in this view.
+		 */
+		@Nullable
+		@Override
+		public ClassNode getClassNode(String name) {
+			String obfName = getObfName(name);
+			return obfName != null ? getByObfName(obfName) : null;
+		}
+
+		/**
+		 * Returns a class by its obfuscated name.
+		 */
+		@Nullable
+		public ClassNode getByObfName(String obfName) {
+			ClassNode node = nodes.getIfPresent(obfName);
+			if (node != null) {
+				return node;
+			}
+
+			ClassNode source = classes.getClassNode(obfName);
+			if (source == null) {
+				return null;
+			}
+
+			return get(nodes, obfName, () -> {
+				ClassNode remappedNode = new ClassNode();
+				ClassVisitor visitor = new SourceFixVisitor(Opcodes.ASM5, remappedNode, jarIndex);
+				if (deobfuscator != null) {
+					visitor = new TranslationClassVisitor(deobfuscator, Opcodes.ASM5, visitor);
+				}
+				source.accept(visitor);
+				return remappedNode;
+			});
+		}
+
+		@Nullable
+		@Override
+		public byte[] getDecompilerBytes(String name) {
+			ClassNode node = getClassNode(name);
+			if (node == null) {
+				return null;
+			}
+
+			return get(decompilerBytes, name, () -> {
+				// the node is shared, so clean up a copy of it
+				ClassNode copy = new ClassNode();
+				node.accept(copy);
+				CompiledSourceTypeLoader.removeRedundantClassCalls(copy);
+
+				ClassWriter writer = new ClassWriter(0);
+				copy.accept(writer);
+				return writer.toByteArray();
+			});
+		}
+
+		@Nullable
+		private String getObfName(String name) {
+			if (deobfuscator == null) {
+				return name;
+			}
+
+			Map<String, String> obfNames = this.obfNames;
+			if (obfNames == null) {
+				obfNames = new HashMap<>();
+				for (ClassEntry entry : jarIndex.getEntryIndex().getClasses()) {
+					obfNames.put(deobfuscator.translate(entry).getFullName(), entry.getFullName());
+				}
+				this.obfNames = obfNames;
+			}
+
+			return obfNames.get(name);
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package cuchaz.enigma;
+
+import cuchaz.enigma.translation.Translator;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+
+/**
+ * Updates the class names that jar resources refer to: the {@code Main-Class} of the manifest and the service
+ * provider configuration files under {@code META-INF/services}.
+ * <p>
+ * Signatures of the input jar no longer match the remapped classes, so signature files are dropped and the entry
+ * digests are removed from the manifest.
+ */
+final class ResourceRemapper {
+	static final String MANIFEST = "META-INF/MANIFEST.MF";
+	private static final String SERVICES = "META-INF/services/";
+	private static final String META_INF = "META-INF/";
+
+	private final Translator deobfuscator;
+
+	ResourceRemapper(Translator deobfuscator) {
+		this.deobfuscator = deobfuscator;
+	}
+
+	/**
+	 * Returns whether the resource is copied into the remapped jar at all.
+	 */
+	boolean isKept(String name) {
+		return !isSignature(name);
+	}
+
+	/**
+	 * Returns whether the resource may name classes and so has to be read to be remapped.
+	 */
+	boolean isRemapped(String name) {
+		return name.equals(MANIFEST) || isService(name);
+	}
+
+	String remapName(String name) {
+		if (isService(name)) {
+			return SERVICES + remapClassName(name.substring(SERVICES.length()));
+		}
+		return name;
+	}
+
+	byte[] remap(String name, byte[] contents) throws IOException {
+		if (name.equals(MANIFEST)) {
+			return remapManifest(contents);
+		} else if (isService(name)) {
+			return remapServices(contents);
+		}
+		return contents;
+	}
+
+	private static boolean isSignature(String name) {
+		if (!name.startsWith(META_INF) || name.indexOf('/', META_INF.length()) != -1) {
+			return false;
+		}
+
+		String fileName = name.substring(META_INF.length()).toUpperCase(Locale.ROOT);
+		return fileName.endsWith(".SF") || fileName.endsWith(".RSA") || fileName.endsWith(".DSA") || fileName.endsWith(".EC") || fileName.startsWith("SIG-");
+	}
+
+	private static boolean isService(String name) {
+		return name.startsWith(SERVICES) && name.indexOf('/', SERVICES.length()) == -1 && name.length() > SERVICES.length();
+	}
+
+	private byte[] remapManifest(byte[] contents) throws IOException {
+		Manifest manifest = new Manifest(new ByteArrayInputStream(contents));
+		boolean changed = removeDigests(manifest);
+
+		String mainClass = manifest.getMainAttributes().getValue(Attributes.Name.MAIN_CLASS);
+		if (mainClass != null) {
+			String remapped = remapClassName(mainClass.trim());
+			if (!remapped.equals(mainClass)) {
+				manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, remapped);
+				changed = true;
+			}
+		}
+
+		if (!changed) {
+			// keep the original bytes when nothing changes, as writing the manifest back may reorder it
+			return contents;
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		manifest.write(out);
+		return out.toByteArray();
+	}
+
+	/**
+	 * Removes the digests of signed entries, and the entry sections left empty without them.
+	 */
+	private static boolean removeDigests(Manifest manifest) {
+		boolean changed = false;
+
+		Iterator<Attributes> sections = manifest.getEntries().values().iterator();
+		while (sections.hasNext()) {
+			Attributes attributes = sections.next();
+			changed |= attributes.keySet().removeIf(key -> key.toString().toUpperCase(Locale.ROOT).endsWith("-DIGEST"));
+			if (attributes.isEmpty()) {
+				sections.remove();
+				changed = true;
+			}
+		}
+
+		return changed;
+	}
+
+	private byte[] remapServices(byte[] contents) {
+		String[] lines = new String(contents, StandardCharsets.UTF_8).split("\n", -1);
+
+		StringBuilder remapped = new StringBuilder();
+		for (int i = 0; i < lines.length; i++) {
+			String line = lines[i];
+
+			int commentStart = line.indexOf('#');
+			String provider = (commentStart == -1 ? line : line.substring(0, commentStart)).trim();
+			if (!provider.isEmpty()) {
+				int providerStart = line.indexOf(provider);
+				line = line.substring(0, providerStart) + remapClassName(provider) + line.substring(providerStart + provider.length());
+			}
+
+			remapped.append(line);
+			if (i < lines.length - 1) {
+				remapped.append('\n');
+			}
+		}
+
+		return remapped.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private String remapClassName(String binaryName) {
+		ClassEntry entry = new ClassEntry(binaryName.replace('.', '/'));
+		return deobfuscator.translate(entry).getFullName().replace('/', '.');
+	}
+}
@@ -25,6 +25,17 @@ import java.util.List;
 import java.util.Objects;
 
 public class SourceProvider {
+	/**
+	 * How much work Procyon puts into a class. Lower levels are used to retry classes that failed to decompile.
+	 */
+	public enum Detail {
+		FULL,
+		/** Skips the AST transforms, which are where Procyon most often gets stuck. */
+		REDUCED,
+		/** Only declares the members, without decompiling any method body. */
+		SIGNATURES
+	}
+
 	private final DecompilerSettings settings;
 
 	private final ITypeLoader typeLoader;
@@ -60,8 +71,12 @@ public class SourceProvider {
 	}
 
 	public CompilationUnit getSources(String name) {
+		return getSources(name, Detail.FULL);
+	}
+
+	public CompilationUnit getSources(String name, Detail detail) {
 		// Optimization for javadoc-caused decompilations
-		if (Objects.equals(lastLookUpName, name)) {
+		if (detail == Detail.FULL && Objects.equals(lastLookUpName, name)) {
 			CompilationUnit last = lastDecompiled.get();
 			if (last != null)
 				return last;
@@ -82,13 +97,22 @@ public class SourceProvider {
 		context.setSettings(settings);
 
 		AstBuilder builder = new AstBuilder(context);
+		builder.setDecompileMethodBodies(detail != Detail.SIGNATURES);
 		builder.addType(resolvedType);
+
+		if (detail == Detail.REDUCED) {
+			builder.runTransformations(transform -> true);
+			return builder.getCompilationUnit();
+		}
+
 		builder.runTransformations(null);
 		runCustomTransforms(builder, context);
 
 		CompilationUnit ret = builder.getCompilationUnit();
-		lastLookUpName = name;
-		lastDecompiled = new WeakReference<>(ret);
+		if (detail == Detail.FULL) {
+			lastLookUpName = name;
+			lastDecompiled = new WeakReference<>(ret);
+		}
 		return ret;
 	}
 
@@ -5,6 +5,7 @@ import cuchaz.enigma.api.EnigmaPlugin;
 import cuchaz.enigma.api.EnigmaPluginContext;
 import cuchaz.enigma.api.service.JarIndexerService;
 import cuchaz.enigma.api.service.NameProposalService;
+import cuchaz.enigma.translation.mapping.EntryRemapper;
 import cuchaz.enigma.translation.mapping.ResolutionStrategy;
 import cuchaz.enigma.translation.representation.TypeDescriptor;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
@@ -34,6 +35,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.UnaryOperator;
 
 public final class BuiltinPlugin implements EnigmaPlugin {
@@ -47,24 +49,47 @@ public final class BuiltinPlugin implements EnigmaPlugin {
 	}
 
 	private void registerEnumNamingService(EnigmaPluginContext ctx) {
-		final Map<Entry<?>, String> names = new HashMap<>();
-		final EnumFieldNameFindingVisitor visitor = new EnumFieldNameFindingVisitor(names);
+		// read by name proposers on any thread, while a jar may still be indexed
+		final Map<Entry<?>, String> names = new ConcurrentHashMap<>();
 
-		ctx.registerService("enigma:enum_initializer_indexer", JarIndexerService.TYPE, ctx1 -> (classCache, jarIndex) -> classCache.visit(() -> visitor, ClassReader.SKIP_FRAMES));
-		ctx.registerService("enigma:enum_name_proposer", NameProposalService.TYPE, ctx1 -> (obfEntry, remapper) -> Optional.ofNullable(names.get(obfEntry)));
+		ctx.registerService("enigma:enum_initializer_indexer", JarIndexerService.TYPE, ctx1 -> (classCache, jarIndex) -> classCache.visitParallel(EnumFieldNameFindingVisitor::new, ClassReader.SKIP_FRAMES, visitor -> names.putAll(visitor.mappings)));
+		ctx.registerService("enigma:enum_name_proposer", NameProposalService.TYPE, ctx1 -> new EnumNameProposer(names));
 	}
 
+	/**
+	 * Proposes the names the enum constants are initialized with, which only depend on the jar.
+	 */
+	private static final class EnumNameProposer implements NameProposalService {
+		private final Map<Entry<?>, String> names;
+
+		EnumNameProposer(Map<Entry<?>, String> names) {
+			this.names = names;
+		}
+
+		@Override
+		public Optional<String> proposeName(Entry<?> obfEntry, EntryRemapper remapper) {
+			return Optional.ofNullable(names.get(obfEntry));
+		}
+
+		@Override
+		public CacheScope getCacheScope() {
+			return CacheScope.JAR;
+		}
+	}
+
+	/**
+	 * Finds the names of the enum constants of one class, which are merged into the shared names once it was visited.
+	 */
 	private static final class EnumFieldNameFindingVisitor extends ClassVisitor {
 
 		private ClassEntry clazz;
 		private String className;
-		private final Map<Entry<?>, String> mappings;
+		private final Map<Entry<?>, String> mappings = new HashMap<>();
 		private final Set<Pair<String, String>> enumFields = new HashSet<>();
 		private final List<MethodNode> classInits = new ArrayList<>();
 
-		EnumFieldNameFindingVisitor(Map<Entry<?>, String> mappings) {
+		EnumFieldNameFindingVisitor() {
 			super(Opcodes.ASM7);
-			this.mappings = mappings;
 		}
 
 		@Override
@@ -72,8 +97,6 @@ public final class BuiltinPlugin implements EnigmaPlugin {
 			super.visit(version, access, name, signature, superName, interfaces);
 			this.className = name;
 			this.clazz = new ClassEntry(name);
-			this.enumFields.clear();
-			this.classInits.clear();
 		}
 
 		@Override
@@ -88,6 +111,11 @@ public final class BuiltinPlugin implements EnigmaPlugin {
 
 		@Override
 		public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+			// fields are visited before methods, so classes without enum constants never have their code read
+			if (enumFields.isEmpty()) {
+				return null;
+			}
+
 			if ("<clinit>".equals(name)) {
 				MethodNode node = new MethodNode(api, access, name, descriptor, signature, exceptions);
 				classInits.add(node);
@@ -107,6 +135,10 @@ public final class BuiltinPlugin implements EnigmaPlugin {
 		}
 
 		private void collectResults() throws Exception {
+			if (classInits.isEmpty()) {
+				return;
+			}
+
 			String owner = className;
 			Analyzer<SourceValue> analyzer = new Analyzer<>(new SourceInterpreter());
 
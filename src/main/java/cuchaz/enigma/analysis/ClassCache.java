@@ -2,11 +2,16 @@ package cuchaz.enigma.analysis;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import cuchaz.enigma.CompiledSource;
 import cuchaz.enigma.ProgressListener;
 import cuchaz.enigma.analysis.index.JarIndex;
+import cuchaz.enigma.analysis.index.LibraryIndex;
 import cuchaz.enigma.bytecode.translators.LocalVariableFixVisitor;
+import cuchaz.enigma.metrics.Metrics;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.Opcodes;
@@ -14,59 +19,103 @@ import org.objectweb.asm.tree.ClassNode;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 public final class ClassCache implements AutoCloseable, CompiledSource {
+	// roughly how much more heap a parsed class takes than its class file, to weigh cached nodes by
+	private static final int NODE_SIZE_FACTOR = 8;
+	// how many classes each thread of the pool may have visited ahead of the merge
+	private static final int VISITS_PER_THREAD = 4;
+
+	private final Path jarPath;
 	private final FileSystem fileSystem;
-	private final ImmutableSet<String> classNames;
+	private final ImmutableMap<String, Integer> classSizes;
+	private final ImmutableSet<String> resourceNames;
+	@Nullable
+	private final ClassBytes classBytes;
 
-	private final Cache<String, ClassNode> nodeCache = CacheBuilder.newBuilder()
-			.maximumSize(128)
-			.expireAfterAccess(1, TimeUnit.MINUTES)
-			.build();
+	private final Cache<String, ClassNode> nodeCache;
 
-	private ClassCache(FileSystem fileSystem, ImmutableSet<String> classNames) {
+	private ClassCache(Path jarPath, FileSystem fileSystem, ImmutableMap<String, Integer> classSizes, ImmutableSet<String> resourceNames, @Nullable ClassBytes classBytes, long nodeCacheBytes) {
+		this.jarPath = jarPath;
 		this.fileSystem = fileSystem;
-		this.classNames = classNames;
+		this.classSizes = classSizes;
+		this.resourceNames = resourceNames;
+		this.classBytes = classBytes;
+		this.nodeCache = CacheBuilder.newBuilder()
+				.maximumWeight(nodeCacheBytes)
+				.weigher((String name, ClassNode node) -> classSizes.getOrDefault(name, 0) * NODE_SIZE_FACTOR)
+				.recordStats()
+				.build();
 	}
 
 	public static ClassCache of(Path jarPath) throws IOException {
+		return of(jarPath, ClassCacheSettings.DEFAULT);
+	}
+
+	public static ClassCache of(Path jarPath, ClassCacheSettings settings) throws IOException {
 		FileSystem fileSystem = FileSystems.newFileSystem(jarPath, (ClassLoader) null);
-		ImmutableSet<String> classNames = collectClassNames(fileSystem);
 
-		return new ClassCache(fileSystem, classNames);
+		ImmutableMap.Builder<String, Integer> classSizes = ImmutableMap.builder();
+		ImmutableSet.Builder<String> resourceNames = ImmutableSet.builder();
+		collectNames(fileSystem, classSizes, resourceNames);
+		ImmutableMap<String, Integer> sizes = classSizes.build();
+
+		ClassBytes classBytes = null;
+		if (settings.getClassBytes() == ClassCacheSettings.ClassBytes.MEMORY) {
+			classBytes = ClassBytes.read(fileSystem, sizes);
+		}
+
+		return new ClassCache(jarPath, fileSystem, sizes, resourceNames.build(), classBytes, settings.getNodeCacheBytes());
 	}
 
-	private static ImmutableSet<String> collectClassNames(FileSystem fileSystem) throws IOException {
-		ImmutableSet.Builder<String> classNames = ImmutableSet.builder();
+	private static void collectNames(FileSystem fileSystem, ImmutableMap.Builder<String, Integer> classSizes, ImmutableSet.Builder<String> resourceNames) throws IOException {
 		for (Path root : fileSystem.getRootDirectories()) {
-			Files.walk(root).map(Path::toString)
-					.forEach(path -> {
-						if (path.endsWith(".class")) {
-							String name = path.substring(1, path.length() - ".class".length());
-							classNames.add(name);
-						}
-					});
+			try (Stream<Path> files = Files.walk(root)) {
+				for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+					String path = file.toString();
+					if (path.endsWith(".class")) {
+						String name = path.substring(1, path.length() - ".class".length());
+						classSizes.put(name, (int) Files.size(file));
+					} else {
+						resourceNames.add(path.substring(1));
+					}
+				}
+			}
 		}
-
-		return classNames.build();
 	}
 
 	@Nullable
 	@Override
 	public ClassNode getClassNode(String name) {
-		if (!classNames.contains(name)) {
+		if (!classSizes.containsKey(name)) {
 			return null;
 		}
 
+		boolean[] parsed = new boolean[1];
 		try {
-			return nodeCache.get(name, () -> parseNode(name));
+			ClassNode node = nodeCache.get(name, () -> {
+				parsed[0] = true;
+				return parseNode(name);
+			});
+			Metrics.count(parsed[0] ? "classCache.misses" : "classCache.hits", 1);
+			return node;
 		} catch (ExecutionException e) {
 			throw new RuntimeException(e);
 		}
@@ -84,20 +133,47 @@ public final class ClassCache implements AutoCloseable, CompiledSource {
 	}
 
 	private ClassReader getReader(String name) throws IOException {
+		if (classBytes != null) {
+			return new ClassReader(classBytes.get(name));
+		}
+
 		Path path = fileSystem.getPath(name + ".class");
 		byte[] bytes = Files.readAllBytes(path);
 		return new ClassReader(bytes);
 	}
 
+	/**
+	 * Returns how often parsed classes were found in the cache and how often they had to be parsed.
+	 */
+	public CacheStats getNodeCacheStats() {
+		return nodeCache.stats();
+	}
+
+	public Path getJarPath() {
+		return jarPath;
+	}
+
+	/**
+	 * Returns the paths of all files in the jar that are not classes, such as the manifest.
+	 */
+	public ImmutableSet<String> getResourceNames() {
+		return resourceNames;
+	}
+
+	public byte[] readResource(String name) throws IOException {
+		return Files.readAllBytes(fileSystem.getPath(name));
+	}
+
 	public int getClassCount() {
-		return classNames.size();
+		return classSizes.size();
 	}
 
 	public void visit(Supplier<ClassVisitor> visitorSupplier, int readFlags) {
-		for (String className : classNames) {
+		for (String className : classSizes.keySet()) {
 			ClassVisitor visitor = visitorSupplier.get();
 
-			ClassNode cached = nodeCache.getIfPresent(className);
+			// looked up through the map view, which does not count towards the cache statistics
+			ClassNode cached = nodeCache.asMap().get(className);
 			if (cached != null) {
 				cached.accept(visitor);
 				continue;
@@ -113,14 +189,135 @@ public final class ClassCache implements AutoCloseable, CompiledSource {
 		}
 	}
 
+	/**
+	 * Visits every class like {@link #visit}, but reads and visits the classes on the common fork-join pool, each with
+	 * a visitor of its own that no other thread sees. The visitors are then handed to {@code merge} on the calling
+	 * thread in the order {@link #visit} visits the classes in, so whatever they collected is merged the same way
+	 * however the work was scheduled.
+	 * <p>
+	 * Only a few visits per thread of the pool are in flight at a time, so that finished visitors don't pile up behind
+	 * a slow class. Without a pool to share the work with, the classes are visited one by one on the calling thread.
+	 */
+	public <V extends ClassVisitor> void visitParallel(Supplier<V> visitorSupplier, int readFlags, Consumer<? super V> merge) {
+		int parallelism = ForkJoinPool.getCommonPoolParallelism();
+		if (parallelism <= 1) {
+			// CompletableFuture would start a thread per class here
+			for (String className : classSizes.keySet()) {
+				V visitor = visitClass(className, visitorSupplier.get(), readFlags);
+				if (visitor != null) {
+					merge.accept(visitor);
+				}
+			}
+			return;
+		}
+
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		int window = parallelism * VISITS_PER_THREAD;
+
+		Iterator<String> classNames = classSizes.keySet().iterator();
+		Deque<CompletableFuture<V>> visits = new ArrayDeque<>(window);
+		while (classNames.hasNext() || !visits.isEmpty()) {
+			while (classNames.hasNext() && visits.size() < window) {
+				String className = classNames.next();
+				visits.add(CompletableFuture.supplyAsync(() -> visitClass(className, visitorSupplier.get(), readFlags), pool));
+			}
+
+			V visitor;
+			try {
+				visitor = visits.remove().join();
+			} catch (CompletionException e) {
+				visits.forEach(visit -> visit.cancel(false));
+				Throwables.throwIfUnchecked(e.getCause());
+				throw e;
+			}
+
+			if (visitor != null) {
+				merge.accept(visitor);
+			}
+		}
+	}
+
+	@Nullable
+	private <V extends ClassVisitor> V visitClass(String className, V visitor, int readFlags) {
+		// always read from the bytes, as cached nodes may be visited by other threads, and visiting a node isn't
+		// thread-safe
+		try {
+			ClassReader reader = getReader(className);
+			reader.accept(visitor, readFlags);
+			return visitor;
+		} catch (IOException e) {
+			System.out.println("Failed to visit class " + className);
+			e.printStackTrace();
+			return null;
+		}
+	}
+
 	@Override
 	public void close() throws IOException {
 		this.fileSystem.close();
 	}
 
 	public JarIndex index(ProgressListener progress) {
-		JarIndex index = JarIndex.empty();
+		return index(LibraryIndex.EMPTY, progress);
+	}
+
+	public JarIndex index(LibraryIndex libraryIndex, ProgressListener progress) {
+		JarIndex index = JarIndex.empty(libraryIndex);
 		index.indexJar(this, progress);
 		return index;
 	}
+
+	/**
+	 * The bytes of all classes of a jar, read into one buffer outside the heap.
+	 */
+	private static final class ClassBytes {
+		private final ByteBuffer buffer;
+		private final ImmutableMap<String, Integer> offsets;
+		private final ImmutableMap<String, Integer> sizes;
+
+		private ClassBytes(ByteBuffer buffer, ImmutableMap<String, Integer> offsets, ImmutableMap<String, Integer> sizes) {
+			this.buffer = buffer;
+			this.offsets = offsets;
+			this.sizes = sizes;
+		}
+
+		@Nullable
+		static ClassBytes read(FileSystem fileSystem, ImmutableMap<String, Integer> sizes) throws IOException {
+			long total = 0;
+			for (int size : sizes.values()) {
+				total += size;
+			}
+			if (total > Integer.MAX_VALUE) {
+				return null;
+			}
+
+			ByteBuffer buffer;
+			try {
+				buffer = ByteBuffer.allocateDirect((int) total);
+			} catch (OutOfMemoryError e) {
+				System.err.println("Not enough direct memory to keep the classes of the jar, reading them from the jar instead");
+				return null;
+			}
+
+			ImmutableMap.Builder<String, Integer> offsets = ImmutableMap.builderWithExpectedSize(sizes.size());
+			for (Map.Entry<String, Integer> size : sizes.entrySet()) {
+				byte[] bytes = Files.readAllBytes(fileSystem.getPath(size.getKey() + ".class"));
+				if (bytes.length != size.getValue()) {
+					throw new IOException("Class " + size.getKey() + " changed size while reading the jar");
+				}
+				offsets.put(size.getKey(), buffer.position());
+				buffer.put(bytes);
+			}
+
+			return new ClassBytes(buffer, offsets.build(), sizes);
+		}
+
+		byte[] get(String name) {
+			byte[] bytes = new byte[sizes.get(name)];
+			ByteBuffer slice = buffer.duplicate();
+			slice.position(offsets.get(name));
+			slice.get(bytes);
+			return bytes;
+		}
+	}
 }
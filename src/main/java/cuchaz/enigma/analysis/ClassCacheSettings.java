@@ -0,0 +1,58 @@
+package cuchaz.enigma.analysis;
+
+import com.google.gson.annotations.SerializedName;
+
+import java.util.Locale;
+
+/**
+ * How much of a jar a {@link ClassCache} keeps in memory. Settings missing from the profile are taken from the
+ * {@code enigma.classCache.nodeCacheMb} and {@code enigma.classCache.classBytes} system properties, then from the
+ * defaults: class bytes kept off-heap, and an eighth of the maximum heap for parsed classes.
+ */
+public class ClassCacheSettings {
+	public static final ClassCacheSettings DEFAULT = new ClassCacheSettings(null, null);
+
+	@SerializedName("node_cache_mb")
+	private final Integer nodeCacheMegabytes;
+
+	@SerializedName("class_bytes")
+	private final ClassBytes classBytes;
+
+	public ClassCacheSettings(Integer nodeCacheMegabytes, ClassBytes classBytes) {
+		this.nodeCacheMegabytes = nodeCacheMegabytes;
+		this.classBytes = classBytes;
+	}
+
+	/**
+	 * Returns the estimated heap size parsed classes may take up before the least recently used are dropped.
+	 */
+	public long getNodeCacheBytes() {
+		Integer megabytes = nodeCacheMegabytes != null ? nodeCacheMegabytes : Integer.getInteger("enigma.classCache.nodeCacheMb");
+		if (megabytes != null) {
+			return Math.max(megabytes, 0) * 1024L * 1024L;
+		}
+		return Runtime.getRuntime().maxMemory() / 8;
+	}
+
+	public ClassBytes getClassBytes() {
+		if (classBytes != null) {
+			return classBytes;
+		}
+
+		String property = System.getProperty("enigma.classCache.classBytes");
+		return property != null ? ClassBytes.valueOf(property.toUpperCase(Locale.ROOT)) : ClassBytes.MEMORY;
+	}
+
+	public enum ClassBytes {
+		/**
+		 * The bytes of all classes are read once into memory outside the heap, and classes are parsed from there.
+		 */
+		@SerializedName("memory")
+		MEMORY,
+		/**
+		 * Classes are read from the jar whenever they are parsed, which keeps nothing but parsed classes in memory.
+		 */
+		@SerializedName("jar")
+		JAR
+	}
+}
@@ -0,0 +1,373 @@
+package cuchaz.enigma.analysis;
+
+import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
+import cuchaz.enigma.translation.representation.entry.ClassDefEntry;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import org.objectweb.asm.Opcodes;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * The access flags, superclass and interfaces of classes outside the jar being worked on, so that their hierarchy
+ * can be queried without loading them.
+ * <p>
+ * The hierarchy of the JDK is generated at build time from the runtime image of the building JDK and bundled as a
+ * resource, which makes analysis independent of the JVM Enigma runs on. Library jars can be layered on top with
+ * {@link #ofJars(Collection, HierarchySnapshot)}.
+ */
+public final class HierarchySnapshot {
+	public static final String JDK_RESOURCE = "/jdk-hierarchy.dat";
+
+	private static final int MAGIC = 0x45484953; // EHIS
+	private static final int FORMAT_VERSION = 1;
+
+	public static final HierarchySnapshot EMPTY = new HierarchySnapshot("none", Collections.emptyMap(), null);
+
+	private final String source;
+	private final Map<String, ClassInfo> classes;
+	@Nullable
+	private final HierarchySnapshot parent;
+
+	private HierarchySnapshot(String source, Map<String, ClassInfo> classes, @Nullable HierarchySnapshot parent) {
+		this.source = source;
+		this.classes = classes;
+		this.parent = parent;
+	}
+
+	/**
+	 * Returns the bundled JDK hierarchy. Builds without the generated resource, such as runs from an IDE, scan the
+	 * running JDK instead.
+	 */
+	public static HierarchySnapshot jdk() {
+		return JdkHolder.JDK;
+	}
+
+	/**
+	 * Reads the class headers of the given jars. Classes are looked up in the jars in order, then in the parent.
+	 */
+	public static HierarchySnapshot ofJars(Collection<Path> jars, HierarchySnapshot parent) throws IOException {
+		Map<String, ClassInfo> classes = new HashMap<>();
+		for (Path jar : jars) {
+			try (ZipFile zip = new ZipFile(jar.toFile())) {
+				Enumeration<? extends ZipEntry> entries = zip.entries();
+				while (entries.hasMoreElements()) {
+					ZipEntry entry = entries.nextElement();
+					if (isClassFile(entry.getName())) {
+						try (InputStream in = zip.getInputStream(entry)) {
+							addClass(classes, ByteStreams.toByteArray(in));
+						}
+					}
+				}
+			}
+		}
+
+		return new HierarchySnapshot(jars.toString(), classes, parent);
+	}
+
+	/**
+	 * Takes the hierarchy of classes that were already indexed. Classes are looked up in the definitions, then in the
+	 * parent.
+	 */
+	public static HierarchySnapshot ofDefinitions(String source, Collection<ClassDefEntry> definitions, HierarchySnapshot parent) {
+		Map<String, ClassInfo> classes = new HashMap<>(definitions.size() * 4 / 3 + 1);
+		for (ClassDefEntry definition : definitions) {
+			classes.put(definition.getFullName(), toClassInfo(definition));
+		}
+
+		return new HierarchySnapshot(source, classes, parent);
+	}
+
+	/**
+	 * Looks the hierarchy of the named classes up in their definitions whenever it is asked for, instead of copying
+	 * it, for definitions that are decoded on demand. Classes are looked up in the definitions, then in the parent.
+	 */
+	public static HierarchySnapshot ofDefinitions(String source, Set<String> classNames, Function<String, ClassDefEntry> definitions, HierarchySnapshot parent) {
+		return new HierarchySnapshot(source, Maps.asMap(classNames, name -> toClassInfo(definitions.apply(name))), parent);
+	}
+
+	private static ClassInfo toClassInfo(ClassDefEntry definition) {
+		ClassEntry superClass = definition.getSuperClass();
+		String[] interfaces = Arrays.stream(definition.getInterfaces()).map(ClassEntry::getFullName).toArray(String[]::new);
+		return new ClassInfo(definition.getAccess().getFlags(), superClass != null ? superClass.getFullName() : null, interfaces);
+	}
+
+	/**
+	 * Reads the class headers of the running JDK, from its runtime image or, before Java 9, from its boot class path.
+	 */
+	public static HierarchySnapshot ofRuntime() throws IOException {
+		Map<String, ClassInfo> classes = new HashMap<>();
+
+		FileSystem runtimeImage;
+		try {
+			runtimeImage = FileSystems.getFileSystem(URI.create("jrt:/"));
+		} catch (FileSystemNotFoundException | ProviderNotFoundException e) {
+			runtimeImage = null;
+		}
+
+		if (runtimeImage != null) {
+			try (Stream<Path> modules = Files.list(runtimeImage.getPath("/modules"))) {
+				for (Path module : (Iterable<Path>) modules::iterator) {
+					try (Stream<Path> files = Files.walk(module)) {
+						for (Path file : (Iterable<Path>) files::iterator) {
+							if (isClassFile(module.relativize(file).toString())) {
+								addClass(classes, Files.readAllBytes(file));
+							}
+						}
+					}
+				}
+			}
+		} else {
+			List<Path> bootJars = new ArrayList<>();
+			for (String path : System.getProperty("sun.boot.class.path", "").split(File.pathSeparator)) {
+				if (path.endsWith(".jar") && Files.isRegularFile(Paths.get(path))) {
+					bootJars.add(Paths.get(path));
+				}
+			}
+			return new HierarchySnapshot(runtimeSource(), ofJars(bootJars, EMPTY).classes, null);
+		}
+
+		return new HierarchySnapshot(runtimeSource(), classes, null);
+	}
+
+	private static String runtimeSource() {
+		return "Java " + System.getProperty("java.version") + " (" + System.getProperty("java.vendor") + ")";
+	}
+
+	private static boolean isClassFile(String name) {
+		return name.endsWith(".class") && !name.endsWith("module-info.class") && !name.startsWith("META-INF/");
+	}
+
+	/**
+	 * Reads the header of a class file. This skips over the constant pool by hand rather than using ASM, which refuses
+	 * class files newer than it knows, so that any JDK can be snapshotted.
+	 */
+	private static void addClass(Map<String, ClassInfo> classes, byte[] bytes) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		if (buffer.getInt() != 0xCAFEBABE) {
+			throw new IOException("Not a class file");
+		}
+		buffer.position(8);
+
+		int poolSize = buffer.getShort() & 0xFFFF;
+		int[] offsets = new int[poolSize];
+		for (int i = 1; i < poolSize; i++) {
+			offsets[i] = buffer.position();
+			int tag = buffer.get();
+			switch (tag) {
+				case 1: // utf8
+					int length = buffer.getShort() & 0xFFFF;
+					buffer.position(buffer.position() + length);
+					break;
+				case 5: // long
+				case 6: // double
+					buffer.position(buffer.position() + 8);
+					i++;
+					break;
+				case 3: // integer
+				case 4: // float
+				case 9: // field ref
+				case 10: // method ref
+				case 11: // interface method ref
+				case 12: // name and type
+				case 17: // dynamic
+				case 18: // invoke dynamic
+					buffer.position(buffer.position() + 4);
+					break;
+				case 15: // method handle
+					buffer.position(buffer.position() + 3);
+					break;
+				case 7: // class
+				case 8: // string
+				case 16: // method type
+				case 19: // module
+				case 20: // package
+					buffer.position(buffer.position() + 2);
+					break;
+				default:
+					throw new IOException("Unknown constant pool tag " + tag);
+			}
+		}
+
+		int access = buffer.getShort() & 0xFFFF;
+		String name = readClassName(bytes, offsets, buffer.getShort() & 0xFFFF);
+		String superName = readClassName(bytes, offsets, buffer.getShort() & 0xFFFF);
+		String[] interfaces = new String[buffer.getShort() & 0xFFFF];
+		for (int i = 0; i < interfaces.length; i++) {
+			interfaces[i] = readClassName(bytes, offsets, buffer.getShort() & 0xFFFF);
+		}
+
+		classes.putIfAbsent(name, new ClassInfo(access, superName, interfaces));
+	}
+
+	@Nullable
+	private static String readClassName(byte[] bytes, int[] offsets, int index) throws IOException {
+		if (index == 0) {
+			return null;
+		}
+
+		// a class constant points at the utf8 constant holding its name
+		int nameIndex = ((bytes[offsets[index] + 1] & 0xFF) << 8) | (bytes[offsets[index] + 2] & 0xFF);
+		int offset = offsets[nameIndex] + 1;
+		int length = ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+		return new DataInputStream(new ByteArrayInputStream(bytes, offset, length + 2)).readUTF();
+	}
+
+	@Nullable
+	public static HierarchySnapshot read(InputStream stream) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(stream)));
+		if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+			return null;
+		}
+
+		String source = in.readUTF();
+		int count = in.readInt();
+		Map<String, ClassInfo> classes = new HashMap<>(count * 4 / 3 + 1);
+		for (int i = 0; i < count; i++) {
+			String name = in.readUTF();
+			int access = in.readInt();
+			String superName = in.readUTF();
+			String[] interfaces = new String[in.readUnsignedShort()];
+			for (int j = 0; j < interfaces.length; j++) {
+				interfaces[j] = in.readUTF();
+			}
+			classes.put(name, new ClassInfo(access, superName.isEmpty() ? null : superName, interfaces));
+		}
+
+		return new HierarchySnapshot(source, classes, null);
+	}
+
+	/**
+	 * Writes the classes of this snapshot, without those of its parent, sorted by name.
+	 */
+	public void write(OutputStream stream) throws IOException {
+		GZIPOutputStream gzip = new GZIPOutputStream(stream);
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(gzip));
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		out.writeUTF(source);
+		out.writeInt(classes.size());
+		for (Map.Entry<String, ClassInfo> entry : new TreeMap<>(classes).entrySet()) {
+			ClassInfo info = entry.getValue();
+			out.writeUTF(entry.getKey());
+			out.writeInt(info.access);
+			out.writeUTF(info.superName != null ? info.superName : "");
+			out.writeShort(info.interfaces.length);
+			for (String interfaceName : info.interfaces) {
+				out.writeUTF(interfaceName);
+			}
+		}
+		out.flush();
+		gzip.finish();
+	}
+
+	/**
+	 * Describes where the classes of this snapshot came from, such as the version of the JDK.
+	 */
+	public String getSource() {
+		return source;
+	}
+
+	@Nullable
+	public ClassInfo get(String name) {
+		ClassInfo info = classes.get(name);
+		if (info == null && parent != null) {
+			return parent.get(name);
+		}
+		return info;
+	}
+
+	public boolean contains(String name) {
+		return get(name) != null;
+	}
+
+	public int size() {
+		return classes.size() + (parent != null ? parent.size() : 0);
+	}
+
+	/**
+	 * Generates the bundled JDK hierarchy from the running JDK.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1) {
+			System.err.println("Usage: HierarchySnapshot <output file>");
+			System.exit(1);
+		}
+
+		Path output = Paths.get(args[0]);
+		if (output.getParent() != null) {
+			Files.createDirectories(output.getParent());
+		}
+
+		HierarchySnapshot snapshot = ofRuntime();
+		try (OutputStream out = Files.newOutputStream(output)) {
+			snapshot.write(out);
+		}
+		System.out.println("Wrote hierarchy of " + snapshot.size() + " classes from " + snapshot.getSource());
+	}
+
+	public static final class ClassInfo {
+		private final int access;
+		@Nullable
+		private final String superName;
+		private final String[] interfaces;
+
+		ClassInfo(int access, @Nullable String superName, String[] interfaces) {
+			this.access = access;
+			this.superName = superName;
+			this.interfaces = interfaces;
+		}
+
+		public boolean isInterface() {
+			return (access & Opcodes.ACC_INTERFACE) != 0;
+		}
+
+		public int getAccess() {
+			return access;
+		}
+
+		@Nullable
+		public String getSuperName() {
+			return superName;
+		}
+
+		public List<String> getInterfaces() {
+			return Collections.unmodifiableList(Arrays.asList(interfaces));
+		}
+	}
+
+	private static final class JdkHolder {
+		static final HierarchySnapshot JDK = load();
+
+		private static HierarchySnapshot load() {
+			try (InputStream in = HierarchySnapshot.class.getResourceAsStream(JDK_RESOURCE)) {
+				if (in != null) {
+					HierarchySnapshot snapshot = read(in);
+					if (snapshot != null) {
+						return snapshot;
+					}
+				}
+			} catch (IOException e) {
+				System.err.println("Failed to read bundled JDK hierarchy: " + e);
+			}
+
+			try {
+				return ofRuntime();
+			} catch (IOException e) {
+				System.err.println("Failed to read JDK hierarchy of the running JVM: " + e);
+				return EMPTY;
+			}
+		}
+	}
+}
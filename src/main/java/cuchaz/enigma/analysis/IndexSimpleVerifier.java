@@ -9,17 +9,27 @@ import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.analysis.BasicValue;
 import org.objectweb.asm.tree.analysis.SimpleVerifier;
 
-import java.util.Set;
+import javax.annotation.Nullable;
+import java.util.*;
 
 public class IndexSimpleVerifier extends SimpleVerifier {
     private static final Type OBJECT_TYPE = Type.getType("Ljava/lang/Object;");
     private final EntryIndex entryIndex;
     private final InheritanceIndex inheritanceIndex;
+    private final HierarchySnapshot libraries;
 
     public IndexSimpleVerifier(EntryIndex entryIndex, InheritanceIndex inheritanceIndex) {
+        this(entryIndex, inheritanceIndex, HierarchySnapshot.jdk());
+    }
+
+    /**
+     * @param libraries the classes outside the jar, which have to include the JDK
+     */
+    public IndexSimpleVerifier(EntryIndex entryIndex, InheritanceIndex inheritanceIndex, HierarchySnapshot libraries) {
         super(ASM7, null, null, null, false);
         this.entryIndex = entryIndex;
         this.inheritanceIndex = inheritanceIndex;
+        this.libraries = libraries;
     }
 
     @Override
@@ -59,27 +69,18 @@ public class IndexSimpleVerifier extends SimpleVerifier {
             return classAccess.isInterface();
         }
 
-        Class<?> clazz = getClass(type);
-        if (clazz != null) {
-            return clazz.isInterface();
-        }
-
-        return false;
+        HierarchySnapshot.ClassInfo info = libraries.get(type.getInternalName());
+        return info != null && info.isInterface();
     }
 
     @Override
     protected Type getSuperClass(Type type) {
-        ClassDefEntry definition = entryIndex.getDefinition(new ClassEntry(type.getInternalName()));
-        if (definition != null) {
-            return Type.getType('L' + definition.getSuperClass().getFullName() + ';');
-        }
-
-        Class<?> clazz = getClass(type);
-        if (clazz != null) {
-            return Type.getType(clazz.getSuperclass());
+        if (type.equals(OBJECT_TYPE)) {
+            return null;
         }
 
-        return OBJECT_TYPE;
+        String superName = getSuperName(type.getInternalName());
+        return superName != null ? Type.getObjectType(superName) : OBJECT_TYPE;
     }
 
     @Override
@@ -109,45 +110,85 @@ public class IndexSimpleVerifier extends SimpleVerifier {
             ClassEntry class2 = new ClassEntry(type2.getInternalName());
 
             if (entryIndex.hasClass(class1) && entryIndex.hasClass(class2)) {
-                return inheritanceIndex.getAncestors(class2).contains(class1);
+                return inheritanceIndex.isAncestor(class2, class1);
             }
 
-            Class<?> class1Class = getClass(Type.getType('L' + class1.getFullName() + ';'));
-            Class<?> class2Class = getClass(Type.getType('L' + class2.getFullName() + ';'));
-
-            if (class1Class == null) {
+            if (!isKnown(class1.getFullName())) {
                 return true; // missing classes to find out
             }
 
-            if (class2Class != null) {
-                return class1Class.isAssignableFrom(class2Class);
-            }
+            return isAncestor(class2.getFullName(), class1.getFullName());
+        }
 
-            if (entryIndex.hasClass(class2)) {
-                Set<ClassEntry> ancestors = inheritanceIndex.getAncestors(class2);
+        return false;
+    }
 
-                for (ClassEntry ancestorEntry : ancestors) {
-                    Class<?> ancestor = getClass(Type.getType('L' + ancestorEntry.getFullName() + ';'));
-                    if (ancestor == null || class1Class.isAssignableFrom(ancestor)) {
-                        return true; // assignable, or missing classes to find out
-                    }
-                }
+    private boolean isKnown(String name) {
+        return entryIndex.hasClass(new ClassEntry(name)) || libraries.contains(name);
+    }
+
+    @Nullable
+    private String getSuperName(String name) {
+        ClassDefEntry definition = entryIndex.getDefinition(new ClassEntry(name));
+        if (definition != null) {
+            ClassEntry superClass = definition.getSuperClass();
+            return superClass != null ? superClass.getFullName() : null;
+        }
+
+        HierarchySnapshot.ClassInfo info = libraries.get(name);
+        return info != null ? info.getSuperName() : null;
+    }
 
-                return false;
+    private Collection<String> getParentNames(String name) {
+        ClassDefEntry definition = entryIndex.getDefinition(new ClassEntry(name));
+        if (definition != null) {
+            List<String> parents = new ArrayList<>();
+            if (definition.getSuperClass() != null) {
+                parents.add(definition.getSuperClass().getFullName());
+            }
+            for (ClassEntry interfaceEntry : definition.getInterfaces()) {
+                parents.add(interfaceEntry.getFullName());
             }
+            return parents;
+        }
 
-            return true; // missing classes to find out
+        HierarchySnapshot.ClassInfo info = libraries.get(name);
+        if (info == null) {
+            return Collections.emptyList();
         }
 
-        return false;
+        List<String> parents = new ArrayList<>(info.getInterfaces());
+        if (info.getSuperName() != null) {
+            parents.add(info.getSuperName());
+        }
+        return parents;
     }
 
-    @Override
-    protected final Class<?> getClass(Type type) {
-        try {
-            return Class.forName(type.getSort() == Type.ARRAY ? type.getDescriptor().replace('/', '.') : type.getClassName(), false, null);
-        } catch (ClassNotFoundException e) {
-            return null;
+    /**
+     * Walks up from a class through the jar and the libraries. Meeting a class that is in neither counts as finding
+     * the ancestor, as it might well be one.
+     */
+    private boolean isAncestor(String name, String potentialAncestor) {
+        Set<String> visited = new HashSet<>();
+        Deque<String> queue = new ArrayDeque<>();
+        queue.add(name);
+
+        while (!queue.isEmpty()) {
+            String current = queue.poll();
+            if (!isKnown(current)) {
+                return true; // missing classes to find out
+            }
+
+            for (String parent : getParentNames(current)) {
+                if (parent.equals(potentialAncestor)) {
+                    return true;
+                }
+                if (visited.add(parent)) {
+                    queue.add(parent);
+                }
+            }
         }
+
+        return false;
     }
 }
@@ -0,0 +1,75 @@
+package cuchaz.enigma.analysis.index;
+
+import cuchaz.enigma.analysis.ReferenceTargetType;
+import cuchaz.enigma.translation.representation.Lambda;
+import cuchaz.enigma.translation.representation.entry.*;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Records what a visitor indexes, to be replayed into the real indexer later. This lets index visitors run on worker
+ * threads while the indexes themselves are only ever written from one thread, in a fixed order.
+ */
+final class BufferedJarIndexer implements JarIndexer {
+	private final List<Consumer<JarIndexer>> calls = new ArrayList<>();
+
+	/**
+	 * Creates a visitor that indexes into a buffer of its own, using the visitor the given function creates for it.
+	 */
+	static Visitor visitor(Function<JarIndexer, ClassVisitor> visitorFactory) {
+		BufferedJarIndexer buffer = new BufferedJarIndexer();
+		return new Visitor(buffer, visitorFactory.apply(buffer));
+	}
+
+	@Override
+	public void indexClass(ClassDefEntry classEntry) {
+		calls.add(indexer -> indexer.indexClass(classEntry));
+	}
+
+	@Override
+	public void indexField(FieldDefEntry fieldEntry) {
+		calls.add(indexer -> indexer.indexField(fieldEntry));
+	}
+
+	@Override
+	public void indexMethod(MethodDefEntry methodEntry) {
+		calls.add(indexer -> indexer.indexMethod(methodEntry));
+	}
+
+	@Override
+	public void indexMethodReference(MethodDefEntry callerEntry, MethodEntry referencedEntry, ReferenceTargetType targetType) {
+		calls.add(indexer -> indexer.indexMethodReference(callerEntry, referencedEntry, targetType));
+	}
+
+	@Override
+	public void indexFieldReference(MethodDefEntry callerEntry, FieldEntry referencedEntry, ReferenceTargetType targetType) {
+		calls.add(indexer -> indexer.indexFieldReference(callerEntry, referencedEntry, targetType));
+	}
+
+	@Override
+	public void indexLambda(MethodDefEntry callerEntry, Lambda lambda, ReferenceTargetType targetType) {
+		calls.add(indexer -> indexer.indexLambda(callerEntry, lambda, targetType));
+	}
+
+	void replay(JarIndexer indexer) {
+		calls.forEach(call -> call.accept(indexer));
+	}
+
+	static final class Visitor extends ClassVisitor {
+		private final BufferedJarIndexer buffer;
+
+		private Visitor(BufferedJarIndexer buffer, ClassVisitor visitor) {
+			super(Opcodes.ASM5, visitor);
+			this.buffer = buffer;
+		}
+
+		void replay(JarIndexer indexer) {
+			buffer.replay(indexer);
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package cuchaz.enigma.analysis.index;
 
+import cuchaz.enigma.analysis.HierarchySnapshot;
 import cuchaz.enigma.analysis.IndexSimpleVerifier;
 import cuchaz.enigma.analysis.InterpreterPair;
 import cuchaz.enigma.analysis.MethodNodeWithAction;
@@ -23,14 +24,20 @@ public class IndexReferenceVisitor extends ClassVisitor {
 	private final JarIndexer indexer;
 	private final EntryIndex entryIndex;
 	private final InheritanceIndex inheritanceIndex;
+	private final HierarchySnapshot libraries;
 	private ClassEntry classEntry;
 	private String className;
 
 	public IndexReferenceVisitor(JarIndexer indexer, EntryIndex entryIndex, InheritanceIndex inheritanceIndex, int api) {
+		this(indexer, entryIndex, inheritanceIndex, HierarchySnapshot.jdk(), api);
+	}
+
+	public IndexReferenceVisitor(JarIndexer indexer, EntryIndex entryIndex, InheritanceIndex inheritanceIndex, HierarchySnapshot libraries, int api) {
 		super(api);
 		this.indexer = indexer;
 		this.entryIndex = entryIndex;
 		this.inheritanceIndex = inheritanceIndex;
+		this.libraries = libraries;
 	}
 
 	@Override
@@ -44,7 +51,7 @@ public class IndexReferenceVisitor extends ClassVisitor {
 		MethodDefEntry entry = new MethodDefEntry(classEntry, name, new MethodDescriptor(desc), Signature.createSignature(signature), new AccessFlags(access));
 		return new MethodNodeWithAction(api, access, name, desc, signature, exceptions, methodNode -> {
 			try {
-				new Analyzer<>(new MethodInterpreter(entry, indexer, entryIndex, inheritanceIndex)).analyze(className, methodNode);
+				new Analyzer<>(new MethodInterpreter(entry, indexer, entryIndex, inheritanceIndex, libraries)).analyze(className, methodNode);
 			} catch (AnalyzerException e) {
 				throw new RuntimeException(e);
 			}
@@ -55,8 +62,8 @@ public class IndexReferenceVisitor extends ClassVisitor {
 		private final MethodDefEntry callerEntry;
 		private JarIndexer indexer;
 
-		public MethodInterpreter(MethodDefEntry callerEntry, JarIndexer indexer, EntryIndex entryIndex, InheritanceIndex inheritanceIndex) {
-			super(new IndexSimpleVerifier(entryIndex, inheritanceIndex), new SourceInterpreter());
+		public MethodInterpreter(MethodDefEntry callerEntry, JarIndexer indexer, EntryIndex entryIndex, InheritanceIndex inheritanceIndex, HierarchySnapshot libraries) {
+			super(new IndexSimpleVerifier(entryIndex, inheritanceIndex, libraries), new SourceInterpreter());
 			this.callerEntry = callerEntry;
 			this.indexer = indexer;
 		}
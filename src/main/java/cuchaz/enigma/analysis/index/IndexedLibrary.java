@@ -0,0 +1,287 @@
+package cuchaz.enigma.analysis.index;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import cuchaz.enigma.analysis.ClassCache;
+import cuchaz.enigma.analysis.ClassCacheSettings;
+import cuchaz.enigma.translation.representation.AccessFlags;
+import cuchaz.enigma.translation.representation.MethodDescriptor;
+import cuchaz.enigma.translation.representation.TypeDescriptor;
+import cuchaz.enigma.translation.representation.entry.ClassDefEntry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * The declarations of the classes of one library jar, kept in the binary form they are cached on disk in. Only the
+ * table of class names is read up front; the declarations of a class are decoded when first asked for and may be
+ * dropped again under memory pressure, so a memory-mapped library costs little more than its class names.
+ */
+final class IndexedLibrary {
+	private static final int MAGIC = 0x454C4958; // ELIX
+	private static final int FORMAT_VERSION = 1;
+
+	private final ByteBuffer buffer;
+	private final ImmutableMap<String, Integer> offsets;
+	private final Cache<String, ClassDeclarations> declarations = CacheBuilder.newBuilder().softValues().build();
+
+	private IndexedLibrary(ByteBuffer buffer, ImmutableMap<String, Integer> offsets) {
+		this.buffer = buffer;
+		this.offsets = offsets;
+	}
+
+	/**
+	 * Reads the class headers and member declarations of a jar into the cached form.
+	 */
+	static byte[] index(Path jar) throws IOException {
+		// sorted, so that the same jar always gives the same bytes
+		SortedMap<String, byte[]> sortedRecords = new TreeMap<>();
+		// every class is read exactly once, so neither bytes nor parsed classes are worth keeping
+		try (ClassCache classCache = ClassCache.of(jar, new ClassCacheSettings(0, ClassCacheSettings.ClassBytes.JAR))) {
+			classCache.visitParallel(RecordWriter::new, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES, writer -> {
+				if (writer.name != null) {
+					sortedRecords.putIfAbsent(writer.name, writer.record);
+				}
+			});
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		out.writeInt(sortedRecords.size());
+
+		int offset = 0;
+		for (Map.Entry<String, byte[]> record : sortedRecords.entrySet()) {
+			writeString(out, record.getKey());
+			out.writeInt(offset);
+			offset += record.getValue().length;
+		}
+		for (byte[] record : sortedRecords.values()) {
+			out.write(record);
+		}
+
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Reads the table of class names of a library in the cached form, or returns null if the data was written by
+	 * another version of this format.
+	 */
+	@Nullable
+	static IndexedLibrary read(ByteBuffer buffer) throws IOException {
+		ByteBuffer in = buffer.duplicate();
+		try {
+			if (in.remaining() < 8 || in.getInt() != MAGIC || in.getInt() != FORMAT_VERSION) {
+				return null;
+			}
+
+			int count = in.getInt();
+			List<String> names = new ArrayList<>(count);
+			int[] offsets = new int[count];
+			for (int i = 0; i < count; i++) {
+				names.add(readString(in));
+				offsets[i] = in.getInt();
+			}
+
+			int recordsStart = in.position();
+			ImmutableMap.Builder<String, Integer> table = ImmutableMap.builderWithExpectedSize(count);
+			for (int i = 0; i < count; i++) {
+				if (recordsStart + offsets[i] >= in.limit()) {
+					throw new IOException("Class " + names.get(i) + " lies outside the library index");
+				}
+				table.put(names.get(i), recordsStart + offsets[i]);
+			}
+
+			return new IndexedLibrary(buffer, table.build());
+		} catch (BufferUnderflowException | IllegalArgumentException e) {
+			throw new IOException("Library index is truncated or corrupt", e);
+		}
+	}
+
+	Set<String> getClassNames() {
+		return offsets.keySet();
+	}
+
+	boolean hasClass(String name) {
+		return offsets.containsKey(name);
+	}
+
+	@Nullable
+	ClassDeclarations get(String name) {
+		Integer offset = offsets.get(name);
+		if (offset == null) {
+			return null;
+		}
+
+		try {
+			return declarations.get(name, () -> decode(name, offset));
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	private ClassDeclarations decode(String name, int offset) {
+		ByteBuffer in = buffer.duplicate();
+		in.position(offset);
+
+		int access = in.getInt();
+		String signature = readNullableString(in);
+		String superName = readNullableString(in);
+		String[] interfaces = new String[in.getShort() & 0xFFFF];
+		for (int i = 0; i < interfaces.length; i++) {
+			interfaces[i] = readString(in);
+		}
+
+		ClassDefEntry definition = ClassDefEntry.parse(access, name, signature, superName, interfaces);
+
+		int fieldCount = in.getShort() & 0xFFFF;
+		Map<FieldEntry, AccessFlags> fields = new HashMap<>(fieldCount * 4 / 3 + 1);
+		for (int i = 0; i < fieldCount; i++) {
+			AccessFlags fieldAccess = new AccessFlags(in.getInt());
+			fields.put(new FieldEntry(definition, readString(in), new TypeDescriptor(readString(in))), fieldAccess);
+		}
+
+		int methodCount = in.getShort() & 0xFFFF;
+		Map<MethodEntry, AccessFlags> methods = new HashMap<>(methodCount * 4 / 3 + 1);
+		for (int i = 0; i < methodCount; i++) {
+			AccessFlags methodAccess = new AccessFlags(in.getInt());
+			methods.put(new MethodEntry(definition, readString(in), new MethodDescriptor(readString(in))), methodAccess);
+		}
+
+		return new ClassDeclarations(definition, fields, methods);
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeShort(bytes.length);
+		out.write(bytes);
+	}
+
+	private static void writeNullableString(DataOutputStream out, @Nullable String value) throws IOException {
+		writeString(out, value != null ? value : "");
+	}
+
+	private static String readString(ByteBuffer in) {
+		byte[] bytes = new byte[in.getShort() & 0xFFFF];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	@Nullable
+	private static String readNullableString(ByteBuffer in) {
+		String value = readString(in);
+		return value.isEmpty() ? null : value;
+	}
+
+	static final class ClassDeclarations {
+		final ClassDefEntry definition;
+		final Map<FieldEntry, AccessFlags> fields;
+		final Map<MethodEntry, AccessFlags> methods;
+
+		ClassDeclarations(ClassDefEntry definition, Map<FieldEntry, AccessFlags> fields, Map<MethodEntry, AccessFlags> methods) {
+			this.definition = definition;
+			this.fields = fields;
+			this.methods = methods;
+		}
+	}
+
+	/**
+	 * Writes the declarations of a class into one record, which is complete once the class was visited.
+	 */
+	private static final class RecordWriter extends ClassVisitor {
+		private final ByteArrayOutputStream header = new ByteArrayOutputStream();
+		private final ByteArrayOutputStream fields = new ByteArrayOutputStream();
+		private final ByteArrayOutputStream methods = new ByteArrayOutputStream();
+		private int fieldCount;
+		private int methodCount;
+		private String name;
+		private byte[] record;
+
+		RecordWriter() {
+			super(Opcodes.ASM5);
+		}
+
+		@Override
+		public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+			this.name = name;
+			write(header, out -> {
+				out.writeInt(access);
+				writeNullableString(out, signature);
+				writeNullableString(out, superName);
+				out.writeShort(interfaces != null ? interfaces.length : 0);
+				if (interfaces != null) {
+					for (String interfaceName : interfaces) {
+						writeString(out, interfaceName);
+					}
+				}
+			});
+		}
+
+		@Override
+		public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+			fieldCount++;
+			write(fields, out -> {
+				out.writeInt(access);
+				writeString(out, name);
+				writeString(out, desc);
+			});
+			return null;
+		}
+
+		@Override
+		public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+			methodCount++;
+			write(methods, out -> {
+				out.writeInt(access);
+				writeString(out, name);
+				writeString(out, desc);
+			});
+			return null;
+		}
+
+		@Override
+		public void visitEnd() {
+			ByteArrayOutputStream record = new ByteArrayOutputStream(header.size() + fields.size() + methods.size() + 4);
+			write(record, out -> {
+				header.writeTo(out);
+				out.writeShort(fieldCount);
+				fields.writeTo(out);
+				out.writeShort(methodCount);
+				methods.writeTo(out);
+			});
+			this.record = record.toByteArray();
+		}
+
+		private static void write(ByteArrayOutputStream bytes, RecordWriterAction action) {
+			try {
+				DataOutputStream out = new DataOutputStream(bytes);
+				action.write(out);
+				out.flush();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	private interface RecordWriterAction {
+		void write(DataOutputStream out) throws IOException;
+	}
+}
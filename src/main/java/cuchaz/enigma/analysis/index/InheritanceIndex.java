@@ -13,14 +13,10 @@ package cuchaz.enigma.analysis.index;
 
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
-import com.google.common.collect.Sets;
 import cuchaz.enigma.translation.representation.entry.ClassDefEntry;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
 
-import java.util.Collection;
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.Set;
+import java.util.*;
 
 public class InheritanceIndex implements JarIndexer {
 	private final EntryIndex entryIndex;
@@ -28,6 +24,8 @@ public class InheritanceIndex implements JarIndexer {
 	private Multimap<ClassEntry, ClassEntry> classParents = HashMultimap.create();
 	private Multimap<ClassEntry, ClassEntry> classChildren = HashMultimap.create();
 
+	private volatile Closure closure;
+
 	public InheritanceIndex(EntryIndex entryIndex) {
 		this.entryIndex = entryIndex;
 	}
@@ -51,6 +49,7 @@ public class InheritanceIndex implements JarIndexer {
 	private void indexParent(ClassEntry childEntry, ClassEntry parentEntry) {
 		classParents.put(childEntry, parentEntry);
 		classChildren.put(parentEntry, childEntry);
+		closure = null;
 	}
 
 	public Collection<ClassEntry> getParents(ClassEntry classEntry) {
@@ -61,48 +60,38 @@ public class InheritanceIndex implements JarIndexer {
 		return classChildren.get(classEntry);
 	}
 
-	public Collection<ClassEntry> getDescendants(ClassEntry classEntry) {
-		Collection<ClassEntry> descendants = new HashSet<>();
-
-		LinkedList<ClassEntry> descendantQueue = new LinkedList<>();
-		descendantQueue.push(classEntry);
-
-		while (!descendantQueue.isEmpty()) {
-			ClassEntry descendant = descendantQueue.pop();
-			Collection<ClassEntry> children = getChildren(descendant);
-
-			children.forEach(descendantQueue::push);
-			descendants.addAll(children);
-		}
+	@Override
+	public void processIndex(JarIndex index) {
+		getClosure();
+	}
 
-		return descendants;
+	public Collection<ClassEntry> getDescendants(ClassEntry classEntry) {
+		Closure closure = getClosure();
+		return closure.toSet(closure.descendants, classEntry);
 	}
 
 	public Set<ClassEntry> getAncestors(ClassEntry classEntry) {
-		Set<ClassEntry> ancestors = Sets.newHashSet();
-
-		LinkedList<ClassEntry> ancestorQueue = new LinkedList<>();
-		ancestorQueue.push(classEntry);
-
-		while (!ancestorQueue.isEmpty()) {
-			ClassEntry ancestor = ancestorQueue.pop();
-			Collection<ClassEntry> parents = getParents(ancestor);
-
-			parents.forEach(ancestorQueue::push);
-			ancestors.addAll(parents);
-		}
+		Closure closure = getClosure();
+		return closure.toSet(closure.ancestors, classEntry);
+	}
 
-		return ancestors;
+	/**
+	 * Returns whether the second class is a superclass or superinterface of the first one, at any depth.
+	 */
+	public boolean isAncestor(ClassEntry classEntry, ClassEntry potentialAncestor) {
+		return getClosure().isAncestor(classEntry, potentialAncestor);
 	}
 
 	public Relation computeClassRelation(ClassEntry classEntry, ClassEntry potentialAncestor) {
 		if (potentialAncestor.getName().equals("java/lang/Object")) return Relation.RELATED;
 		if (!entryIndex.hasClass(classEntry)) return Relation.UNKNOWN;
 
+		if (isAncestor(classEntry, potentialAncestor)) {
+			return Relation.RELATED;
+		}
+
 		for (ClassEntry ancestor : getAncestors(classEntry)) {
-			if (potentialAncestor.equals(ancestor)) {
-				return Relation.RELATED;
-			} else if (!entryIndex.hasClass(ancestor)) {
+			if (!entryIndex.hasClass(ancestor)) {
 				return Relation.UNKNOWN;
 			}
 		}
@@ -110,6 +99,19 @@ public class InheritanceIndex implements JarIndexer {
 		return Relation.UNRELATED;
 	}
 
+	private Closure getClosure() {
+		Closure closure = this.closure;
+		if (closure == null) {
+			synchronized (this) {
+				closure = this.closure;
+				if (closure == null) {
+					this.closure = closure = new Closure(classParents);
+				}
+			}
+		}
+		return closure;
+	}
+
 	public boolean isParent(ClassEntry classEntry) {
 		return classChildren.containsKey(classEntry);
 	}
@@ -119,6 +121,113 @@ public class InheritanceIndex implements JarIndexer {
 		return parents != null && !parents.isEmpty();
 	}
 
+	/**
+	 * The ancestors and descendants of every class, computed once from the direct parents. Classes are numbered, and
+	 * each one keeps the sorted numbers of its ancestors and of its descendants, so that a lookup is a binary search.
+	 */
+	private static final class Closure {
+		private static final int[] NONE = new int[0];
+
+		private final Map<ClassEntry, Integer> ids = new HashMap<>();
+		private final ClassEntry[] classes;
+		private final int[][] ancestors;
+		private final int[][] descendants;
+
+		Closure(Multimap<ClassEntry, ClassEntry> parents) {
+			List<ClassEntry> classes = new ArrayList<>();
+			for (Map.Entry<ClassEntry, ClassEntry> parent : parents.entries()) {
+				for (ClassEntry entry : new ClassEntry[] {parent.getKey(), parent.getValue()}) {
+					if (!ids.containsKey(entry)) {
+						ids.put(entry, classes.size());
+						classes.add(entry);
+					}
+				}
+			}
+			this.classes = classes.toArray(new ClassEntry[0]);
+
+			int[][] directParents = new int[this.classes.length][];
+			for (int id = 0; id < this.classes.length; id++) {
+				directParents[id] = parents.get(this.classes[id]).stream().mapToInt(ids::get).toArray();
+			}
+
+			// walk up from every class, marking visited classes with the id of the walk so cycles end it
+			ancestors = new int[this.classes.length][];
+			int[] visitedBy = new int[this.classes.length];
+			Arrays.fill(visitedBy, -1);
+			int[] queue = new int[this.classes.length];
+			int[] descendantCounts = new int[this.classes.length];
+
+			for (int id = 0; id < this.classes.length; id++) {
+				int head = 0;
+				int tail = 0;
+				visitedBy[id] = id;
+				queue[tail++] = id;
+				while (head < tail) {
+					for (int parent : directParents[queue[head++]]) {
+						if (visitedBy[parent] != id) {
+							visitedBy[parent] = id;
+							queue[tail++] = parent;
+						}
+					}
+				}
+
+				int[] found = Arrays.copyOfRange(queue, 1, tail);
+				Arrays.sort(found);
+				ancestors[id] = found.length == 0 ? NONE : found;
+				for (int ancestor : found) {
+					descendantCounts[ancestor]++;
+				}
+			}
+
+			// ascending ids are visited in order, so every descendant list comes out sorted
+			descendants = new int[this.classes.length][];
+			for (int id = 0; id < this.classes.length; id++) {
+				descendants[id] = descendantCounts[id] == 0 ? NONE : new int[descendantCounts[id]];
+				descendantCounts[id] = 0;
+			}
+			for (int id = 0; id < this.classes.length; id++) {
+				for (int ancestor : ancestors[id]) {
+					descendants[ancestor][descendantCounts[ancestor]++] = id;
+				}
+			}
+		}
+
+		boolean isAncestor(ClassEntry classEntry, ClassEntry potentialAncestor) {
+			Integer id = ids.get(classEntry);
+			Integer ancestorId = ids.get(potentialAncestor);
+			return id != null && ancestorId != null && Arrays.binarySearch(ancestors[id], ancestorId) >= 0;
+		}
+
+		Set<ClassEntry> toSet(int[][] relations, ClassEntry classEntry) {
+			Integer id = ids.get(classEntry);
+			return id != null && relations[id].length > 0 ? new ClassSet(relations[id]) : Collections.emptySet();
+		}
+
+		private final class ClassSet extends AbstractSet<ClassEntry> {
+			private final int[] members;
+
+			ClassSet(int[] members) {
+				this.members = members;
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				Integer id = o instanceof ClassEntry ? ids.get(o) : null;
+				return id != null && Arrays.binarySearch(members, id) >= 0;
+			}
+
+			@Override
+			public Iterator<ClassEntry> iterator() {
+				return Arrays.stream(members).mapToObj(member -> classes[member]).iterator();
+			}
+
+			@Override
+			public int size() {
+				return members.length;
+			}
+		}
+	}
+
 	public enum Relation {
 		RELATED,
 		UNRELATED,
@@ -15,7 +15,9 @@ import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 import cuchaz.enigma.ProgressListener;
 import cuchaz.enigma.analysis.ClassCache;
+import cuchaz.enigma.analysis.HierarchySnapshot;
 import cuchaz.enigma.analysis.ReferenceTargetType;
+import cuchaz.enigma.metrics.Metrics;
 import cuchaz.enigma.translation.mapping.EntryResolver;
 import cuchaz.enigma.translation.mapping.IndexEntryResolver;
 import cuchaz.enigma.translation.representation.Lambda;
@@ -23,8 +25,7 @@ import cuchaz.enigma.translation.representation.entry.*;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Opcodes;
 
-import java.util.Arrays;
-import java.util.Collection;
+import java.util.*;
 
 public class JarIndex implements JarIndexer {
 	private final EntryIndex entryIndex;
@@ -32,6 +33,7 @@ public class JarIndex implements JarIndexer {
 	private final ReferenceIndex referenceIndex;
 	private final BridgeMethodIndex bridgeMethodIndex;
 	private final PackageVisibilityIndex packageVisibilityIndex;
+	private final LibraryIndex libraryIndex;
 	private final EntryResolver entryResolver;
 
 	private final Collection<JarIndexer> indexers;
@@ -39,43 +41,94 @@ public class JarIndex implements JarIndexer {
 	private final Multimap<String, MethodDefEntry> methodImplementations = HashMultimap.create();
 
 	public JarIndex(EntryIndex entryIndex, InheritanceIndex inheritanceIndex, ReferenceIndex referenceIndex, BridgeMethodIndex bridgeMethodIndex, PackageVisibilityIndex packageVisibilityIndex) {
+		this(entryIndex, inheritanceIndex, referenceIndex, bridgeMethodIndex, packageVisibilityIndex, LibraryIndex.EMPTY);
+	}
+
+	/**
+	 * @param libraryIndex the declarations of the jars the jar depends on
+	 */
+	public JarIndex(EntryIndex entryIndex, InheritanceIndex inheritanceIndex, ReferenceIndex referenceIndex, BridgeMethodIndex bridgeMethodIndex, PackageVisibilityIndex packageVisibilityIndex, LibraryIndex libraryIndex) {
 		this.entryIndex = entryIndex;
 		this.inheritanceIndex = inheritanceIndex;
 		this.referenceIndex = referenceIndex;
 		this.bridgeMethodIndex = bridgeMethodIndex;
 		this.packageVisibilityIndex = packageVisibilityIndex;
+		this.libraryIndex = libraryIndex;
 		this.indexers = Arrays.asList(entryIndex, inheritanceIndex, referenceIndex, bridgeMethodIndex, packageVisibilityIndex);
 		this.entryResolver = new IndexEntryResolver(this);
 	}
 
 	public static JarIndex empty() {
+		return empty(LibraryIndex.EMPTY);
+	}
+
+	public static JarIndex empty(LibraryIndex libraryIndex) {
 		EntryIndex entryIndex = new EntryIndex();
 		InheritanceIndex inheritanceIndex = new InheritanceIndex(entryIndex);
 		ReferenceIndex referenceIndex = new ReferenceIndex();
 		BridgeMethodIndex bridgeMethodIndex = new BridgeMethodIndex(entryIndex, inheritanceIndex, referenceIndex);
 		PackageVisibilityIndex packageVisibilityIndex = new PackageVisibilityIndex();
-		return new JarIndex(entryIndex, inheritanceIndex, referenceIndex, bridgeMethodIndex, packageVisibilityIndex);
+		return new JarIndex(entryIndex, inheritanceIndex, referenceIndex, bridgeMethodIndex, packageVisibilityIndex, libraryIndex);
 	}
 
 	public void indexJar(ClassCache classCache, ProgressListener progress) {
 		progress.init(4, "Indexing jar");
 
 		progress.step(1, "Entries...");
-		classCache.visit(() -> new IndexClassVisitor(this, Opcodes.ASM5), ClassReader.SKIP_CODE);
+		Metrics.time("index.entries", () -> classCache.visitParallel(() -> BufferedJarIndexer.visitor(indexer -> new IndexClassVisitor(indexer, Opcodes.ASM5)), ClassReader.SKIP_CODE, visitor -> visitor.replay(this)));
+
+		Metrics.time("index.libraries", () -> indexLibraryAncestors());
 
 		progress.step(2, "Entry references...");
-		classCache.visit(() -> new IndexReferenceVisitor(this, entryIndex, inheritanceIndex, Opcodes.ASM5), 0);
+		HierarchySnapshot libraries = libraryIndex.getHierarchy();
+		// the entry and inheritance indexes are complete by now, and only read while references are visited
+		Metrics.time("index.references", () -> classCache.visitParallel(() -> BufferedJarIndexer.visitor(indexer -> new IndexReferenceVisitor(indexer, entryIndex, inheritanceIndex, libraries, Opcodes.ASM5)), 0, visitor -> visitor.replay(this)));
 
 		progress.step(3, "Bridge methods...");
-		bridgeMethodIndex.findBridgeMethods();
+		Metrics.time("index.bridgeMethods", () -> bridgeMethodIndex.findBridgeMethods());
 
 		progress.step(4, "Processing...");
-		processIndex(this);
+		Metrics.time("index.process", () -> processIndex(this));
+
+		Metrics.count("index.classes", entryIndex.getClasses().size());
+		Metrics.count("index.methods", entryIndex.getMethods().size());
+		Metrics.count("index.fields", entryIndex.getFields().size());
+	}
+
+	/**
+	 * Adds the library classes that jar classes extend or implement to the inheritance index, so that it knows the
+	 * whole hierarchy above the jar. Library classes nothing in the jar inherits from are left out.
+	 */
+	private void indexLibraryAncestors() {
+		if (libraryIndex.isEmpty()) {
+			return;
+		}
+
+		Set<ClassEntry> visited = new HashSet<>();
+		Deque<ClassEntry> queue = new ArrayDeque<>();
+		for (ClassEntry classEntry : entryIndex.getClasses()) {
+			queue.addAll(inheritanceIndex.getParents(classEntry));
+		}
+
+		while (!queue.isEmpty()) {
+			ClassEntry classEntry = queue.poll();
+			if (!visited.add(classEntry) || entryIndex.hasClass(classEntry)) {
+				continue;
+			}
+
+			ClassDefEntry definition = libraryIndex.getDefinition(classEntry);
+			if (definition != null) {
+				inheritanceIndex.indexClass(definition);
+				queue.addAll(inheritanceIndex.getParents(classEntry));
+			}
+		}
 	}
 
 	@Override
 	public void processIndex(JarIndex index) {
-		indexers.forEach(indexer -> indexer.processIndex(index));
+		for (JarIndexer indexer : indexers) {
+			Metrics.time("index.process." + indexer.getClass().getSimpleName(), () -> indexer.processIndex(index));
+		}
 	}
 
 	@Override
@@ -162,6 +215,10 @@ public class JarIndex implements JarIndexer {
 		return packageVisibilityIndex;
 	}
 
+	public LibraryIndex getLibraryIndex() {
+		return libraryIndex;
+	}
+
 	public EntryResolver getEntryResolver() {
 		return entryResolver;
 	}
@@ -0,0 +1,136 @@
+package cuchaz.enigma.analysis.index;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.analysis.HierarchySnapshot;
+import cuchaz.enigma.translation.representation.AccessFlags;
+import cuchaz.enigma.translation.representation.entry.*;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * The declarations of the classes in the jars a jar depends on: their hierarchy and the access of their members, but
+ * no references, as method bodies are never read.
+ * <p>
+ * A library index does not change once built, so one can be shared by any number of projects. Use a
+ * {@link LibraryIndexCache} to also share the indexes of the single jars between runs.
+ */
+public final class LibraryIndex {
+	public static final LibraryIndex EMPTY = new LibraryIndex(ImmutableList.of(), ImmutableList.of());
+
+	private final ImmutableList<Path> jars;
+	private final ImmutableMap<String, IndexedLibrary> owners;
+
+	private volatile HierarchySnapshot hierarchy;
+
+	LibraryIndex(List<Path> jars, List<IndexedLibrary> libraries) {
+		this.jars = ImmutableList.copyOf(jars);
+
+		// as on a class path, a class in several jars is taken from the first one
+		Map<String, IndexedLibrary> owners = new HashMap<>();
+		for (IndexedLibrary library : libraries) {
+			for (String className : library.getClassNames()) {
+				owners.putIfAbsent(className, library);
+			}
+		}
+		this.owners = ImmutableMap.copyOf(owners);
+	}
+
+	/**
+	 * Indexes the given jars, without caching the result.
+	 */
+	public static LibraryIndex index(Collection<Path> jars, ProgressListener progress) throws IOException {
+		if (jars.isEmpty()) {
+			return EMPTY;
+		}
+
+		progress.init(jars.size(), "Indexing libraries");
+
+		List<IndexedLibrary> libraries = new ArrayList<>();
+		int step = 0;
+		for (Path jar : jars) {
+			progress.step(++step, jar.getFileName().toString());
+			libraries.add(IndexedLibrary.read(ByteBuffer.wrap(IndexedLibrary.index(jar))));
+		}
+
+		return new LibraryIndex(new ArrayList<>(jars), libraries);
+	}
+
+	public List<Path> getJars() {
+		return jars;
+	}
+
+	public boolean isEmpty() {
+		return owners.isEmpty();
+	}
+
+	public boolean hasClass(ClassEntry entry) {
+		return owners.containsKey(entry.getFullName());
+	}
+
+	@Nullable
+	private IndexedLibrary.ClassDeclarations getDeclarations(ClassEntry entry) {
+		IndexedLibrary library = owners.get(entry.getFullName());
+		return library != null ? library.get(entry.getFullName()) : null;
+	}
+
+	@Nullable
+	public ClassDefEntry getDefinition(ClassEntry entry) {
+		IndexedLibrary.ClassDeclarations declarations = getDeclarations(entry);
+		return declarations != null ? declarations.definition : null;
+	}
+
+	/**
+	 * Returns the definitions of all library classes. This decodes every class, so prefer looking classes up one by
+	 * one.
+	 */
+	public Collection<ClassDefEntry> getDefinitions() {
+		List<ClassDefEntry> definitions = new ArrayList<>(owners.size());
+		for (Map.Entry<String, IndexedLibrary> owner : owners.entrySet()) {
+			definitions.add(owner.getValue().get(owner.getKey()).definition);
+		}
+		return definitions;
+	}
+
+	@Nullable
+	public AccessFlags getMethodAccess(MethodEntry entry) {
+		IndexedLibrary.ClassDeclarations declarations = getDeclarations(entry.getParent());
+		return declarations != null ? declarations.methods.get(entry) : null;
+	}
+
+	@Nullable
+	public AccessFlags getFieldAccess(FieldEntry entry) {
+		IndexedLibrary.ClassDeclarations declarations = getDeclarations(entry.getParent());
+		return declarations != null ? declarations.fields.get(entry) : null;
+	}
+
+	@Nullable
+	public AccessFlags getEntryAccess(Entry<?> entry) {
+		if (entry instanceof MethodEntry) {
+			return getMethodAccess((MethodEntry) entry);
+		} else if (entry instanceof FieldEntry) {
+			return getFieldAccess((FieldEntry) entry);
+		} else if (entry instanceof LocalVariableEntry) {
+			return getMethodAccess(((LocalVariableEntry) entry).getParent());
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns the hierarchy of the library classes, on top of that of the JDK.
+	 */
+	public HierarchySnapshot getHierarchy() {
+		HierarchySnapshot hierarchy = this.hierarchy;
+		if (hierarchy == null) {
+			// backed by the libraries, so that classes are only decoded once the verifier asks for them
+			this.hierarchy = hierarchy = owners.isEmpty() ? HierarchySnapshot.jdk() : HierarchySnapshot.ofDefinitions(jars.toString(), owners.keySet(), name -> owners.get(name).get(name).definition, HierarchySnapshot.jdk());
+		}
+		return hierarchy;
+	}
+}
@@ -0,0 +1,129 @@
+package cuchaz.enigma.analysis.index;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import cuchaz.enigma.ProgressListener;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Keeps the indexes of library jars in a directory, named after a hash of the jar contents, so that a jar is only
+ * indexed once however many projects and runs depend on it. Cached indexes are memory-mapped read-only, and a jar
+ * indexed by one project is shared with every other project using the same cache while any of them holds on to it.
+ * <p>
+ * The default cache lives in {@code ~/.enigma/library-cache}, which the {@code enigma.libraryCache} system property
+ * overrides.
+ */
+public final class LibraryIndexCache {
+	private static final String EXTENSION = ".libidx";
+
+	private static LibraryIndexCache defaultCache;
+
+	private final Path directory;
+	private final Cache<HashCode, IndexedLibrary> loaded = CacheBuilder.newBuilder().weakValues().build();
+
+	public LibraryIndexCache(Path directory) {
+		this.directory = directory;
+	}
+
+	public static synchronized LibraryIndexCache getDefault() {
+		if (defaultCache == null) {
+			String directory = System.getProperty("enigma.libraryCache");
+			defaultCache = new LibraryIndexCache(directory != null ? Paths.get(directory) : Paths.get(System.getProperty("user.home"), ".enigma", "library-cache"));
+		}
+		return defaultCache;
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+	public LibraryIndex index(Collection<Path> jars, ProgressListener progress) throws IOException {
+		if (jars.isEmpty()) {
+			return LibraryIndex.EMPTY;
+		}
+
+		progress.init(jars.size(), "Indexing libraries");
+
+		List<IndexedLibrary> libraries = new ArrayList<>();
+		int step = 0;
+		for (Path jar : jars) {
+			progress.step(++step, jar.getFileName().toString());
+			libraries.add(load(jar));
+		}
+
+		return new LibraryIndex(new ArrayList<>(jars), libraries);
+	}
+
+	private IndexedLibrary load(Path jar) throws IOException {
+		HashCode hash = com.google.common.io.Files.asByteSource(jar.toFile()).hash(Hashing.sha256());
+		try {
+			return loaded.get(hash, () -> loadOrIndex(jar, hash));
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	private IndexedLibrary loadOrIndex(Path jar, HashCode hash) throws IOException {
+		Path file = directory.resolve(hash + EXTENSION);
+
+		if (Files.isRegularFile(file)) {
+			try {
+				IndexedLibrary library = map(file);
+				if (library != null) {
+					return library;
+				}
+			} catch (IOException e) {
+				System.err.println("Re-indexing library " + jar + ", as its cached index is unreadable: " + e);
+			}
+		}
+
+		byte[] index = IndexedLibrary.index(jar);
+
+		try {
+			// written aside and moved into place, so that other runs never see a partial index
+			Files.createDirectories(directory);
+			Path temporary = Files.createTempFile(directory, hash.toString(), ".tmp");
+			try {
+				Files.write(temporary, index);
+				Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(temporary);
+			}
+
+			IndexedLibrary library = map(file);
+			if (library != null) {
+				return library;
+			}
+		} catch (IOException e) {
+			System.err.println("Failed to cache the index of library " + jar + ": " + e);
+		}
+
+		return IndexedLibrary.read(ByteBuffer.wrap(index));
+	}
+
+	@Nullable
+	private static IndexedLibrary map(Path file) throws IOException {
+		// the mapping stays valid once the channel is closed
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return IndexedLibrary.read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+}
@@ -1,6 +1,5 @@
 package cuchaz.enigma.analysis.index;
 
-import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -21,7 +20,7 @@ public class PackageVisibilityIndex implements JarIndexer {
 			ClassEntry contextClass = ref.context.getContainingClass();
 			ClassEntry referencedClass = ref.entry.getContainingClass();
 
-			if (!inheritanceIndex.getAncestors(contextClass).contains(referencedClass)) {
+			if (!inheritanceIndex.isAncestor(contextClass, referencedClass)) {
 				return true; // access to protected member not in superclass
 			}
 
@@ -32,30 +31,48 @@ public class PackageVisibilityIndex implements JarIndexer {
 			// access to instance member only valid if target's class assignable to context class
 			return !(ref.targetType.getKind() == ReferenceTargetType.Kind.UNINITIALIZED ||
 					((ReferenceTargetType.ClassType) ref.targetType).getEntry().equals(contextClass) ||
-					inheritanceIndex.getAncestors(((ReferenceTargetType.ClassType) ref.targetType).getEntry()).contains(contextClass));
+					inheritanceIndex.isAncestor(((ReferenceTargetType.ClassType) ref.targetType).getEntry(), contextClass));
 		}
 
 		return true;
 	}
 
-	private final HashMultimap<ClassEntry, ClassEntry> connections = HashMultimap.create();
 	private final List<Set<ClassEntry>> partitions = Lists.newArrayList();
 	private final Map<ClassEntry, Set<ClassEntry>> classPartitions = Maps.newHashMap();
 
+	// union-find over the classes of the jar, only used while the partitions are built
+	private final Map<ClassEntry, Integer> classIds = Maps.newHashMap();
+	private int[] unionParents;
+	private int[] unionSizes;
+
 	private void addConnection(ClassEntry classA, ClassEntry classB) {
-		if (classA != classB) {
-			connections.put(classA, classB);
-			connections.put(classB, classA);
+		Integer idA = classIds.get(classA);
+		Integer idB = classIds.get(classB);
+		if (idA == null || idB == null) {
+			return;
+		}
+
+		int rootA = findRoot(idA);
+		int rootB = findRoot(idB);
+		if (rootA == rootB) {
+			return;
+		}
+
+		if (unionSizes[rootA] < unionSizes[rootB]) {
+			int swap = rootA;
+			rootA = rootB;
+			rootB = swap;
 		}
+		unionParents[rootB] = rootA;
+		unionSizes[rootA] += unionSizes[rootB];
 	}
 
-	private void buildPartition(Set<ClassEntry> unassignedClasses, Set<ClassEntry> partition, ClassEntry member) {
-		for (ClassEntry connected : connections.get(member)) {
-			if (unassignedClasses.remove(connected)) {
-				partition.add(connected);
-				buildPartition(unassignedClasses, partition, connected);
-			}
+	private int findRoot(int id) {
+		while (unionParents[id] != id) {
+			unionParents[id] = unionParents[unionParents[id]];
+			id = unionParents[id];
 		}
+		return id;
 	}
 
 	private void addConnections(EntryIndex entryIndex, ReferenceIndex referenceIndex, InheritanceIndex inheritanceIndex) {
@@ -111,21 +128,34 @@ public class PackageVisibilityIndex implements JarIndexer {
 		}
 	}
 
-	private void addPartitions(EntryIndex entryIndex) {
-		Set<ClassEntry> unassignedClasses = Sets.newHashSet(entryIndex.getClasses());
-		while (!unassignedClasses.isEmpty()) {
-			Iterator<ClassEntry> iterator = unassignedClasses.iterator();
-			ClassEntry initialEntry = iterator.next();
-			iterator.remove();
-
-			HashSet<ClassEntry> partition = Sets.newHashSet();
-			partition.add(initialEntry);
-			buildPartition(unassignedClasses, partition, initialEntry);
-			partitions.add(partition);
-			for (ClassEntry entry : partition) {
-				classPartitions.put(entry, partition);
-			}
+	private void assignIds(EntryIndex entryIndex) {
+		for (ClassEntry entry : entryIndex.getClasses()) {
+			classIds.putIfAbsent(entry, classIds.size());
 		}
+
+		unionParents = new int[classIds.size()];
+		unionSizes = new int[classIds.size()];
+		for (int id = 0; id < unionParents.length; id++) {
+			unionParents[id] = id;
+			unionSizes[id] = 1;
+		}
+	}
+
+	private void addPartitions() {
+		Map<Integer, Set<ClassEntry>> partitionsByRoot = Maps.newHashMap();
+		for (Map.Entry<ClassEntry, Integer> entry : classIds.entrySet()) {
+			Set<ClassEntry> partition = partitionsByRoot.computeIfAbsent(findRoot(entry.getValue()), root -> {
+				Set<ClassEntry> newPartition = Sets.newHashSet();
+				partitions.add(newPartition);
+				return newPartition;
+			});
+			partition.add(entry.getKey());
+			classPartitions.put(entry.getKey(), partition);
+		}
+
+		classIds.clear();
+		unionParents = null;
+		unionSizes = null;
 	}
 
 	public Collection<Set<ClassEntry>> getPartitions() {
@@ -136,12 +166,21 @@ public class PackageVisibilityIndex implements JarIndexer {
 		return classPartitions.get(classEntry);
 	}
 
+	/**
+	 * Returns whether two classes of the jar have to stay in the same package.
+	 */
+	public boolean isSamePartition(ClassEntry classA, ClassEntry classB) {
+		Set<ClassEntry> partition = classPartitions.get(classA);
+		return partition != null && partition == classPartitions.get(classB);
+	}
+
 	@Override
 	public void processIndex(JarIndex index) {
 		EntryIndex entryIndex = index.getEntryIndex();
 		ReferenceIndex referenceIndex = index.getReferenceIndex();
 		InheritanceIndex inheritanceIndex = index.getInheritanceIndex();
+		assignIds(entryIndex);
 		addConnections(entryIndex, referenceIndex, inheritanceIndex);
-		addPartitions(entryIndex);
+		addPartitions();
 	}
 }
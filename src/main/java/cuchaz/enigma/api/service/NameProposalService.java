@@ -3,10 +3,59 @@ package cuchaz.enigma.api.service;
 import cuchaz.enigma.translation.mapping.EntryRemapper;
 import cuchaz.enigma.translation.representation.entry.Entry;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 
+/**
+ * Proposes names for entries that have no mapping.
+ * <p>
+ * Proposals are cached. What a proposal may depend on, and so when it is proposed again, is declared through
+ * {@link #getCacheScope()}.
+ */
 public interface NameProposalService extends EnigmaService {
 	EnigmaServiceType<NameProposalService> TYPE = EnigmaServiceType.create("name_proposal");
 
 	Optional<String> proposeName(Entry<?> obfEntry, EntryRemapper remapper);
+
+	/**
+	 * Proposes names for many entries at once, such as all entries of a class being decompiled or of a jar being
+	 * exported. Entries without a proposal are left out of the result.
+	 */
+	default Map<Entry<?>, String> proposeNames(Collection<? extends Entry<?>> obfEntries, EntryRemapper remapper) {
+		Map<Entry<?>, String> names = new HashMap<>();
+		for (Entry<?> obfEntry : obfEntries) {
+			proposeName(obfEntry, remapper).ifPresent(name -> names.put(obfEntry, name));
+		}
+		return names;
+	}
+
+	/**
+	 * Declares what the proposals of this service depend on besides the entry and the jar. By default, proposals may
+	 * depend on any mapping.
+	 */
+	default CacheScope getCacheScope() {
+		return CacheScope.ALL_MAPPINGS;
+	}
+
+	enum CacheScope {
+		/**
+		 * Proposals may depend on any mapping, and are proposed again once any mapping changed.
+		 */
+		ALL_MAPPINGS,
+		/**
+		 * Proposals only depend on the mappings of the top-level class of the entry, and are proposed again once a
+		 * mapping in that class changed.
+		 */
+		CLASS_MAPPINGS,
+		/**
+		 * Proposals only depend on the entry and the jar, and are kept for as long as the project is open.
+		 */
+		JAR,
+		/**
+		 * Proposals depend on more than the mappings, and are never cached.
+		 */
+		NONE
+	}
 }
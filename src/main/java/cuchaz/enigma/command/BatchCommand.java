@@ -0,0 +1,146 @@
+package cuchaz.enigma.command;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Runs a sequence of commands in one JVM, one command per line with the same arguments as on the command line.
+ * Jars and mappings are kept open between commands, so repeated commands on the same jar skip re-indexing.
+ * <p>
+ * Commands are read from a script file, which stops at the first failing command, or from standard input, which
+ * reports every command as {@code OK} or {@code ERROR <message>} and keeps going until the input is closed.
+ */
+public class BatchCommand extends Command {
+	private final Map<String, Command> commands;
+
+	public BatchCommand(Map<String, Command> commands) {
+		super("batch");
+		this.commands = commands;
+	}
+
+	@Override
+	public String getUsage() {
+		return "[<script file>|-]";
+	}
+
+	@Override
+	public boolean isValidArgument(int length) {
+		return length == 0 || length == 1;
+	}
+
+	@Override
+	public void run(String... args) throws Exception {
+		String script = getArg(args, 0, "script file", false);
+		if (script == null || script.equals("-")) {
+			runInteractive();
+		} else {
+			runScript(getReadablePath(script));
+		}
+	}
+
+	private void runScript(Path script) throws Exception {
+		List<String> lines = Files.readAllLines(script, StandardCharsets.UTF_8);
+		for (int i = 0; i < lines.size(); i++) {
+			List<String> tokens = tokenize(lines.get(i));
+			if (tokens.isEmpty()) {
+				continue;
+			}
+
+			System.out.println("> " + lines.get(i).trim());
+			try {
+				runCommand(tokens);
+			} catch (Exception e) {
+				throw new IllegalStateException("Command on line " + (i + 1) + " of " + script.getFileName() + " failed", e);
+			}
+		}
+	}
+
+	private void runInteractive() throws Exception {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+
+		String line;
+		while ((line = reader.readLine()) != null) {
+			try {
+				List<String> tokens = tokenize(line);
+				if (tokens.isEmpty()) {
+					continue;
+				}
+
+				runCommand(tokens);
+				System.out.println("OK");
+			} catch (Exception e) {
+				e.printStackTrace();
+				System.out.println("ERROR " + (e.getMessage() != null ? e.getMessage().replace('\n', ' ') : e.toString()));
+			}
+			System.out.flush();
+		}
+	}
+
+	private void runCommand(List<String> tokens) throws Exception {
+		String name = tokens.get(0).toLowerCase(Locale.ROOT);
+
+		Command command = commands.get(name);
+		if (command == null) {
+			throw new IllegalArgumentException("Command not recognized: " + name);
+		}
+		if (command == this) {
+			throw new IllegalArgumentException("Batches cannot be nested");
+		}
+
+		String[] args = tokens.subList(1, tokens.size()).toArray(new String[0]);
+		if (!command.isValidArgument(args.length)) {
+			throw new IllegalArgumentException("Usage: " + command.name + " " + command.getUsage());
+		}
+
+		command.run(args);
+	}
+
+	/**
+	 * Splits a line at whitespace, keeping double-quoted arguments together. Lines starting with {@code #} are
+	 * comments.
+	 */
+	static List<String> tokenize(String line) {
+		List<String> tokens = new ArrayList<>();
+		if (line.trim().startsWith("#")) {
+			return tokens;
+		}
+
+		StringBuilder token = null;
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (c == '"') {
+				quoted = !quoted;
+				if (token == null) {
+					token = new StringBuilder();
+				}
+			} else if (Character.isWhitespace(c) && !quoted) {
+				if (token != null) {
+					tokens.add(token.toString());
+					token = null;
+				}
+			} else {
+				if (token == null) {
+					token = new StringBuilder();
+				}
+				token.append(c);
+			}
+		}
+
+		if (quoted) {
+			throw new IllegalArgumentException("Unterminated quote in: " + line);
+		}
+		if (token != null) {
+			tokens.add(token.toString());
+		}
+
+		return tokens;
+	}
+}
@@ -1,13 +1,7 @@
 package cuchaz.enigma.command;
 
-import cuchaz.enigma.Enigma;
 import cuchaz.enigma.EnigmaProject;
-import cuchaz.enigma.ProgressListener;
 import cuchaz.enigma.analysis.index.JarIndex;
-import cuchaz.enigma.translation.mapping.EntryMapping;
-import cuchaz.enigma.translation.mapping.MappingSaveParameters;
-import cuchaz.enigma.translation.mapping.serde.MappingFormat;
-import cuchaz.enigma.translation.mapping.tree.EntryTree;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
 
 import java.nio.file.Path;
@@ -35,19 +29,7 @@ public class CheckMappingsCommand extends Command {
 		Path fileJarIn = getReadableFile(getArg(args, 0, "in jar", true)).toPath();
 		Path fileMappings = getReadablePath(getArg(args, 1, "mappings file", true));
 
-		Enigma enigma = Enigma.create();
-
-		System.out.println("Reading JAR...");
-
-		EnigmaProject project = enigma.openJar(fileJarIn, ProgressListener.none());
-
-		System.out.println("Reading mappings...");
-
-		MappingFormat format = chooseEnigmaFormat(fileMappings);
-		MappingSaveParameters saveParameters = enigma.getProfile().getMappingSaveParameters();
-
-		EntryTree<EntryMapping> mappings = format.read(fileMappings, ProgressListener.none(), saveParameters);
-		project.setMappings(mappings);
+		EnigmaProject project = openProject(fileJarIn, fileMappings);
 
 		JarIndex idx = project.getJarIndex();
 
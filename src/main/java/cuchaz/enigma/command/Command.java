@@ -1,6 +1,5 @@
 package cuchaz.enigma.command;
 
-import cuchaz.enigma.Enigma;
 import cuchaz.enigma.EnigmaProject;
 import cuchaz.enigma.ProgressListener;
 import cuchaz.enigma.translation.mapping.EntryMapping;
@@ -9,6 +8,7 @@ import cuchaz.enigma.translation.mapping.serde.MappingFormat;
 import cuchaz.enigma.translation.mapping.tree.EntryTree;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -26,26 +26,39 @@ public abstract class Command {
 
 	public abstract void run(String... args) throws Exception;
 
+	private static final ProjectCache PROJECTS = new ProjectCache();
+
+	/**
+	 * Opens the jar with the given mappings applied. Jars and mappings are cached between commands run in the
+	 * same JVM, so the mappings must not be modified.
+	 */
 	protected static EnigmaProject openProject(Path fileJarIn, Path fileMappings) throws Exception {
 		ProgressListener progress = new ConsoleProgressListener();
 
-		Enigma enigma = Enigma.create();
-
 		System.out.println("Reading jar...");
-		EnigmaProject project = enigma.openJar(fileJarIn, progress);
+		EnigmaProject project = openJar(fileJarIn, progress);
 
+		EntryTree<EntryMapping> mappings = null;
 		if (fileMappings != null) {
 			System.out.println("Reading mappings...");
 
-			MappingSaveParameters saveParameters = enigma.getProfile().getMappingSaveParameters();
-			EntryTree<EntryMapping> mappings = chooseEnigmaFormat(fileMappings).read(fileMappings, progress, saveParameters);
-
-			project.setMappings(mappings);
+			MappingSaveParameters saveParameters = PROJECTS.getEnigma().getProfile().getMappingSaveParameters();
+			mappings = PROJECTS.readMappings(chooseEnigmaFormat(fileMappings), fileMappings, progress, saveParameters);
 		}
 
+		// a cached project may still carry the mappings of an earlier command
+		project.setMappings(mappings);
+
 		return project;
 	}
 
+	/**
+	 * Opens and indexes the jar, or reuses it if an earlier command in the same JVM already did.
+	 */
+	protected static EnigmaProject openJar(Path fileJarIn, ProgressListener progress) throws IOException {
+		return PROJECTS.openJar(fileJarIn, progress);
+	}
+
 	protected static MappingFormat chooseEnigmaFormat(Path path) {
 		if (Files.isDirectory(path)) {
 			return MappingFormat.ENIGMA_DIRECTORY;
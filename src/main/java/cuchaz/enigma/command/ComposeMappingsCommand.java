@@ -10,6 +10,7 @@ import cuchaz.enigma.utils.Utils;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 
 public class ComposeMappingsCommand extends Command {
     public ComposeMappingsCommand() {
@@ -30,8 +31,9 @@ public class ComposeMappingsCommand extends Command {
     public void run(String... args) throws IOException, MappingParseException {
         MappingSaveParameters saveParameters = new MappingSaveParameters(MappingFileNameFormat.BY_DEOBF);
 
-        EntryTree<EntryMapping> left = MappingCommandsUtil.read(args[0], Paths.get(args[1]), saveParameters);
-        EntryTree<EntryMapping> right = MappingCommandsUtil.read(args[2], Paths.get(args[3]), saveParameters);
+        List<EntryTree<EntryMapping>> inputs = MappingCommandsUtil.readAll(saveParameters, args[0], args[1], args[2], args[3]);
+        EntryTree<EntryMapping> left = inputs.get(0);
+        EntryTree<EntryMapping> right = inputs.get(1);
         EntryTree<EntryMapping> result = MappingCommandsUtil.compose(left, right, args[6].equals("left") || args[6].equals("both"), args[6].equals("right") || args[6].equals("both"));
 
         Path output = Paths.get(args[5]);
@@ -4,6 +4,7 @@ import cuchaz.enigma.EnigmaProject;
 import cuchaz.enigma.ProgressListener;
 
 import java.nio.file.Path;
+import java.nio.file.Paths;
 
 public class DecompileCommand extends Command {
 
@@ -13,7 +14,7 @@ public class DecompileCommand extends Command {
 
 	@Override
 	public String getUsage() {
-		return "<in jar> <out folder> [<mappings file>]";
+		return "<in jar> <out folder|out zip> [<mappings file>]";
 	}
 
 	@Override
@@ -24,7 +25,8 @@ public class DecompileCommand extends Command {
 	@Override
 	public void run(String... args) throws Exception {
 		Path fileJarIn = getReadableFile(getArg(args, 0, "in jar", true)).toPath();
-		Path fileJarOut = getWritableFolder(getArg(args, 1, "out folder", true)).toPath();
+		String output = getArg(args, 1, "out folder", true);
+		Path fileJarOut = EnigmaProject.SourceExport.isArchive(Paths.get(output)) ? getWritableFile(output).toPath() : getWritableFolder(output).toPath();
 		Path fileMappings = getReadablePath(getArg(args, 2, "mappings file", false));
 
 		EnigmaProject project = openProject(fileJarIn, fileMappings);
@@ -35,5 +37,6 @@ public class DecompileCommand extends Command {
 		EnigmaProject.SourceExport source = jar.decompile(progress);
 
 		source.write(fileJarOut, progress);
+		source.printReport(System.out);
 	}
 }
@@ -1,7 +1,6 @@
 package cuchaz.enigma.command;
 
 import cuchaz.enigma.ProgressListener;
-import cuchaz.enigma.analysis.ClassCache;
 import cuchaz.enigma.analysis.index.BridgeMethodIndex;
 import cuchaz.enigma.analysis.index.JarIndex;
 import cuchaz.enigma.throwables.MappingParseException;
@@ -40,8 +39,7 @@ public class MapSpecializedMethodsCommand extends Command {
         EntryTree<EntryMapping> source = MappingCommandsUtil.read(args[1], Paths.get(args[2]), saveParameters);
         EntryTree<EntryMapping> result = new HashEntryTree<>();
         Path jar = Paths.get(args[0]);
-        ClassCache classCache = ClassCache.of(jar);
-        JarIndex jarIndex = classCache.index(ProgressListener.none());
+        JarIndex jarIndex = openJar(jar, ProgressListener.none()).getJarIndex();
         BridgeMethodIndex bridgeMethodIndex = jarIndex.getBridgeMethodIndex();
         Translator translator = new MappingTranslator(source, jarIndex.getEntryResolver());
 
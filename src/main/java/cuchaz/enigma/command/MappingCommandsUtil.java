@@ -1,11 +1,14 @@
 package cuchaz.enigma.command;
 
 import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.metrics.Metrics;
 import cuchaz.enigma.throwables.MappingParseException;
 import cuchaz.enigma.translation.MappingTranslator;
 import cuchaz.enigma.translation.Translator;
 import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.MappingPair;
 import cuchaz.enigma.translation.mapping.MappingSaveParameters;
+import cuchaz.enigma.translation.mapping.MappingSaveResult;
 import cuchaz.enigma.translation.mapping.VoidEntryResolver;
 import cuchaz.enigma.translation.mapping.serde.*;
 import cuchaz.enigma.translation.mapping.tree.EntryTree;
@@ -18,8 +21,13 @@ import cuchaz.enigma.translation.representation.entry.MethodEntry;
 
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.HashSet;
-import java.util.Set;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 public final class MappingCommandsUtil {
     private MappingCommandsUtil() {}
@@ -28,19 +36,18 @@ public final class MappingCommandsUtil {
         Translator translator = new MappingTranslator(mappings, VoidEntryResolver.INSTANCE);
         EntryTree<EntryMapping> result = new HashEntryTree<>();
 
-        for (EntryTreeNode<EntryMapping> node : mappings) {
+        forEachClass(mappings, node -> {
             Entry<?> leftEntry = node.getEntry();
             EntryMapping leftMapping = node.getValue();
 
             if (!(leftEntry instanceof ClassEntry || leftEntry instanceof MethodEntry || leftEntry instanceof FieldEntry)) {
-                result.insert(translator.translate(leftEntry), leftMapping);
-                continue;
+                return new MappingPair<>(translator.translate(leftEntry), leftMapping);
             }
 
             Entry<?> rightEntry = translator.translate(leftEntry);
 
-            result.insert(rightEntry, leftMapping == null ? null : new EntryMapping(leftEntry.getName())); // TODO: leftMapping.withName once javadoc PR is merged
-        }
+            return new MappingPair<>(rightEntry, leftMapping == null ? null : new EntryMapping(leftEntry.getName())); // TODO: leftMapping.withName once javadoc PR is merged
+        }, pair -> result.insert(pair.getEntry(), pair.getMapping()));
 
         return result;
     }
@@ -50,42 +57,131 @@ public final class MappingCommandsUtil {
         EntryTree<EntryMapping> result = new HashEntryTree<>();
         Set<Entry<?>> addedMappings = new HashSet<>();
 
-        for (EntryTreeNode<EntryMapping> node : left) {
+        forEachClass(left, node -> {
             Entry<?> leftEntry = node.getEntry();
-            EntryMapping leftMapping = node.getValue();
-
             Entry<?> rightEntry = leftTranslator.translate(leftEntry);
-
-            EntryMapping rightMapping = right.get(rightEntry);
-            if (rightMapping != null) {
-                result.insert(leftEntry, rightMapping);
-                addedMappings.add(rightEntry);
+            return new ComposedEntry(node, rightEntry, right.get(rightEntry));
+        }, composed -> {
+            if (composed.rightMapping != null) {
+                result.insert(composed.leftNode.getEntry(), composed.rightMapping);
+                addedMappings.add(composed.rightEntry);
             } else if (keepLeftOnly) {
-                result.insert(leftEntry, leftMapping);
+                result.insert(composed.leftNode.getEntry(), composed.leftNode.getValue());
             }
-        }
+        });
 
         if (keepRightOnly) {
             Translator leftInverseTranslator = new MappingTranslator(invert(left), VoidEntryResolver.INSTANCE);
-            for (EntryTreeNode<EntryMapping> node : right) {
+            forEachClass(right, node -> {
                 Entry<?> rightEntry = node.getEntry();
-                EntryMapping rightMapping = node.getValue();
+                if (addedMappings.contains(rightEntry)) {
+                    return null;
+                }
+                return new MappingPair<>(leftInverseTranslator.translate(rightEntry), node.getValue());
+            }, pair -> result.insert(pair.getEntry(), pair.getMapping()));
+        }
+        return result;
+    }
+
+    /**
+     * Maps every node of the tree on the common pool, one top-level class per task, and hands the non-null
+     * results to the collector on the calling thread in the tree's iteration order. Results are therefore
+     * inserted exactly as a sequential walk of the tree would insert them.
+     */
+    private static <R> void forEachClass(EntryTree<EntryMapping> mappings, Function<EntryTreeNode<EntryMapping>, R> function, Consumer<R> collector) {
+        List<EntryTreeNode<EntryMapping>> roots = mappings.getRootNodes().collect(Collectors.toList());
 
-                if (!addedMappings.contains(rightEntry)) {
-                    result.insert(leftInverseTranslator.translate(rightEntry), rightMapping);
+        roots.parallelStream()
+                .map(root -> {
+                    List<R> results = new ArrayList<>();
+                    for (EntryTreeNode<EntryMapping> node : root.getNodesRecursively()) {
+                        R result = function.apply(node);
+                        if (result != null) {
+                            results.add(result);
+                        }
+                    }
+                    return results;
+                })
+                .forEachOrdered(results -> results.forEach(collector));
+    }
+
+    /**
+     * Reads several mapping files at once, returning them in the order they were given.
+     */
+    public static List<EntryTree<EntryMapping>> readAll(MappingSaveParameters saveParameters, String... typesAndPaths) throws MappingParseException, IOException {
+        if (typesAndPaths.length % 2 != 0) {
+            throw new IllegalArgumentException("expected pairs of format and path");
+        }
+
+        List<CompletableFuture<EntryTree<EntryMapping>>> futures = new ArrayList<>();
+        for (int i = 0; i < typesAndPaths.length; i += 2) {
+            String type = typesAndPaths[i];
+            Path path = Paths.get(typesAndPaths[i + 1]);
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return read(type, path, saveParameters);
+                } catch (MappingParseException | IOException e) {
+                    throw new CompletionException(e);
                 }
+            }));
+        }
+
+        List<EntryTree<EntryMapping>> trees = new ArrayList<>();
+        for (CompletableFuture<EntryTree<EntryMapping>> future : futures) {
+            try {
+                trees.add(future.join());
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof MappingParseException) {
+                    throw (MappingParseException) cause;
+                } else if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw e;
             }
         }
-        return result;
+        return trees;
     }
 
     public static EntryTree<EntryMapping> read(String type, Path path, MappingSaveParameters saveParameters) throws MappingParseException, IOException {
+        Metrics.Timer timer = Metrics.time("mappings.read." + type);
+        try {
+            return reader(type).read(path, ProgressListener.none(), saveParameters);
+        } finally {
+            timer.close();
+        }
+    }
+
+    public static void write(EntryTree<EntryMapping> mappings, String type, Path path, MappingSaveParameters saveParameters) {
+        Metrics.time("mappings.write." + type, () -> checkSaved(writer(type).write(mappings, path, ProgressListener.none(), saveParameters)));
+    }
+
+    /**
+     * Converts mappings between formats one top-level class at a time, so that the source never has to be loaded
+     * as a whole.
+     */
+    public static void convert(String sourceType, Path source, String resultType, Path result, MappingSaveParameters saveParameters) throws MappingParseException, IOException {
+        MappingsReader reader = reader(sourceType);
+        MappingsWriter writer = writer(resultType);
+
+        Metrics.Timer timer = Metrics.time("mappings.convert");
+        try (ClassMappingsOutput output = writer.openOutput(result, saveParameters)) {
+            reader.readClasses(source, ProgressListener.none(), saveParameters, output);
+            checkSaved(output.finish());
+        } finally {
+            timer.close();
+        }
+    }
+
+    private static MappingsReader reader(String type) {
         if (type.equals("enigma")) {
-            return EnigmaMappingsReader.DIRECTORY.read(path, ProgressListener.none(), saveParameters);
+            return EnigmaMappingsReader.DIRECTORY;
         }
 
         if (type.equals("tiny")) {
-            return TinyMappingsReader.INSTANCE.read(path, ProgressListener.none(), saveParameters);
+            return TinyMappingsReader.INSTANCE;
         }
 
         MappingFormat format = null;
@@ -97,17 +193,16 @@ public final class MappingCommandsUtil {
             }
         }
 
-        if (format != null) {
-            return format.getReader().read(path, ProgressListener.none(), saveParameters);
+        if (format != null && format.getReader() != null) {
+            return format.getReader();
         }
 
         throw new IllegalArgumentException("no reader for " + type);
     }
 
-    public static void write(EntryTree<EntryMapping> mappings, String type, Path path, MappingSaveParameters saveParameters) {
+    private static MappingsWriter writer(String type) {
         if (type.equals("enigma")) {
-            EnigmaMappingsWriter.DIRECTORY.write(mappings, path, ProgressListener.none(), saveParameters);
-            return;
+            return EnigmaMappingsWriter.DIRECTORY;
         }
 
         if (type.startsWith("tinyv2:") || type.startsWith("tiny_v2:")) {
@@ -117,8 +212,7 @@ public final class MappingCommandsUtil {
                 throw new IllegalArgumentException("specify column names as 'tinyv2:from_namespace:to_namespace'");
             }
 
-            new TinyV2Writer(split[1], split[2]).write(mappings, path, ProgressListener.none(), saveParameters);
-            return;
+            return new TinyV2Writer(split[1], split[2]);
         }
 
         if (type.startsWith("tiny:")) {
@@ -128,8 +222,7 @@ public final class MappingCommandsUtil {
                 throw new IllegalArgumentException("specify column names as 'tiny:from_column:to_column'");
             }
 
-            new TinyMappingsWriter(split[1], split[2]).write(mappings, path, ProgressListener.none(), saveParameters);
-            return;
+            return new TinyMappingsWriter(split[1], split[2]);
         }
 
         MappingFormat format = null;
@@ -137,11 +230,29 @@ public final class MappingCommandsUtil {
             format = MappingFormat.valueOf(type.toUpperCase());
         } catch (IllegalArgumentException ignored) {}
 
-        if (format != null) {
-            format.getWriter().write(mappings, path, ProgressListener.none(), saveParameters);
-            return;
+        if (format != null && format.getWriter() != null) {
+            return format.getWriter();
         }
 
         throw new IllegalArgumentException("no writer for " + type);
     }
+
+    private static void checkSaved(MappingSaveResult result) {
+        if (!result.isSuccessful()) {
+            Map.Entry<ClassEntry, Throwable> failure = result.getFailed().entrySet().iterator().next();
+            throw new IllegalStateException("Failed to write mappings for " + result.getFailed().size() + " classes, including " + failure.getKey(), failure.getValue());
+        }
+    }
+
+    private static final class ComposedEntry {
+        final EntryTreeNode<EntryMapping> leftNode;
+        final Entry<?> rightEntry;
+        final EntryMapping rightMapping;
+
+        ComposedEntry(EntryTreeNode<EntryMapping> leftNode, Entry<?> rightEntry, EntryMapping rightMapping) {
+            this.leftNode = leftNode;
+            this.rightEntry = rightEntry;
+            this.rightMapping = rightMapping;
+        }
+    }
 }
@@ -0,0 +1,181 @@
+package cuchaz.enigma.command;
+
+import cuchaz.enigma.Enigma;
+import cuchaz.enigma.EnigmaProject;
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.throwables.MappingParseException;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.MappingSaveParameters;
+import cuchaz.enigma.translation.mapping.serde.MappingFormat;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Keeps opened jars and read mappings around for the lifetime of the JVM, so that commands run back to back (see
+ * {@link BatchCommand}) skip re-indexing jars and re-reading mappings that did not change on disk.
+ * <p>
+ * Cached mappings are shared between commands, which therefore must not modify them.
+ * <p>
+ * Jars are opened against the library jars listed in the {@code enigma.libraries} system property, separated like a
+ * class path. Their indexes go to the library cache, so later runs reuse them too.
+ */
+final class ProjectCache {
+	private static final int MAX_PROJECTS = 2;
+	private static final int MAX_MAPPINGS = 4;
+
+	private static final List<Path> LIBRARIES = parseLibraries(System.getProperty("enigma.libraries"));
+
+	private Enigma enigma;
+	private final Map<Path, Cached<EnigmaProject>> projects = new LinkedHashMap<>(MAX_PROJECTS, 0.75F, true);
+	private final Map<Path, Cached<EntryTree<EntryMapping>>> mappings = new LinkedHashMap<>(MAX_MAPPINGS, 0.75F, true);
+
+	synchronized Enigma getEnigma() {
+		if (enigma == null) {
+			enigma = Enigma.create();
+		}
+		return enigma;
+	}
+
+	synchronized EnigmaProject openJar(Path jar, ProgressListener progress) throws IOException {
+		Path key = jar.toAbsolutePath().normalize();
+		FileStamp stamp = FileStamp.of(key);
+
+		Cached<EnigmaProject> cached = projects.get(key);
+		if (cached != null && cached.stamp.equals(stamp)) {
+			System.out.println("Reusing indexed jar " + key.getFileName());
+			return cached.value;
+		}
+
+		if (cached != null) {
+			close(projects.remove(key).value);
+		}
+
+		EnigmaProject project = getEnigma().openJar(jar, LIBRARIES, progress);
+		projects.put(key, new Cached<>(stamp, project));
+
+		Iterator<Cached<EnigmaProject>> eldest = projects.values().iterator();
+		while (projects.size() > MAX_PROJECTS) {
+			close(eldest.next().value);
+			eldest.remove();
+		}
+
+		return project;
+	}
+
+	synchronized EntryTree<EntryMapping> readMappings(MappingFormat format, Path path, ProgressListener progress, MappingSaveParameters saveParameters) throws IOException, MappingParseException {
+		Path key = path.toAbsolutePath().normalize();
+		FileStamp stamp = FileStamp.of(key);
+
+		Cached<EntryTree<EntryMapping>> cached = mappings.get(key);
+		if (cached != null && cached.stamp.equals(stamp) && cached.format == format) {
+			System.out.println("Reusing mappings " + key.getFileName());
+			return cached.value;
+		}
+
+		EntryTree<EntryMapping> tree = format.read(path, progress, saveParameters);
+		mappings.put(key, new Cached<>(stamp, format, tree));
+
+		Iterator<Cached<EntryTree<EntryMapping>>> eldest = mappings.values().iterator();
+		while (mappings.size() > MAX_MAPPINGS) {
+			eldest.next();
+			eldest.remove();
+		}
+
+		return tree;
+	}
+
+	private static List<Path> parseLibraries(String libraries) {
+		if (libraries == null || libraries.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		List<Path> paths = new ArrayList<>();
+		for (String library : libraries.split(File.pathSeparator)) {
+			if (!library.isEmpty()) {
+				paths.add(Paths.get(library));
+			}
+		}
+		return paths;
+	}
+
+	private static void close(EnigmaProject project) {
+		try {
+			project.getClassCache().close();
+		} catch (Exception e) {
+			System.err.println("Failed to close jar: " + e);
+		}
+	}
+
+	private static final class Cached<T> {
+		final FileStamp stamp;
+		final MappingFormat format;
+		final T value;
+
+		Cached(FileStamp stamp, T value) {
+			this(stamp, null, value);
+		}
+
+		Cached(FileStamp stamp, MappingFormat format, T value) {
+			this.stamp = stamp;
+			this.format = format;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * The size and modification time of a file, or of every file under a directory.
+	 */
+	private static final class FileStamp {
+		private final long size;
+		private final long lastModified;
+		private final long fileCount;
+
+		private FileStamp(long size, long lastModified, long fileCount) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.fileCount = fileCount;
+		}
+
+		static FileStamp of(Path path) throws IOException {
+			if (!Files.isDirectory(path)) {
+				BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+				return new FileStamp(attributes.size(), attributes.lastModifiedTime().toMillis(), 1);
+			}
+
+			long size = 0;
+			long lastModified = 0;
+			long fileCount = 0;
+			try (Stream<Path> files = Files.walk(path)) {
+				for (Path file : (Iterable<Path>) files::iterator) {
+					BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+					size += attributes.size();
+					lastModified = Math.max(lastModified, attributes.lastModifiedTime().toMillis());
+					fileCount++;
+				}
+			}
+			return new FileStamp(size, lastModified, fileCount);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof FileStamp)) {
+				return false;
+			}
+			FileStamp other = (FileStamp) obj;
+			return size == other.size && lastModified == other.lastModified && fileCount == other.fileCount;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(size, lastModified, fileCount);
+		}
+	}
+}
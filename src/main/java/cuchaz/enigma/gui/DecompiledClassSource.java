@@ -1,17 +1,14 @@
 package cuchaz.enigma.gui;
 
 import cuchaz.enigma.EnigmaProject;
-import cuchaz.enigma.EnigmaServices;
 import cuchaz.enigma.analysis.EntryReference;
 import cuchaz.enigma.analysis.SourceIndex;
 import cuchaz.enigma.analysis.Token;
-import cuchaz.enigma.api.service.NameProposalService;
 import cuchaz.enigma.gui.highlight.TokenHighlightType;
 import cuchaz.enigma.translation.LocalNameGenerator;
 import cuchaz.enigma.translation.Translator;
 import cuchaz.enigma.translation.mapping.EntryRemapper;
 import cuchaz.enigma.translation.mapping.EntryResolver;
-import cuchaz.enigma.translation.mapping.ResolutionStrategy;
 import cuchaz.enigma.translation.representation.TypeDescriptor;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
 import cuchaz.enigma.translation.representation.entry.Entry;
@@ -19,6 +16,7 @@ import cuchaz.enigma.translation.representation.entry.LocalVariableDefEntry;
 
 import javax.annotation.Nullable;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 public class DecompiledClassSource {
@@ -42,13 +40,24 @@ public class DecompiledClassSource {
 	public void remapSource(EnigmaProject project, Translator translator) {
 		highlightedTokens.clear();
 
+		// proposed for all at once, so that name proposers are asked once per class rather than once per token
+		EntryRemapper mapper = project.getMapper();
+		Set<Entry<?>> unmapped = new HashSet<>();
+		for (Token token : obfuscatedIndex.referenceTokens()) {
+			EntryReference<Entry<?>, Entry<?>> reference = obfuscatedIndex.getReference(token);
+			if (project.isRenamable(reference) && !mapper.hasDeobfMapping(reference.getNameableEntry())) {
+				unmapped.add(reference.getNameableEntry());
+			}
+		}
+		Function<Entry<?>, Optional<String>> proposals = project.getNameProposals().proposeBatch(unmapped);
+
 		SourceRemapper remapper = new SourceRemapper(obfuscatedIndex.getSource(), obfuscatedIndex.referenceTokens());
 
-		SourceRemapper.Result remapResult = remapper.remap((token, movedToken) -> remapToken(project, token, movedToken, translator));
+		SourceRemapper.Result remapResult = remapper.remap((token, movedToken) -> remapToken(project, proposals, token, movedToken, translator));
 		remappedIndex = obfuscatedIndex.remapTo(remapResult);
 	}
 
-	private String remapToken(EnigmaProject project, Token token, Token movedToken, Translator translator) {
+	private String remapToken(EnigmaProject project, Function<Entry<?>, Optional<String>> proposals, Token token, Token movedToken, Translator translator) {
 		EntryReference<Entry<?>, Entry<?>> reference = obfuscatedIndex.getReference(token);
 
 		Entry<?> entry = reference.getNameableEntry();
@@ -59,7 +68,7 @@ public class DecompiledClassSource {
 				highlightToken(movedToken, TokenHighlightType.DEOBFUSCATED);
 				return translatedEntry.getSourceRemapName();
 			} else {
-				Optional<String> proposedName = proposeName(project, entry);
+				Optional<String> proposedName = proposals.apply(entry);
 				if (proposedName.isPresent()) {
 					highlightToken(movedToken, TokenHighlightType.PROPOSED);
 					return proposedName.get();
@@ -77,20 +86,6 @@ public class DecompiledClassSource {
 		return null;
 	}
 
-	private Optional<String> proposeName(EnigmaProject project, Entry<?> entry) {
-		EnigmaServices services = project.getEnigma().getServices();
-
-		return services.get(NameProposalService.TYPE).stream().flatMap(nameProposalService -> {
-			EntryRemapper mapper = project.getMapper();
-			Collection<Entry<?>> resolved = mapper.getObfResolver().resolveEntry(entry, ResolutionStrategy.RESOLVE_ROOT);
-
-			return resolved.stream()
-					.map(e -> nameProposalService.proposeName(e, mapper))
-					.filter(Optional::isPresent)
-					.map(Optional::get);
-		}).findFirst();
-	}
-
 	@Nullable
 	private String generateDefaultName(Entry<?> entry) {
 		if (entry instanceof LocalVariableDefEntry) {
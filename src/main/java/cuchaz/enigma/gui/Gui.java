@@ -48,6 +48,7 @@ import java.awt.event.*;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -67,6 +68,7 @@ public class Gui {
 	public FileDialog tinyMappingsFileChooser;
 	public JFileChooser enigmaMappingsFileChooser;
 	public JFileChooser exportSourceFileChooser;
+	public FileDialog exportSourceArchiveFileChooser;
 	public FileDialog exportJarFileChooser;
 	private GuiController controller;
 	private JFrame frame;
@@ -125,6 +127,8 @@ public class Gui {
 		this.tinyMappingsFileChooser = new FileDialog(getFrame(), "Open tiny Mappings", FileDialog.LOAD);
 		this.enigmaMappingsFileChooser = new FileChooserAny();
 		this.exportSourceFileChooser = new FileChooserFolder();
+		this.exportSourceArchiveFileChooser = new FileDialog(getFrame(), "Export source archive", FileDialog.SAVE);
+		this.exportSourceArchiveFileChooser.setFile("sources.zip");
 		this.exportJarFileChooser = new FileDialog(getFrame(), "Export jar", FileDialog.SAVE);
 
 		this.obfPanel = new PanelObf(this);
@@ -334,6 +338,7 @@ public class Gui {
 		this.menuBar.saveMappingsMenus.forEach(item -> item.setEnabled(true));
 		this.menuBar.closeMappingsMenu.setEnabled(true);
 		this.menuBar.exportSourceMenu.setEnabled(true);
+		this.menuBar.exportSourceArchiveMenu.setEnabled(true);
 		this.menuBar.exportJarMenu.setEnabled(true);
 
 		redraw();
@@ -354,6 +359,7 @@ public class Gui {
 		this.menuBar.saveMappingsMenus.forEach(item -> item.setEnabled(false));
 		this.menuBar.closeMappingsMenu.setEnabled(false);
 		this.menuBar.exportSourceMenu.setEnabled(false);
+		this.menuBar.exportSourceArchiveMenu.setEnabled(false);
 		this.menuBar.exportJarMenu.setEnabled(false);
 
 		redraw();
@@ -799,9 +805,10 @@ public class Gui {
 		callback.apply(response);
 	}
 
-	public void saveMapping() {
+	public CompletableFuture<Void> saveMapping() {
 		if (this.enigmaMappingsFileChooser.getSelectedFile() != null || this.enigmaMappingsFileChooser.showSaveDialog(this.frame) == JFileChooser.APPROVE_OPTION)
-			this.controller.saveMappings(this.enigmaMappingsFileChooser.getSelectedFile().toPath());
+			return this.controller.saveMappings(this.enigmaMappingsFileChooser.getSelectedFile().toPath());
+		return CompletableFuture.completedFuture(null);
 	}
 
 	public void close() {
@@ -813,9 +820,14 @@ public class Gui {
 			// ask to save before closing
 			showDiscardDiag((response) -> {
 				if (response == JOptionPane.YES_OPTION) {
-					this.saveMapping();
-					this.frame.dispose();
+					// the journal is only reset once the save finished, so wait for both before exiting
+					this.saveMapping().whenComplete((v, t) -> SwingUtilities.invokeLater(() -> {
+						this.controller.closeJournal();
+						this.frame.dispose();
+					}));
 				} else if (response == JOptionPane.NO_OPTION) {
+					// the discarded changes must not be recovered from the journal next time
+					this.controller.closeMappings();
 					this.frame.dispose();
 				}
 
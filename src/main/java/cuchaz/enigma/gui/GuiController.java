@@ -17,7 +17,6 @@ import com.strobel.decompiler.languages.java.ast.CompilationUnit;
 import cuchaz.enigma.*;
 import cuchaz.enigma.analysis.*;
 import cuchaz.enigma.api.service.ObfuscationTestService;
-import cuchaz.enigma.bytecode.translators.SourceFixVisitor;
 import cuchaz.enigma.config.Config;
 import cuchaz.enigma.gui.dialog.ProgressDialog;
 import cuchaz.enigma.gui.stats.StatsGenerator;
@@ -27,6 +26,8 @@ import cuchaz.enigma.throwables.MappingParseException;
 import cuchaz.enigma.translation.Translator;
 import cuchaz.enigma.translation.mapping.*;
 import cuchaz.enigma.translation.mapping.serde.MappingFormat;
+import cuchaz.enigma.translation.mapping.serde.MappingJournal;
+import cuchaz.enigma.translation.mapping.tree.DeltaTrackingTree;
 import cuchaz.enigma.translation.mapping.tree.EntryTree;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
 import cuchaz.enigma.translation.representation.entry.Entry;
@@ -34,7 +35,6 @@ import cuchaz.enigma.translation.representation.entry.FieldEntry;
 import cuchaz.enigma.translation.representation.entry.MethodEntry;
 import cuchaz.enigma.utils.ReadableToken;
 import cuchaz.enigma.utils.Utils;
-import org.objectweb.asm.Opcodes;
 
 import javax.annotation.Nullable;
 import javax.swing.*;
@@ -49,6 +49,7 @@ import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -69,6 +70,8 @@ public class GuiController {
 
 	private Path loadedMappingPath;
 	private MappingFormat loadedMappingFormat;
+	private MappingJournal journal;
+	private BiConsumer<Entry<?>, EntryMapping> journalListener;
 
 	private DecompiledClassSource currentSource;
 
@@ -91,8 +94,7 @@ public class GuiController {
 
 			indexTreeBuilder = new IndexTreeBuilder(project.getJarIndex());
 
-			CompiledSourceTypeLoader typeLoader = new CompiledSourceTypeLoader(project.getClassCache());
-			typeLoader.addVisitor(visitor -> new SourceFixVisitor(Opcodes.ASM5, visitor, project.getJarIndex()));
+			CompiledSourceTypeLoader typeLoader = new CompiledSourceTypeLoader(project.getRemappedClasses().getFixed());
 			sourceProvider = new SourceProvider(SourceProvider.createSettings(), typeLoader);
 
 			gui.onFinishOpenJar(jarPath.getFileName().toString());
@@ -102,6 +104,7 @@ public class GuiController {
 	}
 
 	public void closeJar() {
+		discardJournal();
 		this.project = null;
 		this.gui.onCloseJar();
 	}
@@ -121,14 +124,81 @@ public class GuiController {
 				loadedMappingFormat = format;
 				loadedMappingPath = path;
 
+				int recovered = startJournal(path, true);
+
 				refreshClasses();
 				refreshCurrentClass();
+
+				if (recovered > 0) {
+					JOptionPane.showMessageDialog(gui.getFrame(), "Recovered " + recovered + " unsaved mapping changes from the previous session.");
+				}
 			} catch (MappingParseException e) {
 				JOptionPane.showMessageDialog(gui.getFrame(), e.getMessage());
 			}
 		});
 	}
 
+	/**
+	 * Starts journaling edits next to the given mappings, first replaying any edits left in the journal by a
+	 * session that ended without saving.
+	 *
+	 * @return the number of edits recovered
+	 */
+	private int startJournal(Path path, boolean recover) {
+		discardJournal();
+
+		int recovered = 0;
+		try {
+			DeltaTrackingTree<EntryMapping> mappings = project.getMapper().getObfToDeobf();
+			if (recover) {
+				recovered = MappingJournal.replay(path, mappings);
+			}
+
+			journal = MappingJournal.open(path);
+			if (!recover) {
+				journal.reset();
+			}
+			journalListener = journal::record;
+			mappings.addChangeListener(journalListener);
+		} catch (IOException e) {
+			System.err.println("Failed to open mapping journal for '" + path + "', unsaved changes will not be recoverable");
+			e.printStackTrace();
+		}
+
+		return recovered;
+	}
+
+	/**
+	 * Stops journaling once every pending journal write finished, keeping the journal for the next session.
+	 */
+	public void closeJournal() {
+		stopJournal(false);
+	}
+
+	private void discardJournal() {
+		stopJournal(true);
+	}
+
+	private void stopJournal(boolean delete) {
+		if (journal == null) return;
+
+		if (project != null) {
+			project.getMapper().getObfToDeobf().removeChangeListener(journalListener);
+		}
+
+		try {
+			if (delete) {
+				journal.delete();
+			} else {
+				journal.close();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		journal = null;
+		journalListener = null;
+	}
+
 	public CompletableFuture<Void> saveMappings(Path path) {
 		return saveMappings(path, loadedMappingFormat);
 	}
@@ -140,23 +210,53 @@ public class GuiController {
 			EntryRemapper mapper = project.getMapper();
 			MappingSaveParameters saveParameters = enigma.getProfile().getMappingSaveParameters();
 
+			// taken first, so that an edit made meanwhile is rather kept in the journal than lost from it
+			long journaled = journal != null ? journal.mark() : 0;
 			MappingDelta<EntryMapping> delta = mapper.takeMappingDelta();
 			boolean saveAll = !path.equals(loadedMappingPath);
 
 			loadedMappingFormat = format;
 			loadedMappingPath = path;
 
+			MappingSaveResult result;
 			if (saveAll) {
-				format.write(mapper.getObfToDeobf(), path, progress, saveParameters);
+				result = format.write(mapper.getObfToDeobf(), path, progress, saveParameters);
 			} else {
-				format.write(mapper.getObfToDeobf(), delta, path, progress, saveParameters);
+				result = format.write(mapper.getObfToDeobf(), delta, path, progress, saveParameters);
+			}
+
+			if (!result.isSuccessful()) {
+				// the journal still holds the failed edits
+				reportSaveFailures(mapper, delta, result);
+			} else if (saveAll || journal == null) {
+				startJournal(path, false);
+			} else {
+				// edits made since the delta was taken are not saved yet
+				journal.reset(journaled);
 			}
 		});
 	}
 
+	private void reportSaveFailures(EntryRemapper mapper, MappingDelta<EntryMapping> delta, MappingSaveResult result) {
+		// keep the classes dirty so the next save tries them again, against what is still on disk
+		mapper.getObfToDeobf().restoreChanges(delta, result.getFailed().keySet());
+
+		StringBuilder message = new StringBuilder("Failed to save mappings for " + result.getFailed().size() + " classes:");
+		result.getFailed().entrySet().stream().limit(10).forEach(failure ->
+				message.append("\n").append(failure.getKey().getFullName()).append(": ").append(failure.getValue()));
+		if (result.getFailed().size() > 10) {
+			message.append("\n...");
+		}
+
+		result.getFailed().values().stream().distinct().forEach(Throwable::printStackTrace);
+
+		JOptionPane.showMessageDialog(gui.getFrame(), message.toString(), "Save failed", JOptionPane.ERROR_MESSAGE);
+	}
+
 	public void closeMappings() {
 		if (project == null) return;
 
+		discardJournal();
 		project.setMappings(null);
 
 		this.gui.setMappingsFile(null);
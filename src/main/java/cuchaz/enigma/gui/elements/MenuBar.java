@@ -1,5 +1,6 @@
 package cuchaz.enigma.gui.elements;
 
+import cuchaz.enigma.EnigmaProject;
 import cuchaz.enigma.config.Config;
 import cuchaz.enigma.config.Themes;
 import cuchaz.enigma.gui.Gui;
@@ -33,6 +34,7 @@ public class MenuBar extends JMenuBar {
 	public final JMenuItem closeMappingsMenu;
 	public final JMenuItem dropMappingsMenu;
 	public final JMenuItem exportSourceMenu;
+	public final JMenuItem exportSourceArchiveMenu;
 	public final JMenuItem exportJarMenu;
 	private final Gui gui;
 
@@ -142,6 +144,21 @@ public class MenuBar extends JMenuBar {
 				});
 				this.exportSourceMenu = item;
 			}
+			{
+				JMenuItem item = new JMenuItem("Export Source Archive...");
+				menu.add(item);
+				item.addActionListener(event -> {
+					this.gui.exportSourceArchiveFileChooser.setVisible(true);
+					if (this.gui.exportSourceArchiveFileChooser.getFile() != null) {
+						Path path = Paths.get(this.gui.exportSourceArchiveFileChooser.getDirectory(), this.gui.exportSourceArchiveFileChooser.getFile());
+						if (!EnigmaProject.SourceExport.isArchive(path)) {
+							path = path.resolveSibling(path.getFileName() + ".zip");
+						}
+						this.gui.getController().exportSource(path);
+					}
+				});
+				this.exportSourceArchiveMenu = item;
+			}
 			{
 				JMenuItem item = new JMenuItem("Export Jar...");
 				menu.add(item);
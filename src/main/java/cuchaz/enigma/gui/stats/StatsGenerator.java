@@ -104,7 +104,7 @@ public class StatsGenerator {
 
     private void update(Map<String, Integer> counts, Entry<?> entry) {
         if (isObfuscated(entry)) {
-            String parent = mapper.deobfuscate(entry.getAncestry().get(0)).getName().replace('/', '.');
+            String parent = mapper.deobfuscate(entry.getRoot()).getName().replace('/', '.');
             counts.put(parent, counts.getOrDefault(parent, 0) + 1);
         }
     }
@@ -0,0 +1,284 @@
+package cuchaz.enigma.metrics;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Named timers, counters and the slowest items of per-item phases, collected for the whole JVM.
+ * <p>
+ * Collection is enabled by either of the system properties {@code enigma.metrics=true}, which prints a summary to
+ * the console, or {@code enigma.metrics.report=<file>}, which writes a JSON report; both happen on {@link #report()}.
+ * Independently of that, every timer is also committed as an {@code enigma.Phase} JFR event when a flight recording
+ * is running.
+ */
+public final class Metrics {
+	private static final int SLOW_ITEM_COUNT = 20;
+
+	private static final boolean CONSOLE = Boolean.getBoolean("enigma.metrics");
+	private static final String REPORT = System.getProperty("enigma.metrics.report");
+
+	private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+	private static volatile boolean enabled = CONSOLE || REPORT != null;
+
+	private static final ConcurrentMap<String, TimerStats> TIMERS = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<String, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<String, SlowItems> SLOW_ITEMS = new ConcurrentHashMap<>();
+
+	private Metrics() {
+	}
+
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	public static void setEnabled(boolean enabled) {
+		Metrics.enabled = enabled;
+	}
+
+	/**
+	 * Starts timing a phase. The time is recorded when the timer is closed.
+	 */
+	public static Timer time(String name) {
+		return new Timer(name, null);
+	}
+
+	/**
+	 * Starts timing one item of a phase that handles many, such as one class. Besides adding to the phase timer, the
+	 * slowest items of each phase are kept.
+	 */
+	public static Timer timeItem(String name, String item) {
+		return new Timer(name, item);
+	}
+
+	/**
+	 * Times a phase that produces a value.
+	 */
+	public static <T, E extends Exception> T time(String name, Timed<T, E> action) throws E {
+		return timeItem(name, null, action);
+	}
+
+	/**
+	 * Times a phase that produces nothing.
+	 */
+	public static <E extends Exception> void time(String name, TimedVoid<E> action) throws E {
+		timeItem(name, null, action);
+	}
+
+	/**
+	 * Times one item of a phase that produces a value, as {@link #timeItem(String, String)}.
+	 */
+	public static <T, E extends Exception> T timeItem(String name, String item, Timed<T, E> action) throws E {
+		Timer timer = new Timer(name, item);
+		try {
+			return action.run();
+		} finally {
+			timer.close();
+		}
+	}
+
+	/**
+	 * Times one item of a phase that produces nothing, as {@link #timeItem(String, String)}.
+	 */
+	public static <E extends Exception> void timeItem(String name, String item, TimedVoid<E> action) throws E {
+		Timer timer = new Timer(name, item);
+		try {
+			action.run();
+		} finally {
+			timer.close();
+		}
+	}
+
+	public static void count(String name, long amount) {
+		if (enabled) {
+			COUNTERS.computeIfAbsent(name, n -> new LongAdder()).add(amount);
+		}
+	}
+
+	public static void reset() {
+		TIMERS.clear();
+		COUNTERS.clear();
+		SLOW_ITEMS.clear();
+	}
+
+	/**
+	 * Prints and writes out what was collected, as requested through the system properties.
+	 */
+	public static void report() {
+		if (CONSOLE) {
+			printSummary(System.out);
+		}
+
+		if (REPORT != null) {
+			try {
+				writeReport(Paths.get(REPORT));
+			} catch (IOException e) {
+				System.err.println("Failed to write metrics report: " + e);
+			}
+		}
+	}
+
+	public static void writeReport(Path path) throws IOException {
+		try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+			GSON.toJson(snapshot(), writer);
+		}
+	}
+
+	public static void printSummary(PrintStream out) {
+		Snapshot snapshot = snapshot();
+
+		out.println("Timers:");
+		snapshot.timers.forEach((name, timer) -> {
+			if (timer.count == 1) {
+				out.println(String.format("\t%-40s %10.1f ms", name, timer.totalMillis));
+			} else {
+				out.println(String.format("\t%-40s %10.1f ms  %6d x, max %.1f ms", name, timer.totalMillis, timer.count, timer.maxMillis));
+			}
+		});
+
+		if (!snapshot.counters.isEmpty()) {
+			out.println("Counters:");
+			snapshot.counters.forEach((name, value) -> out.println(String.format("\t%-40s %10d", name, value)));
+		}
+
+		snapshot.slowItems.forEach((name, items) -> {
+			out.println("Slowest in " + name + ":");
+			items.stream().limit(5).forEach(item -> out.println(String.format("\t%-40s %10.1f ms", item.item, item.millis)));
+		});
+	}
+
+	public static Snapshot snapshot() {
+		Snapshot snapshot = new Snapshot();
+		TIMERS.forEach((name, stats) -> snapshot.timers.put(name, stats.snapshot()));
+		COUNTERS.forEach((name, value) -> snapshot.counters.put(name, value.sum()));
+		SLOW_ITEMS.forEach((name, items) -> snapshot.slowItems.put(name, items.snapshot()));
+		return snapshot;
+	}
+
+	private static void record(String name, String item, long nanos) {
+		TIMERS.computeIfAbsent(name, n -> new TimerStats()).add(nanos);
+		if (item != null) {
+			SLOW_ITEMS.computeIfAbsent(name, n -> new SlowItems()).offer(item, nanos);
+		}
+	}
+
+	private static double toMillis(long nanos) {
+		return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	public static final class Timer implements AutoCloseable {
+		private final String name;
+		private final String item;
+		private final long start;
+		private final Object event;
+
+		private Timer(String name, String item) {
+			this.name = name;
+			this.item = item;
+			this.event = PhaseEvents.begin();
+			this.start = System.nanoTime();
+		}
+
+		@Override
+		public void close() {
+			long nanos = System.nanoTime() - start;
+			if (enabled) {
+				record(name, item, nanos);
+			}
+			PhaseEvents.commit(event, name, item);
+		}
+	}
+
+	@FunctionalInterface
+	public interface Timed<T, E extends Exception> {
+		T run() throws E;
+	}
+
+	@FunctionalInterface
+	public interface TimedVoid<E extends Exception> {
+		void run() throws E;
+	}
+
+	private static final class TimerStats {
+		private long count;
+		private long totalNanos;
+		private long maxNanos;
+
+		synchronized void add(long nanos) {
+			count++;
+			totalNanos += nanos;
+			maxNanos = Math.max(maxNanos, nanos);
+		}
+
+		synchronized TimerSnapshot snapshot() {
+			return new TimerSnapshot(count, toMillis(totalNanos), toMillis(maxNanos));
+		}
+	}
+
+	private static final class SlowItems {
+		private final PriorityQueue<ItemSnapshot> slowest = new PriorityQueue<>(Comparator.comparingDouble(item -> item.millis));
+		private volatile double threshold;
+
+		void offer(String item, long nanos) {
+			double millis = toMillis(nanos);
+			if (millis <= threshold) {
+				return;
+			}
+
+			synchronized (this) {
+				slowest.add(new ItemSnapshot(item, millis));
+				if (slowest.size() > SLOW_ITEM_COUNT) {
+					slowest.poll();
+					threshold = slowest.peek().millis;
+				}
+			}
+		}
+
+		synchronized List<ItemSnapshot> snapshot() {
+			List<ItemSnapshot> items = new ArrayList<>(slowest);
+			items.sort(Comparator.comparingDouble((ItemSnapshot item) -> item.millis).reversed());
+			return items;
+		}
+	}
+
+	public static final class Snapshot {
+		public final Map<String, TimerSnapshot> timers = new TreeMap<>();
+		public final Map<String, Long> counters = new TreeMap<>();
+		public final Map<String, List<ItemSnapshot>> slowItems = new TreeMap<>();
+	}
+
+	public static final class TimerSnapshot {
+		public final long count;
+		public final double totalMillis;
+		public final double maxMillis;
+
+		TimerSnapshot(long count, double totalMillis, double maxMillis) {
+			this.count = count;
+			this.totalMillis = totalMillis;
+			this.maxMillis = maxMillis;
+		}
+	}
+
+	public static final class ItemSnapshot {
+		public final String item;
+		public final double millis;
+
+		ItemSnapshot(String item, double millis) {
+			this.item = item;
+			this.millis = millis;
+		}
+	}
+}
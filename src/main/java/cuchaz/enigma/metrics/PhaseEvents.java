@@ -0,0 +1,120 @@
+package cuchaz.enigma.metrics;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Emits {@code enigma.Phase} JFR events. The event type is defined at runtime through {@code jdk.jfr.EventFactory},
+ * looked up reflectively, so that nothing here links against JFR and timers are plain timers on JVMs without it.
+ */
+final class PhaseEvents {
+	private static final int PHASE_FIELD = 0;
+	private static final int ITEM_FIELD = 1;
+
+	private static final Factory FACTORY = createFactory();
+
+	private PhaseEvents() {
+	}
+
+	private static Factory createFactory() {
+		try {
+			return new Factory();
+		} catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+			return null;
+		}
+	}
+
+	static Object begin() {
+		if (FACTORY == null) {
+			return null;
+		}
+
+		try {
+			Object event = FACTORY.newEvent.invoke();
+			if (!(boolean) FACTORY.isEnabled.invoke(event)) {
+				return null;
+			}
+
+			FACTORY.begin.invoke(event);
+			return event;
+		} catch (Throwable t) {
+			return null;
+		}
+	}
+
+	static void commit(Object event, String phase, String item) {
+		if (event == null) {
+			return;
+		}
+
+		try {
+			FACTORY.end.invoke(event);
+			if ((boolean) FACTORY.shouldCommit.invoke(event)) {
+				FACTORY.set.invoke(event, PHASE_FIELD, phase);
+				FACTORY.set.invoke(event, ITEM_FIELD, item);
+				FACTORY.commit.invoke(event);
+			}
+		} catch (Throwable t) {
+			// a lost event is not worth failing the timed phase for
+		}
+	}
+
+	private static final class Factory {
+		final MethodHandle newEvent;
+		final MethodHandle isEnabled;
+		final MethodHandle begin;
+		final MethodHandle end;
+		final MethodHandle shouldCommit;
+		final MethodHandle set;
+		final MethodHandle commit;
+
+		Factory() throws ReflectiveOperationException {
+			ClassLoader loader = PhaseEvents.class.getClassLoader();
+			Class<?> eventClass = Class.forName("jdk.jfr.Event", false, loader);
+			Class<?> factoryClass = Class.forName("jdk.jfr.EventFactory", false, loader);
+			Class<?> annotationClass = Class.forName("jdk.jfr.AnnotationElement", false, loader);
+			Class<?> valueClass = Class.forName("jdk.jfr.ValueDescriptor", false, loader);
+
+			MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			MethodHandle annotation = lookup.findConstructor(annotationClass, MethodType.methodType(void.class, Class.class, Object.class));
+			MethodHandle value = lookup.findConstructor(valueClass, MethodType.methodType(void.class, Class.class, String.class, List.class));
+
+			Class<?> name = Class.forName("jdk.jfr.Name", false, loader);
+			Class<?> label = Class.forName("jdk.jfr.Label", false, loader);
+			Class<?> category = Class.forName("jdk.jfr.Category", false, loader);
+			Class<?> description = Class.forName("jdk.jfr.Description", false, loader);
+
+			try {
+				List<Object> annotations = Arrays.asList(
+						annotation.invoke(name, "enigma.Phase"),
+						annotation.invoke(label, "Enigma Phase"),
+						annotation.invoke(category, new String[] { "Enigma" }),
+						annotation.invoke(description, "A timed phase of Enigma, or one item of it")
+				);
+				List<Object> fields = Arrays.asList(
+						value.invoke(String.class, "phase", Collections.singletonList(annotation.invoke(label, "Phase"))),
+						value.invoke(String.class, "item", Collections.singletonList(annotation.invoke(label, "Item")))
+				);
+
+				Object factory = lookup.findStatic(factoryClass, "create", MethodType.methodType(factoryClass, List.class, List.class))
+						.invoke(annotations, fields);
+				newEvent = lookup.findVirtual(factoryClass, "newEvent", MethodType.methodType(eventClass)).bindTo(factory);
+			} catch (ReflectiveOperationException | RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable t) {
+				throw new IllegalStateException(t);
+			}
+
+			isEnabled = lookup.findVirtual(eventClass, "isEnabled", MethodType.methodType(boolean.class));
+			begin = lookup.findVirtual(eventClass, "begin", MethodType.methodType(void.class));
+			end = lookup.findVirtual(eventClass, "end", MethodType.methodType(void.class));
+			shouldCommit = lookup.findVirtual(eventClass, "shouldCommit", MethodType.methodType(boolean.class));
+			set = lookup.findVirtual(eventClass, "set", MethodType.methodType(void.class, int.class, Object.class));
+			commit = lookup.findVirtual(eventClass, "commit", MethodType.methodType(void.class));
+		}
+	}
+}
@@ -11,10 +11,13 @@ import cuchaz.enigma.translation.representation.entry.Entry;
 
 import javax.annotation.Nullable;
 import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.UnaryOperator;
 import java.util.stream.Stream;
 
 public class EntryRemapper {
+	private static final AtomicLong GENERATIONS = new AtomicLong();
+
 	private final DeltaTrackingTree<EntryMapping> obfToDeobf;
 
 	private final EntryResolver obfResolver;
@@ -22,6 +25,8 @@ public class EntryRemapper {
 
 	private final MappingValidator validator;
 
+	private volatile long generation = GENERATIONS.incrementAndGet();
+
 	private EntryRemapper(JarIndex jarIndex, EntryTree<EntryMapping> obfToDeobf) {
 		this.obfToDeobf = new DeltaTrackingTree<>(obfToDeobf);
 
@@ -30,6 +35,11 @@ public class EntryRemapper {
 		this.deobfuscator = new MappingTranslator(obfToDeobf, obfResolver);
 
 		this.validator = new MappingValidator(obfToDeobf, deobfuscator, jarIndex);
+
+		this.obfToDeobf.addChangeListener((entry, mapping) -> {
+			generation = GENERATIONS.incrementAndGet();
+			validator.onMappingChanged(entry);
+		});
 	}
 
 	public static EntryRemapper mapped(JarIndex index, EntryTree<EntryMapping> obfToDeobf) {
@@ -79,6 +89,14 @@ public class EntryRemapper {
 		return deobfuscator;
 	}
 
+	/**
+	 * Returns a number that changes whenever the mappings do, and is never shared with another remapper, so that
+	 * results derived from the mappings can be cached against it.
+	 */
+	public long getGeneration() {
+		return generation;
+	}
+
 	public Stream<Entry<?>> getObfEntries() {
 		return obfToDeobf.getAllEntries();
 	}
@@ -8,6 +8,7 @@ import cuchaz.enigma.analysis.index.BridgeMethodIndex;
 import cuchaz.enigma.analysis.index.EntryIndex;
 import cuchaz.enigma.analysis.index.InheritanceIndex;
 import cuchaz.enigma.analysis.index.JarIndex;
+import cuchaz.enigma.analysis.index.LibraryIndex;
 import cuchaz.enigma.translation.VoidTranslator;
 import cuchaz.enigma.translation.representation.AccessFlags;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
@@ -22,6 +23,7 @@ public class IndexEntryResolver implements EntryResolver {
 	private final EntryIndex entryIndex;
 	private final InheritanceIndex inheritanceIndex;
 	private final BridgeMethodIndex bridgeMethodIndex;
+	private final LibraryIndex libraryIndex;
 
 	private final IndexTreeBuilder treeBuilder;
 
@@ -29,6 +31,7 @@ public class IndexEntryResolver implements EntryResolver {
 		this.entryIndex = index.getEntryIndex();
 		this.inheritanceIndex = index.getInheritanceIndex();
 		this.bridgeMethodIndex = index.getBridgeMethodIndex();
+		this.libraryIndex = index.getLibraryIndex();
 
 		this.treeBuilder = new IndexTreeBuilder(index);
 	}
@@ -42,7 +45,7 @@ public class IndexEntryResolver implements EntryResolver {
 
 		Entry<ClassEntry> classChild = getClassChild(entry);
 		if (classChild != null && !(classChild instanceof ClassEntry)) {
-			AccessFlags access = entryIndex.getEntryAccess(classChild);
+			AccessFlags access = getEntryAccess(classChild);
 
 			// If we're looking for the closest and this entry exists, we're done looking
 			if (strategy == ResolutionStrategy.RESOLVE_CLOSEST && access != null) {
@@ -69,9 +72,7 @@ public class IndexEntryResolver implements EntryResolver {
 		}
 
 		// get the entry in the hierarchy that is the child of a class
-		List<Entry<?>> ancestry = entry.getAncestry();
-		for (int i = ancestry.size() - 1; i > 0; i--) {
-			Entry<?> child = ancestry.get(i);
+		for (Entry<?> child = entry; child.getParent() != null; child = child.getParent()) {
 			Entry<ClassEntry> cast = child.castParent(ClassEntry.class);
 			if (cast != null && !(cast instanceof ClassEntry)) {
 				// we found the entry which is a child of a class, we are now able to resolve the owner of this entry
@@ -117,7 +118,7 @@ public class IndexEntryResolver implements EntryResolver {
 		Set<Entry<ClassEntry>> parentResolution = resolveChildEntry(entry, strategy);
 
 		if (parentResolution.isEmpty()) {
-			AccessFlags parentAccess = entryIndex.getEntryAccess(entry);
+			AccessFlags parentAccess = getEntryAccess(entry);
 			if (parentAccess != null && !parentAccess.isPrivate()) {
 				return Collections.singleton(entry);
 			}
@@ -128,7 +129,7 @@ public class IndexEntryResolver implements EntryResolver {
 
 	private Collection<Entry<ClassEntry>> resolveClosest(Entry<ClassEntry> entry, ResolutionStrategy strategy) {
 		// When resolving closest, we want to first check if we exist before looking further down
-		AccessFlags parentAccess = entryIndex.getEntryAccess(entry);
+		AccessFlags parentAccess = getEntryAccess(entry);
 		if (parentAccess != null && !parentAccess.isPrivate()) {
 			return Collections.singleton(entry);
 		} else {
@@ -136,6 +137,16 @@ public class IndexEntryResolver implements EntryResolver {
 		}
 	}
 
+	/**
+	 * Looks an entry up in the jar, then in the libraries. Entries resolved to a library declaration are left alone by
+	 * the mappings, as the library cannot be remapped.
+	 */
+	@Nullable
+	private AccessFlags getEntryAccess(Entry<?> entry) {
+		AccessFlags access = entryIndex.getEntryAccess(entry);
+		return access != null ? access : libraryIndex.getEntryAccess(entry);
+	}
+
 	@Override
 	public Set<Entry<?>> resolveEquivalentEntries(Entry<?> entry) {
 		MethodEntry relevantMethod = entry.findAncestor(MethodEntry.class);
@@ -0,0 +1,62 @@
+package cuchaz.enigma.translation.mapping;
+
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class MappingSaveResult {
+	private final Collection<ClassEntry> written;
+	private final Collection<ClassEntry> deleted;
+	private final Map<ClassEntry, Throwable> failed;
+
+	public MappingSaveResult(Collection<ClassEntry> written, Collection<ClassEntry> deleted, Map<ClassEntry, Throwable> failed) {
+		this.written = Collections.unmodifiableCollection(written);
+		this.deleted = Collections.unmodifiableCollection(deleted);
+		this.failed = Collections.unmodifiableMap(failed);
+	}
+
+	public static MappingSaveResult written(Collection<ClassEntry> classes) {
+		return new MappingSaveResult(classes, Collections.emptyList(), Collections.emptyMap());
+	}
+
+	public static MappingSaveResult failed(Collection<ClassEntry> classes, Throwable cause) {
+		Map<ClassEntry, Throwable> failed = new LinkedHashMap<>();
+		for (ClassEntry classEntry : classes) {
+			failed.put(classEntry, cause);
+		}
+		return new MappingSaveResult(Collections.emptyList(), Collections.emptyList(), failed);
+	}
+
+	/**
+	 * @return the classes whose mappings were written
+	 */
+	public Collection<ClassEntry> getWritten() {
+		return written;
+	}
+
+	/**
+	 * @return the classes whose previous mapping files were removed, named as they were on disk
+	 */
+	public Collection<ClassEntry> getDeleted() {
+		return deleted;
+	}
+
+	/**
+	 * @return the classes that could not be saved, and why
+	 */
+	public Map<ClassEntry, Throwable> getFailed() {
+		return failed;
+	}
+
+	public boolean isSuccessful() {
+		return failed.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return "wrote " + written.size() + " classes, deleted " + deleted.size() + ", failed " + failed.size();
+	}
+}
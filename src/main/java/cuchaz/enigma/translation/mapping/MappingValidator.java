@@ -5,22 +5,30 @@ import cuchaz.enigma.analysis.index.JarIndex;
 import cuchaz.enigma.throwables.IllegalNameException;
 import cuchaz.enigma.translation.Translator;
 import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.representation.AccessFlags;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
 import cuchaz.enigma.translation.representation.entry.Entry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
 
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.stream.Collectors;
 
 public class MappingValidator {
-	private final EntryTree<EntryMapping> obfToDeobf;
 	private final Translator deobfuscator;
 	private final JarIndex index;
+	private final NameCollisionIndex collisionIndex;
 
 	public MappingValidator(EntryTree<EntryMapping> obfToDeobf, Translator deobfuscator, JarIndex index) {
-		this.obfToDeobf = obfToDeobf;
 		this.deobfuscator = deobfuscator;
 		this.index = index;
+		this.collisionIndex = new NameCollisionIndex(obfToDeobf, deobfuscator, index.getEntryResolver());
+	}
+
+	/**
+	 * Has to be called whenever the mapping of an entry is set or removed.
+	 */
+	public void onMappingChanged(Entry<?> entry) {
+		collisionIndex.onMappingChanged(entry);
 	}
 
 	public void validateRename(Entry<?> entry, String name) throws IllegalNameException {
@@ -37,23 +45,34 @@ public class MappingValidator {
 
 		for (ClassEntry relatedClass : relatedClasses) {
 			Entry<?> relatedEntry = entry.replaceAncestor(containingClass, relatedClass);
-			Entry<?> translatedEntry = deobfuscator.translate(relatedEntry);
 
-			Collection<Entry<?>> translatedSiblings = obfToDeobf.getSiblings(relatedEntry).stream()
-					.map(deobfuscator::translate)
-					.collect(Collectors.toList());
-
-			if (!isUnique(translatedEntry, translatedSiblings, name)) {
-				Entry<?> parent = translatedEntry.getParent();
+			if (collisionIndex.hasCollision(relatedEntry, name)) {
+				Entry<?> parent = deobfuscator.translate(relatedEntry).getParent();
 				if (parent != null) {
 					throw new IllegalNameException(name, "Name is not unique in " + parent + "!");
 				} else {
 					throw new IllegalNameException(name, "Name is not unique!");
 				}
 			}
+
+			if (overridesLibraryMethod(relatedEntry, name)) {
+				throw new IllegalNameException(name, "Name would override a method of library class " + relatedClass + "!");
+			}
 		}
 	}
 
+	private boolean overridesLibraryMethod(Entry<?> entry, String name) {
+		if (!(entry instanceof MethodEntry)) {
+			return false;
+		}
+
+		// library methods are never remapped, so they are compared against the remapped descriptor
+		MethodEntry methodEntry = (MethodEntry) entry;
+		MethodEntry libraryMethod = new MethodEntry(methodEntry.getParent(), name, deobfuscator.translate(methodEntry.getDesc()));
+		AccessFlags access = index.getLibraryIndex().getMethodAccess(libraryMethod);
+		return access != null && !access.isPrivate() && !access.isStatic();
+	}
+
 	private Collection<ClassEntry> getRelatedClasses(ClassEntry classEntry) {
 		InheritanceIndex inheritanceIndex = index.getInheritanceIndex();
 
@@ -64,13 +83,4 @@ public class MappingValidator {
 
 		return relatedClasses;
 	}
-
-	private boolean isUnique(Entry<?> entry, Collection<Entry<?>> siblings, String name) {
-		for (Entry<?> sibling : siblings) {
-			if (entry.canConflictWith(sibling) && sibling.getName().equals(name)) {
-				return false;
-			}
-		}
-		return true;
-	}
 }
@@ -0,0 +1,131 @@
+package cuchaz.enigma.translation.mapping;
+
+import cuchaz.enigma.translation.Translator;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.EntryTreeNode;
+import cuchaz.enigma.translation.representation.entry.Entry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * Indexes the entries of a mapping tree by their obfuscated parent and deobfuscated name, so that finding the
+ * entries a rename would collide with does not need every sibling to be translated.
+ * <p>
+ * The index is built on first use and then kept up to date through {@link #onMappingChanged(Entry)}. Candidates are
+ * checked against the current mappings when looked up, so an entry that has left the tree is never reported.
+ */
+final class NameCollisionIndex {
+	private final EntryTree<EntryMapping> mappings;
+	private final Translator deobfuscator;
+	private final EntryResolver resolver;
+
+	private Map<Key, Set<Entry<?>>> entriesByKey;
+	private final Map<Entry<?>, Key> keys = new HashMap<>();
+
+	NameCollisionIndex(EntryTree<EntryMapping> mappings, Translator deobfuscator, EntryResolver resolver) {
+		this.mappings = mappings;
+		this.deobfuscator = deobfuscator;
+		this.resolver = resolver;
+	}
+
+	/**
+	 * Updates the index after the mapping of an entry was set or removed.
+	 */
+	synchronized void onMappingChanged(Entry<?> entry) {
+		if (entriesByKey == null) {
+			return;
+		}
+
+		// inserting may have added the parents to the tree
+		for (Entry<?> ancestor : entry.getAncestry()) {
+			reindex(ancestor);
+		}
+
+		// methods without mappings of their own are named after the method they override
+		if (entry instanceof MethodEntry) {
+			for (Entry<?> equivalent : resolver.resolveEquivalentEntries(entry)) {
+				reindex(equivalent);
+			}
+		}
+	}
+
+	/**
+	 * Returns whether another entry of the tree, under the same parent as the given one, is already named {@code name}
+	 * and could conflict with it.
+	 */
+	synchronized boolean hasCollision(Entry<?> entry, String name) {
+		if (entriesByKey == null) {
+			build();
+		}
+
+		Set<Entry<?>> candidates = entriesByKey.get(new Key(entry.getParent(), name));
+		if (candidates == null) {
+			return false;
+		}
+
+		Entry<?> translatedEntry = deobfuscator.translate(entry);
+		for (Entry<?> candidate : candidates) {
+			if (candidate.equals(entry) || mappings.findNode(candidate) == null) {
+				continue;
+			}
+
+			Entry<?> translatedCandidate = deobfuscator.translate(candidate);
+			if (translatedCandidate.getName().equals(name) && translatedEntry.canConflictWith(translatedCandidate)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private void build() {
+		entriesByKey = new HashMap<>();
+		for (EntryTreeNode<EntryMapping> node : mappings) {
+			reindex(node.getEntry());
+		}
+	}
+
+	private void reindex(Entry<?> entry) {
+		Key oldKey = keys.remove(entry);
+		if (oldKey != null) {
+			Set<Entry<?>> entries = entriesByKey.get(oldKey);
+			entries.remove(entry);
+			if (entries.isEmpty()) {
+				entriesByKey.remove(oldKey);
+			}
+		}
+
+		if (mappings.findNode(entry) != null) {
+			Key key = new Key(entry.getParent(), deobfuscator.translate(entry).getName());
+			keys.put(entry, key);
+			entriesByKey.computeIfAbsent(key, k -> new HashSet<>()).add(entry);
+		}
+	}
+
+	private static final class Key {
+		@Nullable
+		private final Entry<?> parent;
+		private final String name;
+
+		Key(@Nullable Entry<?> parent, String name) {
+			this.parent = parent;
+			this.name = name;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return Objects.equals(parent, other.parent) && name.equals(other.name);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(parent, name);
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package cuchaz.enigma.translation.mapping.serde;
+
+import cuchaz.enigma.utils.LFPrintWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Helpers for replacing mapping files without ever leaving a half-written file behind. Content is written
+ * and synced to a staging file next to (or under) the target, then renamed over it.
+ */
+final class AtomicMappingFiles {
+	/**
+	 * Staging files end with this suffix, so mapping readers never pick up a leftover one.
+	 */
+	static final String STAGING_SUFFIX = ".tmp";
+
+	private AtomicMappingFiles() {
+	}
+
+	static void writeStaged(Path staged, Consumer<PrintWriter> content) throws IOException {
+		try (FileChannel channel = FileChannel.open(staged, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			PrintWriter writer = new LFPrintWriter(new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1)));
+			content.accept(writer);
+			writer.flush();
+			if (writer.checkError()) {
+				throw new IOException("Failed to write " + staged);
+			}
+			channel.force(false);
+		}
+	}
+
+	static OutputStream openStaged(Path staged) throws IOException {
+		FileChannel channel = FileChannel.open(staged, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+		return new SyncingOutputStream(channel);
+	}
+
+	static Path stagingSibling(Path target) {
+		return target.resolveSibling(target.getFileName() + STAGING_SUFFIX);
+	}
+
+	static void moveIntoPlace(Path staged, Path target) throws IOException {
+		try {
+			Files.move(staged, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(staged, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Makes renames and deletions inside the given directories durable, syncing each directory once.
+	 * Platforms that cannot open directories for syncing are skipped silently.
+	 */
+	static void syncDirectories(Collection<Path> directories) {
+		for (Path directory : directories) {
+			try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+				channel.force(true);
+			} catch (IOException ignored) {
+			}
+		}
+	}
+
+	static void deleteRecursively(Path path) throws IOException {
+		if (!Files.exists(path)) {
+			return;
+		}
+
+		try (Stream<Path> files = Files.walk(path)) {
+			for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+				Files.deleteIfExists(file);
+			}
+		}
+	}
+
+	private static class SyncingOutputStream extends OutputStream {
+		private final FileChannel channel;
+		private final OutputStream delegate;
+
+		SyncingOutputStream(FileChannel channel) {
+			this.channel = channel;
+			this.delegate = Channels.newOutputStream(channel);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			delegate.write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			delegate.write(b, off, len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				channel.force(false);
+			} finally {
+				channel.close();
+			}
+		}
+	}
+}
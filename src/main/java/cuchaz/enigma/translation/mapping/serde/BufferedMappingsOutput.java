@@ -0,0 +1,45 @@
+package cuchaz.enigma.translation.mapping.serde;
+
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.MappingSaveParameters;
+import cuchaz.enigma.translation.mapping.MappingSaveResult;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.EntryTreeNode;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+
+import java.nio.file.Path;
+
+/**
+ * Collects every class passed in, for writers that need the complete mappings at once.
+ */
+final class BufferedMappingsOutput implements ClassMappingsOutput {
+	private final MappingsWriter writer;
+	private final Path path;
+	private final MappingSaveParameters saveParameters;
+	private final EntryTree<EntryMapping> mappings = new HashEntryTree<>();
+
+	BufferedMappingsOutput(MappingsWriter writer, Path path, MappingSaveParameters saveParameters) {
+		this.writer = writer;
+		this.path = path;
+		this.saveParameters = saveParameters;
+	}
+
+	@Override
+	public void accept(EntryTree<EntryMapping> classMappings) {
+		for (EntryTreeNode<EntryMapping> node : classMappings) {
+			if (node.hasValue()) {
+				mappings.insert(node.getEntry(), node.getValue());
+			}
+		}
+	}
+
+	@Override
+	public MappingSaveResult finish() {
+		return writer.write(mappings, path, ProgressListener.none(), saveParameters);
+	}
+
+	@Override
+	public void close() {
+	}
+}
@@ -0,0 +1,15 @@
+package cuchaz.enigma.translation.mapping.serde;
+
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+
+import java.io.IOException;
+
+/**
+ * Receives mappings one top-level class at a time. Every tree holds a single top-level class with all of its
+ * members and inner classes, and each top-level class is passed at most once.
+ */
+@FunctionalInterface
+public interface ClassMappingsConsumer {
+	void accept(EntryTree<EntryMapping> classMappings) throws IOException;
+}
@@ -0,0 +1,17 @@
+package cuchaz.enigma.translation.mapping.serde;
+
+import cuchaz.enigma.translation.mapping.MappingSaveResult;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes mappings incrementally, as they are passed in one top-level class at a time. Nothing replaces the
+ * target until {@link #finish()} is called; closing an unfinished output discards what was written so far.
+ */
+public interface ClassMappingsOutput extends ClassMappingsConsumer, Closeable {
+	MappingSaveResult finish();
+
+	@Override
+	void close() throws IOException;
+}
@@ -23,6 +23,7 @@ import java.util.Deque;
 import java.util.List;
 import java.util.Locale;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public enum EnigmaMappingsReader implements MappingsReader {
 	FILE {
@@ -37,16 +38,29 @@ public enum EnigmaMappingsReader implements MappingsReader {
 
 			return mappings;
 		}
+
+		@Override
+		public void readClasses(Path path, ProgressListener progress, MappingSaveParameters saveParameters, ClassMappingsConsumer consumer) throws IOException, MappingParseException {
+			MappingStreams.readBucketed(path, line -> {
+				// only unindented classes are top-level
+				if (line.isEmpty() || line.charAt(0) == '\t') {
+					return null;
+				}
+				String[] tokens = line.trim().split("\\s");
+				return tokens.length > 1 && tokens[0].equalsIgnoreCase(EnigmaFormat.CLASS) ? tokens[1] : null;
+			}, lines -> {
+				EntryTree<EntryMapping> mappings = new HashEntryTree<>();
+				readLines(path, lines, mappings);
+				return mappings;
+			}, progress, consumer);
+		}
 	},
 	DIRECTORY {
 		@Override
 		public EntryTree<EntryMapping> read(Path root, ProgressListener progress, MappingSaveParameters saveParameters) throws IOException, MappingParseException {
 			EntryTree<EntryMapping> mappings = new HashEntryTree<>();
 
-			List<Path> files = Files.walk(root)
-					.filter(f -> !Files.isDirectory(f))
-					.filter(f -> f.toString().endsWith(".mapping"))
-					.collect(Collectors.toList());
+			List<Path> files = findFiles(root);
 
 			progress.init(files.size(), "Loading mapping files");
 			int step = 0;
@@ -61,10 +75,41 @@ public enum EnigmaMappingsReader implements MappingsReader {
 
 			return mappings;
 		}
+
+		@Override
+		public void readClasses(Path root, ProgressListener progress, MappingSaveParameters saveParameters, ClassMappingsConsumer consumer) throws IOException, MappingParseException {
+			List<Path> files = findFiles(root);
+
+			progress.init(files.size(), "Loading mapping files");
+			int step = 0;
+
+			for (Path file : files) {
+				progress.step(step++, root.relativize(file).toString());
+				if (Files.isHidden(file)) {
+					continue;
+				}
+
+				// every file holds a single top-level class
+				EntryTree<EntryMapping> mappings = new HashEntryTree<>();
+				readFile(file, mappings);
+				MappingStreams.forEachClass(mappings, consumer);
+			}
+		}
+
+		private List<Path> findFiles(Path root) throws IOException {
+			try (Stream<Path> files = Files.walk(root)) {
+				return files.filter(f -> !Files.isDirectory(f))
+						.filter(f -> f.toString().endsWith(".mapping"))
+						.collect(Collectors.toList());
+			}
+		}
 	};
 
 	protected void readFile(Path path, EntryTree<EntryMapping> mappings) throws IOException, MappingParseException {
-		List<String> lines = Files.readAllLines(path, Charsets.UTF_8);
+		readLines(path, Files.readAllLines(path, Charsets.UTF_8), mappings);
+	}
+
+	protected void readLines(Path path, List<String> lines, EntryTree<EntryMapping> mappings) throws MappingParseException {
 		Deque<MappingPair<?, RawEntryMapping>> mappingStack = new ArrayDeque<>();
 
 		for (int lineNumber = 0; lineNumber < lines.size(); lineNumber++) {
@@ -13,13 +13,14 @@ package cuchaz.enigma.translation.mapping.serde;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.file.DirectoryNotEmptyException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Objects;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -32,6 +33,7 @@ import cuchaz.enigma.translation.mapping.EntryMapping;
 import cuchaz.enigma.translation.mapping.MappingDelta;
 import cuchaz.enigma.translation.mapping.MappingFileNameFormat;
 import cuchaz.enigma.translation.mapping.MappingSaveParameters;
+import cuchaz.enigma.translation.mapping.MappingSaveResult;
 import cuchaz.enigma.translation.mapping.VoidEntryResolver;
 import cuchaz.enigma.translation.mapping.tree.EntryTree;
 import cuchaz.enigma.translation.mapping.tree.EntryTreeNode;
@@ -40,45 +42,54 @@ import cuchaz.enigma.translation.representation.entry.Entry;
 import cuchaz.enigma.translation.representation.entry.FieldEntry;
 import cuchaz.enigma.translation.representation.entry.LocalVariableEntry;
 import cuchaz.enigma.translation.representation.entry.MethodEntry;
-import cuchaz.enigma.utils.LFPrintWriter;
 
 public enum EnigmaMappingsWriter implements MappingsWriter {
 	FILE {
 		@Override
-		public void write(EntryTree<EntryMapping> mappings, MappingDelta<EntryMapping> delta, Path path, ProgressListener progress, MappingSaveParameters saveParameters) {
-			Collection<ClassEntry> classes = mappings.getRootNodes()
+		public MappingSaveResult write(EntryTree<EntryMapping> mappings, MappingDelta<EntryMapping> delta, Path path, ProgressListener progress, MappingSaveParameters saveParameters) {
+			List<ClassEntry> classes = mappings.getRootNodes()
+					.map(EntryTreeNode::getEntry)
 					.filter(entry -> entry instanceof ClassEntry)
 					.map(entry -> (ClassEntry) entry)
+					.sorted(MappingStreams.CLASS_ORDER)
 					.collect(Collectors.toList());
 
-			progress.init(classes.size(), "Writing classes");
+			return ParallelMappingsOutput.write(path, null, classes, (writer, classEntry) -> writeRoot(writer, mappings, classEntry), progress);
+		}
 
-			int steps = 0;
-			try (PrintWriter writer = new LFPrintWriter(Files.newBufferedWriter(path))) {
-				for (ClassEntry classEntry : classes) {
-					progress.step(steps++, classEntry.getFullName());
-					writeRoot(writer, mappings, classEntry);
-				}
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
+		@Override
+		public ClassMappingsOutput openOutput(Path path, MappingSaveParameters saveParameters) throws IOException {
+			return new SingleFileMappingsOutput(path, null, this::writeRoot);
 		}
 	},
 	DIRECTORY {
+		/**
+		 * Changed classes are first written and synced into a staging directory, then renamed over their
+		 * targets. Old files are only deleted once every replacement is in place, so a crash at any point
+		 * leaves complete mapping files behind. Each touched directory is synced once at the end.
+		 */
 		@Override
-		public void write(EntryTree<EntryMapping> mappings, MappingDelta<EntryMapping> delta, Path path, ProgressListener progress, MappingSaveParameters saveParameters) {
+		public MappingSaveResult write(EntryTree<EntryMapping> mappings, MappingDelta<EntryMapping> delta, Path path, ProgressListener progress, MappingSaveParameters saveParameters) {
 			Collection<ClassEntry> changedClasses = delta.getChangedRoots()
 					.filter(entry -> entry instanceof ClassEntry)
 					.map(entry -> (ClassEntry) entry)
 					.collect(Collectors.toList());
 
-			applyDeletions(path, changedClasses, mappings, delta.getBaseMappings(), saveParameters.getFileNameFormat());
+			Map<ClassEntry, Throwable> failed = new ConcurrentHashMap<>();
+
+			Path staging;
+			try {
+				staging = createStaging(path);
+			} catch (IOException e) {
+				return MappingSaveResult.failed(changedClasses, e);
+			}
 
 			progress.init(changedClasses.size(), "Writing classes");
 
 			AtomicInteger steps = new AtomicInteger();
 
 			Translator translator = new MappingTranslator(mappings, VoidEntryResolver.INSTANCE);
+			Map<ClassEntry, StagedFile> stagedFiles = new ConcurrentHashMap<>();
 			changedClasses.parallelStream().forEach(classEntry -> {
 				progress.step(steps.getAndIncrement(), classEntry.getFullName());
 
@@ -88,84 +99,234 @@ public enum EnigmaMappingsWriter implements MappingsWriter {
 						fileEntry = translator.translate(fileEntry);
 					}
 
-					Path classPath = resolve(path, fileEntry);
-					Files.createDirectories(classPath.getParent());
-					Files.deleteIfExists(classPath);
+					Path staged = Files.createTempFile(staging, "class", ".mapping" + AtomicMappingFiles.STAGING_SUFFIX);
+					AtomicMappingFiles.writeStaged(staged, writer -> writeRoot(writer, mappings, classEntry));
 
-					try (PrintWriter writer = new LFPrintWriter(Files.newBufferedWriter(classPath))) {
-						writeRoot(writer, mappings, classEntry);
-					}
+					stagedFiles.put(classEntry, new StagedFile(staged, resolve(path, fileEntry)));
 				} catch (Throwable t) {
-					System.err.println("Failed to write class '" + classEntry.getFullName() + "'");
-					t.printStackTrace();
+					failed.put(classEntry, t);
 				}
 			});
+
+			Set<Path> touchedDirectories = new HashSet<>();
+			Set<Path> writtenPaths = new HashSet<>();
+			List<ClassEntry> written = new ArrayList<>();
+
+			for (ClassEntry classEntry : changedClasses) {
+				StagedFile stagedFile = stagedFiles.get(classEntry);
+				if (stagedFile == null) {
+					continue;
+				}
+
+				try {
+					Files.createDirectories(stagedFile.target.getParent());
+					AtomicMappingFiles.moveIntoPlace(stagedFile.staged, stagedFile.target);
+
+					touchedDirectories.add(stagedFile.target.getParent());
+					writtenPaths.add(stagedFile.target);
+					written.add(classEntry);
+				} catch (IOException e) {
+					failed.put(classEntry, e);
+				}
+			}
+
+			Collection<ClassEntry> deleted = applyDeletions(path, changedClasses, failed.keySet(), writtenPaths, touchedDirectories, mappings, delta.getBaseMappings(), saveParameters.getFileNameFormat());
+
+			touchedDirectories.add(path);
+			AtomicMappingFiles.syncDirectories(touchedDirectories);
+
+			try {
+				AtomicMappingFiles.deleteRecursively(staging);
+			} catch (IOException e) {
+				// leftovers are ignored by the reader and cleaned up by the next save
+			}
+
+			return new MappingSaveResult(written, deleted, failed);
 		}
 
-		private void applyDeletions(Path root, Collection<ClassEntry> changedClasses, EntryTree<EntryMapping> mappings, EntryTree<EntryMapping> oldMappings, MappingFileNameFormat fileNameFormat) {
+		private Collection<ClassEntry> applyDeletions(Path root, Collection<ClassEntry> changedClasses, Set<ClassEntry> failedClasses, Set<Path> writtenPaths, Set<Path> touchedDirectories, EntryTree<EntryMapping> mappings, EntryTree<EntryMapping> oldMappings, MappingFileNameFormat fileNameFormat) {
 			Translator oldMappingTranslator = new MappingTranslator(oldMappings, VoidEntryResolver.INSTANCE);
 
+			// keep the old file of anything we failed to replace, and never delete a file we just wrote
 			Stream<ClassEntry> deletedClassStream = changedClasses.stream()
+					.filter(e -> !failedClasses.contains(e))
 					.filter(e -> !Objects.equals(oldMappings.get(e), mappings.get(e)));
 
 			if (fileNameFormat == MappingFileNameFormat.BY_DEOBF) {
 				deletedClassStream = deletedClassStream.map(oldMappingTranslator::translate);
 			}
 
-			Collection<ClassEntry> deletedClasses = deletedClassStream.collect(Collectors.toList());
+			Collection<ClassEntry> deletedClasses = deletedClassStream
+					.filter(e -> !writtenPaths.contains(resolve(root, e)))
+					.collect(Collectors.toList());
 
+			List<ClassEntry> deleted = new ArrayList<>();
 			for (ClassEntry classEntry : deletedClasses) {
+				Path classPath = resolve(root, classEntry);
 				try {
-					Files.deleteIfExists(resolve(root, classEntry));
+					if (Files.deleteIfExists(classPath)) {
+						deleted.add(classEntry);
+						touchedDirectories.add(classPath.getParent());
+					}
 				} catch (IOException e) {
 					System.err.println("Failed to delete deleted class '" + classEntry + "'");
 					e.printStackTrace();
 				}
 			}
 
+			deleteDeadPackages(root, deleted, touchedDirectories);
+
+			return deleted;
+		}
+
+		private void deleteDeadPackages(Path root, Collection<ClassEntry> deletedClasses, Set<Path> touchedDirectories) {
+			// visit the deepest packages first, so that emptying a package can free its parent
+			SortedSet<Path> packages = new TreeSet<>(Comparator.comparingInt(Path::getNameCount).reversed().thenComparing(Comparator.naturalOrder()));
 			for (ClassEntry classEntry : deletedClasses) {
 				String packageName = classEntry.getPackageName();
 				if (packageName != null) {
 					Path packagePath = Paths.get(packageName);
-					try {
-						deleteDeadPackages(root, packagePath);
-					} catch (IOException e) {
-						System.err.println("Failed to delete dead package '" + packageName + "'");
-						e.printStackTrace();
+					for (int i = packagePath.getNameCount() - 1; i >= 0; i--) {
+						packages.add(root.resolve(packagePath.subpath(0, i + 1)));
 					}
 				}
 			}
+
+			for (Path packagePath : packages) {
+				try {
+					Files.delete(packagePath);
+					touchedDirectories.add(packagePath.getParent());
+				} catch (DirectoryNotEmptyException | NoSuchFileException e) {
+					// still in use, or already gone
+				} catch (IOException e) {
+					System.err.println("Failed to delete dead package '" + root.relativize(packagePath) + "'");
+					e.printStackTrace();
+				}
+			}
+		}
+
+		@Override
+		public ClassMappingsOutput openOutput(Path path, MappingSaveParameters saveParameters) throws IOException {
+			return new DirectoryOutput(this, path, createStaging(path), saveParameters);
+		}
+	};
+
+	private static final String STAGING_PREFIX = ".enigma-save";
+
+	private static Path createStaging(Path root) throws IOException {
+		Files.createDirectories(root);
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(root, STAGING_PREFIX + "*")) {
+			for (Path stale : stream) {
+				AtomicMappingFiles.deleteRecursively(stale);
+			}
+		}
+		return Files.createTempDirectory(root, STAGING_PREFIX);
+	}
+
+	private static Path resolve(Path root, ClassEntry classEntry) {
+		return root.resolve(classEntry.getFullName() + ".mapping");
+	}
+
+	private static class StagedFile {
+		final Path staged;
+		final Path target;
+
+		StagedFile(Path staged, Path target) {
+			this.staged = staged;
+			this.target = target;
+		}
+	}
+
+	/**
+	 * Writes each class into the staging directory as it is passed in, and moves them all into place when finished.
+	 */
+	private static class DirectoryOutput implements ClassMappingsOutput {
+		private final EnigmaMappingsWriter format;
+		private final Path root;
+		private final Path staging;
+		private final MappingSaveParameters saveParameters;
+
+		private final Map<ClassEntry, StagedFile> stagedFiles = new LinkedHashMap<>();
+		private boolean finished;
+
+		DirectoryOutput(EnigmaMappingsWriter format, Path root, Path staging, MappingSaveParameters saveParameters) {
+			this.format = format;
+			this.root = root;
+			this.staging = staging;
+			this.saveParameters = saveParameters;
 		}
 
-		private void deleteDeadPackages(Path root, Path packagePath) throws IOException {
-			for (int i = packagePath.getNameCount() - 1; i >= 0; i--) {
-				Path subPath = packagePath.subpath(0, i + 1);
-				Path packagePart = root.resolve(subPath);
-				if (isEmpty(packagePart)) {
-					Files.deleteIfExists(packagePart);
+		@Override
+		public void accept(EntryTree<EntryMapping> classMappings) throws IOException {
+			Translator translator = new MappingTranslator(classMappings, VoidEntryResolver.INSTANCE);
+
+			List<ClassEntry> classes = classMappings.getRootNodes()
+					.map(EntryTreeNode::getEntry)
+					.filter(entry -> entry instanceof ClassEntry)
+					.map(entry -> (ClassEntry) entry)
+					.collect(Collectors.toList());
+
+			for (ClassEntry classEntry : classes) {
+				ClassEntry fileEntry = classEntry;
+				if (saveParameters.getFileNameFormat() == MappingFileNameFormat.BY_DEOBF) {
+					fileEntry = translator.translate(fileEntry);
 				}
+
+				Path staged = Files.createTempFile(staging, "class", ".mapping" + AtomicMappingFiles.STAGING_SUFFIX);
+				AtomicMappingFiles.writeStaged(staged, writer -> format.writeRoot(writer, classMappings, classEntry));
+
+				stagedFiles.put(classEntry, new StagedFile(staged, resolve(root, fileEntry)));
 			}
 		}
 
-		private boolean isEmpty(Path path) {
-			try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
-				return !stream.iterator().hasNext();
+		@Override
+		public MappingSaveResult finish() {
+			finished = true;
+
+			Set<Path> touchedDirectories = new HashSet<>();
+			List<ClassEntry> written = new ArrayList<>();
+			Map<ClassEntry, Throwable> failed = new LinkedHashMap<>();
+
+			for (Map.Entry<ClassEntry, StagedFile> entry : stagedFiles.entrySet()) {
+				StagedFile stagedFile = entry.getValue();
+				try {
+					Files.createDirectories(stagedFile.target.getParent());
+					AtomicMappingFiles.moveIntoPlace(stagedFile.staged, stagedFile.target);
+
+					touchedDirectories.add(stagedFile.target.getParent());
+					written.add(entry.getKey());
+				} catch (IOException e) {
+					failed.put(entry.getKey(), e);
+				}
+			}
+
+			touchedDirectories.add(root);
+			AtomicMappingFiles.syncDirectories(touchedDirectories);
+
+			try {
+				AtomicMappingFiles.deleteRecursively(staging);
 			} catch (IOException e) {
-				return false;
+				// leftovers are ignored by the reader and cleaned up by the next save
 			}
+
+			return new MappingSaveResult(written, Collections.emptyList(), failed);
 		}
 
-		private Path resolve(Path root, ClassEntry classEntry) {
-			return root.resolve(classEntry.getFullName() + ".mapping");
+		@Override
+		public void close() throws IOException {
+			if (!finished) {
+				finished = true;
+				AtomicMappingFiles.deleteRecursively(staging);
+			}
 		}
-	};
+	}
 
 	protected void writeRoot(PrintWriter writer, EntryTree<EntryMapping> mappings, ClassEntry classEntry) {
 		Collection<Entry<?>> children = groupChildren(mappings.getChildren(classEntry));
 
 		EntryMapping classEntryMapping = mappings.get(classEntry);
 
-		writer.println(writeClass(classEntry, classEntryMapping).trim());
+		writeLine(writer, writeClass(classEntry, classEntryMapping), 0);
 		if (classEntryMapping != null && classEntryMapping.getJavadoc() != null) {
 			writeDocs(writer, classEntryMapping, 0);
 		}
@@ -180,7 +341,7 @@ public enum EnigmaMappingsWriter implements MappingsWriter {
 		String jd = mapping.getJavadoc();
 		if (jd != null) {
 			for (String line : jd.split("\\R")) {
-				writer.println(indent(EnigmaFormat.COMMENT + " " + MappingHelper.escape(line), depth + 1));
+				writeLine(writer, EnigmaFormat.COMMENT + " " + MappingHelper.escape(line), depth + 1);
 			}
 		}
 	}
@@ -194,17 +355,13 @@ public enum EnigmaMappingsWriter implements MappingsWriter {
 		EntryMapping mapping = node.getValue();
 
 		if (entry instanceof ClassEntry) {
-			String line = writeClass((ClassEntry) entry, mapping);
-			writer.println(indent(line, depth));
+			writeLine(writer, writeClass((ClassEntry) entry, mapping), depth);
 		} else if (entry instanceof MethodEntry) {
-			String line = writeMethod((MethodEntry) entry, mapping);
-			writer.println(indent(line, depth));
+			writeLine(writer, writeMethod((MethodEntry) entry, mapping), depth);
 		} else if (entry instanceof FieldEntry) {
-			String line = writeField((FieldEntry) entry, mapping);
-			writer.println(indent(line, depth));
+			writeLine(writer, writeField((FieldEntry) entry, mapping), depth);
 		} else if (entry instanceof LocalVariableEntry && mapping != null) {
-			String line = writeArgument((LocalVariableEntry) entry, mapping);
-			writer.println(indent(line, depth));
+			writeLine(writer, writeArgument((LocalVariableEntry) entry, mapping), depth);
 		}
 		if (mapping != null && mapping.getJavadoc() != null) {
 			writeDocs(writer, mapping, depth);
@@ -217,27 +374,33 @@ public enum EnigmaMappingsWriter implements MappingsWriter {
 	}
 
 	private Collection<Entry<?>> groupChildren(Collection<Entry<?>> children) {
-		Collection<Entry<?>> result = new ArrayList<>(children.size());
-
-		children.stream().filter(e -> e instanceof FieldEntry)
-				.map(e -> (FieldEntry) e)
-				.sorted()
-				.forEach(result::add);
+		List<FieldEntry> fields = new ArrayList<>();
+		List<MethodEntry> methods = new ArrayList<>();
+		List<LocalVariableEntry> variables = new ArrayList<>();
+		List<ClassEntry> classes = new ArrayList<>();
 
-		children.stream().filter(e -> e instanceof MethodEntry)
-				.map(e -> (MethodEntry) e)
-				.sorted()
-				.forEach(result::add);
+		for (Entry<?> child : children) {
+			if (child instanceof FieldEntry) {
+				fields.add((FieldEntry) child);
+			} else if (child instanceof MethodEntry) {
+				methods.add((MethodEntry) child);
+			} else if (child instanceof LocalVariableEntry) {
+				variables.add((LocalVariableEntry) child);
+			} else if (child instanceof ClassEntry) {
+				classes.add((ClassEntry) child);
+			}
+		}
 
-		children.stream().filter(e -> e instanceof LocalVariableEntry)
-				.map(e -> (LocalVariableEntry) e)
-				.sorted()
-				.forEach(result::add);
+		Collections.sort(fields);
+		Collections.sort(methods);
+		Collections.sort(variables);
+		Collections.sort(classes);
 
-		children.stream().filter(e -> e instanceof ClassEntry)
-						.map(e -> (ClassEntry) e)
-						.sorted()
-						.forEach(result::add);
+		Collection<Entry<?>> result = new ArrayList<>(children.size());
+		result.addAll(fields);
+		result.addAll(methods);
+		result.addAll(variables);
+		result.addAll(classes);
 
 		return result;
 	}
@@ -283,12 +446,10 @@ public enum EnigmaMappingsWriter implements MappingsWriter {
 		}
 	}
 
-	private String indent(String line, int depth) {
-		StringBuilder builder = new StringBuilder();
+	private void writeLine(PrintWriter writer, String line, int depth) {
 		for (int i = 0; i < depth; i++) {
-			builder.append("\t");
+			writer.print('\t');
 		}
-		builder.append(line.trim());
-		return builder.toString();
+		writer.println(line.trim());
 	}
 }
@@ -1,10 +1,12 @@
 package cuchaz.enigma.translation.mapping.serde;
 
 import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.metrics.Metrics;
 import cuchaz.enigma.throwables.MappingParseException;
 import cuchaz.enigma.translation.mapping.EntryMapping;
 import cuchaz.enigma.translation.mapping.MappingDelta;
 import cuchaz.enigma.translation.mapping.MappingSaveParameters;
+import cuchaz.enigma.translation.mapping.MappingSaveResult;
 import cuchaz.enigma.translation.mapping.tree.EntryTree;
 
 import javax.annotation.Nullable;
@@ -28,22 +30,32 @@ public enum MappingFormat {
 		this.reader = reader;
 	}
 
-	public void write(EntryTree<EntryMapping> mappings, Path path, ProgressListener progressListener, MappingSaveParameters saveParameters)  {
-		write(mappings, MappingDelta.added(mappings), path, progressListener, saveParameters);
+	public MappingSaveResult write(EntryTree<EntryMapping> mappings, Path path, ProgressListener progressListener, MappingSaveParameters saveParameters)  {
+		return write(mappings, MappingDelta.added(mappings), path, progressListener, saveParameters);
 	}
 
-	public void write(EntryTree<EntryMapping> mappings, MappingDelta<EntryMapping> delta, Path path, ProgressListener progressListener, MappingSaveParameters saveParameters)  {
+	public MappingSaveResult write(EntryTree<EntryMapping> mappings, MappingDelta<EntryMapping> delta, Path path, ProgressListener progressListener, MappingSaveParameters saveParameters)  {
 		if (writer == null) {
 			throw new IllegalStateException(name() + " does not support writing");
 		}
-		writer.write(mappings, delta, path, progressListener, saveParameters);
+		return Metrics.time("mappings.write." + name(), () -> writer.write(mappings, delta, path, progressListener, saveParameters));
 	}
 
 	public EntryTree<EntryMapping> read(Path path, ProgressListener progressListener, MappingSaveParameters saveParameters) throws IOException, MappingParseException {
 		if (reader == null) {
 			throw new IllegalStateException(name() + " does not support reading");
 		}
-		return reader.read(path, progressListener, saveParameters);
+		// timed by hand, as a timed lambda can only rethrow one of the checked exceptions
+		Metrics.Timer timer = Metrics.time("mappings.read." + name());
+		try {
+			EntryTree<EntryMapping> mappings = reader.read(path, progressListener, saveParameters);
+			if (Metrics.isEnabled()) {
+				Metrics.count("mappings.read.entries", mappings.getAllEntries().count());
+			}
+			return mappings;
+		} finally {
+			timer.close();
+		}
 	}
 
 	@Nullable
@@ -0,0 +1,287 @@
+package cuchaz.enigma.translation.mapping.serde;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import cuchaz.enigma.translation.mapping.AccessModifier;
+import cuchaz.enigma.translation.mapping.EntryMap;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.representation.MethodDescriptor;
+import cuchaz.enigma.translation.representation.TypeDescriptor;
+import cuchaz.enigma.translation.representation.entry.*;
+import cuchaz.enigma.utils.LFPrintWriter;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An append-only log of mapping edits made since the mappings were last saved, kept next to the mappings so
+ * that unsaved work survives a crash. Every edit is one tab-separated line, written and flushed on a
+ * background thread:
+ * <pre>
+ * + C a/b TargetName ACCESS [javadoc]
+ * + F a/b name desc TargetName ACCESS [javadoc]
+ * + M a/b name desc TargetName ACCESS [javadoc]
+ * + V a/b method desc index name isArgument TargetName ACCESS [javadoc]
+ * - C a/b
+ * </pre>
+ * Replaying ignores a final line without a line break and stops at the first malformed line.
+ */
+public final class MappingJournal implements Closeable {
+	private static final String DIRECTORY_JOURNAL = ".enigma.journal";
+	private static final String FILE_JOURNAL_SUFFIX = ".journal";
+
+	private final Path path;
+	private final ExecutorService executor;
+	private PrintWriter writer;
+
+	// edits handed to the journal so far, counted on the recording thread
+	private final AtomicLong recorded = new AtomicLong();
+	// edits dropped from the start of the file, only used on the journal thread
+	private long dropped;
+
+	private MappingJournal(Path path) throws IOException {
+		this.path = path;
+		this.executor = Executors.newSingleThreadExecutor(
+				new ThreadFactoryBuilder()
+						.setDaemon(true)
+						.setNameFormat("mapping-journal-thread")
+						.build()
+		);
+		this.writer = openWriter(StandardOpenOption.APPEND);
+	}
+
+	/**
+	 * Opens the journal belonging to the given mappings, keeping anything it already holds.
+	 */
+	public static MappingJournal open(Path mappingsPath) throws IOException {
+		return new MappingJournal(resolve(mappingsPath));
+	}
+
+	public static boolean exists(Path mappingsPath) {
+		return Files.exists(resolve(mappingsPath));
+	}
+
+	/**
+	 * Applies every complete edit in the journal of the given mappings, in the order they were made.
+	 *
+	 * @return the number of edits applied
+	 */
+	public static int replay(Path mappingsPath, EntryMap<EntryMapping> mappings) throws IOException {
+		Path journal = resolve(mappingsPath);
+		if (!Files.exists(journal)) {
+			return 0;
+		}
+
+		// a crash can only cut short the final line, which is then missing its line break
+		String content = new String(Files.readAllBytes(journal), StandardCharsets.UTF_8);
+		content = content.substring(0, content.lastIndexOf('\n') + 1);
+
+		int applied = 0;
+		for (String line : content.split("\n")) {
+			if (line.isEmpty()) {
+				continue;
+			}
+
+			try {
+				applyLine(line, mappings);
+				applied++;
+			} catch (RuntimeException e) {
+				break;
+			}
+		}
+
+		return applied;
+	}
+
+	private static Path resolve(Path mappingsPath) {
+		if (Files.isDirectory(mappingsPath)) {
+			return mappingsPath.resolve(DIRECTORY_JOURNAL);
+		}
+		return mappingsPath.resolveSibling(mappingsPath.getFileName() + FILE_JOURNAL_SUFFIX);
+	}
+
+	public void record(Entry<?> entry, @Nullable EntryMapping mapping) {
+		recorded.incrementAndGet();
+		executor.execute(() -> {
+			writer.println(serialize(entry, mapping));
+			writer.flush();
+			if (writer.checkError()) {
+				System.err.println("Failed to journal change to '" + entry + "'");
+			}
+		});
+	}
+
+	/**
+	 * Returns the position after every edit recorded so far, to later {@link #reset(long) drop} just those edits.
+	 */
+	public long mark() {
+		return recorded.get();
+	}
+
+	/**
+	 * Drops every recorded edit, once they have all been saved to the mappings themselves.
+	 */
+	public void reset() {
+		reset(mark());
+	}
+
+	/**
+	 * Drops the edits recorded before the given {@link #mark() mark}, once they have been saved to the mappings
+	 * themselves. Edits recorded since are kept.
+	 */
+	public void reset(long mark) {
+		executor.execute(() -> {
+			if (mark <= dropped) {
+				return;
+			}
+
+			try {
+				writer.close();
+
+				// every edit before the mark was written by now, as they were queued before this
+				String content = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+				List<String> lines = Arrays.asList(content.substring(0, content.lastIndexOf('\n') + 1).split("\n", -1));
+				List<String> kept = lines.subList((int) Math.min(mark - dropped, lines.size() - 1), lines.size() - 1);
+
+				Path staged = AtomicMappingFiles.stagingSibling(path);
+				AtomicMappingFiles.writeStaged(staged, out -> kept.forEach(out::println));
+				AtomicMappingFiles.moveIntoPlace(staged, path);
+				dropped = mark;
+			} catch (IOException e) {
+				System.err.println("Failed to reset mapping journal '" + path + "'");
+				e.printStackTrace();
+			}
+
+			try {
+				writer = openWriter(StandardOpenOption.APPEND);
+			} catch (IOException e) {
+				System.err.println("Failed to reopen mapping journal '" + path + "'");
+				e.printStackTrace();
+			}
+		});
+	}
+
+	/**
+	 * Stops journaling and deletes the journal, discarding any edits it holds.
+	 */
+	public void delete() throws IOException {
+		close();
+		Files.deleteIfExists(path);
+	}
+
+	@Override
+	public void close() throws IOException {
+		executor.shutdown();
+		try {
+			executor.awaitTermination(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		writer.close();
+	}
+
+	private PrintWriter openWriter(StandardOpenOption mode) throws IOException {
+		return new LFPrintWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode));
+	}
+
+	private static String serialize(Entry<?> entry, @Nullable EntryMapping mapping) {
+		StringBuilder builder = new StringBuilder();
+		builder.append(mapping != null ? '+' : '-');
+
+		if (entry instanceof ClassEntry) {
+			builder.append("\tC\t").append(((ClassEntry) entry).getFullName());
+		} else if (entry instanceof FieldEntry) {
+			FieldEntry field = (FieldEntry) entry;
+			builder.append("\tF\t").append(field.getParent().getFullName())
+					.append('\t').append(field.getName())
+					.append('\t').append(field.getDesc());
+		} else if (entry instanceof MethodEntry) {
+			builder.append("\tM\t");
+			appendMethod(builder, (MethodEntry) entry);
+		} else if (entry instanceof LocalVariableEntry) {
+			LocalVariableEntry variable = (LocalVariableEntry) entry;
+			builder.append("\tV\t");
+			appendMethod(builder, variable.getParent());
+			builder.append('\t').append(variable.getIndex())
+					.append('\t').append(variable.getName())
+					.append('\t').append(variable.isArgument());
+		} else {
+			throw new IllegalArgumentException("Cannot journal " + entry);
+		}
+
+		if (mapping != null) {
+			builder.append('\t').append(mapping.getTargetName())
+					.append('\t').append(mapping.getAccessModifier().name());
+			if (mapping.getJavadoc() != null) {
+				builder.append('\t').append(MappingHelper.escape(mapping.getJavadoc()));
+			}
+		}
+
+		return builder.toString();
+	}
+
+	private static void appendMethod(StringBuilder builder, MethodEntry method) {
+		builder.append(method.getParent().getFullName())
+				.append('\t').append(method.getName())
+				.append('\t').append(method.getDesc());
+	}
+
+	private static void applyLine(String line, EntryMap<EntryMapping> mappings) {
+		String[] tokens = line.split("\t", -1);
+		boolean put = tokens[0].equals("+");
+		if (!put && !tokens[0].equals("-")) {
+			throw new IllegalArgumentException("Unknown journal operation: " + tokens[0]);
+		}
+
+		Entry<?> entry;
+		int next;
+		switch (tokens[1]) {
+			case "C":
+				entry = new ClassEntry(tokens[2]);
+				next = 3;
+				break;
+			case "F":
+				entry = new FieldEntry(new ClassEntry(tokens[2]), tokens[3], new TypeDescriptor(tokens[4]));
+				next = 5;
+				break;
+			case "M":
+				entry = parseMethod(tokens, 2);
+				next = 5;
+				break;
+			case "V":
+				entry = new LocalVariableEntry(parseMethod(tokens, 2), Integer.parseInt(tokens[5]), tokens[6], Boolean.parseBoolean(tokens[7]), null);
+				next = 8;
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown journal entry type: " + tokens[1]);
+		}
+
+		if (!put) {
+			if (tokens.length != next) {
+				throw new IllegalArgumentException("Malformed journal line: " + line);
+			}
+			mappings.remove(entry);
+			return;
+		}
+
+		if (tokens.length != next + 2 && tokens.length != next + 3) {
+			throw new IllegalArgumentException("Malformed journal line: " + line);
+		}
+
+		String javadoc = tokens.length == next + 3 ? MappingHelper.unescape(tokens[next + 2]) : null;
+		mappings.insert(entry, new EntryMapping(tokens[next], AccessModifier.valueOf(tokens[next + 1]), javadoc));
+	}
+
+	private static MethodEntry parseMethod(String[] tokens, int start) {
+		return new MethodEntry(new ClassEntry(tokens[start]), tokens[start + 1], new MethodDescriptor(tokens[start + 2]));
+	}
+}
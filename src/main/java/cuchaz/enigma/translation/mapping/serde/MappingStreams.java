@@ -0,0 +1,181 @@
+package cuchaz.enigma.translation.mapping.serde;
+
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.throwables.MappingParseException;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.EntryTreeNode;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.utils.LFPrintWriter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Helpers for reading line-based mapping files one top-level class at a time.
+ * <p>
+ * A file is seen as a header followed by records, where a record starts at a line naming a class and runs until
+ * the next such line. Small files are parsed in one go. Larger ones are first spilled to temporary bucket files,
+ * keyed by the top-level class of each record, so only one bucket is ever parsed and held in memory. Buckets hold
+ * consecutive ranges of the sorted top-level classes, so classes are passed on in the same order either way.
+ * <p>
+ * The system property {@code enigma.mappings.bucketSize} sets how many bytes of a file go into a bucket.
+ */
+final class MappingStreams {
+	private static final long DEFAULT_BUCKET_SIZE = 16 * 1024 * 1024;
+	private static final int MAX_BUCKETS = 256;
+
+	/**
+	 * The order top-level classes are written and passed on in, shared by the single-file writers so that converting
+	 * a file gives the same output as writing the same mappings whole.
+	 */
+	static final Comparator<ClassEntry> CLASS_ORDER = Comparator.comparing(ClassEntry::getFullName);
+
+	private MappingStreams() {
+	}
+
+	interface LinesParser {
+		EntryTree<EntryMapping> parse(List<String> lines) throws MappingParseException;
+	}
+
+	/**
+	 * Passes every top-level class of the tree to the consumer, each copied into a tree of its own.
+	 */
+	static void forEachClass(EntryTree<EntryMapping> mappings, ClassMappingsConsumer consumer) throws IOException {
+		List<EntryTreeNode<EntryMapping>> roots = mappings.getRootNodes()
+				.filter(node -> node.getEntry() instanceof ClassEntry)
+				.sorted(Comparator.comparing(node -> (ClassEntry) node.getEntry(), CLASS_ORDER))
+				.collect(Collectors.toList());
+
+		for (EntryTreeNode<EntryMapping> root : roots) {
+			EntryTree<EntryMapping> classMappings = new HashEntryTree<>();
+			for (EntryTreeNode<EntryMapping> node : root.getNodesRecursively()) {
+				if (node.hasValue()) {
+					classMappings.insert(node.getEntry(), node.getValue());
+				}
+			}
+			consumer.accept(classMappings);
+		}
+	}
+
+	/**
+	 * Reads the file bucket by bucket, handing each bucket the header lines followed by its records.
+	 *
+	 * @param recordClass the name of the class a line starts a record for, or null if the line continues the
+	 *                    previous record (or the header, before the first record)
+	 */
+	static void readBucketed(Path path, Function<String, String> recordClass, LinesParser parser, ProgressListener progress, ClassMappingsConsumer consumer) throws IOException, MappingParseException {
+		long bucketSize = Long.getLong("enigma.mappings.bucketSize", DEFAULT_BUCKET_SIZE);
+		int bucketCount = (int) Math.min(MAX_BUCKETS, Files.size(path) / bucketSize + 1);
+		if (bucketCount == 1) {
+			progress.init(1, "Loading mapping file");
+			forEachClass(parser.parse(Files.readAllLines(path, StandardCharsets.UTF_8)), consumer);
+			progress.step(1, "");
+			return;
+		}
+
+		Path directory = Files.createTempDirectory("enigma-mappings");
+		try {
+			List<String> header = spill(path, directory, bucketCount, recordClass);
+
+			progress.init(bucketCount, "Loading mapping file");
+			for (int i = 0; i < bucketCount; i++) {
+				progress.step(i, "");
+
+				List<String> lines = new ArrayList<>(header);
+				lines.addAll(Files.readAllLines(bucket(directory, i), StandardCharsets.UTF_8));
+				forEachClass(parser.parse(lines), consumer);
+			}
+		} finally {
+			AtomicMappingFiles.deleteRecursively(directory);
+		}
+	}
+
+	private static List<String> spill(Path path, Path directory, int bucketCount, Function<String, String> recordClass) throws IOException {
+		Map<String, Integer> bucketIndices = assignBuckets(path, bucketCount, recordClass);
+
+		List<String> header = new ArrayList<>();
+		PrintWriter[] buckets = new PrintWriter[bucketCount];
+		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			for (int i = 0; i < bucketCount; i++) {
+				buckets[i] = new LFPrintWriter(Files.newBufferedWriter(bucket(directory, i), StandardCharsets.UTF_8));
+			}
+
+			PrintWriter current = null;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String className = recordClass.apply(line);
+				if (className != null) {
+					String rootName = new ClassEntry(className).getOutermostClass().getFullName();
+					current = buckets[bucketIndices.get(rootName)];
+				}
+
+				if (current != null) {
+					current.println(line);
+				} else {
+					header.add(line);
+				}
+			}
+		} finally {
+			closeAll(buckets);
+		}
+
+		return header;
+	}
+
+	/**
+	 * Splits the top-level classes of the file, in the order {@link #forEachClass} passes them on, into consecutive
+	 * ranges of about the same number of classes.
+	 */
+	private static Map<String, Integer> assignBuckets(Path path, int bucketCount, Function<String, String> recordClass) throws IOException {
+		Set<ClassEntry> roots = new TreeSet<>(CLASS_ORDER);
+		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String className = recordClass.apply(line);
+				if (className != null) {
+					roots.add(new ClassEntry(className).getOutermostClass());
+				}
+			}
+		}
+
+		Map<String, Integer> bucketIndices = new HashMap<>();
+		int index = 0;
+		for (ClassEntry root : roots) {
+			bucketIndices.put(root.getFullName(), (int) ((long) index++ * bucketCount / roots.size()));
+		}
+		return bucketIndices;
+	}
+
+	private static void closeAll(PrintWriter[] writers) throws IOException {
+		boolean failed = false;
+		for (PrintWriter writer : writers) {
+			if (writer != null) {
+				writer.close();
+				failed |= writer.checkError();
+			}
+		}
+
+		if (failed) {
+			throw new IOException("Failed to spill mappings to temporary files");
+		}
+	}
+
+	private static Path bucket(Path directory, int index) {
+		return directory.resolve(index + ".bucket");
+	}
+}
@@ -11,4 +11,12 @@ import java.nio.file.Path;
 
 public interface MappingsReader {
 	EntryTree<EntryMapping> read(Path path, ProgressListener progress, MappingSaveParameters saveParameters) throws MappingParseException, IOException;
+
+	/**
+	 * Reads the mappings one top-level class at a time, without necessarily holding all of them in memory at once.
+	 * The default implementation reads the whole tree first.
+	 */
+	default void readClasses(Path path, ProgressListener progress, MappingSaveParameters saveParameters, ClassMappingsConsumer consumer) throws MappingParseException, IOException {
+		MappingStreams.forEachClass(read(path, progress, saveParameters), consumer);
+	}
 }
@@ -3,15 +3,25 @@ package cuchaz.enigma.translation.mapping.serde;
 import cuchaz.enigma.ProgressListener;
 import cuchaz.enigma.translation.mapping.EntryMapping;
 import cuchaz.enigma.translation.mapping.MappingDelta;
+import cuchaz.enigma.translation.mapping.MappingSaveResult;
 import cuchaz.enigma.translation.mapping.MappingSaveParameters;
 import cuchaz.enigma.translation.mapping.tree.EntryTree;
 
+import java.io.IOException;
 import java.nio.file.Path;
 
 public interface MappingsWriter {
-	void write(EntryTree<EntryMapping> mappings, MappingDelta<EntryMapping> delta, Path path, ProgressListener progress, MappingSaveParameters saveParameters);
+	MappingSaveResult write(EntryTree<EntryMapping> mappings, MappingDelta<EntryMapping> delta, Path path, ProgressListener progress, MappingSaveParameters saveParameters);
 
-	default void write(EntryTree<EntryMapping> mappings, Path path, ProgressListener progress, MappingSaveParameters saveParameters) {
-		write(mappings, MappingDelta.added(mappings), path, progress, saveParameters);
+	default MappingSaveResult write(EntryTree<EntryMapping> mappings, Path path, ProgressListener progress, MappingSaveParameters saveParameters) {
+		return write(mappings, MappingDelta.added(mappings), path, progress, saveParameters);
+	}
+
+	/**
+	 * Opens an output that writes the mappings as they are passed in, one top-level class at a time. The default
+	 * implementation collects every class and writes them all when finished.
+	 */
+	default ClassMappingsOutput openOutput(Path path, MappingSaveParameters saveParameters) throws IOException {
+		return new BufferedMappingsOutput(this, path, saveParameters);
 	}
 }
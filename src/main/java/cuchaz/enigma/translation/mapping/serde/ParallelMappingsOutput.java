@@ -0,0 +1,78 @@
+package cuchaz.enigma.translation.mapping.serde;
+
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.translation.mapping.MappingSaveResult;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.utils.LFPrintWriter;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Writes a single mapping file by rendering every top-level class into its own buffer on the common pool,
+ * then appending the buffers to the file in the order the classes were given. The output is the same as
+ * rendering each class sequentially into one writer.
+ * <p>
+ * The file is assembled next to the target and only renamed over it once complete.
+ */
+final class ParallelMappingsOutput {
+	private ParallelMappingsOutput() {
+	}
+
+	static MappingSaveResult write(Path path, String header, List<ClassEntry> classes, BiConsumer<PrintWriter, ClassEntry> render, ProgressListener progress) {
+		progress.init(classes.size(), "Writing classes");
+
+		AtomicInteger steps = new AtomicInteger();
+
+		Path staged = AtomicMappingFiles.stagingSibling(path);
+		try {
+			try (OutputStream output = new BufferedOutputStream(AtomicMappingFiles.openStaged(staged))) {
+				if (header != null) {
+					output.write(header.getBytes(StandardCharsets.UTF_8));
+				}
+
+				classes.parallelStream()
+						.map(classEntry -> {
+							byte[] buffer = render(classEntry, render);
+							progress.step(steps.getAndIncrement(), classEntry.getFullName());
+							return buffer;
+						})
+						.forEachOrdered(buffer -> {
+							try {
+								output.write(buffer);
+							} catch (IOException e) {
+								throw new UncheckedIOException(e);
+							}
+						});
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+
+			AtomicMappingFiles.moveIntoPlace(staged, path);
+			AtomicMappingFiles.syncDirectories(Collections.singleton(path.toAbsolutePath().getParent()));
+
+			return MappingSaveResult.written(classes);
+		} catch (IOException | RuntimeException e) {
+			try {
+				Files.deleteIfExists(staged);
+			} catch (IOException suppressed) {
+				e.addSuppressed(suppressed);
+			}
+			return MappingSaveResult.failed(classes, e);
+		}
+	}
+
+	private static byte[] render(ClassEntry classEntry, BiConsumer<PrintWriter, ClassEntry> render) {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		try (PrintWriter writer = new LFPrintWriter(new OutputStreamWriter(buffer, StandardCharsets.UTF_8))) {
+			render.accept(writer, classEntry);
+		}
+		return buffer.toByteArray();
+	}
+}
@@ -0,0 +1,98 @@
+package cuchaz.enigma.translation.mapping.serde;
+
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.MappingSaveResult;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.EntryTreeNode;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.utils.LFPrintWriter;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Streams classes into a single mapping file in the order they are passed in. Like {@link ParallelMappingsOutput},
+ * the file is assembled next to the target and only renamed over it once finished.
+ */
+final class SingleFileMappingsOutput implements ClassMappingsOutput {
+	interface ClassRenderer {
+		void render(PrintWriter writer, EntryTree<EntryMapping> mappings, ClassEntry classEntry);
+	}
+
+	private final Path path;
+	private final Path staged;
+	private final ClassRenderer renderer;
+	private final PrintWriter writer;
+
+	private final List<ClassEntry> written = new ArrayList<>();
+	private boolean finished;
+
+	SingleFileMappingsOutput(Path path, @Nullable String header, ClassRenderer renderer) throws IOException {
+		this.path = path;
+		this.staged = AtomicMappingFiles.stagingSibling(path);
+		this.renderer = renderer;
+		this.writer = new LFPrintWriter(new BufferedWriter(new OutputStreamWriter(AtomicMappingFiles.openStaged(staged), StandardCharsets.UTF_8)));
+
+		if (header != null) {
+			writer.print(header);
+		}
+	}
+
+	@Override
+	public void accept(EntryTree<EntryMapping> classMappings) throws IOException {
+		List<ClassEntry> classes = classMappings.getRootNodes()
+				.map(EntryTreeNode::getEntry)
+				.filter(entry -> entry instanceof ClassEntry)
+				.map(entry -> (ClassEntry) entry)
+				.sorted(MappingStreams.CLASS_ORDER)
+				.collect(Collectors.toList());
+
+		for (ClassEntry classEntry : classes) {
+			renderer.render(writer, classMappings, classEntry);
+			written.add(classEntry);
+		}
+
+		if (writer.checkError()) {
+			throw new IOException("Failed to write " + staged);
+		}
+	}
+
+	@Override
+	public MappingSaveResult finish() {
+		finished = true;
+		try {
+			writer.close();
+			if (writer.checkError()) {
+				throw new IOException("Failed to write " + staged);
+			}
+
+			AtomicMappingFiles.moveIntoPlace(staged, path);
+			AtomicMappingFiles.syncDirectories(Collections.singleton(path.toAbsolutePath().getParent()));
+
+			return MappingSaveResult.written(written);
+		} catch (IOException e) {
+			try {
+				Files.deleteIfExists(staged);
+			} catch (IOException suppressed) {
+				e.addSuppressed(suppressed);
+			}
+			return MappingSaveResult.failed(written, e);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (!finished) {
+			finished = true;
+			writer.close();
+			Files.deleteIfExists(staged);
+		}
+	}
+}
@@ -7,37 +7,37 @@ import cuchaz.enigma.translation.Translator;
 import cuchaz.enigma.translation.mapping.EntryMapping;
 import cuchaz.enigma.translation.mapping.MappingDelta;
 import cuchaz.enigma.translation.mapping.MappingSaveParameters;
+import cuchaz.enigma.translation.mapping.MappingSaveResult;
 import cuchaz.enigma.translation.mapping.VoidEntryResolver;
 import cuchaz.enigma.translation.mapping.tree.EntryTree;
 import cuchaz.enigma.translation.mapping.tree.EntryTreeNode;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.representation.MethodDescriptor;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
 import cuchaz.enigma.translation.representation.entry.Entry;
 import cuchaz.enigma.translation.representation.entry.FieldEntry;
 import cuchaz.enigma.translation.representation.entry.MethodEntry;
 import cuchaz.enigma.utils.LFPrintWriter;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public enum SrgMappingsWriter implements MappingsWriter {
 	INSTANCE;
 
 	@Override
-	public void write(EntryTree<EntryMapping> mappings, MappingDelta<EntryMapping> delta, Path path, ProgressListener progress, MappingSaveParameters saveParameters) {
-		try {
-			Files.deleteIfExists(path);
-			Files.createFile(path);
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-
+	public MappingSaveResult write(EntryTree<EntryMapping> mappings, MappingDelta<EntryMapping> delta, Path path, ProgressListener progress, MappingSaveParameters saveParameters) {
 		List<String> classLines = new ArrayList<>();
 		List<String> fieldLines = new ArrayList<>();
 		List<String> methodLines = new ArrayList<>();
@@ -53,19 +53,40 @@ public enum SrgMappingsWriter implements MappingsWriter {
 			writeEntry(classLines, fieldLines, methodLines, mappings, entry);
 		}
 
+		List<ClassEntry> classes = mappings.getRootNodes()
+				.map(EntryTreeNode::getEntry)
+				.filter(entry -> entry instanceof ClassEntry)
+				.map(entry -> (ClassEntry) entry)
+				.collect(Collectors.toList());
+
 		progress.init(3, "Writing mappings");
-		try (PrintWriter writer = new LFPrintWriter(Files.newBufferedWriter(path))) {
-			progress.step(0, "Classes");
-			classLines.forEach(writer::println);
-			progress.step(1, "Fields");
-			fieldLines.forEach(writer::println);
-			progress.step(2, "Methods");
-			methodLines.forEach(writer::println);
+		Path staged = AtomicMappingFiles.stagingSibling(path);
+		try {
+			AtomicMappingFiles.writeStaged(staged, writer -> {
+				progress.step(0, "Classes");
+				classLines.forEach(writer::println);
+				progress.step(1, "Fields");
+				fieldLines.forEach(writer::println);
+				progress.step(2, "Methods");
+				methodLines.forEach(writer::println);
+			});
+			AtomicMappingFiles.moveIntoPlace(staged, path);
+			return MappingSaveResult.written(classes);
 		} catch (IOException e) {
-			e.printStackTrace();
+			return MappingSaveResult.failed(classes, e);
 		}
 	}
 
+	/**
+	 * Class and field lines are generated per class as they arrive. Method descriptors may name any class though,
+	 * so method lines are spilled with their descriptors untranslated, and only completed once every class name is
+	 * known. Apart from the class names, nothing is held in memory.
+	 */
+	@Override
+	public ClassMappingsOutput openOutput(Path path, MappingSaveParameters saveParameters) throws IOException {
+		return new StreamingOutput(path);
+	}
+
 	private void writeEntry(List<String> classes, List<String> fields, List<String> methods, EntryTree<EntryMapping> mappings, Entry<?> entry) {
 		EntryTreeNode<EntryMapping> node = mappings.findNode(entry);
 		if (node == null) {
@@ -114,4 +135,136 @@ public enum SrgMappingsWriter implements MappingsWriter {
 		sorted.sort(Comparator.comparing(Entry::getName));
 		return sorted;
 	}
+
+	private static class StreamingOutput implements ClassMappingsOutput {
+		private final Path path;
+		private final Path spill;
+		private final PrintWriter classLines;
+		private final PrintWriter fieldLines;
+		private final PrintWriter methodLines;
+
+		private final EntryTree<EntryMapping> classNames = new HashEntryTree<>();
+		private final List<ClassEntry> written = new ArrayList<>();
+		private boolean finished;
+
+		StreamingOutput(Path path) throws IOException {
+			this.path = path;
+			this.spill = Files.createTempDirectory("enigma-srg");
+			this.classLines = openSpill("classes");
+			this.fieldLines = openSpill("fields");
+			this.methodLines = openSpill("methods");
+		}
+
+		private PrintWriter openSpill(String name) throws IOException {
+			return new LFPrintWriter(Files.newBufferedWriter(spill.resolve(name), StandardCharsets.UTF_8));
+		}
+
+		@Override
+		public void accept(EntryTree<EntryMapping> classMappings) throws IOException {
+			Translator translator = new MappingTranslator(classMappings, VoidEntryResolver.INSTANCE);
+
+			for (EntryTreeNode<EntryMapping> root : sortedNodes(classMappings.getRootNodes().collect(Collectors.toList()))) {
+				if (root.getEntry() instanceof ClassEntry) {
+					written.add((ClassEntry) root.getEntry());
+					writeNode(root, translator);
+				}
+			}
+
+			if (classLines.checkError() || fieldLines.checkError() || methodLines.checkError()) {
+				throw new IOException("Failed to spill mappings to " + spill);
+			}
+		}
+
+		private void writeNode(EntryTreeNode<EntryMapping> node, Translator translator) {
+			Entry<?> entry = node.getEntry();
+			if (entry instanceof ClassEntry) {
+				classLines.println(INSTANCE.generateClassLine((ClassEntry) entry, translator));
+				if (node.hasValue()) {
+					classNames.insert(entry, node.getValue());
+				}
+			} else if (entry instanceof FieldEntry) {
+				fieldLines.println(INSTANCE.generateFieldLine((FieldEntry) entry, translator));
+			} else if (entry instanceof MethodEntry) {
+				MethodEntry sourceEntry = (MethodEntry) entry;
+				MethodEntry targetEntry = translator.translate(sourceEntry);
+				methodLines.println(INSTANCE.describeMethod(sourceEntry) + "\t" + targetEntry.getParent().getFullName() + "/" + targetEntry.getName() + "\t" + sourceEntry.getDesc());
+			}
+
+			for (EntryTreeNode<EntryMapping> child : sortedNodes(node.getChildNodes())) {
+				writeNode(child, translator);
+			}
+		}
+
+		private static Collection<? extends EntryTreeNode<EntryMapping>> sortedNodes(Collection<? extends EntryTreeNode<EntryMapping>> nodes) {
+			List<EntryTreeNode<EntryMapping>> sorted = new ArrayList<>(nodes);
+			sorted.sort(Comparator.comparing(node -> node.getEntry().getName()));
+			return sorted;
+		}
+
+		@Override
+		public MappingSaveResult finish() {
+			finished = true;
+
+			Translator translator = new MappingTranslator(classNames, VoidEntryResolver.INSTANCE);
+			Path staged = AtomicMappingFiles.stagingSibling(path);
+			try {
+				classLines.close();
+				fieldLines.close();
+				methodLines.close();
+
+				AtomicMappingFiles.writeStaged(staged, writer -> {
+					try {
+						copyLines(spill.resolve("classes"), writer::println);
+						copyLines(spill.resolve("fields"), writer::println);
+						copyLines(spill.resolve("methods"), line -> {
+							String[] parts = line.split("\t");
+							MethodDescriptor desc = translator.translate(new MethodDescriptor(parts[2]));
+							writer.println("MD: " + parts[0] + " " + parts[1] + " " + desc);
+						});
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+				AtomicMappingFiles.moveIntoPlace(staged, path);
+				return MappingSaveResult.written(written);
+			} catch (IOException | UncheckedIOException e) {
+				try {
+					Files.deleteIfExists(staged);
+				} catch (IOException suppressed) {
+					e.addSuppressed(suppressed);
+				}
+				return MappingSaveResult.failed(written, e);
+			} finally {
+				deleteSpill();
+			}
+		}
+
+		private static void copyLines(Path file, Consumer<String> consumer) throws IOException {
+			try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					consumer.accept(line);
+				}
+			}
+		}
+
+		@Override
+		public void close() {
+			if (!finished) {
+				finished = true;
+				classLines.close();
+				fieldLines.close();
+				methodLines.close();
+				deleteSpill();
+			}
+		}
+
+		private void deleteSpill() {
+			try {
+				AtomicMappingFiles.deleteRecursively(spill);
+			} catch (IOException e) {
+				System.err.println("Failed to delete temporary mappings in '" + spill + "'");
+			}
+		}
+	}
 }
@@ -15,6 +15,7 @@ import cuchaz.enigma.translation.representation.entry.FieldEntry;
 import cuchaz.enigma.translation.representation.entry.LocalVariableEntry;
 import cuchaz.enigma.translation.representation.entry.MethodEntry;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -28,6 +29,29 @@ public enum TinyMappingsReader implements MappingsReader {
 		return read(path, Files.readAllLines(path, Charsets.UTF_8), progress);
 	}
 
+	@Override
+	public void readClasses(Path path, ProgressListener progress, MappingSaveParameters saveParameters, ClassMappingsConsumer consumer) throws IOException, MappingParseException {
+		MappingStreams.readBucketed(path, this::recordClass, lines -> read(path, lines, ProgressListener.none()), progress, consumer);
+	}
+
+	@Nullable
+	private String recordClass(String line) {
+		String[] tokens = line.split("\t", 3);
+		if (tokens.length < 3) {
+			return null;
+		}
+
+		switch (tokens[0]) {
+			case "CLASS":
+			case "FIELD":
+			case "METHOD":
+			case "MTH-ARG":
+				return tokens[1];
+			default:
+				return null;
+		}
+	}
+
 	private EntryTree<EntryMapping> read(Path path, List<String> lines, ProgressListener progress) throws MappingParseException {
 		EntryTree<EntryMapping> mappings = new HashEntryTree<>();
 		lines.remove(0);
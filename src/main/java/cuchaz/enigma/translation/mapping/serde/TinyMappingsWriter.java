@@ -1,13 +1,13 @@
 package cuchaz.enigma.translation.mapping.serde;
 
 import com.google.common.base.Joiner;
-import com.google.common.collect.Lists;
 import cuchaz.enigma.ProgressListener;
 import cuchaz.enigma.translation.MappingTranslator;
 import cuchaz.enigma.translation.Translator;
 import cuchaz.enigma.translation.mapping.EntryMapping;
 import cuchaz.enigma.translation.mapping.MappingDelta;
 import cuchaz.enigma.translation.mapping.MappingSaveParameters;
+import cuchaz.enigma.translation.mapping.MappingSaveResult;
 import cuchaz.enigma.translation.mapping.VoidEntryResolver;
 import cuchaz.enigma.translation.mapping.tree.EntryTree;
 import cuchaz.enigma.translation.mapping.tree.EntryTreeNode;
@@ -16,15 +16,11 @@ import cuchaz.enigma.translation.representation.entry.Entry;
 import cuchaz.enigma.translation.representation.entry.FieldEntry;
 import cuchaz.enigma.translation.representation.entry.MethodEntry;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.Writer;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Comparator;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
+import java.util.stream.Collectors;
 
 public class TinyMappingsWriter implements MappingsWriter {
     private static final String VERSION_CONSTANT = "v1";
@@ -33,8 +29,6 @@ public class TinyMappingsWriter implements MappingsWriter {
     //Possibly add a gui or a way to select the namespaces when exporting from the gui
     public static final TinyMappingsWriter INSTANCE = new TinyMappingsWriter("intermediary", "named");
 
-    // HACK: as of enigma 0.13.1, some fields seem to appear duplicated?
-    private final Set<String> writtenLines = new HashSet<>();
     private final String nameObf;
     private final String nameDeobf;
 
@@ -44,70 +38,93 @@ public class TinyMappingsWriter implements MappingsWriter {
     }
 
     @Override
-    public void write(EntryTree<EntryMapping> mappings, MappingDelta<EntryMapping> delta, Path path, ProgressListener progress, MappingSaveParameters saveParameters) {
-        try {
-            Files.deleteIfExists(path);
-            Files.createFile(path);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+    public MappingSaveResult write(EntryTree<EntryMapping> mappings, MappingDelta<EntryMapping> delta, Path path, ProgressListener progress, MappingSaveParameters saveParameters) {
+        List<ClassEntry> classes = mappings.getRootNodes()
+                .map(EntryTreeNode::getEntry)
+                .filter(entry -> entry instanceof ClassEntry)
+                .map(entry -> (ClassEntry) entry)
+                .sorted(MappingStreams.CLASS_ORDER)
+                .collect(Collectors.toList());
+
+        return ParallelMappingsOutput.write(path, header(), classes, (writer, classEntry) -> writeRoot(writer, mappings, classEntry), progress);
+    }
 
-        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
-            writeLine(writer, new String[]{VERSION_CONSTANT, nameObf, nameDeobf});
+    @Override
+    public ClassMappingsOutput openOutput(Path path, MappingSaveParameters saveParameters) throws IOException {
+        return new SingleFileMappingsOutput(path, header(), this::writeRoot);
+    }
 
-            Lists.newArrayList(mappings).stream()
-                    .map(EntryTreeNode::getEntry).sorted(Comparator.comparing(Object::toString))
-                    .forEach(entry -> writeEntry(writer, mappings, entry));
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+    private String header() {
+        return TAB_JOINER.join(VERSION_CONSTANT, nameObf, nameDeobf) + "\n";
     }
 
-    private void writeEntry(Writer writer, EntryTree<EntryMapping> mappings, Entry<?> entry) {
+    private void writeRoot(Writer writer, EntryTree<EntryMapping> mappings, ClassEntry classEntry) {
+        Translator translator = new MappingTranslator(mappings, VoidEntryResolver.INSTANCE);
+
+        // HACK: as of enigma 0.13.1, some fields seem to appear duplicated?
+        Set<String> writtenLines = new HashSet<>();
+        writeEntry(writer, writtenLines, mappings, translator, classEntry);
+    }
+
+    private void writeEntry(Writer writer, Set<String> writtenLines, EntryTree<EntryMapping> mappings, Translator translator, Entry<?> entry) {
         EntryTreeNode<EntryMapping> node = mappings.findNode(entry);
         if (node == null) {
             return;
         }
 
-        Translator translator = new MappingTranslator(mappings, VoidEntryResolver.INSTANCE);
-
-        EntryMapping mapping = mappings.get(entry);
+        EntryMapping mapping = node.getValue();
         if (mapping != null && !entry.getName().equals(mapping.getTargetName())) {
             if (entry instanceof ClassEntry) {
-                writeClass(writer, (ClassEntry) entry, translator);
+                writeClass(writer, writtenLines, (ClassEntry) entry, translator);
             } else if (entry instanceof FieldEntry) {
-                writeLine(writer, serializeEntry(entry, mapping.getTargetName()));
+                writeLine(writer, writtenLines, serializeEntry(entry, mapping.getTargetName()));
             } else if (entry instanceof MethodEntry) {
-                writeLine(writer, serializeEntry(entry, mapping.getTargetName()));
+                writeLine(writer, writtenLines, serializeEntry(entry, mapping.getTargetName()));
             }
         }
 
-        writeChildren(writer, mappings, node);
+        writeChildren(writer, writtenLines, mappings, translator, node);
     }
 
-    private void writeChildren(Writer writer, EntryTree<EntryMapping> mappings, EntryTreeNode<EntryMapping> node) {
-        node.getChildren().stream()
-                .filter(e -> e instanceof FieldEntry).sorted()
-                .forEach(child -> writeEntry(writer, mappings, child));
+    private void writeChildren(Writer writer, Set<String> writtenLines, EntryTree<EntryMapping> mappings, Translator translator, EntryTreeNode<EntryMapping> node) {
+        List<FieldEntry> fields = new ArrayList<>();
+        List<MethodEntry> methods = new ArrayList<>();
+        List<ClassEntry> classes = new ArrayList<>();
+
+        for (Entry<?> child : node.getChildren()) {
+            if (child instanceof FieldEntry) {
+                fields.add((FieldEntry) child);
+            } else if (child instanceof MethodEntry) {
+                methods.add((MethodEntry) child);
+            } else if (child instanceof ClassEntry) {
+                classes.add((ClassEntry) child);
+            }
+        }
 
-        node.getChildren().stream()
-                .filter(e -> e instanceof MethodEntry).sorted()
-                .forEach(child -> writeEntry(writer, mappings, child));
+        Collections.sort(fields);
+        Collections.sort(methods);
+        Collections.sort(classes);
 
-        node.getChildren().stream()
-                .filter(e -> e instanceof ClassEntry).sorted()
-                .forEach(child -> writeEntry(writer, mappings, child));
+        for (FieldEntry child : fields) {
+            writeEntry(writer, writtenLines, mappings, translator, child);
+        }
+        for (MethodEntry child : methods) {
+            writeEntry(writer, writtenLines, mappings, translator, child);
+        }
+        for (ClassEntry child : classes) {
+            writeEntry(writer, writtenLines, mappings, translator, child);
+        }
     }
 
-    private void writeClass(Writer writer, ClassEntry entry, Translator translator) {
+    private void writeClass(Writer writer, Set<String> writtenLines, ClassEntry entry, Translator translator) {
         ClassEntry translatedEntry = translator.translate(entry);
 
         String obfClassName = entry.getFullName();
         String deobfClassName = translatedEntry.getFullName();
-        writeLine(writer, new String[]{"CLASS", obfClassName, deobfClassName});
+        writeLine(writer, writtenLines, new String[]{"CLASS", obfClassName, deobfClassName});
     }
 
-    private void writeLine(Writer writer, String[] data) {
+    private void writeLine(Writer writer, Set<String> writtenLines, String[] data) {
         try {
             String line = TAB_JOINER.join(data) + "\n";
             if (writtenLines.add(line)) {
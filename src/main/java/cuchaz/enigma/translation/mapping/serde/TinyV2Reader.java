@@ -42,6 +42,18 @@ final class TinyV2Reader implements MappingsReader {
 		return read(path, Files.readAllLines(path, StandardCharsets.UTF_8), progress);
 	}
 
+	@Override
+	public void readClasses(Path path, ProgressListener progress, MappingSaveParameters saveParameters, ClassMappingsConsumer consumer) throws IOException, MappingParseException {
+		// every class, inner ones included, starts an unindented "c" block
+		MappingStreams.readBucketed(path, line -> {
+			if (!line.startsWith("c\t")) {
+				return null;
+			}
+			String[] parts = line.split("\t", 3);
+			return parts.length > 1 ? parts[1] : null;
+		}, lines -> read(path, lines, ProgressListener.none()), progress, consumer);
+	}
+
 	private EntryTree<EntryMapping> read(Path path, List<String> lines, ProgressListener progress) throws MappingParseException {
 		EntryTree<EntryMapping> mappings = new HashEntryTree<>();
 
@@ -66,19 +78,7 @@ final class TinyV2Reader implements MappingsReader {
 					throw new IllegalArgumentException("Invalid format");
 
 				// clean and register stuff in stack
-				for (int i = INDENT_CLEAR_START[indent]; i < STATE_SIZE; i++) {
-					state.clear(i);
-					if (holds[i] != null) {
-						RawEntryMapping mapping = holds[i].getMapping();
-						if (mapping != null) {
-							EntryMapping baked = mapping.bake();
-							if (baked != null) {
-								mappings.insert(holds[i].getEntry(), baked);
-							}
-						}
-						holds[i] = null;
-					}
-				}
+				unwind(INDENT_CLEAR_START[indent], state, holds, mappings);
 
 				switch (indent) {
 					case 0:
@@ -185,9 +185,28 @@ final class TinyV2Reader implements MappingsReader {
 			}
 		}
 
+		// register whatever the last class left on the stack
+		unwind(0, state, holds, mappings);
+
 		return mappings;
 	}
 
+	private void unwind(int start, BitSet state, MappingPair<? extends Entry<?>, RawEntryMapping>[] holds, EntryTree<EntryMapping> mappings) {
+		for (int i = start; i < STATE_SIZE; i++) {
+			state.clear(i);
+			if (holds[i] != null) {
+				RawEntryMapping mapping = holds[i].getMapping();
+				if (mapping != null) {
+					EntryMapping baked = mapping.bake();
+					if (baked != null) {
+						mappings.insert(holds[i].getEntry(), baked);
+					}
+				}
+				holds[i] = null;
+			}
+		}
+	}
+
 	private void unsupportKey(String[] parts) {
 		throw new IllegalArgumentException("Unsupported key " + parts[0]);
 	}
@@ -1,11 +1,11 @@
 package cuchaz.enigma.translation.mapping.serde;
 
-import com.google.common.base.Strings;
 import cuchaz.enigma.ProgressListener;
 import cuchaz.enigma.translation.mapping.EntryMap;
 import cuchaz.enigma.translation.mapping.EntryMapping;
 import cuchaz.enigma.translation.mapping.MappingDelta;
 import cuchaz.enigma.translation.mapping.MappingSaveParameters;
+import cuchaz.enigma.translation.mapping.MappingSaveResult;
 import cuchaz.enigma.translation.mapping.tree.EntryTree;
 import cuchaz.enigma.translation.mapping.tree.EntryTreeNode;
 import cuchaz.enigma.translation.representation.entry.ClassEntry;
@@ -13,17 +13,14 @@ import cuchaz.enigma.translation.representation.entry.Entry;
 import cuchaz.enigma.translation.representation.entry.FieldEntry;
 import cuchaz.enigma.translation.representation.entry.LocalVariableEntry;
 import cuchaz.enigma.translation.representation.entry.MethodEntry;
-import cuchaz.enigma.utils.LFPrintWriter;
 
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 public final class TinyV2Writer implements MappingsWriter {
 
@@ -37,19 +34,33 @@ public final class TinyV2Writer implements MappingsWriter {
 	}
 
 	@Override
-	public void write(EntryTree<EntryMapping> mappings, MappingDelta<EntryMapping> delta, Path path, ProgressListener progress, MappingSaveParameters parameters) {
-		List<EntryTreeNode<EntryMapping>> classes = StreamSupport.stream(mappings.spliterator(), false).filter(node -> node.getEntry() instanceof ClassEntry).collect(Collectors.toList());
+	public MappingSaveResult write(EntryTree<EntryMapping> mappings, MappingDelta<EntryMapping> delta, Path path, ProgressListener progress, MappingSaveParameters parameters) {
+		List<ClassEntry> classes = mappings.getRootNodes()
+				.map(EntryTreeNode::getEntry)
+				.filter(entry -> entry instanceof ClassEntry)
+				.map(entry -> (ClassEntry) entry)
+				.sorted(MappingStreams.CLASS_ORDER)
+				.collect(Collectors.toList());
+
+		return ParallelMappingsOutput.write(path, header(), classes, (writer, classEntry) -> writeRoot(writer, mappings, classEntry), progress);
+	}
 
-		try (PrintWriter writer = new LFPrintWriter(Files.newBufferedWriter(path))) {
-			writer.println("tiny\t2\t" + MINOR_VERSION + "\t" + obfHeader + "\t" + deobfHeader);
+	@Override
+	public ClassMappingsOutput openOutput(Path path, MappingSaveParameters saveParameters) throws IOException {
+		return new SingleFileMappingsOutput(path, header(), this::writeRoot);
+	}
 
-			// no escape names
+	private String header() {
+		// no escape names
+		return "tiny\t2\t" + MINOR_VERSION + "\t" + obfHeader + "\t" + deobfHeader + "\n";
+	}
 
-			for (EntryTreeNode<EntryMapping> node : classes) {
+	private void writeRoot(PrintWriter writer, EntryTree<EntryMapping> mappings, ClassEntry classEntry) {
+		EntryTreeNode<EntryMapping> root = mappings.findNode(classEntry);
+		for (EntryTreeNode<EntryMapping> node : root.getNodesRecursively()) {
+			if (node.getEntry() instanceof ClassEntry) {
 				writeClass(writer, node, mappings);
 			}
-		} catch (IOException ex) {
-			ex.printStackTrace(); // TODO add some better logging system
 		}
 	}
 
@@ -90,7 +101,7 @@ public final class TinyV2Writer implements MappingsWriter {
 	}
 
 	private void writeMethod(PrintWriter writer, EntryTreeNode<EntryMapping> node) {
-		writer.print(indent(1));
+		writeIndent(writer, 1);
 		writer.print("m\t");
 		writer.print(((MethodEntry) node.getEntry()).getDesc().toString());
 		writer.print("\t");
@@ -118,7 +129,7 @@ public final class TinyV2Writer implements MappingsWriter {
 		if (node.getValue() == null)
 			return; // Shortcut
 
-		writer.print(indent(1));
+		writeIndent(writer, 1);
 		writer.print("f\t");
 		writer.print(((FieldEntry) node.getEntry()).getDesc().toString());
 		writer.print("\t");
@@ -138,7 +149,7 @@ public final class TinyV2Writer implements MappingsWriter {
 		if (node.getValue() == null)
 			return; // Shortcut
 
-		writer.print(indent(2));
+		writeIndent(writer, 2);
 		writer.print("p\t");
 		writer.print(((LocalVariableEntry) node.getEntry()).getIndex());
 		writer.print("\t");
@@ -156,14 +167,16 @@ public final class TinyV2Writer implements MappingsWriter {
 
 	private void writeComment(PrintWriter writer, EntryMapping mapping, int indent) {
 		if (mapping != null && mapping.getJavadoc() != null) {
-			writer.print(indent(indent));
+			writeIndent(writer, indent);
 			writer.print("c\t");
 			writer.print(MappingHelper.escape(mapping.getJavadoc()));
 			writer.println();
 		}
 	}
 
-	private String indent(int level) {
-		return Strings.repeat("\t", level);
+	private void writeIndent(PrintWriter writer, int level) {
+		for (int i = 0; i < level; i++) {
+			writer.print('\t');
+		}
 	}
 }
@@ -9,18 +9,24 @@ import cuchaz.enigma.translation.representation.entry.Entry;
 
 import javax.annotation.Nullable;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
 import java.util.stream.Stream;
 
 public class DeltaTrackingTree<T> implements EntryTree<T> {
 	private final EntryTree<T> delegate;
 
-	private EntryTree<T> deltaReference;
+	private SnapshotEntryTree.Generation<T> generation = new SnapshotEntryTree.Generation<>();
 	private EntryTree<Object> changes = new HashEntryTree<>();
 
+	private final List<BiConsumer<Entry<?>, T>> changeListeners = new CopyOnWriteArrayList<>();
+
 	public DeltaTrackingTree(EntryTree<T> delegate) {
 		this.delegate = delegate;
-		this.deltaReference = new HashEntryTree<>(delegate);
 	}
 
 	public DeltaTrackingTree() {
@@ -31,19 +37,61 @@ public class DeltaTrackingTree<T> implements EntryTree<T> {
 	public void insert(Entry<?> entry, T value) {
 		trackChange(entry);
 		delegate.insert(entry, value);
+		notifyChange(entry, value);
 	}
 
 	@Nullable
 	@Override
 	public T remove(Entry<?> entry) {
 		trackChange(entry);
-		return delegate.remove(entry);
+		T removed = delegate.remove(entry);
+		notifyChange(entry, null);
+		return removed;
+	}
+
+	/**
+	 * Registers a listener called with every entry inserted into or removed from this tree, and its new value.
+	 */
+	public void addChangeListener(BiConsumer<Entry<?>, T> listener) {
+		changeListeners.add(listener);
+	}
+
+	public void removeChangeListener(BiConsumer<Entry<?>, T> listener) {
+		changeListeners.remove(listener);
+	}
+
+	private void notifyChange(Entry<?> entry, @Nullable T value) {
+		for (BiConsumer<Entry<?>, T> listener : changeListeners) {
+			listener.accept(entry, value);
+		}
 	}
 
 	public void trackChange(Entry<?> entry) {
+		generation.record(entry, delegate.get(entry));
 		changes.insert(entry, MappingDelta.PLACEHOLDER);
 	}
 
+	/**
+	 * Marks the changes of a taken delta under the given roots as unsaved, so that they are part of the next delta
+	 * again. Their base mappings stay those of the given delta, which is what the failed save left behind.
+	 */
+	public void restoreChanges(MappingDelta<T> delta, Collection<? extends Entry<?>> roots) {
+		for (Entry<?> root : roots) {
+			Set<Entry<?>> entries = new HashSet<>();
+			entries.add(root);
+
+			EntryTreeNode<?> node = delta.getChanges().findNode(root);
+			if (node != null) {
+				entries.addAll(node.getChildrenRecursively());
+			}
+
+			for (Entry<?> entry : entries) {
+				generation.restore(entry, delta.getBaseMappings().get(entry));
+				changes.insert(entry, MappingDelta.PLACEHOLDER);
+			}
+		}
+	}
+
 	@Nullable
 	@Override
 	public T get(Entry<?> entry) {
@@ -94,13 +142,13 @@ public class DeltaTrackingTree<T> implements EntryTree<T> {
 	}
 
 	public MappingDelta<T> takeDelta() {
-		MappingDelta<T> delta = new MappingDelta<>(deltaReference, changes);
+		MappingDelta<T> delta = new MappingDelta<>(new SnapshotEntryTree<>(delegate, generation), changes);
 		resetDelta();
 		return delta;
 	}
 
 	private void resetDelta() {
-		deltaReference = new HashEntryTree<>(delegate);
+		generation = generation.advance();
 		changes = new HashEntryTree<>();
 	}
 
@@ -26,24 +26,24 @@ public class HashEntryTree<T> implements EntryTree<T> {
 
 	@Override
 	public void insert(Entry<?> entry, T value) {
-		List<HashTreeNode<T>> path = computePath(entry, true);
-		path.get(path.size() - 1).putValue(value);
 		if (value == null) {
-			removeDeadAlong(path);
+			remove(entry);
+			return;
 		}
+		computeNode(entry).putValue(value);
 	}
 
 	@Override
 	@Nullable
 	public T remove(Entry<?> entry) {
-		List<HashTreeNode<T>> path = computePath(entry, false);
-		if (path.isEmpty()) {
+		HashTreeNode<T> node = findNode(entry);
+		if (node == null) {
 			return null;
 		}
 
-		T value = path.get(path.size() - 1).removeValue();
+		T value = node.removeValue();
 
-		removeDeadAlong(path);
+		removeDeadAlong(entry, node);
 
 		return value;
 	}
@@ -90,64 +90,44 @@ public class HashEntryTree<T> implements EntryTree<T> {
 	@Override
 	@Nullable
 	public HashTreeNode<T> findNode(Entry<?> target) {
-		List<Entry<?>> parentChain = target.getAncestry();
-		if (parentChain.isEmpty()) {
-			return null;
+		Entry<?> parent = target.getParent();
+		if (parent == null) {
+			return root.get(target);
 		}
 
-		HashTreeNode<T> node = root.get(parentChain.get(0));
-		for (int i = 1; i < parentChain.size(); i++) {
-			if (node == null) {
-				return null;
-			}
-			node = node.getChild(parentChain.get(i));
+		HashTreeNode<T> parentNode = findNode(parent);
+		if (parentNode == null) {
+			return null;
 		}
 
-		return node;
+		return parentNode.getChild(target);
 	}
 
-	private List<HashTreeNode<T>> computePath(Entry<?> target, boolean make) {
-		List<Entry<?>> ancestry = target.getAncestry();
-		if (ancestry.isEmpty()) {
-			return Collections.emptyList();
-		}
-
-		List<HashTreeNode<T>> path = new ArrayList<>(ancestry.size());
-
-		Entry<?> rootEntry = ancestry.get(0);
-		HashTreeNode<T> node = make ? root.computeIfAbsent(rootEntry, HashTreeNode::new) : root.get(rootEntry);
-		if (node == null) {
-			return Collections.emptyList();
+	private HashTreeNode<T> computeNode(Entry<?> target) {
+		Entry<?> parent = target.getParent();
+		if (parent == null) {
+			return root.computeIfAbsent(target, HashTreeNode::new);
 		}
+		return computeNode(parent).computeChild(target);
+	}
 
-		path.add(node);
+	private void removeDeadAlong(Entry<?> entry, HashTreeNode<T> node) {
+		while (node.isEmpty()) {
+			Entry<?> parent = entry.getParent();
+			if (parent == null) {
+				root.remove(entry);
+				return;
+			}
 
-		for (int i = 1; i < ancestry.size(); i++) {
-			Entry<?> ancestor = ancestry.get(i);
-			node = make ? node.computeChild(ancestor) : node.getChild(ancestor);
-			if (node == null) {
-				return Collections.emptyList();
+			HashTreeNode<T> parentNode = findNode(parent);
+			if (parentNode == null) {
+				return;
 			}
 
-			path.add(node);
-		}
+			parentNode.remove(entry);
 
-		return path;
-	}
-
-	private void removeDeadAlong(List<HashTreeNode<T>> path) {
-		for (int i = path.size() - 1; i >= 0; i--) {
-			HashTreeNode<T> node = path.get(i);
-			if (node.isEmpty()) {
-				if (i > 0) {
-					HashTreeNode<T> parentNode = path.get(i - 1);
-					parentNode.remove(node.getEntry());
-				} else {
-					root.remove(node.getEntry());
-				}
-			} else {
-				break;
-			}
+			entry = parent;
+			node = parentNode;
 		}
 	}
 
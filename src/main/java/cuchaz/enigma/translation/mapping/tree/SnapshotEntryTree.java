@@ -0,0 +1,166 @@
+package cuchaz.enigma.translation.mapping.tree;
+
+import cuchaz.enigma.translation.Translator;
+import cuchaz.enigma.translation.mapping.EntryMap;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.EntryResolver;
+import cuchaz.enigma.translation.representation.entry.Entry;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * A read-only view of a tree as it was when the snapshot was taken. Values are shared with the live tree,
+ * and only entries changed since the snapshot have their original value kept aside in a {@link Generation}.
+ * <p>
+ * Point lookups are answered by the change logs first and then by the live tree. Structural queries
+ * materialize the snapshot into a {@link HashEntryTree} on first use.
+ */
+final class SnapshotEntryTree<T> implements EntryTree<T> {
+	private EntryTree<T> live;
+	private Generation<T> generation;
+
+	private HashEntryTree<T> materialized;
+
+	SnapshotEntryTree(EntryTree<T> live, Generation<T> generation) {
+		this.live = live;
+		this.generation = generation;
+	}
+
+	@Override
+	public void insert(Entry<?> entry, T value) {
+		throw new UnsupportedOperationException("Snapshots are read-only");
+	}
+
+	@Override
+	public T remove(Entry<?> entry) {
+		throw new UnsupportedOperationException("Snapshots are read-only");
+	}
+
+	@Nullable
+	@Override
+	public synchronized T get(Entry<?> entry) {
+		if (materialized != null) {
+			return materialized.get(entry);
+		}
+
+		for (Generation<T> generation = this.generation; generation != null; generation = generation.getNext()) {
+			if (generation.hasOriginal(entry)) {
+				return generation.getOriginal(entry);
+			}
+		}
+
+		return live.get(entry);
+	}
+
+	@Override
+	public Collection<Entry<?>> getChildren(Entry<?> entry) {
+		return materialize().getChildren(entry);
+	}
+
+	@Override
+	public Collection<Entry<?>> getSiblings(Entry<?> entry) {
+		return materialize().getSiblings(entry);
+	}
+
+	@Nullable
+	@Override
+	public EntryTreeNode<T> findNode(Entry<?> entry) {
+		return materialize().findNode(entry);
+	}
+
+	@Override
+	public Stream<EntryTreeNode<T>> getRootNodes() {
+		return materialize().getRootNodes();
+	}
+
+	@Override
+	public Stream<Entry<?>> getAllEntries() {
+		return materialize().getAllEntries();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return materialize().isEmpty();
+	}
+
+	@Override
+	public Iterator<EntryTreeNode<T>> iterator() {
+		return materialize().iterator();
+	}
+
+	@Override
+	public EntryTree<T> translate(Translator translator, EntryResolver resolver, EntryMap<EntryMapping> mappings) {
+		return materialize().translate(translator, resolver, mappings);
+	}
+
+	private synchronized HashEntryTree<T> materialize() {
+		if (materialized == null) {
+			Set<Entry<?>> changed = new HashSet<>();
+			for (Generation<T> generation = this.generation; generation != null; generation = generation.getNext()) {
+				changed.addAll(generation.getChanged());
+			}
+
+			HashEntryTree<T> tree = new HashEntryTree<>(live);
+			for (Entry<?> entry : changed) {
+				tree.insert(entry, get(entry));
+			}
+
+			// once materialized, we no longer need to follow the live tree or hold on to its later change logs
+			materialized = tree;
+			live = null;
+			generation = null;
+		}
+		return materialized;
+	}
+
+	/**
+	 * The original values of every entry changed between two snapshots of a {@link DeltaTrackingTree}.
+	 * Generations link forward, so a snapshot keeps later logs alive but the live tree never keeps older ones.
+	 * <p>
+	 * The live tree records into its current generation while snapshots read it, possibly from other threads, so
+	 * every access goes through the generation's own lock. Originals are never removed, so once an entry is found
+	 * it stays.
+	 */
+	static final class Generation<T> {
+		private final Map<Entry<?>, T> originals = new HashMap<>();
+		private Generation<T> next;
+
+		synchronized void record(Entry<?> entry, @Nullable T original) {
+			if (!originals.containsKey(entry)) {
+				originals.put(entry, original);
+			}
+		}
+
+		/**
+		 * Replaces the original of an entry by an older one, for changes that were taken but could not be saved.
+		 */
+		synchronized void restore(Entry<?> entry, @Nullable T original) {
+			originals.put(entry, original);
+		}
+
+		synchronized boolean hasOriginal(Entry<?> entry) {
+			return originals.containsKey(entry);
+		}
+
+		@Nullable
+		synchronized T getOriginal(Entry<?> entry) {
+			return originals.get(entry);
+		}
+
+		synchronized Set<Entry<?>> getChanged() {
+			return new HashSet<>(originals.keySet());
+		}
+
+		synchronized Generation<T> getNext() {
+			return next;
+		}
+
+		synchronized Generation<T> advance() {
+			Generation<T> next = new Generation<>();
+			this.next = next;
+			return next;
+		}
+	}
+}
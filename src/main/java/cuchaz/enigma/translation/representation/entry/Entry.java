@@ -16,7 +16,7 @@ import cuchaz.enigma.translation.Translatable;
 import cuchaz.enigma.translation.mapping.NameValidator;
 
 import javax.annotation.Nullable;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public interface Entry<P extends Entry<?>> extends Translatable {
@@ -51,22 +51,42 @@ public interface Entry<P extends Entry<?>> extends Translatable {
 		return parent.getContainingClass();
 	}
 
+	/**
+	 * @return the number of ancestors above this entry, {@code 0} for a root entry
+	 */
+	default int getDepth() {
+		int depth = 0;
+		for (Entry<?> ancestor = getParent(); ancestor != null; ancestor = ancestor.getParent()) {
+			depth++;
+		}
+		return depth;
+	}
+
+	/**
+	 * @return the top-most ancestor of this entry, or this entry if it has no parent
+	 */
+	default Entry<?> getRoot() {
+		Entry<?> root = this;
+		for (Entry<?> ancestor = getParent(); ancestor != null; ancestor = ancestor.getParent()) {
+			root = ancestor;
+		}
+		return root;
+	}
+
 	default List<Entry<?>> getAncestry() {
-		P parent = getParent();
-		List<Entry<?>> entries = new ArrayList<>();
-		if (parent != null) {
-			entries.addAll(parent.getAncestry());
+		Entry<?>[] ancestry = new Entry<?>[getDepth() + 1];
+		Entry<?> ancestor = this;
+		for (int i = ancestry.length - 1; i >= 0; i--) {
+			ancestry[i] = ancestor;
+			ancestor = ancestor.getParent();
 		}
-		entries.add(this);
-		return entries;
+		return Arrays.asList(ancestry);
 	}
 
 	@Nullable
 	@SuppressWarnings("unchecked")
 	default <E extends Entry<?>> E findAncestor(Class<E> type) {
-		List<Entry<?>> ancestry = getAncestry();
-		for (int i = ancestry.size() - 1; i >= 0; i--) {
-			Entry<?> ancestor = ancestry.get(i);
+		for (Entry<?> ancestor = this; ancestor != null; ancestor = ancestor.getParent()) {
 			if (type.isAssignableFrom(ancestor.getClass())) {
 				return (E) ancestor;
 			}
@@ -26,11 +26,17 @@ public abstract class ParentedEntry<P extends Entry<?>> implements Entry<P> {
 	protected final String name;
 	protected final @Nullable String javadocs;
 
+	private final int depth;
+	private final Entry<?> root;
+
 	protected ParentedEntry(P parent, String name, String javadocs) {
 		this.parent = parent;
 		this.name = name;
 		this.javadocs = javadocs;
 
+		this.depth = parent != null ? parent.getDepth() + 1 : 0;
+		this.root = parent != null ? parent.getRoot() : this;
+
 		Preconditions.checkNotNull(name, "Name cannot be null");
 	}
 
@@ -53,6 +59,16 @@ public abstract class ParentedEntry<P extends Entry<?>> implements Entry<P> {
 		return parent;
 	}
 
+	@Override
+	public int getDepth() {
+		return depth;
+	}
+
+	@Override
+	public Entry<?> getRoot() {
+		return root;
+	}
+
 	@Nullable
 	@Override
 	public String getJavadocs() {
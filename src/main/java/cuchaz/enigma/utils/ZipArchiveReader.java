@@ -0,0 +1,178 @@
+package cuchaz.enigma.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Reads entries of a zip archive as they are stored, without decompressing them, so that they can be handed to a
+ * {@link ZipArchiveWriter} unchanged.
+ */
+public final class ZipArchiveReader {
+	private static final int END_SIZE = 22;
+	private static final int LOCATOR_SIZE = 20;
+	private static final int LOCAL_HEADER_SIZE = 30;
+	private static final int MAX_COMMENT = 0xFFFF;
+
+	private static final int ENCRYPTED = 0x0001;
+
+	private ZipArchiveReader() {
+	}
+
+	/**
+	 * Reads the stored or deflated files of the archive whose names match the filter, keyed by name. Directories and
+	 * encrypted entries are left out.
+	 */
+	public static Map<String, ZipArchiveWriter.Entry> readEntries(Path path, Predicate<String> filter) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			Directory directory = findDirectory(channel);
+			ByteBuffer central = read(channel, directory.offset, directory.size);
+
+			Map<String, ZipArchiveWriter.Entry> entries = new LinkedHashMap<>();
+			for (long i = 0; i < directory.count; i++) {
+				if (central.getInt() != ZipArchiveWriter.CENTRAL_HEADER) {
+					throw new ZipException("Invalid central directory header in " + path);
+				}
+
+				skip(central, 4);
+				int flags = unsignedShort(central);
+				int method = unsignedShort(central);
+				skip(central, 4);
+				long crc = unsignedInt(central);
+				long compressedSize = unsignedInt(central);
+				long size = unsignedInt(central);
+				int nameLength = unsignedShort(central);
+				int extraLength = unsignedShort(central);
+				int commentLength = unsignedShort(central);
+				skip(central, 8);
+				long offset = unsignedInt(central);
+
+				byte[] nameBytes = new byte[nameLength];
+				central.get(nameBytes);
+				String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+				int extraEnd = central.position() + extraLength;
+				while (central.position() + 4 <= extraEnd) {
+					int id = unsignedShort(central);
+					int length = unsignedShort(central);
+					int next = central.position() + length;
+					if (id == 0x0001) {
+						// zip64 values appear only for the fields that overflowed, in this order
+						if (size == ZipArchiveWriter.MAX_32) {
+							size = central.getLong();
+						}
+						if (compressedSize == ZipArchiveWriter.MAX_32) {
+							compressedSize = central.getLong();
+						}
+						if (offset == ZipArchiveWriter.MAX_32) {
+							offset = central.getLong();
+						}
+					}
+					central.position(next);
+				}
+				central.position(extraEnd + commentLength);
+
+				boolean supported = (method == ZipEntry.STORED || method == ZipEntry.DEFLATED) && (flags & ENCRYPTED) == 0;
+				if (!supported || name.endsWith("/") || !filter.test(name)) {
+					continue;
+				}
+
+				if (compressedSize >= Integer.MAX_VALUE) {
+					throw new ZipException("Zip entry too large: " + name);
+				}
+
+				ByteBuffer local = read(channel, offset, LOCAL_HEADER_SIZE);
+				if (local.getInt(0) != ZipArchiveWriter.LOCAL_HEADER) {
+					throw new ZipException("Invalid local header for " + name + " in " + path);
+				}
+				long dataOffset = offset + LOCAL_HEADER_SIZE + (local.getShort(26) & 0xFFFF) + (local.getShort(28) & 0xFFFF);
+
+				byte[] data = read(channel, dataOffset, compressedSize).array();
+				entries.put(name, new ZipArchiveWriter.Entry(name, method, crc, size, data));
+			}
+
+			return entries;
+		}
+	}
+
+	private static Directory findDirectory(FileChannel channel) throws IOException {
+		long fileSize = channel.size();
+		long tailStart = Math.max(0, fileSize - END_SIZE - MAX_COMMENT);
+		ByteBuffer tail = read(channel, tailStart, fileSize - tailStart);
+
+		for (int position = tail.limit() - END_SIZE; position >= 0; position--) {
+			if (tail.getInt(position) != ZipArchiveWriter.END) {
+				continue;
+			}
+
+			long count = tail.getShort(position + 10) & 0xFFFF;
+			long size = tail.getInt(position + 12) & ZipArchiveWriter.MAX_32;
+			long offset = tail.getInt(position + 16) & ZipArchiveWriter.MAX_32;
+
+			long endOffset = tailStart + position;
+			boolean zip64 = count == ZipArchiveWriter.MAX_16 || size == ZipArchiveWriter.MAX_32 || offset == ZipArchiveWriter.MAX_32;
+			if (zip64 && endOffset >= LOCATOR_SIZE) {
+				ByteBuffer locator = read(channel, endOffset - LOCATOR_SIZE, LOCATOR_SIZE);
+				if (locator.getInt(0) == ZipArchiveWriter.ZIP64_LOCATOR) {
+					ByteBuffer end = read(channel, locator.getLong(8), 56);
+					if (end.getInt(0) != ZipArchiveWriter.ZIP64_END) {
+						throw new ZipException("Invalid zip64 end of central directory");
+					}
+					return new Directory(end.getLong(32), end.getLong(40), end.getLong(48));
+				}
+			}
+
+			return new Directory(count, size, offset);
+		}
+
+		throw new ZipException("Zip end of central directory not found");
+	}
+
+	private static ByteBuffer read(FileChannel channel, long position, long length) throws IOException {
+		if (length > Integer.MAX_VALUE) {
+			throw new ZipException("Zip record too large");
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate((int) length).order(ByteOrder.LITTLE_ENDIAN);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new ZipException("Unexpected end of zip archive");
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	private static void skip(ByteBuffer buffer, int count) {
+		buffer.position(buffer.position() + count);
+	}
+
+	private static int unsignedShort(ByteBuffer buffer) {
+		return buffer.getShort() & 0xFFFF;
+	}
+
+	private static long unsignedInt(ByteBuffer buffer) {
+		return buffer.getInt() & ZipArchiveWriter.MAX_32;
+	}
+
+	private static final class Directory {
+		final long count;
+		final long size;
+		final long offset;
+
+		Directory(long count, long size, long offset) {
+			this.count = count;
+			this.size = size;
+			this.offset = offset;
+		}
+	}
+}
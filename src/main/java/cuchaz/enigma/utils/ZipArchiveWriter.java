@@ -0,0 +1,242 @@
+package cuchaz.enigma.utils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * Writes a zip archive from entries that were already compressed, so that compression can happen on many threads
+ * while the archive itself is written in a fixed order.
+ * <p>
+ * Every entry gets the same timestamp, so the same entries in the same order always give the same bytes. ZIP64
+ * records are added when the archive has too many entries or grows too large for the plain format.
+ */
+public final class ZipArchiveWriter implements Closeable {
+	static final int LOCAL_HEADER = 0x04034b50;
+	static final int CENTRAL_HEADER = 0x02014b50;
+	static final int ZIP64_END = 0x06064b50;
+	static final int ZIP64_LOCATOR = 0x07064b50;
+	static final int END = 0x06054b50;
+
+	private static final int VERSION = 20;
+	private static final int VERSION_ZIP64 = 45;
+	private static final int UTF8_NAMES = 0x0800;
+
+	// 1980-01-01 00:00, the earliest date a zip entry can have
+	private static final int DOS_TIME = 0;
+	private static final int DOS_DATE = (1 << 5) | 1;
+
+	static final long MAX_32 = 0xFFFFFFFFL;
+	static final int MAX_16 = 0xFFFF;
+
+	private final CountingOutputStream out;
+	private final List<Written> written = new ArrayList<>();
+
+	public ZipArchiveWriter(OutputStream out) {
+		this.out = new CountingOutputStream(new BufferedOutputStream(out));
+	}
+
+	/**
+	 * Compresses an entry. Safe to call from any thread.
+	 */
+	public static Entry deflate(String name, byte[] data) {
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		try {
+			deflater.setInput(data);
+			deflater.finish();
+
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+			byte[] buffer = new byte[8192];
+			while (!deflater.finished()) {
+				int length = deflater.deflate(buffer);
+				compressed.write(buffer, 0, length);
+			}
+
+			return new Entry(name, ZipEntry.DEFLATED, crc(data), data.length, compressed.toByteArray());
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Creates an entry that is stored without compression.
+	 */
+	public static Entry store(String name, byte[] data) {
+		return new Entry(name, ZipEntry.STORED, crc(data), data.length, data);
+	}
+
+	private static long crc(byte[] data) {
+		CRC32 crc = new CRC32();
+		crc.update(data);
+		return crc.getValue();
+	}
+
+	public void write(Entry entry) throws IOException {
+		if (entry.size >= MAX_32 || entry.data.length >= MAX_32) {
+			throw new IOException("Zip entry too large: " + entry.name);
+		}
+
+		long offset = out.count;
+		byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+
+		writeInt(LOCAL_HEADER);
+		writeShort(VERSION);
+		writeShort(UTF8_NAMES);
+		writeShort(entry.method);
+		writeShort(DOS_TIME);
+		writeShort(DOS_DATE);
+		writeInt(entry.crc);
+		writeInt(entry.data.length);
+		writeInt(entry.size);
+		writeShort(name.length);
+		writeShort(0);
+		out.write(name);
+		out.write(entry.data);
+
+		written.add(new Written(entry, name, offset));
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			long directoryOffset = out.count;
+			for (Written entry : written) {
+				writeCentralHeader(entry);
+			}
+			long directorySize = out.count - directoryOffset;
+
+			boolean zip64 = written.size() >= MAX_16 || directoryOffset >= MAX_32 || directorySize >= MAX_32;
+			if (zip64) {
+				long zip64EndOffset = out.count;
+
+				writeInt(ZIP64_END);
+				writeLong(44);
+				writeShort(VERSION_ZIP64);
+				writeShort(VERSION_ZIP64);
+				writeInt(0);
+				writeInt(0);
+				writeLong(written.size());
+				writeLong(written.size());
+				writeLong(directorySize);
+				writeLong(directoryOffset);
+
+				writeInt(ZIP64_LOCATOR);
+				writeInt(0);
+				writeLong(zip64EndOffset);
+				writeInt(1);
+			}
+
+			writeInt(END);
+			writeShort(0);
+			writeShort(0);
+			writeShort(Math.min(written.size(), MAX_16));
+			writeShort(Math.min(written.size(), MAX_16));
+			writeInt(Math.min(directorySize, MAX_32));
+			writeInt(Math.min(directoryOffset, MAX_32));
+			writeShort(0);
+		} finally {
+			out.close();
+		}
+	}
+
+	private void writeCentralHeader(Written written) throws IOException {
+		Entry entry = written.entry;
+		boolean zip64 = written.offset >= MAX_32;
+
+		writeInt(CENTRAL_HEADER);
+		writeShort(zip64 ? VERSION_ZIP64 : VERSION);
+		writeShort(zip64 ? VERSION_ZIP64 : VERSION);
+		writeShort(UTF8_NAMES);
+		writeShort(entry.method);
+		writeShort(DOS_TIME);
+		writeShort(DOS_DATE);
+		writeInt(entry.crc);
+		writeInt(entry.data.length);
+		writeInt(entry.size);
+		writeShort(written.name.length);
+		writeShort(zip64 ? 12 : 0);
+		writeShort(0);
+		writeShort(0);
+		writeShort(0);
+		writeInt(0);
+		writeInt(zip64 ? MAX_32 : written.offset);
+		out.write(written.name);
+
+		if (zip64) {
+			writeShort(0x0001);
+			writeShort(8);
+			writeLong(written.offset);
+		}
+	}
+
+	private void writeShort(int value) throws IOException {
+		out.write(value & 0xFF);
+		out.write((value >>> 8) & 0xFF);
+	}
+
+	private void writeInt(long value) throws IOException {
+		writeShort((int) (value & 0xFFFF));
+		writeShort((int) ((value >>> 16) & 0xFFFF));
+	}
+
+	private void writeLong(long value) throws IOException {
+		writeInt(value & MAX_32);
+		writeInt(value >>> 32);
+	}
+
+	public static final class Entry {
+		private final String name;
+		private final int method;
+		private final long crc;
+		private final long size;
+		private final byte[] data;
+
+		Entry(String name, int method, long crc, long size, byte[] data) {
+			this.name = name;
+			this.method = method;
+			this.crc = crc;
+			this.size = size;
+			this.data = data;
+		}
+
+		public String getName() {
+			return name;
+		}
+	}
+
+	private static final class Written {
+		final Entry entry;
+		final byte[] name;
+		final long offset;
+
+		Written(Entry entry, byte[] name, long offset) {
+			this.entry = entry;
+			this.name = name;
+			this.offset = offset;
+		}
+	}
+
+	private static final class CountingOutputStream extends FilterOutputStream {
+		long count;
+
+		CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+}
@@ -23,6 +23,7 @@ import static cuchaz.enigma.TestEntryFactory.newClass;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
 
 public class PackageVisibilityIndexTest {
 
@@ -50,4 +51,13 @@ public class PackageVisibilityIndexTest {
 				contains(KEEP)
 		));
 	}
+
+	@Test
+	public void samePartition() {
+		PackageVisibilityIndex visibilityIndex = jarIndex.getPackageVisibilityIndex();
+		assertThat(visibilityIndex.isSamePartition(BASE, SAME_PACKAGE_CHILD_INNER), is(true));
+		assertThat(visibilityIndex.isSamePartition(OTHER_PACKAGE_CHILD_INNER, OTHER_PACKAGE_CHILD), is(true));
+		assertThat(visibilityIndex.isSamePartition(BASE, OTHER_PACKAGE_CHILD), is(false));
+		assertThat(visibilityIndex.isSamePartition(BASE, newClass("x")), is(false));
+	}
 }
@@ -0,0 +1,156 @@
+package cuchaz.enigma;
+
+import cuchaz.enigma.analysis.ClassCache;
+import cuchaz.enigma.analysis.ClassCacheSettings;
+import org.junit.Test;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+
+public class TestClassCache {
+	private static final Path JAR = Paths.get("build/test-obf/inheritanceTree.jar");
+
+	private static byte[] write(ClassNode node) {
+		ClassWriter writer = new ClassWriter(0);
+		node.accept(writer);
+		return writer.toByteArray();
+	}
+
+	@Test
+	public void classBytesModesAgree() throws IOException {
+		try (ClassCache memory = ClassCache.of(JAR, new ClassCacheSettings(16, ClassCacheSettings.ClassBytes.MEMORY));
+			 ClassCache jar = ClassCache.of(JAR, new ClassCacheSettings(16, ClassCacheSettings.ClassBytes.JAR))) {
+			for (String name : Arrays.asList("a", "b", "c", "d")) {
+				assertThat(write(memory.getClassNode(name)), is(write(jar.getClassNode(name))));
+			}
+			assertThat(memory.getClassNode("missing"), is(nullValue()));
+		}
+	}
+
+	@Test
+	public void recordsHitsAndMisses() throws IOException {
+		try (ClassCache classCache = ClassCache.of(JAR, new ClassCacheSettings(16, ClassCacheSettings.ClassBytes.MEMORY))) {
+			ClassNode node = classCache.getClassNode("a");
+			assertThat(classCache.getClassNode("a"), is(sameInstance(node)));
+			classCache.getClassNode("b");
+
+			assertThat(classCache.getNodeCacheStats().hitCount(), is(1L));
+			assertThat(classCache.getNodeCacheStats().missCount(), is(2L));
+		}
+	}
+
+	@Test
+	public void emptyNodeCacheKeepsNothing() throws IOException {
+		try (ClassCache classCache = ClassCache.of(JAR, new ClassCacheSettings(0, ClassCacheSettings.ClassBytes.JAR))) {
+			ClassNode node = classCache.getClassNode("a");
+			assertThat(classCache.getClassNode("a"), is(not(sameInstance(node))));
+			assertThat(classCache.getNodeCacheStats().evictionCount(), is(greaterThan(0L)));
+		}
+	}
+
+	@Test
+	public void visitParallelMergesInVisitOrder() throws IOException {
+		try (ClassCache classCache = ClassCache.of(JAR)) {
+			List<String> visited = new ArrayList<>();
+			classCache.visit(() -> new NameVisitor(visited::add), 0);
+
+			List<String> merged = new ArrayList<>();
+			classCache.visitParallel(() -> new NameVisitor(name -> {
+			}), 0, visitor -> merged.add(visitor.name));
+
+			assertThat(merged, is(visited));
+			assertThat(merged, hasItems("a", "b", "c", "d"));
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void visitParallelRethrowsVisitorFailures() throws IOException {
+		try (ClassCache classCache = ClassCache.of(JAR)) {
+			classCache.visitParallel(() -> new NameVisitor(name -> {
+				throw new IllegalStateException(name);
+			}), 0, visitor -> {
+			});
+		}
+	}
+
+	@Test
+	public void visitParallelRethrowsLaterFailures() throws IOException {
+		try (ClassCache classCache = ClassCache.of(JAR)) {
+			List<String> visited = new ArrayList<>();
+			classCache.visit(() -> new NameVisitor(visited::add), 0);
+			String last = visited.get(visited.size() - 1);
+
+			List<String> merged = new ArrayList<>();
+			try {
+				classCache.visitParallel(() -> new NameVisitor(name -> {
+					if (name.equals(last)) {
+						throw new IllegalStateException(name);
+					}
+				}), 0, visitor -> merged.add(visitor.name));
+				fail("Expected the failure of " + last);
+			} catch (IllegalStateException e) {
+				assertThat(e.getMessage(), is(last));
+			}
+
+			assertThat(merged, is(visited.subList(0, visited.size() - 1)));
+		}
+	}
+
+	@Test
+	public void visitParallelUsesBoundedThreads() throws IOException {
+		try (ClassCache classCache = ClassCache.of(JAR)) {
+			Set<Thread> threads = ConcurrentHashMap.newKeySet();
+			classCache.visitParallel(() -> new NameVisitor(name -> threads.add(Thread.currentThread())), 0, visitor -> {
+			});
+
+			int parallelism = ForkJoinPool.getCommonPoolParallelism();
+			if (parallelism <= 1) {
+				assertThat(threads, contains(Thread.currentThread()));
+			} else {
+				assertThat(threads.size(), is(lessThanOrEqualTo(parallelism)));
+			}
+		}
+	}
+
+	@Test
+	public void settingsFromProfile() {
+		EnigmaProfile profile = EnigmaProfile.parse(new StringReader("{\"class_cache\": {\"node_cache_mb\": 32, \"class_bytes\": \"jar\"}}"));
+		assertThat(profile.getClassCacheSettings().getNodeCacheBytes(), is(32L * 1024 * 1024));
+		assertThat(profile.getClassCacheSettings().getClassBytes(), is(ClassCacheSettings.ClassBytes.JAR));
+
+		assertThat(EnigmaProfile.parse(new StringReader("{}")).getClassCacheSettings(), is(ClassCacheSettings.DEFAULT));
+	}
+
+	private static final class NameVisitor extends ClassVisitor {
+		private final Consumer<String> listener;
+		private String name;
+
+		NameVisitor(Consumer<String> listener) {
+			super(Opcodes.ASM5);
+			this.listener = listener;
+		}
+
+		@Override
+		public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+			this.name = name;
+			listener.accept(name);
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package cuchaz.enigma;
+
+import cuchaz.enigma.translation.Translator;
+import cuchaz.enigma.translation.mapping.EntryMap;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.EntryResolver;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.Entry;
+import cuchaz.enigma.translation.representation.entry.LocalVariableEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Objects;
+
+import static cuchaz.enigma.TestEntryFactory.newClass;
+import static cuchaz.enigma.TestEntryFactory.newMethod;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TestEntryAncestry {
+	private static final int NESTING = 100;
+
+	private static ClassEntry nestedClass(String outer) {
+		StringBuilder name = new StringBuilder(outer);
+		for (int i = 0; i < NESTING; i++) {
+			name.append("$i").append(i);
+		}
+		return newClass(name.toString());
+	}
+
+	@Test
+	public void deepNesting() {
+		ClassEntry inner = nestedClass("a");
+		MethodEntry method = newMethod(inner, "m", "()V");
+		LocalVariableEntry local = new LocalVariableEntry(method, 1, "v", true, null);
+
+		assertThat(inner.getDepth(), is(NESTING));
+		assertThat(local.getDepth(), is(NESTING + 2));
+		assertThat(local.getRoot(), is(newClass("a")));
+		assertThat(local.findAncestor(ClassEntry.class), is(inner));
+
+		List<Entry<?>> ancestry = local.getAncestry();
+		assertThat(ancestry, hasSize(NESTING + 3));
+		assertThat(ancestry.get(0), is(newClass("a")));
+		assertThat(ancestry.get(NESTING + 1), is(method));
+		assertThat(ancestry.get(NESTING + 2), is(local));
+		for (int depth = 0; depth < ancestry.size(); depth++) {
+			assertThat(ancestry.get(depth).getDepth(), is(depth));
+		}
+	}
+
+	@Test
+	public void cachedAncestryFollowsNewParents() {
+		ClassEntry inner = newClass("a$b$c");
+		ClassEntry moved = inner.withParent(newClass("x"));
+
+		assertThat(moved.getRoot(), is(newClass("x")));
+		assertThat(moved.getDepth(), is(1));
+		assertThat(inner.withName("d").getRoot(), is(newClass("a")));
+	}
+
+	@Test
+	public void equalRegardlessOfConstruction() {
+		ClassEntry parsed = newClass("a$b$c");
+		ClassEntry built = new ClassEntry(new ClassEntry(newClass("a"), "b"), "c");
+		ClassEntry reparented = newClass("z$c").withParent(newClass("a$b"));
+
+		assertThat(built, is(parsed));
+		assertThat(reparented, is(parsed));
+		assertThat(built.hashCode(), is(parsed.hashCode()));
+		assertThat(reparented.hashCode(), is(parsed.hashCode()));
+	}
+
+	@Test
+	public void uncachedEntriesWalkTheirParents() {
+		MethodEntry method = newMethod(newClass("a$b"), "m", "()V");
+		PlainEntry plain = new PlainEntry(method, "p");
+
+		assertThat(plain.getDepth(), is(method.getDepth() + 1));
+		assertThat(plain.getRoot(), is(method.getRoot()));
+		assertThat(new PlainEntry(newMethod(newClass("a$b"), "m", "()V"), "p"), is(plain));
+		assertThat(new PlainEntry(newMethod(newClass("a$b"), "m", "()V"), "p").hashCode(), is(plain.hashCode()));
+	}
+
+	@Test
+	public void treeFindsEqualEntries() {
+		HashEntryTree<String> tree = new HashEntryTree<>();
+		ClassEntry inner = nestedClass("a");
+		MethodEntry method = newMethod(inner, "m", "()V");
+		tree.insert(method, "method");
+		tree.insert(new PlainEntry(method, "p"), "plain");
+
+		MethodEntry equalMethod = newMethod(nestedClass("a"), "m", "()V");
+		assertThat(tree.get(equalMethod), is("method"));
+		assertThat(tree.get(new PlainEntry(equalMethod, "p")), is("plain"));
+		assertThat(tree.get(inner), nullValue());
+		assertThat(tree.findNode(inner.getParent()), notNullValue());
+		assertThat(tree.getRootNodes().map(node -> node.getEntry()).toArray(), arrayContaining(newClass("a")));
+
+		tree.remove(new PlainEntry(equalMethod, "p"));
+		tree.remove(equalMethod);
+		assertThat(tree.isEmpty(), is(true));
+	}
+
+	/**
+	 * An entry that does not extend ParentedEntry, and so relies on the walks of Entry rather than cached values.
+	 */
+	private static final class PlainEntry implements Entry<MethodEntry> {
+		private final MethodEntry parent;
+		private final String name;
+
+		PlainEntry(MethodEntry parent, String name) {
+			this.parent = parent;
+			this.name = name;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public String getJavadocs() {
+			return null;
+		}
+
+		@Override
+		public MethodEntry getParent() {
+			return parent;
+		}
+
+		@Override
+		public Class<MethodEntry> getParentType() {
+			return MethodEntry.class;
+		}
+
+		@Override
+		public PlainEntry withName(String name) {
+			return new PlainEntry(parent, name);
+		}
+
+		@Override
+		public PlainEntry withParent(MethodEntry parent) {
+			return new PlainEntry(parent, name);
+		}
+
+		@Override
+		public boolean canConflictWith(Entry<?> entry) {
+			return false;
+		}
+
+		@Override
+		public PlainEntry translate(Translator translator, EntryResolver resolver, EntryMap<EntryMapping> mappings) {
+			return this;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof PlainEntry && parent.equals(((PlainEntry) other).parent) && name.equals(((PlainEntry) other).name);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(parent, name);
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package cuchaz.enigma;
+
+import com.google.common.io.ByteStreams;
+import cuchaz.enigma.analysis.BuiltinPlugin;
+import cuchaz.enigma.api.service.NameProposalService;
+import cuchaz.enigma.translation.representation.TypeDescriptor;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.utils.ZipArchiveWriter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TestEnumNameProposals {
+	private static final ClassEntry COLOR = new ClassEntry(Color.class.getName().replace('.', '/'));
+	private static final ClassEntry CONSTANTS = new ClassEntry(Constants.class.getName().replace('.', '/'));
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	enum Color {
+		RED, GREEN, BLUE
+	}
+
+	static final class Constants {
+		static final String RED = String.valueOf("red");
+	}
+
+	private Path jarOf(Class<?>... classes) throws IOException {
+		Path jar = folder.getRoot().toPath().resolve("enums.jar");
+		try (ZipArchiveWriter writer = new ZipArchiveWriter(Files.newOutputStream(jar))) {
+			for (Class<?> clazz : classes) {
+				String name = clazz.getName().replace('.', '/') + ".class";
+				try (InputStream in = clazz.getClassLoader().getResourceAsStream(name)) {
+					writer.write(ZipArchiveWriter.deflate(name, ByteStreams.toByteArray(in)));
+				}
+			}
+		}
+		return jar;
+	}
+
+	private static Optional<String> propose(EnigmaProject project, ClassEntry owner, String name) {
+		NameProposalService proposer = project.getEnigma().getServices().get(NameProposalService.TYPE).get(0);
+		return proposer.proposeName(new FieldEntry(owner, name, new TypeDescriptor("L" + owner.getFullName() + ";")), null);
+	}
+
+	@Test
+	public void proposesEnumConstantNames() throws IOException {
+		EnigmaProfile profile = EnigmaProfile.parse(new StringReader("{\"services\": {"
+				+ "\"jar_indexer\": {\"id\": \"enigma:enum_initializer_indexer\"},"
+				+ "\"name_proposal\": {\"id\": \"enigma:enum_name_proposer\"}}}"));
+		Enigma enigma = Enigma.builder().setProfile(profile).setPlugins(Collections.singletonList(new BuiltinPlugin())).build();
+		EnigmaProject project = enigma.openJar(jarOf(Color.class, Constants.class), ProgressListener.none());
+
+		assertThat(propose(project, COLOR, "RED"), is(Optional.of("RED")));
+		assertThat(propose(project, COLOR, "BLUE"), is(Optional.of("BLUE")));
+		assertThat(propose(project, COLOR, "$VALUES"), is(Optional.empty()));
+		assertThat(propose(project, CONSTANTS, "RED"), is(Optional.empty()));
+	}
+}
@@ -0,0 +1,155 @@
+package cuchaz.enigma;
+
+import com.strobel.assembler.metadata.Buffer;
+import com.strobel.assembler.metadata.ITypeLoader;
+import com.strobel.decompiler.languages.java.ast.CompilationUnit;
+import org.junit.Test;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TestGuardedDecompiler {
+	private static final ITypeLoader NO_TYPES = (String internalName, Buffer buffer) -> false;
+
+	private static ClassNode node(String name) {
+		ClassNode node = new ClassNode();
+		node.name = name;
+		node.access = Opcodes.ACC_PUBLIC;
+		return node;
+	}
+
+	@Test
+	public void decompiles() {
+		try (GuardedDecompiler decompiler = new GuardedDecompiler(() -> new FakeProvider(null), new DecompileBudget(10_000, 0))) {
+			GuardedDecompiler.Result result = decompiler.decompile(node("a/Foo"));
+
+			assertThat(result.source, is("FULL a/Foo"));
+			assertThat(result.retryReason, nullValue());
+			assertThat(result.failed, is(false));
+		}
+	}
+
+	@Test
+	public void retriesClassesOverTheTimeout() {
+		try (GuardedDecompiler decompiler = new GuardedDecompiler(() -> new FakeProvider(SourceProvider.Detail.FULL), new DecompileBudget(200, 0))) {
+			GuardedDecompiler.Result result = decompiler.decompile(node("a/Foo"));
+
+			assertThat(result.source, is("REDUCED a/Foo"));
+			assertThat(result.retryReason, containsString("timed out"));
+			assertThat(result.failed, is(false));
+		}
+	}
+
+	@Test
+	public void stubsClassesThatAlwaysFail() {
+		try (GuardedDecompiler decompiler = new GuardedDecompiler(() -> new FakeProvider(SourceProvider.Detail.SIGNATURES), new DecompileBudget(10_000, 0))) {
+			GuardedDecompiler.Result result = decompiler.decompile(node("a/b/Foo"));
+
+			assertThat(result.failed, is(true));
+			assertThat(result.retryReason, containsString("IllegalStateException"));
+			assertThat(result.source, containsString("package a.b;"));
+			assertThat(result.source, containsString("public class Foo {"));
+		}
+	}
+
+	@Test
+	public void decompilesOnCallingThreadWithoutBudget() {
+		List<Thread> threads = new ArrayList<>();
+		try (GuardedDecompiler decompiler = new GuardedDecompiler(() -> new FakeProvider(null) {
+			@Override
+			public CompilationUnit getSources(String name, Detail detail) {
+				threads.add(Thread.currentThread());
+				return super.getSources(name, detail);
+			}
+		}, DecompileBudget.UNLIMITED)) {
+			GuardedDecompiler.Result result = decompiler.decompile(node("a/Foo"));
+
+			assertThat(result.source, is("FULL a/Foo"));
+			assertThat(threads, contains(Thread.currentThread()));
+		}
+	}
+
+	@Test
+	public void isolatesErrorsWithoutBudget() {
+		try (GuardedDecompiler decompiler = new GuardedDecompiler(() -> new FakeProvider(null) {
+			@Override
+			public CompilationUnit getSources(String name, Detail detail) {
+				if (detail == Detail.FULL) {
+					throw new AssertionError("bad method");
+				}
+				return super.getSources(name, detail);
+			}
+		}, DecompileBudget.UNLIMITED)) {
+			GuardedDecompiler.Result result = decompiler.decompile(node("a/Foo"));
+
+			assertThat(result.source, is("REDUCED a/Foo"));
+			assertThat(result.retryReason, containsString("AssertionError"));
+		}
+	}
+
+	@Test
+	public void abandonsSourceProviderOfTimedOutClasses() {
+		AtomicInteger providers = new AtomicInteger();
+		try (GuardedDecompiler decompiler = new GuardedDecompiler(() -> {
+			providers.incrementAndGet();
+			return new FakeProvider(SourceProvider.Detail.FULL);
+		}, new DecompileBudget(200, 0))) {
+			assertThat(providers.get(), is(1));
+			decompiler.decompile(node("a/Foo"));
+
+			// one to replace the abandoned shared provider, one for the reduced retry
+			assertThat(providers.get(), is(3));
+		}
+	}
+
+	@Test
+	public void timesOutAfterTwoMinutesByDefault() {
+		DecompileBudget budget = DecompileBudget.fromSystemProperties();
+		assertThat(budget.getTimeoutMillis(), is(TimeUnit.SECONDS.toMillis(120)));
+		assertThat(budget.getMaxAllocatedBytes(), is(0L));
+	}
+
+	/**
+	 * Spins until interrupted at FULL detail, or throws at every detail down to {@code failUpTo}.
+	 */
+	private static class FakeProvider extends SourceProvider {
+		private final SourceProvider.Detail failUpTo;
+		private String result;
+
+		FakeProvider(SourceProvider.Detail failUpTo) {
+			super(SourceProvider.createSettings(), NO_TYPES);
+			this.failUpTo = failUpTo;
+		}
+
+		@Override
+		public CompilationUnit getSources(String name, Detail detail) {
+			if (failUpTo == Detail.FULL) {
+				if (detail == Detail.FULL) {
+					// like the type loader of real source providers, stops once interrupted
+					while (!Thread.currentThread().isInterrupted()) {
+						Thread.yield();
+					}
+					throw new CancellationException();
+				}
+			} else if (failUpTo != null && detail.compareTo(failUpTo) <= 0) {
+				throw new IllegalStateException("cannot decompile " + name);
+			}
+
+			result = detail + " " + name;
+			return new CompilationUnit();
+		}
+
+		@Override
+		public String writeSourceToString(CompilationUnit sourceTree) {
+			return result;
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package cuchaz.enigma;
+
+import cuchaz.enigma.analysis.HierarchySnapshot;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Paths;
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TestHierarchySnapshot {
+
+	@Test
+	public void runtime() throws Exception {
+		HierarchySnapshot snapshot = HierarchySnapshot.ofRuntime();
+
+		HierarchySnapshot.ClassInfo arrayList = snapshot.get("java/util/ArrayList");
+		assertThat(arrayList, is(notNullValue()));
+		assertThat(arrayList.isInterface(), is(false));
+		assertThat(arrayList.getSuperName(), is("java/util/AbstractList"));
+		assertThat(arrayList.getInterfaces(), hasItem("java/util/List"));
+
+		assertThat(snapshot.get("java/util/List").isInterface(), is(true));
+		assertThat(snapshot.get("java/lang/Object").getSuperName(), is(nullValue()));
+		assertThat(snapshot.contains("cuchaz/enigma/Enigma"), is(false));
+	}
+
+	@Test
+	public void roundTrip() throws Exception {
+		HierarchySnapshot snapshot = HierarchySnapshot.ofRuntime();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		snapshot.write(out);
+		HierarchySnapshot read = HierarchySnapshot.read(new ByteArrayInputStream(out.toByteArray()));
+
+		assertThat(read, is(notNullValue()));
+		assertThat(read.size(), is(snapshot.size()));
+		assertThat(read.getSource(), is(snapshot.getSource()));
+
+		HierarchySnapshot.ClassInfo hashMap = read.get("java/util/HashMap");
+		assertThat(hashMap.getSuperName(), is("java/util/AbstractMap"));
+		assertThat(hashMap.getInterfaces(), is(snapshot.get("java/util/HashMap").getInterfaces()));
+	}
+
+	@Test
+	public void jarsOverParent() throws Exception {
+		HierarchySnapshot snapshot = HierarchySnapshot.ofJars(Collections.singletonList(Paths.get("build/test-obf/inheritanceTree.jar")), HierarchySnapshot.jdk());
+
+		assertThat(snapshot.get("b").getSuperName(), is("a"));
+		assertThat(snapshot.get("a").getSuperName(), is("java/lang/Object"));
+		assertThat(snapshot.contains("java/lang/String"), is(true));
+		assertThat(snapshot.contains("x"), is(false));
+	}
+}
@@ -0,0 +1,166 @@
+package cuchaz.enigma;
+
+import com.google.common.io.ByteStreams;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.utils.ZipArchiveReader;
+import cuchaz.enigma.utils.ZipArchiveWriter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarInputStream;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TestJarExport {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path inputJar() throws IOException {
+		Path jar = folder.getRoot().toPath().resolve("in.jar");
+		Files.copy(Paths.get("build/test-obf/loneClass.jar"), jar);
+
+		try (FileSystem fileSystem = FileSystems.newFileSystem(jar, (ClassLoader) null)) {
+			Path resource = fileSystem.getPath("assets/lang/en_us.json");
+			Files.createDirectories(resource.getParent());
+			Files.write(resource, "{}".getBytes(StandardCharsets.UTF_8));
+		}
+
+		return jar;
+	}
+
+	private Path export(Path input, String name) throws IOException {
+		return export(input, name, null);
+	}
+
+	private Path export(Path input, String name, EntryTree<EntryMapping> mappings) throws IOException {
+		Path output = folder.getRoot().toPath().resolve(name);
+		EnigmaProject project = Enigma.create().openJar(input, ProgressListener.none());
+		try {
+			project.setMappings(mappings);
+			project.exportRemappedJar(ProgressListener.none()).write(output, ProgressListener.none());
+		} finally {
+			project.getClassCache().close();
+		}
+		return output;
+	}
+
+	@Test
+	public void writesClassesAndResources() throws IOException {
+		Path output = export(inputJar(), "out.jar");
+
+		try (JarFile jar = new JarFile(output.toFile())) {
+			List<String> names = jar.stream().map(ZipEntry::getName).collect(Collectors.toList());
+			assertThat(names, contains("META-INF/MANIFEST.MF", "a.class", "assets/lang/en_us.json", "cuchaz/enigma/inputs/Keep.class"));
+			assertThat(jar.getManifest(), notNullValue());
+		}
+
+		try (JarInputStream in = new JarInputStream(Files.newInputStream(output))) {
+			assertThat(in.getManifest(), notNullValue());
+		}
+	}
+
+	@Test
+	public void reproducible() throws IOException {
+		Path input = inputJar();
+		byte[] first = Files.readAllBytes(export(input, "first.jar"));
+		byte[] second = Files.readAllBytes(export(input, "second.jar"));
+
+		assertThat(first, is(second));
+	}
+
+	@Test
+	public void copiesResourcesAsStored() throws IOException {
+		Path input = folder.getRoot().toPath().resolve("stored.jar");
+		try (ZipArchiveWriter jar = new ZipArchiveWriter(Files.newOutputStream(input))) {
+			for (ZipArchiveWriter.Entry entry : ZipArchiveReader.readEntries(Paths.get("build/test-obf/loneClass.jar"), name -> name.endsWith(".class")).values()) {
+				jar.write(entry);
+			}
+			jar.write(ZipArchiveWriter.store("data.bin", new byte[] {1, 2, 3}));
+		}
+
+		try (ZipFile jar = new ZipFile(export(input, "out.jar").toFile())) {
+			ZipEntry data = jar.getEntry("data.bin");
+			assertThat(data.getMethod(), is(ZipEntry.STORED));
+			assertThat(data.getSize(), is(3L));
+		}
+	}
+
+	@Test
+	public void remapsManifestAndServices() throws IOException {
+		Path input = folder.getRoot().toPath().resolve("services.jar");
+		try (ZipArchiveWriter jar = new ZipArchiveWriter(Files.newOutputStream(input))) {
+			jar.write(ZipArchiveWriter.deflate("META-INF/MANIFEST.MF", bytes("Manifest-Version: 1.0\r\nMain-Class: a\r\n\r\n")));
+			jar.write(ZipArchiveWriter.deflate("META-INF/services/a", bytes("# providers\na # the only one\n")));
+			for (ZipArchiveWriter.Entry entry : ZipArchiveReader.readEntries(Paths.get("build/test-obf/loneClass.jar"), name -> name.endsWith(".class")).values()) {
+				jar.write(entry);
+			}
+		}
+
+		EntryTree<EntryMapping> mappings = new HashEntryTree<>();
+		mappings.insert(new ClassEntry("a"), new EntryMapping("pkg/Provider"));
+
+		try (JarFile jar = new JarFile(export(input, "out.jar", mappings).toFile())) {
+			assertThat(jar.getManifest().getMainAttributes().getValue(Attributes.Name.MAIN_CLASS), is("pkg.Provider"));
+			assertThat(jar.getEntry("META-INF/services/a"), nullValue());
+
+			try (InputStream in = jar.getInputStream(jar.getEntry("META-INF/services/pkg.Provider"))) {
+				assertThat(new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8), is("# providers\npkg.Provider # the only one\n"));
+			}
+			assertThat(jar.getEntry("pkg/Provider.class"), notNullValue());
+		}
+	}
+
+	@Test
+	public void dropsSignatures() throws IOException {
+		Path input = folder.getRoot().toPath().resolve("signed.jar");
+		try (ZipArchiveWriter jar = new ZipArchiveWriter(Files.newOutputStream(input))) {
+			jar.write(ZipArchiveWriter.deflate("META-INF/MANIFEST.MF", bytes("Manifest-Version: 1.0\r\n\r\n"
+					+ "Name: a.class\r\nSHA-256-Digest: AAAA\r\n\r\n"
+					+ "Name: assets/\r\nSealed: true\r\nSHA-256-Digest: BBBB\r\n\r\n")));
+			jar.write(ZipArchiveWriter.deflate("META-INF/SIGNER.SF", bytes("Signature-Version: 1.0\r\n\r\n")));
+			jar.write(ZipArchiveWriter.deflate("META-INF/SIGNER.RSA", new byte[] {1, 2, 3}));
+			jar.write(ZipArchiveWriter.deflate("META-INF/extra/info.sf", bytes("kept")));
+			for (ZipArchiveWriter.Entry entry : ZipArchiveReader.readEntries(Paths.get("build/test-obf/loneClass.jar"), name -> name.endsWith(".class")).values()) {
+				jar.write(entry);
+			}
+		}
+
+		try (JarFile jar = new JarFile(export(input, "out.jar").toFile())) {
+			List<String> names = jar.stream().map(ZipEntry::getName).collect(Collectors.toList());
+			assertThat(names, not(hasItem("META-INF/SIGNER.SF")));
+			assertThat(names, not(hasItem("META-INF/SIGNER.RSA")));
+			assertThat(names, hasItem("META-INF/extra/info.sf"));
+
+			assertThat(jar.getManifest().getEntries().keySet(), contains("assets/"));
+			assertThat(jar.getManifest().getAttributes("assets/").getValue("Sealed"), is("true"));
+			assertThat(jar.getManifest().getAttributes("assets/").getValue("SHA-256-Digest"), nullValue());
+
+			// reading every entry verifies it against the signature, if any was left
+			for (JarEntry entry : (Iterable<JarEntry>) jar.stream()::iterator) {
+				try (InputStream in = jar.getInputStream(entry)) {
+					ByteStreams.exhaust(in);
+				}
+			}
+		}
+	}
+
+	private static byte[] bytes(String text) {
+		return text.getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -84,6 +84,28 @@ public class TestJarIndexInheritanceTree {
 		assertThat(index.getChildren(subClassB), is(empty()));
 	}
 
+	@Test
+	public void closures() {
+		InheritanceIndex index = this.index.getInheritanceIndex();
+
+		assertThat(index.getDescendants(baseClass), containsInAnyOrder(subClassA, subClassAA, subClassB));
+		assertThat(index.getDescendants(subClassA), containsInAnyOrder(subClassAA));
+		assertThat(index.getDescendants(subClassAA), is(empty()));
+
+		assertThat(index.isAncestor(subClassAA, baseClass), is(true));
+		assertThat(index.isAncestor(subClassAA, subClassA), is(true));
+		assertThat(index.isAncestor(baseClass, subClassAA), is(false));
+		assertThat(index.isAncestor(subClassB, subClassA), is(false));
+		assertThat(index.isAncestor(subClassB, subClassB), is(false));
+
+		assertThat(index.getAncestors(subClassAA).contains(baseClass), is(true));
+		assertThat(index.getAncestors(subClassAA).contains(subClassB), is(false));
+
+		assertThat(index.computeClassRelation(subClassAA, baseClass), is(InheritanceIndex.Relation.RELATED));
+		assertThat(index.computeClassRelation(subClassB, subClassA), is(InheritanceIndex.Relation.UNRELATED));
+		assertThat(index.computeClassRelation(newClass("x"), baseClass), is(InheritanceIndex.Relation.UNKNOWN));
+	}
+
 	@Test
 	public void access() {
 		assertThat(index.getEntryIndex().getFieldAccess(nameField), is(new AccessFlags(Opcodes.ACC_PRIVATE)));
@@ -0,0 +1,133 @@
+package cuchaz.enigma;
+
+import cuchaz.enigma.analysis.ClassCache;
+import cuchaz.enigma.analysis.HierarchySnapshot;
+import cuchaz.enigma.analysis.index.JarIndex;
+import cuchaz.enigma.analysis.index.LibraryIndex;
+import cuchaz.enigma.throwables.IllegalNameException;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.EntryRemapper;
+import cuchaz.enigma.translation.mapping.ResolutionStrategy;
+import cuchaz.enigma.translation.representation.AccessFlags;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import cuchaz.enigma.utils.ZipArchiveReader;
+import cuchaz.enigma.utils.ZipArchiveWriter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.Opcodes;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.Predicate;
+
+import static cuchaz.enigma.TestEntryFactory.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TestLibraryIndex {
+	private static final ClassEntry BASE = newClass("a");
+	private static final ClassEntry SUB_A = newClass("b");
+	private static final ClassEntry SUB_B = newClass("c");
+	private static final ClassEntry SUB_AA = newClass("d");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Splits the inheritance tree so that its base class and first subclass become a library of the rest.
+	 */
+	private Path split(String name, Predicate<String> filter) throws IOException {
+		Path jar = folder.getRoot().toPath().resolve(name);
+		try (ZipArchiveWriter writer = new ZipArchiveWriter(Files.newOutputStream(jar))) {
+			for (ZipArchiveWriter.Entry entry : ZipArchiveReader.readEntries(Paths.get("build/test-obf/inheritanceTree.jar"), filter).values()) {
+				writer.write(entry);
+			}
+		}
+		return jar;
+	}
+
+	private LibraryIndex libraries() throws IOException {
+		Path library = split("library.jar", entryName -> entryName.equals("a.class") || entryName.equals("b.class"));
+		return LibraryIndex.index(Collections.singletonList(library), ProgressListener.none());
+	}
+
+	private JarIndex index(LibraryIndex libraryIndex) throws IOException {
+		Path app = split("app.jar", entryName -> entryName.equals("c.class") || entryName.equals("d.class"));
+		try (ClassCache classCache = ClassCache.of(app)) {
+			return classCache.index(libraryIndex, ProgressListener.none());
+		}
+	}
+
+	private static boolean canRename(EntryRemapper remapper, MethodEntry entry, String name) {
+		try {
+			remapper.mapFromObf(entry, new EntryMapping(name));
+			return true;
+		} catch (IllegalNameException e) {
+			return false;
+		}
+	}
+
+	@Test
+	public void declarations() throws IOException {
+		LibraryIndex libraryIndex = libraries();
+
+		assertThat(libraryIndex.hasClass(BASE), is(true));
+		assertThat(libraryIndex.hasClass(SUB_B), is(false));
+		assertThat(libraryIndex.getDefinition(SUB_A).getSuperClass(), is(BASE));
+		assertThat(libraryIndex.getMethodAccess(newMethod(BASE, "a", "()V")), is(new AccessFlags(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT)));
+		assertThat(libraryIndex.getFieldAccess(newField(BASE, "a", "Ljava/lang/String;")), is(new AccessFlags(Opcodes.ACC_PRIVATE)));
+		assertThat(libraryIndex.getHierarchy().get("b").getSuperName(), is("a"));
+		assertThat(libraryIndex.getHierarchy().contains("c"), is(false));
+		assertThat(libraryIndex.getHierarchy().get("java/util/ArrayList").getSuperName(), is("java/util/AbstractList"));
+		assertThat(libraryIndex.getHierarchy().size(), is(HierarchySnapshot.jdk().size() + 2));
+	}
+
+	@Test
+	public void duplicateClassesAcrossJars() throws IOException {
+		Path first = split("first.jar", entryName -> entryName.equals("a.class"));
+		Path second = split("second.jar", entryName -> entryName.equals("a.class") || entryName.equals("b.class"));
+		LibraryIndex libraryIndex = LibraryIndex.index(Arrays.asList(first, second), ProgressListener.none());
+
+		assertThat(libraryIndex.hasClass(SUB_A), is(true));
+		assertThat(libraryIndex.getDefinitions(), hasSize(2));
+	}
+
+	@Test
+	public void inheritance() throws IOException {
+		assertThat(index(LibraryIndex.EMPTY).getInheritanceIndex().getAncestors(SUB_AA), containsInAnyOrder(SUB_A));
+
+		JarIndex index = index(libraries());
+		assertThat(index.getInheritanceIndex().getAncestors(SUB_AA), containsInAnyOrder(SUB_A, BASE));
+		assertThat(index.getInheritanceIndex().getDescendants(BASE), containsInAnyOrder(SUB_A, SUB_AA, SUB_B));
+		assertThat(index.getEntryIndex().hasClass(BASE), is(false));
+	}
+
+	@Test
+	public void resolvesIntoLibraries() throws IOException {
+		MethodEntry getName = newMethod(SUB_AA, "a", "()Ljava/lang/String;");
+		MethodEntry inheritedGetName = newMethod(SUB_B, "a", "()Ljava/lang/String;");
+
+		JarIndex withoutLibraries = index(LibraryIndex.EMPTY);
+		assertThat(withoutLibraries.getEntryResolver().resolveFirstEntry(getName, ResolutionStrategy.RESOLVE_ROOT), is(getName));
+		assertThat(withoutLibraries.getEntryResolver().resolveFirstEntry(inheritedGetName, ResolutionStrategy.RESOLVE_CLOSEST), is(inheritedGetName));
+
+		JarIndex index = index(libraries());
+		assertThat(index.getEntryResolver().resolveFirstEntry(getName, ResolutionStrategy.RESOLVE_ROOT), is(newMethod(BASE, "a", "()Ljava/lang/String;")));
+		assertThat(index.getEntryResolver().resolveFirstEntry(inheritedGetName, ResolutionStrategy.RESOLVE_CLOSEST), is(newMethod(BASE, "a", "()Ljava/lang/String;")));
+	}
+
+	@Test
+	public void rejectsAccidentalOverride() throws IOException {
+		MethodEntry doBThings = newMethod(SUB_B, "b", "()V");
+
+		assertThat(canRename(EntryRemapper.empty(index(LibraryIndex.EMPTY)), doBThings, "a"), is(true));
+		assertThat(canRename(EntryRemapper.empty(index(libraries())), doBThings, "a"), is(false));
+		assertThat(canRename(EntryRemapper.empty(index(libraries())), doBThings, "doBThings"), is(true));
+	}
+}
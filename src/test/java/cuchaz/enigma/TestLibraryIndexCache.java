@@ -0,0 +1,98 @@
+package cuchaz.enigma;
+
+import cuchaz.enigma.analysis.index.LibraryIndex;
+import cuchaz.enigma.analysis.index.LibraryIndexCache;
+import cuchaz.enigma.translation.representation.AccessFlags;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.Opcodes;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static cuchaz.enigma.TestEntryFactory.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TestLibraryIndexCache {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path library(String name) throws IOException {
+		Path jar = folder.getRoot().toPath().resolve(name);
+		Files.copy(Paths.get("build/test-obf/inheritanceTree.jar"), jar);
+		return jar;
+	}
+
+	private Path cacheDirectory() {
+		return folder.getRoot().toPath().resolve("cache");
+	}
+
+	private List<Path> cachedFiles() throws IOException {
+		try (Stream<Path> files = Files.list(cacheDirectory())) {
+			return files.collect(Collectors.toList());
+		}
+	}
+
+	private static void assertIndexed(LibraryIndex libraryIndex) {
+		assertThat(libraryIndex.hasClass(newClass("d")), is(true));
+		assertThat(libraryIndex.getDefinition(newClass("d")).getSuperClass(), is(newClass("b")));
+		assertThat(libraryIndex.getMethodAccess(newMethod(newClass("a"), "a", "()V")), is(new AccessFlags(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT)));
+		assertThat(libraryIndex.getFieldAccess(newField(newClass("c"), "a", "I")), is(new AccessFlags(Opcodes.ACC_PRIVATE)));
+	}
+
+	@Test
+	public void reusesCachedIndex() throws IOException {
+		Path jar = library("library.jar");
+
+		assertIndexed(new LibraryIndexCache(cacheDirectory()).index(Collections.singletonList(jar), ProgressListener.none()));
+		List<Path> files = cachedFiles();
+		assertThat(files, hasSize(1));
+
+		FileTime written = FileTime.fromMillis(0);
+		Files.setLastModifiedTime(files.get(0), written);
+
+		// a later run maps the cached index instead of writing it again
+		assertIndexed(new LibraryIndexCache(cacheDirectory()).index(Collections.singletonList(jar), ProgressListener.none()));
+		assertThat(cachedFiles(), is(files));
+		assertThat(Files.getLastModifiedTime(files.get(0)), is(written));
+	}
+
+	@Test
+	public void keyedByContent() throws IOException {
+		LibraryIndexCache cache = new LibraryIndexCache(cacheDirectory());
+		cache.index(Collections.singletonList(library("first.jar")), ProgressListener.none());
+		cache.index(Collections.singletonList(library("second.jar")), ProgressListener.none());
+
+		assertThat(cachedFiles(), hasSize(1));
+	}
+
+	@Test
+	public void replacesUnreadableIndex() throws IOException {
+		Path jar = library("library.jar");
+		new LibraryIndexCache(cacheDirectory()).index(Collections.singletonList(jar), ProgressListener.none());
+
+		Path file = cachedFiles().get(0);
+		Files.write(file, new byte[] {1, 2, 3});
+
+		assertIndexed(new LibraryIndexCache(cacheDirectory()).index(Collections.singletonList(jar), ProgressListener.none()));
+		assertThat(Files.size(file), is(greaterThan(3L)));
+	}
+
+	@Test
+	public void matchesUncachedIndex() throws IOException {
+		Path jar = library("library.jar");
+		LibraryIndex cached = new LibraryIndexCache(cacheDirectory()).index(Collections.singletonList(jar), ProgressListener.none());
+		LibraryIndex uncached = LibraryIndex.index(Collections.singletonList(jar), ProgressListener.none());
+
+		assertThat(cached.getDefinitions(), containsInAnyOrder(uncached.getDefinitions().toArray()));
+	}
+}
@@ -0,0 +1,106 @@
+package cuchaz.enigma;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import cuchaz.enigma.metrics.Metrics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.fail;
+
+public class TestMetrics {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private boolean wasEnabled;
+
+	@Before
+	public void enable() {
+		wasEnabled = Metrics.isEnabled();
+		Metrics.setEnabled(true);
+		Metrics.reset();
+	}
+
+	@After
+	public void restore() {
+		Metrics.setEnabled(wasEnabled);
+		Metrics.reset();
+	}
+
+	@Test
+	public void timersAndCounters() {
+		for (int i = 0; i < 3; i++) {
+			Metrics.time("phase", () -> Metrics.count("things", 2));
+		}
+
+		Metrics.Snapshot snapshot = Metrics.snapshot();
+		assertThat(snapshot.timers.get("phase").count, is(3L));
+		assertThat(snapshot.timers.get("phase").totalMillis, greaterThanOrEqualTo(snapshot.timers.get("phase").maxMillis));
+		assertThat(snapshot.counters.get("things"), is(6L));
+	}
+
+	@Test
+	public void keepsSlowestItems() throws InterruptedException {
+		for (int i = 0; i < 30; i++) {
+			Metrics.timeItem("classes", "fast" + i, () -> {
+			});
+		}
+		Metrics.timeItem("classes", "slow", () -> Thread.sleep(20));
+
+		List<Metrics.ItemSnapshot> slowest = Metrics.snapshot().slowItems.get("classes");
+		assertThat(slowest, hasSize(20));
+		assertThat(slowest.get(0).item, is("slow"));
+		assertThat(Metrics.snapshot().timers.get("classes").count, is(31L));
+	}
+
+	@Test
+	public void timesFailedPhases() {
+		assertThat(Metrics.time("phase", () -> "result"), is("result"));
+		try {
+			Metrics.time("phase", () -> {
+				throw new IOException("failed");
+			});
+			fail("Expected the failure of the phase");
+		} catch (IOException e) {
+			assertThat(e.getMessage(), is("failed"));
+		}
+
+		assertThat(Metrics.snapshot().timers.get("phase").count, is(2L));
+	}
+
+	@Test
+	public void disabledRecordsNothing() {
+		Metrics.setEnabled(false);
+		Metrics.time("phase", () -> Metrics.count("things", 1));
+
+		assertThat(Metrics.snapshot().timers.isEmpty(), is(true));
+		assertThat(Metrics.snapshot().counters.isEmpty(), is(true));
+	}
+
+	@Test
+	public void writesJsonReport() throws Exception {
+		Metrics.timeItem("decompile.class", "a/b", () -> Metrics.count("decompile.failures", 1));
+
+		Path report = folder.getRoot().toPath().resolve("metrics.json");
+		Metrics.writeReport(report);
+
+		JsonObject json;
+		try (Reader reader = Files.newBufferedReader(report)) {
+			json = new JsonParser().parse(reader).getAsJsonObject();
+		}
+		assertThat(json.getAsJsonObject("timers").getAsJsonObject("decompile.class").get("count").getAsLong(), is(1L));
+		assertThat(json.getAsJsonObject("counters").get("decompile.failures").getAsLong(), is(1L));
+		assertThat(json.getAsJsonObject("slowItems").getAsJsonArray("decompile.class").get(0).getAsJsonObject().get("item").getAsString(), is("a/b"));
+	}
+}
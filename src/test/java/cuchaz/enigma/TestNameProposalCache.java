@@ -0,0 +1,200 @@
+package cuchaz.enigma;
+
+import cuchaz.enigma.analysis.ClassCache;
+import cuchaz.enigma.analysis.index.JarIndex;
+import cuchaz.enigma.api.service.NameProposalService;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.EntryRemapper;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.Entry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static cuchaz.enigma.TestEntryFactory.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TestNameProposalCache {
+	private static final ClassEntry BASE = newClass("a");
+	private static final ClassEntry SUB_A = newClass("b");
+	private static final MethodEntry BASE_METHOD = newMethod(BASE, "a", "()V");
+	private static final MethodEntry SUB_A_METHOD = newMethod(SUB_A, "a", "()V");
+	private static final FieldEntry SUB_B_FIELD = newField(newClass("c"), "a", "I");
+
+	private EntryRemapper mapper;
+
+	@Before
+	public void indexJar() throws IOException {
+		try (ClassCache classCache = ClassCache.of(Paths.get("build/test-obf/inheritanceTree.jar"))) {
+			JarIndex index = classCache.index(ProgressListener.none());
+			mapper = EntryRemapper.empty(index);
+		}
+	}
+
+	@Test
+	public void proposesForRootEntries() {
+		RecordingService service = new RecordingService(entry -> !(entry instanceof ClassEntry));
+		NameProposalCache proposals = new NameProposalCache(mapper, new NameProposalService[] {service});
+
+		assertThat(proposals.proposeName(SUB_A_METHOD), is(Optional.of("proposed_a")));
+		assertThat(service.asked, contains(BASE_METHOD));
+	}
+
+	@Test
+	public void cachesProposals() {
+		RecordingService service = new RecordingService(entry -> !(entry instanceof ClassEntry));
+		NameProposalCache proposals = new NameProposalCache(mapper, new NameProposalService[] {service});
+
+		proposals.proposeName(BASE_METHOD);
+		proposals.proposeName(SUB_A_METHOD);
+		proposals.proposeName(SUB_A);
+		assertThat(proposals.proposeName(SUB_A), is(Optional.empty()));
+
+		assertThat(service.asked, contains(BASE_METHOD, SUB_A));
+	}
+
+	@Test
+	public void batchesUncachedEntries() {
+		RecordingService service = new RecordingService(entry -> !(entry instanceof ClassEntry));
+		NameProposalCache proposals = new NameProposalCache(mapper, new NameProposalService[] {service});
+		proposals.proposeName(BASE);
+
+		Map<Entry<?>, String> names = proposals.proposeNames(Arrays.asList(BASE, SUB_A, SUB_A_METHOD, SUB_B_FIELD));
+		assertThat(names, is(equalTo(names(SUB_A_METHOD, "proposed_a", SUB_B_FIELD, "proposed_a"))));
+		assertThat(service.batches, is(1));
+		assertThat(service.asked, containsInAnyOrder(BASE, SUB_A, BASE_METHOD, SUB_B_FIELD));
+
+		proposals.proposeName(SUB_A_METHOD);
+		proposals.proposeName(SUB_B_FIELD);
+		assertThat(service.asked, hasSize(4));
+	}
+
+	@Test
+	public void firstProposalWins() {
+		RecordingService methods = new RecordingService(entry -> entry instanceof MethodEntry);
+		RecordingService everything = new RecordingService(entry -> true);
+		NameProposalCache proposals = new NameProposalCache(mapper, new NameProposalService[] {methods, everything});
+
+		proposals.proposeNames(Arrays.asList(BASE_METHOD, SUB_B_FIELD));
+
+		assertThat(everything.asked, contains(SUB_B_FIELD));
+		assertThat(proposals.proposeName(SUB_B_FIELD), is(Optional.of("proposed_a")));
+	}
+
+	@Test
+	public void invalidatedByAnyMappingByDefault() {
+		RecordingService service = new RecordingService(entry -> !(entry instanceof ClassEntry));
+		NameProposalCache proposals = new NameProposalCache(mapper, new NameProposalService[] {service});
+		proposals.proposeNames(Arrays.asList(BASE_METHOD, SUB_B_FIELD));
+		service.asked.clear();
+
+		mapper.mapFromObf(newClass("c"), new EntryMapping("pkg/Renamed"));
+
+		proposals.proposeName(BASE_METHOD);
+		proposals.proposeName(SUB_B_FIELD);
+		assertThat(service.asked, contains(BASE_METHOD, SUB_B_FIELD));
+	}
+
+	@Test
+	public void invalidatedByMappingsOfSameClass() {
+		RecordingService service = new RecordingService(entry -> !(entry instanceof ClassEntry), NameProposalService.CacheScope.CLASS_MAPPINGS);
+		NameProposalCache proposals = new NameProposalCache(mapper, new NameProposalService[] {service});
+		proposals.proposeNames(Arrays.asList(BASE_METHOD, SUB_B_FIELD));
+		service.asked.clear();
+
+		mapper.mapFromObf(newClass("c"), new EntryMapping("pkg/Renamed"));
+
+		proposals.proposeName(BASE_METHOD);
+		proposals.proposeName(SUB_B_FIELD);
+		assertThat(service.asked, contains(SUB_B_FIELD));
+	}
+
+	@Test
+	public void uncachedServicesAreAskedEveryTime() {
+		RecordingService cached = new RecordingService(entry -> entry instanceof MethodEntry);
+		RecordingService uncached = new RecordingService(entry -> true, NameProposalService.CacheScope.NONE);
+		NameProposalCache proposals = new NameProposalCache(mapper, new NameProposalService[] {cached, uncached});
+
+		proposals.proposeNames(Arrays.asList(BASE_METHOD, SUB_B_FIELD));
+		assertThat(proposals.proposeName(BASE_METHOD), is(Optional.of("proposed_a")));
+		assertThat(proposals.proposeName(SUB_B_FIELD), is(Optional.of("proposed_a")));
+
+		assertThat(cached.asked, contains(BASE_METHOD, SUB_B_FIELD));
+		assertThat(uncached.asked, contains(SUB_B_FIELD, SUB_B_FIELD));
+	}
+
+	@Test
+	public void batchAnswersForItsEntries() {
+		RecordingService service = new RecordingService(entry -> true, NameProposalService.CacheScope.NONE);
+		NameProposalCache proposals = new NameProposalCache(mapper, new NameProposalService[] {service});
+
+		Function<Entry<?>, Optional<String>> batch = proposals.proposeBatch(Arrays.asList(BASE_METHOD, SUB_B_FIELD));
+		assertThat(batch.apply(BASE_METHOD), is(Optional.of("proposed_a")));
+		assertThat(batch.apply(SUB_B_FIELD), is(Optional.of("proposed_a")));
+		assertThat(service.asked, containsInAnyOrder(BASE_METHOD, SUB_B_FIELD));
+
+		// entries outside of the batch are still proposed for
+		assertThat(batch.apply(SUB_A_METHOD), is(Optional.of("proposed_a")));
+		assertThat(service.asked, hasSize(3));
+	}
+
+	@Test
+	public void jarScopeSurvivesMappingChanges() {
+		RecordingService service = new RecordingService(entry -> true, NameProposalService.CacheScope.JAR);
+		NameProposalCache proposals = new NameProposalCache(mapper, new NameProposalService[] {service});
+		proposals.proposeName(SUB_B_FIELD);
+
+		mapper.mapFromObf(newClass("c"), new EntryMapping("pkg/Renamed"));
+
+		proposals.proposeName(SUB_B_FIELD);
+		assertThat(service.asked, contains(SUB_B_FIELD));
+	}
+
+	private static Map<Entry<?>, String> names(Entry<?> first, String firstName, Entry<?> second, String secondName) {
+		Map<Entry<?>, String> names = new HashMap<>();
+		names.put(first, firstName);
+		names.put(second, secondName);
+		return names;
+	}
+
+	private static final class RecordingService implements NameProposalService {
+		private final Predicate<Entry<?>> proposes;
+		private final CacheScope scope;
+		private final List<Entry<?>> asked = new ArrayList<>();
+		private int batches;
+
+		RecordingService(Predicate<Entry<?>> proposes) {
+			this(proposes, CacheScope.ALL_MAPPINGS);
+		}
+
+		RecordingService(Predicate<Entry<?>> proposes, CacheScope scope) {
+			this.proposes = proposes;
+			this.scope = scope;
+		}
+
+		@Override
+		public Optional<String> proposeName(Entry<?> obfEntry, EntryRemapper remapper) {
+			asked.add(obfEntry);
+			return proposes.test(obfEntry) ? Optional.of("proposed_" + obfEntry.getName()) : Optional.empty();
+		}
+
+		@Override
+		public Map<Entry<?>, String> proposeNames(Collection<? extends Entry<?>> obfEntries, EntryRemapper remapper) {
+			batches++;
+			return NameProposalService.super.proposeNames(obfEntries, remapper);
+		}
+
+		@Override
+		public CacheScope getCacheScope() {
+			return scope;
+		}
+	}
+}
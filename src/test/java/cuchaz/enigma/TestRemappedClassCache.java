@@ -0,0 +1,68 @@
+package cuchaz.enigma;
+
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.EntryRemapper;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.objectweb.asm.tree.ClassNode;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TestRemappedClassCache {
+	private EnigmaProject project;
+
+	@Before
+	public void openProject() throws IOException {
+		project = Enigma.create().openJar(Paths.get("build/test-obf/loneClass.jar"), ProgressListener.none());
+	}
+
+	@After
+	public void closeProject() throws IOException {
+		project.getClassCache().close();
+	}
+
+	private RemappedClassCache.View remapped() {
+		EntryRemapper mapper = project.getMapper();
+		return project.getRemappedClasses().getRemapped(mapper.getDeobfuscator(), mapper.getGeneration());
+	}
+
+	@Test
+	public void fixedKeepsObfuscatedNames() {
+		RemappedClassCache.View fixed = project.getRemappedClasses().getFixed();
+
+		ClassNode node = fixed.getClassNode("a");
+		assertThat(node.name, is("a"));
+		assertThat(fixed.getClassNode("a"), sameInstance(node));
+		assertThat(fixed.getClassNode("b"), nullValue());
+	}
+
+	@Test
+	public void remapsOncePerGeneration() {
+		ClassNode node = remapped().getByObfName("a");
+		assertThat(remapped().getByObfName("a"), sameInstance(node));
+		assertThat(remapped().getDecompilerBytes("a"), sameInstance(remapped().getDecompilerBytes("a")));
+
+		long generation = project.getMapper().getGeneration();
+		project.getMapper().mapFromObf(new ClassEntry("a"), new EntryMapping("pkg/Lone"));
+		assertThat(project.getMapper().getGeneration(), not(generation));
+
+		ClassNode renamed = remapped().getByObfName("a");
+		assertThat(renamed.name, is("pkg/Lone"));
+		assertThat(remapped().getClassNode("pkg/Lone"), sameInstance(renamed));
+		assertThat(remapped().getClassNode("a"), nullValue());
+	}
+
+	@Test
+	public void newMappingsStartNewGeneration() {
+		RemappedClassCache.View before = remapped();
+		project.setMappings(null);
+
+		assertThat(remapped(), not(sameInstance(before)));
+	}
+}
@@ -0,0 +1,101 @@
+package cuchaz.enigma;
+
+import cuchaz.enigma.utils.ZipArchiveWriter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TestZipArchiveWriter {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static byte[] bytes(String text) {
+		return text.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static String read(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1024];
+		int length;
+		while ((length = in.read(buffer)) != -1) {
+			out.write(buffer, 0, length);
+		}
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private Path write(String fileName, ZipArchiveWriter.Entry... entries) throws IOException {
+		Path path = folder.getRoot().toPath().resolve(fileName);
+		try (ZipArchiveWriter writer = new ZipArchiveWriter(Files.newOutputStream(path))) {
+			for (ZipArchiveWriter.Entry entry : entries) {
+				writer.write(entry);
+			}
+		}
+		return path;
+	}
+
+	@Test
+	public void readableByZipFile() throws IOException {
+		String source = String.join("\n", Collections.nCopies(100, "public class Foo {}"));
+		Path path = write("a.zip",
+				ZipArchiveWriter.deflate("a/Foo.java", bytes(source)),
+				ZipArchiveWriter.store("a/Bär.txt", bytes("stored")));
+
+		try (ZipFile zip = new ZipFile(path.toFile())) {
+			ZipEntry deflated = zip.getEntry("a/Foo.java");
+			assertThat(deflated.getMethod(), is(ZipEntry.DEFLATED));
+			assertThat(deflated.getCompressedSize(), lessThan(deflated.getSize()));
+			assertThat(read(zip.getInputStream(deflated)), is(source));
+			assertThat(read(zip.getInputStream(zip.getEntry("a/Bär.txt"))), is("stored"));
+		}
+
+		// streaming readers rely on the local headers alone
+		try (ZipInputStream in = new ZipInputStream(Files.newInputStream(path))) {
+			assertThat(in.getNextEntry().getName(), is("a/Foo.java"));
+			assertThat(read(in), is(source));
+			assertThat(in.getNextEntry().getName(), is("a/Bär.txt"));
+			assertThat(read(in), is("stored"));
+			assertThat(in.getNextEntry(), nullValue());
+		}
+	}
+
+	@Test
+	public void reproducible() throws IOException {
+		Path first = write("first.zip", ZipArchiveWriter.deflate("Foo.java", bytes("class Foo {}")));
+		Path second = write("second.zip", ZipArchiveWriter.deflate("Foo.java", bytes("class Foo {}")));
+
+		assertThat(Files.readAllBytes(first), is(Files.readAllBytes(second)));
+	}
+
+	@Test
+	public void manyEntries() throws IOException {
+		ZipArchiveWriter.Entry[] entries = new ZipArchiveWriter.Entry[70_000];
+		for (int i = 0; i < entries.length; i++) {
+			entries[i] = ZipArchiveWriter.store("c" + i + ".txt", bytes(Integer.toString(i)));
+		}
+		Path path = write("many.zip", entries);
+
+		try (ZipFile zip = new ZipFile(path.toFile())) {
+			assertThat(zip.size(), is(70_000));
+			assertThat(read(zip.getInputStream(zip.getEntry("c69999.txt"))), is("69999"));
+
+			List<String> names = zip.stream().limit(3).map(ZipEntry::getName).collect(Collectors.toList());
+			assertThat(names, contains("c0.txt", "c1.txt", "c2.txt"));
+		}
+	}
+}
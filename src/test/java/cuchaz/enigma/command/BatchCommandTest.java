@@ -0,0 +1,62 @@
+package cuchaz.enigma.command;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class BatchCommandTest {
+	private static final String JAR = new File("build/test-obf/packageAccess.jar").getAbsolutePath();
+	private static final String CORRECT = new File("src/test/resources/packageAccess/correctMappings").getAbsolutePath();
+	private static final String WRONG = new File("src/test/resources/packageAccess/wrongMappings").getAbsolutePath();
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static BatchCommand batch() {
+		Map<String, Command> commands = new HashMap<>();
+		Command check = new CheckMappingsCommand();
+		commands.put(check.name, check);
+		return new BatchCommand(commands);
+	}
+
+	@Test
+	public void tokenize() {
+		assertThat(BatchCommand.tokenize("  checkmappings a.jar   \"my mappings\" \"\""), contains("checkmappings", "a.jar", "my mappings", ""));
+		assertThat(BatchCommand.tokenize("# checkmappings a.jar"), empty());
+	}
+
+	@Test
+	public void runsEveryCommand() throws Exception {
+		Path script = folder.newFile("script.txt").toPath();
+		Files.write(script, Arrays.asList(
+				"# check the same jar twice",
+				"checkmappings \"" + JAR + "\" \"" + CORRECT + "\"",
+				"",
+				"checkmappings \"" + JAR + "\" \"" + CORRECT + "\""
+		), StandardCharsets.UTF_8);
+
+		batch().run(script.toString());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void stopsAtFailingCommand() throws Exception {
+		Path script = folder.newFile("script.txt").toPath();
+		Files.write(script, Arrays.asList(
+				"checkmappings \"" + JAR + "\" \"" + CORRECT + "\"",
+				"checkmappings \"" + JAR + "\" \"" + WRONG + "\""
+		), StandardCharsets.UTF_8);
+
+		batch().run(script.toString());
+	}
+}
@@ -0,0 +1,63 @@
+package cuchaz.enigma.command;
+
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import org.junit.Test;
+
+import static cuchaz.enigma.TestEntryFactory.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class MappingCommandsUtilTest {
+
+	private static EntryTree<EntryMapping> left() {
+		EntryTree<EntryMapping> left = new HashEntryTree<>();
+		left.insert(newClass("a"), new EntryMapping("c_1"));
+		left.insert(newMethod("a", "b", "(I)V"), new EntryMapping("m_1"));
+		left.insert(newField("a", "c", "I"), new EntryMapping("f_1"));
+		left.insert(newClass("d"), new EntryMapping("c_3"));
+		return left;
+	}
+
+	private static EntryTree<EntryMapping> right() {
+		EntryTree<EntryMapping> right = new HashEntryTree<>();
+		right.insert(newClass("c_1"), new EntryMapping("Foo"));
+		right.insert(newMethod("c_1", "m_1", "(I)V"), new EntryMapping("run"));
+		right.insert(newField("c_1", "f_1", "I"), new EntryMapping("count"));
+		right.insert(newClass("c_2"), new EntryMapping("Bar"));
+		return right;
+	}
+
+	@Test
+	public void invert() {
+		EntryTree<EntryMapping> inverted = MappingCommandsUtil.invert(left());
+
+		assertThat(inverted.get(newClass("c_1")).getTargetName(), is("a"));
+		assertThat(inverted.get(newMethod("c_1", "m_1", "(I)V")).getTargetName(), is("b"));
+		assertThat(inverted.get(newField("c_1", "f_1", "I")).getTargetName(), is("c"));
+		assertThat(inverted.get(newClass("c_3")).getTargetName(), is("d"));
+		assertThat(inverted.getAllEntries().count(), is(4L));
+	}
+
+	@Test
+	public void composeKeepsOnlyMatches() {
+		EntryTree<EntryMapping> composed = MappingCommandsUtil.compose(left(), right(), false, false);
+
+		assertThat(composed.get(newClass("a")).getTargetName(), is("Foo"));
+		assertThat(composed.get(newMethod("a", "b", "(I)V")).getTargetName(), is("run"));
+		assertThat(composed.get(newField("a", "c", "I")).getTargetName(), is("count"));
+		assertThat(composed.get(newClass("d")), nullValue());
+		assertThat(composed.get(newClass("c_2")), nullValue());
+	}
+
+	@Test
+	public void composeKeepsBothSides() {
+		EntryTree<EntryMapping> composed = MappingCommandsUtil.compose(left(), right(), true, true);
+
+		assertThat(composed.get(newClass("a")).getTargetName(), is("Foo"));
+		assertThat(composed.get(newClass("d")).getTargetName(), is("c_3"));
+		assertThat(composed.get(newClass("c_2")).getTargetName(), is("Bar"));
+		assertThat(composed.get(newClass("c_1")), nullValue());
+	}
+}
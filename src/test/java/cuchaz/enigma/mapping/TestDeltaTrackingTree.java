@@ -0,0 +1,90 @@
+package cuchaz.enigma.mapping;
+
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.MappingDelta;
+import cuchaz.enigma.translation.mapping.tree.DeltaTrackingTree;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static cuchaz.enigma.TestEntryFactory.newClass;
+import static cuchaz.enigma.TestEntryFactory.newField;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TestDeltaTrackingTree {
+	private static final ClassEntry A = newClass("a");
+	private static final ClassEntry B = newClass("b");
+	private static final FieldEntry A_FIELD = newField(A, "a", "I");
+
+	@Test
+	public void baseMappingsReflectPreviousSave() {
+		HashEntryTree<EntryMapping> initial = new HashEntryTree<>();
+		initial.insert(A, new EntryMapping("Alpha"));
+		initial.insert(A_FIELD, new EntryMapping("field"));
+
+		DeltaTrackingTree<EntryMapping> tree = new DeltaTrackingTree<>(initial);
+		tree.insert(A, new EntryMapping("Apple"));
+		tree.insert(B, new EntryMapping("Banana"));
+
+		MappingDelta<EntryMapping> first = tree.takeDelta();
+
+		// changes made after taking the delta must not leak into its base mappings
+		tree.insert(A, new EntryMapping("Avocado"));
+		tree.remove(A_FIELD);
+
+		EntryTree<EntryMapping> firstBase = first.getBaseMappings();
+		assertThat(firstBase.get(A).getTargetName(), is("Alpha"));
+		assertThat(firstBase.get(A_FIELD).getTargetName(), is("field"));
+		assertThat(firstBase.get(B), nullValue());
+		assertThat(firstBase.getChildren(A), contains(A_FIELD));
+		assertThat(first.getChangedRoots().toArray(), arrayContainingInAnyOrder(A, B));
+
+		MappingDelta<EntryMapping> second = tree.takeDelta();
+
+		EntryTree<EntryMapping> secondBase = second.getBaseMappings();
+		assertThat(secondBase.get(A).getTargetName(), is("Apple"));
+		assertThat(secondBase.get(A_FIELD).getTargetName(), is("field"));
+		assertThat(secondBase.get(B).getTargetName(), is("Banana"));
+		assertThat(second.getChangedRoots().toArray(), arrayContaining(A));
+
+		assertThat(tree.get(A).getTargetName(), is("Avocado"));
+		assertThat(tree.get(A_FIELD), nullValue());
+		assertThat(tree.isDirty(), is(false));
+	}
+
+	@Test
+	public void restoredChangesKeepBaseOfFailedSave() {
+		HashEntryTree<EntryMapping> initial = new HashEntryTree<>();
+		initial.insert(A, new EntryMapping("Alpha"));
+		initial.insert(A_FIELD, new EntryMapping("field"));
+
+		DeltaTrackingTree<EntryMapping> tree = new DeltaTrackingTree<>(initial);
+		tree.insert(A, new EntryMapping("Apple"));
+		tree.insert(A_FIELD, new EntryMapping("count"));
+		tree.insert(B, new EntryMapping("Banana"));
+
+		MappingDelta<EntryMapping> failed = tree.takeDelta();
+		tree.insert(A, new EntryMapping("Avocado"));
+
+		// only the save of A failed, so B is not part of the next delta
+		tree.restoreChanges(failed, Collections.singleton(A));
+		assertThat(tree.isDirty(), is(true));
+
+		MappingDelta<EntryMapping> retry = tree.takeDelta();
+		EntryTree<EntryMapping> retryBase = retry.getBaseMappings();
+		assertThat(retryBase.get(A).getTargetName(), is("Alpha"));
+		assertThat(retryBase.get(A_FIELD).getTargetName(), is("field"));
+		assertThat(retryBase.get(B).getTargetName(), is("Banana"));
+		assertThat(retry.getChangedRoots().toArray(), arrayContaining(A));
+		assertThat(retry.getChanges().getChildren(A), contains(A_FIELD));
+
+		// the failed delta itself still sees its own base
+		assertThat(failed.getBaseMappings().get(A).getTargetName(), is("Alpha"));
+		assertThat(failed.getBaseMappings().get(B), nullValue());
+	}
+}
@@ -0,0 +1,64 @@
+package cuchaz.enigma.mapping;
+
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.MappingFileNameFormat;
+import cuchaz.enigma.translation.mapping.MappingSaveParameters;
+import cuchaz.enigma.translation.mapping.MappingSaveResult;
+import cuchaz.enigma.translation.mapping.serde.EnigmaMappingsReader;
+import cuchaz.enigma.translation.mapping.serde.MappingFormat;
+import cuchaz.enigma.translation.mapping.tree.DeltaTrackingTree;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static cuchaz.enigma.TestEntryFactory.newClass;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TestDirectoryMappingsSave {
+	private static final ClassEntry A = newClass("a");
+	private static final ClassEntry B = newClass("b");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void renameReplacesFilesInPlace() throws Exception {
+		Path root = folder.getRoot().toPath();
+		MappingSaveParameters parameters = new MappingSaveParameters(MappingFileNameFormat.BY_DEOBF);
+
+		HashEntryTree<EntryMapping> initial = new HashEntryTree<>();
+		initial.insert(A, new EntryMapping("pkg/Alpha"));
+		initial.insert(B, new EntryMapping("pkg/Beta"));
+		assertThat(MappingFormat.ENIGMA_DIRECTORY.write(initial, root, ProgressListener.none(), parameters).getWritten(), containsInAnyOrder(A, B));
+
+		DeltaTrackingTree<EntryMapping> tree = new DeltaTrackingTree<>(initial);
+		tree.insert(A, new EntryMapping("other/Apple"));
+
+		MappingSaveResult result = MappingFormat.ENIGMA_DIRECTORY.write(tree, tree.takeDelta(), root, ProgressListener.none(), parameters);
+
+		assertThat(result.isSuccessful(), is(true));
+		assertThat(result.getWritten(), contains(A));
+		assertThat(result.getDeleted(), contains(newClass("pkg/Alpha")));
+
+		assertThat(Files.exists(root.resolve("other/Apple.mapping")), is(true));
+		assertThat(Files.exists(root.resolve("pkg/Alpha.mapping")), is(false));
+		assertThat(Files.exists(root.resolve("pkg/Beta.mapping")), is(true));
+
+		try (Stream<Path> files = Files.list(root)) {
+			assertThat("staging directory is removed", files.noneMatch(file -> file.getFileName().toString().startsWith(".")), is(true));
+		}
+
+		EntryTree<EntryMapping> reread = EnigmaMappingsReader.DIRECTORY.read(root, ProgressListener.none(), parameters);
+		assertThat(reread.get(A).getTargetName(), is("other/Apple"));
+		assertThat(reread.get(B).getTargetName(), is("pkg/Beta"));
+	}
+}
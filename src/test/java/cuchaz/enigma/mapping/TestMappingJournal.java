@@ -0,0 +1,109 @@
+package cuchaz.enigma.mapping;
+
+import cuchaz.enigma.translation.mapping.AccessModifier;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.serde.MappingJournal;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.LocalVariableEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static cuchaz.enigma.TestEntryFactory.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TestMappingJournal {
+	private static final ClassEntry A = newClass("a");
+	private static final FieldEntry FIELD = newField(A, "b", "I");
+	private static final MethodEntry METHOD = newMethod(A, "c", "(I)V");
+	private static final LocalVariableEntry ARGUMENT = new LocalVariableEntry(METHOD, 1, "", true, null);
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void replaysRecordedEdits() throws Exception {
+		Path mappings = folder.newFolder("mappings").toPath();
+
+		try (MappingJournal journal = MappingJournal.open(mappings)) {
+			journal.record(A, new EntryMapping("pkg/Alpha"));
+			journal.record(FIELD, new EntryMapping("count", AccessModifier.PRIVATE, "Line one\nline two"));
+			journal.record(METHOD, new EntryMapping("run"));
+			journal.record(ARGUMENT, new EntryMapping("times"));
+			journal.record(METHOD, null);
+		}
+
+		assertThat(MappingJournal.exists(mappings), is(true));
+
+		HashEntryTree<EntryMapping> tree = new HashEntryTree<>();
+		assertThat(MappingJournal.replay(mappings, tree), is(5));
+
+		assertThat(tree.get(A).getTargetName(), is("pkg/Alpha"));
+		assertThat(tree.get(FIELD).getAccessModifier(), is(AccessModifier.PRIVATE));
+		assertThat(tree.get(FIELD).getJavadoc(), is("Line one\nline two"));
+		assertThat(tree.get(METHOD), nullValue());
+		assertThat(tree.get(ARGUMENT).getTargetName(), is("times"));
+	}
+
+	@Test
+	public void ignoresTruncatedLastLine() throws Exception {
+		Path mappings = folder.newFile("mappings.tiny").toPath();
+
+		try (MappingJournal journal = MappingJournal.open(mappings)) {
+			journal.record(A, new EntryMapping("pkg/Alpha"));
+		}
+
+		Path journalFile = mappings.resolveSibling("mappings.tiny.journal");
+		Files.write(journalFile, "+\tC\tb\tpkg/Be".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+		HashEntryTree<EntryMapping> tree = new HashEntryTree<>();
+		assertThat(MappingJournal.replay(mappings, tree), is(1));
+		assertThat(tree.get(newClass("b")), nullValue());
+	}
+
+	@Test
+	public void resetDropsEdits() throws Exception {
+		Path mappings = folder.newFolder("mappings").toPath();
+
+		try (MappingJournal journal = MappingJournal.open(mappings)) {
+			journal.record(A, new EntryMapping("pkg/Alpha"));
+			journal.reset();
+		}
+
+		assertThat(MappingJournal.replay(mappings, new HashEntryTree<>()), is(0));
+
+		MappingJournal.open(mappings).delete();
+		assertThat(MappingJournal.exists(mappings), is(false));
+	}
+
+	@Test
+	public void resetToMarkKeepsLaterEdits() throws Exception {
+		Path mappings = folder.newFolder("mappings").toPath();
+
+		try (MappingJournal journal = MappingJournal.open(mappings)) {
+			journal.record(A, new EntryMapping("pkg/Alpha"));
+			long saved = journal.mark();
+			journal.record(FIELD, new EntryMapping("count"));
+			journal.reset(saved);
+			journal.record(METHOD, new EntryMapping("run"));
+
+			// an older mark drops nothing more
+			journal.reset(saved);
+		}
+
+		HashEntryTree<EntryMapping> tree = new HashEntryTree<>();
+		assertThat(MappingJournal.replay(mappings, tree), is(2));
+		assertThat(tree.get(A), nullValue());
+		assertThat(tree.get(FIELD).getTargetName(), is("count"));
+		assertThat(tree.get(METHOD).getTargetName(), is("run"));
+	}
+}
@@ -0,0 +1,114 @@
+package cuchaz.enigma.mapping;
+
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.analysis.ClassCache;
+import cuchaz.enigma.analysis.index.JarIndex;
+import cuchaz.enigma.throwables.IllegalNameException;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.EntryRemapper;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.FieldEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import static cuchaz.enigma.TestEntryFactory.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class TestMappingValidator {
+	private static final ClassEntry BASE = newClass("a");
+	private static final ClassEntry SUB_B = newClass("c");
+	private static final ClassEntry SUB_AA = newClass("d");
+
+	private static final FieldEntry NAME = newField(BASE, "a", "Ljava/lang/String;");
+	private static final FieldEntry NUM_THINGS = newField(SUB_B, "a", "I");
+	private static final MethodEntry GET_NAME = newMethod(BASE, "a", "()Ljava/lang/String;");
+	private static final MethodEntry DO_BASE_THINGS = newMethod(BASE, "a", "()V");
+	private static final MethodEntry DO_B_THINGS = newMethod(SUB_B, "b", "()V");
+
+	private static ClassCache classCache;
+	private static JarIndex index;
+
+	@BeforeClass
+	public static void loadJar() throws IOException {
+		classCache = ClassCache.of(Paths.get("build/test-obf/inheritanceTree.jar"));
+		index = classCache.index(ProgressListener.none());
+	}
+
+	@AfterClass
+	public static void closeJar() throws IOException {
+		classCache.close();
+	}
+
+	private static boolean canRename(EntryRemapper remapper, MethodEntry entry, String name) {
+		try {
+			remapper.mapFromObf(entry, new EntryMapping(name));
+			return true;
+		} catch (IllegalNameException e) {
+			return false;
+		}
+	}
+
+	@Test
+	public void rejectsDuplicateMethod() {
+		EntryRemapper remapper = EntryRemapper.empty(index);
+		remapper.mapFromObf(DO_BASE_THINGS, new EntryMapping("doBaseThings"));
+
+		assertThat(canRename(remapper, GET_NAME, "doBaseThings"), is(false));
+		assertThat(canRename(remapper, GET_NAME, "getName"), is(true));
+	}
+
+	@Test
+	public void checksRelatedClasses() {
+		EntryRemapper remapper = EntryRemapper.empty(index);
+		remapper.mapFromObf(DO_BASE_THINGS, new EntryMapping("doThings"));
+
+		// c.b()V sits next to the override of a.a()V in c
+		assertThat(canRename(remapper, DO_B_THINGS, "doThings"), is(false));
+	}
+
+	@Test
+	public void followsRemovedAndChangedMappings() {
+		EntryRemapper remapper = EntryRemapper.empty(index);
+		remapper.mapFromObf(DO_BASE_THINGS, new EntryMapping("doBaseThings"));
+		assertThat(canRename(remapper, GET_NAME, "doBaseThings"), is(false));
+
+		remapper.mapFromObf(DO_BASE_THINGS, new EntryMapping("doOtherThings"));
+		assertThat(canRename(remapper, GET_NAME, "doBaseThings"), is(true));
+
+		remapper.removeByObf(GET_NAME);
+		remapper.removeByObf(DO_BASE_THINGS);
+		assertThat(canRename(remapper, GET_NAME, "doOtherThings"), is(true));
+	}
+
+	@Test
+	public void usesLoadedMappings() {
+		EntryTree<EntryMapping> mappings = new HashEntryTree<>();
+		mappings.insert(NAME, new EntryMapping("name"));
+		mappings.insert(SUB_AA, new EntryMapping("SubsubclassAA"));
+
+		EntryRemapper remapper = EntryRemapper.mapped(index, mappings);
+		remapper.mapFromObf(NUM_THINGS, new EntryMapping("numThings"));
+
+		try {
+			remapper.mapFromObf(NUM_THINGS, new EntryMapping("name"));
+			throw new AssertionError("Field name collision was not detected");
+		} catch (IllegalNameException e) {
+			// expected, c inherits from a
+		}
+
+		try {
+			remapper.mapFromObf(SUB_B, new EntryMapping("SubsubclassAA"));
+			throw new AssertionError("Class name collision was not detected");
+		} catch (IllegalNameException e) {
+			// expected
+		}
+	}
+}
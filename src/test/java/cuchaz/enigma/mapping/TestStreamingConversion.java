@@ -0,0 +1,140 @@
+package cuchaz.enigma.mapping;
+
+import cuchaz.enigma.ProgressListener;
+import cuchaz.enigma.command.MappingCommandsUtil;
+import cuchaz.enigma.translation.mapping.EntryMapping;
+import cuchaz.enigma.translation.mapping.MappingFileNameFormat;
+import cuchaz.enigma.translation.mapping.MappingSaveParameters;
+import cuchaz.enigma.translation.mapping.serde.MappingFormat;
+import cuchaz.enigma.translation.mapping.tree.EntryTree;
+import cuchaz.enigma.translation.mapping.tree.EntryTreeNode;
+import cuchaz.enigma.translation.mapping.tree.HashEntryTree;
+import cuchaz.enigma.translation.representation.entry.ClassEntry;
+import cuchaz.enigma.translation.representation.entry.LocalVariableEntry;
+import cuchaz.enigma.translation.representation.entry.MethodEntry;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static cuchaz.enigma.TestEntryFactory.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class TestStreamingConversion {
+	private static final MappingSaveParameters PARAMETERS = new MappingSaveParameters(MappingFileNameFormat.BY_DEOBF);
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static EntryTree<EntryMapping> mappings() {
+		EntryTree<EntryMapping> mappings = new HashEntryTree<>();
+		for (int i = 0; i < 20; i++) {
+			ClassEntry outer = newClass("a" + i);
+			ClassEntry inner = newClass("a" + i + "$b");
+			MethodEntry method = newMethod(outer, "c", "(La" + ((i + 1) % 20) + ";)V");
+
+			mappings.insert(outer, new EntryMapping("pkg/Outer" + i));
+			mappings.insert(inner, new EntryMapping("Inner"));
+			mappings.insert(newField(inner, "d", "I"), new EntryMapping("count"));
+			mappings.insert(method, new EntryMapping("accept"));
+			mappings.insert(new LocalVariableEntry(method, 1, "", true, null), new EntryMapping("next"));
+		}
+		return mappings;
+	}
+
+	@Test
+	public void tinyV2ToEnigmaDirectory() throws Exception {
+		Path source = folder.getRoot().toPath().resolve("source.tiny");
+		MappingFormat.TINY_V2.write(mappings(), source, ProgressListener.none(), PARAMETERS);
+
+		Path result = folder.getRoot().toPath().resolve("result");
+		MappingCommandsUtil.convert("tinyv2", source, "enigma", result, PARAMETERS);
+
+		assertSameMappings(MappingFormat.ENIGMA_DIRECTORY.read(result, ProgressListener.none(), PARAMETERS), mappings());
+		assertThat(Files.exists(result.resolve("pkg/Outer3.mapping")), is(true));
+	}
+
+	@Test
+	public void enigmaFileToTinyV2() throws Exception {
+		Path source = folder.getRoot().toPath().resolve("source.mapping");
+		MappingFormat.ENIGMA_FILE.write(mappings(), source, ProgressListener.none(), PARAMETERS);
+
+		Path result = folder.getRoot().toPath().resolve("result.tiny");
+		MappingCommandsUtil.convert("enigma_file", source, "tinyv2:intermediary:named", result, PARAMETERS);
+
+		assertSameMappings(MappingFormat.TINY_V2.read(result, ProgressListener.none(), PARAMETERS), mappings());
+	}
+
+	@Test
+	public void enigmaDirectoryToSrg() throws Exception {
+		Path source = folder.getRoot().toPath().resolve("source");
+		MappingFormat.ENIGMA_DIRECTORY.write(mappings(), source, ProgressListener.none(), PARAMETERS);
+
+		Path result = folder.getRoot().toPath().resolve("result.srg");
+		MappingCommandsUtil.convert("enigma", source, "srg_file", result, PARAMETERS);
+
+		List<String> lines = Files.readAllLines(result, StandardCharsets.UTF_8);
+		assertThat(lines, hasItem("CL: a3$b pkg/Outer3$Inner"));
+		assertThat(lines, hasItem("FD: a3$b/d pkg/Outer3$Inner/count"));
+		// descriptors are translated against classes converted later on
+		assertThat(lines, hasItem("MD: a3/c (La4;)V pkg/Outer3/accept (Lpkg/Outer4;)V"));
+		assertThat(lines.indexOf("CL: a19 pkg/Outer19"), lessThan(lines.indexOf("FD: a0$b/d pkg/Outer0$Inner/count")));
+	}
+
+	@Test
+	public void bucketedConversionKeepsClassOrder() throws Exception {
+		Path source = folder.getRoot().toPath().resolve("source.tiny");
+		MappingFormat.TINY_V2.write(mappings(), source, ProgressListener.none(), PARAMETERS);
+
+		Path whole = folder.getRoot().toPath().resolve("whole.mapping");
+		MappingCommandsUtil.convert("tinyv2", source, "enigma_file", whole, PARAMETERS);
+
+		Path bucketed = folder.getRoot().toPath().resolve("bucketed.mapping");
+		System.setProperty("enigma.mappings.bucketSize", "256");
+		try {
+			MappingCommandsUtil.convert("tinyv2", source, "enigma_file", bucketed, PARAMETERS);
+		} finally {
+			System.clearProperty("enigma.mappings.bucketSize");
+		}
+
+		assertThat(Files.readAllLines(bucketed, StandardCharsets.UTF_8), is(Files.readAllLines(whole, StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	public void bucketedConversionMatchesWholeWrite() throws Exception {
+		Path enigmaFile = folder.getRoot().toPath().resolve("whole.mapping");
+		MappingFormat.ENIGMA_FILE.write(mappings(), enigmaFile, ProgressListener.none(), PARAMETERS);
+		Path tinyFile = folder.getRoot().toPath().resolve("whole.tiny");
+		MappingFormat.TINY_V2.write(mappings(), tinyFile, ProgressListener.none(), PARAMETERS);
+
+		Path toTiny = folder.getRoot().toPath().resolve("converted.tiny");
+		Path toEnigma = folder.getRoot().toPath().resolve("converted.mapping");
+		System.setProperty("enigma.mappings.bucketSize", "256");
+		try {
+			MappingCommandsUtil.convert("enigma_file", enigmaFile, "tinyv2:intermediary:named", toTiny, PARAMETERS);
+			MappingCommandsUtil.convert("tinyv2", tinyFile, "enigma_file", toEnigma, PARAMETERS);
+		} finally {
+			System.clearProperty("enigma.mappings.bucketSize");
+		}
+
+		// a10 sorts before a2 by name, but after it by length
+		assertThat(Files.readAllLines(toTiny, StandardCharsets.UTF_8), is(Files.readAllLines(tinyFile, StandardCharsets.UTF_8)));
+		assertThat(Files.readAllLines(toEnigma, StandardCharsets.UTF_8), is(Files.readAllLines(enigmaFile, StandardCharsets.UTF_8)));
+	}
+
+	private static void assertSameMappings(EntryTree<EntryMapping> actual, EntryTree<EntryMapping> expected) {
+		for (EntryTreeNode<EntryMapping> node : expected) {
+			if (node.hasValue()) {
+				EntryMapping mapping = actual.get(node.getEntry());
+				assertThat(node.getEntry().toString(), mapping, notNullValue());
+				assertThat(mapping.getTargetName(), is(node.getValue().getTargetName()));
+			}
+		}
+		assertThat(actual.getAllEntries().count(), is(expected.getAllEntries().count()));
+	}
+}